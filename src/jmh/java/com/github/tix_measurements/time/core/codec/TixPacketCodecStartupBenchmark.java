@@ -0,0 +1,69 @@
+package com.github.tix_measurements.time.core.codec;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup cost of the lib, the time to encode and decode the first packets in a fresh JVM, as paid by
+ * each short lived probe agent. Run it with {@code -prof cl} to get the number of classes loaded to do it, as the
+ * {@code class.load.norm} secondary result. The setup only uses JDK classes, so none of the lib is loaded before the
+ * measured call.
+ *
+ * The same round trip through the Netty pipeline is measured by {@code TixMessageDecoderStartupBenchmark}, in the
+ * {@code tix-time-netty} module.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class TixPacketCodecStartupBenchmark {
+
+	private InetSocketAddress from;
+	private InetSocketAddress to;
+	private byte[] publicKey;
+	private byte[] message;
+	private byte[] signature;
+
+	@Setup
+	public void setup() {
+		from = InetSocketAddress.createUnresolved("localhost", 4500);
+		to = InetSocketAddress.createUnresolved("localhost", 4501);
+		publicKey = new byte[294];
+		Arrays.fill(publicKey, (byte) 1);
+		message = "1;2;3;4;5;6;7;8\n".getBytes(StandardCharsets.US_ASCII);
+		signature = new byte[256];
+		Arrays.fill(signature, (byte) 2);
+	}
+
+	@Benchmark
+	public Object firstRoundTrip() {
+		ByteBuffer buffer = ByteBuffer.allocate(4448);
+		TixPacketCodec.encode(new TixPacket(from, to, TixPacketType.SHORT, 1L), buffer);
+		buffer.flip();
+		TixPacket shortPacket = TixPacketCodec.decode(buffer, from, to);
+		buffer.clear();
+		TixPacketCodec.encode(new TixDataPacket(from, to, 2L, 1L, 1L, publicKey, message, signature), buffer);
+		buffer.flip();
+		TixDataPacket dataPacket = (TixDataPacket) TixPacketCodec.decode(buffer, from, to);
+		return dataPacket.getMessage().length + shortPacket.getInitialTimestamp();
+	}
+}
@@ -0,0 +1,100 @@
+package com.github.tix_measurements.time.core.data;
+
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogWriter;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU cost of compressing and decompressing the message of a {@link TixDataPacket}, against the bytes
+ * it saves, for a plain text log and for a delta encoded log. The {@code rawBytes} and {@code compressedBytes}
+ * secondary results of the {@code compress} benchmark, divided by its number of operations, give the size of each
+ * message before and after compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TixDataPacketCompressionBenchmark {
+
+	@Param({"text", "delta"})
+	public String log;
+
+	private byte[] message;
+	private byte[] compressedMessage;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Sizes {
+		public long rawBytes;
+		public long compressedBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			rawBytes = 0;
+			compressedBytes = 0;
+		}
+	}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(42);
+		long initial = 40000000000000L;
+		if ("text".equals(log)) {
+			StringBuilder builder = new StringBuilder();
+			while (builder.length() < 3000) {
+				initial += 1000000000L + random.nextInt(1000000);
+				long offset = 5000000L + random.nextInt(100000);
+				builder.append(initial).append(';').append(initial + offset).append(';')
+						.append(initial + offset + 20000 + random.nextInt(1000)).append(';')
+						.append(initial + 2 * offset + random.nextInt(100000)).append('\n');
+			}
+			message = builder.toString().getBytes(StandardCharsets.US_ASCII);
+		} else {
+			TixMeasurementLogWriter writer = new TixMeasurementLogWriter();
+			for (int i = 0; i < TixMeasurementLogWriter.DEFAULT_CAPACITY; i++) {
+				initial += 1000000000L + random.nextInt(1000000);
+				long offset = 5000000L + random.nextInt(100000);
+				writer.append(initial, initial + offset, initial + offset + 20000 + random.nextInt(1000),
+						initial + 2 * offset + random.nextInt(100000));
+			}
+			message = writer.nextMessage();
+		}
+		compressedMessage = TixCoreUtils.COMPRESSOR.apply(message);
+	}
+
+	@Benchmark
+	public byte[] compress(Sizes sizes) {
+		byte[] compressed = TixCoreUtils.COMPRESSOR.apply(message);
+		sizes.rawBytes += message.length;
+		sizes.compressedBytes += compressed.length;
+		return compressed;
+	}
+
+	@Benchmark
+	public byte[] decompress() {
+		return TixCoreUtils.DECOMPRESSOR.apply(compressedMessage);
+	}
+
+	@Benchmark
+	public String base64Encode() {
+		return TixCoreUtils.ENCODER.apply(message);
+	}
+}
@@ -0,0 +1,288 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+
+/**
+ * Streaming estimator of the skew and offset of the clock of the server relative to the clock of each installation.
+ *
+ * The one way delay from the installation to the server, the reception minus the initial timestamp, is the delay of
+ * the network plus the offset of the server clock, and the one way delay back, the final minus the sent timestamp, is
+ * the delay of the network minus that offset. Queueing only ever adds delay, so the skew shows as the slope of the
+ * lowest delays in each direction. Each direction is fitted with the line that lies under every delay and is the
+ * closest to them overall, which is the edge of the lower convex hull of the delays spanning their mean time, as
+ * proposed by Zhang, Liu and Xia for the one way delays of Internet paths. Assuming the minimum delay is the same both
+ * ways, the skew is half the difference of the two slopes and the offset half the difference of the two lines.
+ *
+ * The hulls are updated as each sample arrives, popping the points it leaves above the hull, so a sample costs O(1)
+ * amortized and the estimates can be read at any time in O(log h), where h is the number of points of the hulls,
+ * without going over the past samples. The hulls of noisy delays have few points, but each one is bounded to
+ * {@link #maxHullPoints} by dropping its oldest half when full, which forgets the oldest samples. The mean time is
+ * then only that of the samples both hulls still cover, since the oldest point they kept, so the edges are always
+ * taken within the hulls.
+ *
+ * The samples of each installation must be offered in the order of their initial timestamps, for example through a
+ * {@link TixReorderBuffer}; the older ones are dropped and counted in {@link #getOutOfOrderSamples()}. The samples
+ * of probes that were never echoed are ignored. The initial timestamps are unwrapped across midnight, as long as the
+ * samples of an installation are less than half a day apart.
+ *
+ * It is not thread safe.
+ */
+public class TixClockSkewEstimator implements TixReorderBuffer.TimestampsConsumer {
+
+	/**
+	 * Default maximum number of points of each hull.
+	 */
+	public static final int DEFAULT_MAX_HULL_POINTS = 256;
+
+	/**
+	 * Maximum number of points of each hull.
+	 */
+	private final int maxHullPoints;
+
+	private final LongObjectHashMap<Installation> installations = new LongObjectHashMap<>();
+
+	/**
+	 * Number of samples dropped for being older than a sample already offered.
+	 */
+	private long outOfOrderSamples;
+
+	/**
+	 * Creates an estimator whose hulls have at most {@link #DEFAULT_MAX_HULL_POINTS} points.
+	 */
+	public TixClockSkewEstimator() {
+		this(DEFAULT_MAX_HULL_POINTS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixClockSkewEstimator}.
+	 *
+	 * @param maxHullPoints {@link #maxHullPoints}, at least four
+	 */
+	public TixClockSkewEstimator(int maxHullPoints) {
+		checkArgument(maxHullPoints >= 4, "maxHullPoints must be at least 4");
+		this.maxHullPoints = maxHullPoints;
+	}
+
+	/**
+	 * Adds a sample of {@code installationId} to its estimates.
+	 *
+	 * @param installationId Installation ID of the sample
+	 * @param initialTimestamp Initial timestamp of the sample
+	 * @param receptionTimestamp Reception timestamp of the sample
+	 * @param sentTimestamp Sent timestamp of the sample
+	 * @param finalTimestamp Final timestamp of the sample, or {@code 0} if the probe was never echoed
+	 */
+	@Override
+	public void accept(long installationId, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                   long finalTimestamp) {
+		if (finalTimestamp == 0) {
+			return;
+		}
+		Installation installation = installations.get(installationId);
+		if (installation == null) {
+			installation = new Installation(initialTimestamp, maxHullPoints);
+			installations.put(installationId, installation);
+		}
+		long time = installation.latest
+				+ TixCoreUtils.nanosOfDayDifference(initialTimestamp, installation.latestInitialTimestamp);
+		if (time < installation.latest) {
+			outOfOrderSamples++;
+			return;
+		}
+		installation.latest = time;
+		installation.latestInitialTimestamp = initialTimestamp;
+		installation.forward.add(time, TixCoreUtils.nanosOfDayDifference(receptionTimestamp, initialTimestamp),
+				installation.samples, installation.timesSum);
+		installation.backward.add(time, TixCoreUtils.nanosOfDayDifference(finalTimestamp, sentTimestamp),
+				installation.samples, installation.timesSum);
+		installation.samples++;
+		installation.timesSum += time;
+	}
+
+	/**
+	 * Returns {@code true} if the installation has samples taken at two different times at least, so its skew and
+	 * offset can be estimated.
+	 *
+	 * @param installationId Installation ID
+	 * @return {@code boolean}
+	 */
+	public boolean hasEstimate(long installationId) {
+		Installation installation = installations.get(installationId);
+		return installation != null && installation.forward.size >= 2;
+	}
+
+	/**
+	 * Returns the skew of the clock of the server relative to the clock of the installation, in parts per million: the
+	 * microseconds the server clock gains per second of the installation clock.
+	 *
+	 * @param installationId Installation ID
+	 * @return {@code double} skew, or {@link Double#NaN} if there is no estimate yet
+	 */
+	public double getSkewPpm(long installationId) {
+		if (!hasEstimate(installationId)) {
+			return Double.NaN;
+		}
+		Installation installation = installations.get(installationId);
+		double meanTime = installation.meanTime();
+		return (installation.forward.slopeAt(meanTime) - installation.backward.slopeAt(meanTime)) / 2 * 1e6;
+	}
+
+	/**
+	 * Returns the offset of the clock of the server from the clock of the installation at the initial timestamp of
+	 * the latest sample, in nanoseconds.
+	 *
+	 * @param installationId Installation ID
+	 * @return {@code double} offset, or {@link Double#NaN} if there is no estimate yet
+	 */
+	public double getOffsetNanos(long installationId) {
+		if (!hasEstimate(installationId)) {
+			return Double.NaN;
+		}
+		Installation installation = installations.get(installationId);
+		double meanTime = installation.meanTime();
+		double forwardSlope = installation.forward.slopeAt(meanTime);
+		double backwardSlope = installation.backward.slopeAt(meanTime);
+		double offset = (installation.forward.valueAt(meanTime) - installation.backward.valueAt(meanTime)) / 2;
+		return offset + (forwardSlope - backwardSlope) / 2 * (installation.latest - meanTime);
+	}
+
+	/**
+	 * Forgets the samples of {@code installationId}.
+	 *
+	 * @param installationId Installation ID
+	 */
+	public void remove(long installationId) {
+		installations.remove(installationId);
+	}
+
+	/**
+	 * Returns the number of installations with samples.
+	 * @return {@code int} number of installations
+	 */
+	public int size() {
+		return installations.size();
+	}
+
+	/**
+	 * Returns the number of samples dropped for being older than a sample already offered.
+	 * @return {@link #outOfOrderSamples}
+	 */
+	public long getOutOfOrderSamples() {
+		return outOfOrderSamples;
+	}
+
+	/**
+	 * Samples of an installation, with the times in nanoseconds since its first sample.
+	 */
+	private static final class Installation {
+		private final Hull forward;
+		private final Hull backward;
+		private long latestInitialTimestamp;
+		private long latest;
+		private long samples;
+		private double timesSum;
+
+		private Installation(long initialTimestamp, int maxHullPoints) {
+			this.forward = new Hull(maxHullPoints);
+			this.backward = new Hull(maxHullPoints);
+			this.latestInitialTimestamp = initialTimestamp;
+		}
+
+		/**
+		 * Returns the mean time of the samples since the oldest point of the hulls, the later one of the two if they
+		 * were halved at different times.
+		 */
+		private double meanTime() {
+			Hull oldest = forward.samplesBefore[0] >= backward.samplesBefore[0] ? forward : backward;
+			return (timesSum - oldest.timesSumBefore[0]) / (samples - oldest.samplesBefore[0]);
+		}
+	}
+
+	/**
+	 * Lower convex hull of delays by time, built with the monotone chain algorithm as the times only grow. Each point
+	 * keeps the number of samples before its time and the sum of their times, so the samples the hull no longer covers
+	 * can be told apart once its oldest points are dropped.
+	 */
+	private static final class Hull {
+		private final long[] times;
+		private final long[] delays;
+		private final long[] samplesBefore;
+		private final double[] timesSumBefore;
+		private int size;
+
+		private Hull(int maxPoints) {
+			this.times = new long[maxPoints];
+			this.delays = new long[maxPoints];
+			this.samplesBefore = new long[maxPoints];
+			this.timesSumBefore = new double[maxPoints];
+		}
+
+		/**
+		 * Adds the delay of a sample at {@code time}, after {@code samples} samples whose times sum
+		 * {@code timesSum}.
+		 */
+		private void add(long time, long delay, long samples, double timesSum) {
+			if (size > 0 && times[size - 1] == time) {
+				if (delays[size - 1] <= delay) {
+					return;
+				}
+				size--;
+				samples = samplesBefore[size];
+				timesSum = timesSumBefore[size];
+			}
+			while (size >= 2 && !isLeftTurn(size - 2, size - 1, time, delay)) {
+				size--;
+			}
+			if (size == times.length) {
+				int kept = size - size / 2;
+				System.arraycopy(times, size / 2, times, 0, kept);
+				System.arraycopy(delays, size / 2, delays, 0, kept);
+				System.arraycopy(samplesBefore, size / 2, samplesBefore, 0, kept);
+				System.arraycopy(timesSumBefore, size / 2, timesSumBefore, 0, kept);
+				size = kept;
+			}
+			times[size] = time;
+			delays[size] = delay;
+			samplesBefore[size] = samples;
+			timesSumBefore[size] = timesSum;
+			size++;
+		}
+
+		private boolean isLeftTurn(int first, int second, long time, long delay) {
+			double cross = (double) (times[second] - times[first]) * (delay - delays[first])
+					- (double) (delays[second] - delays[first]) * (time - times[first]);
+			return cross > 0;
+		}
+
+		/**
+		 * Returns the index of the first point of the edge spanning {@code time}, or of the first or last edge if the
+		 * time is out of the hull.
+		 */
+		private int edgeAt(double time) {
+			int low = 0;
+			int high = size - 2;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (times[middle] <= time) {
+					low = middle;
+				} else {
+					high = middle - 1;
+				}
+			}
+			return low;
+		}
+
+		private double slopeAt(double time) {
+			int edge = edgeAt(time);
+			return (double) (delays[edge + 1] - delays[edge]) / (times[edge + 1] - times[edge]);
+		}
+
+		private double valueAt(double time) {
+			int edge = edgeAt(time);
+			return delays[edge] + slopeAt(time) * (time - times[edge]);
+		}
+	}
+}
@@ -0,0 +1,391 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import com.github.tix_measurements.time.core.util.TixVarintReader;
+import com.github.tix_measurements.time.core.util.TixVarintWriter;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.util.Arrays;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Mergeable histogram of non negative {@code long} values, such as round trip times in nanoseconds, that answers
+ * quantile queries with a bounded relative error.
+ *
+ * Like an HDR histogram, each power of two is split into {@code 2^precisionBits} buckets of equal width, so a bucket
+ * is never wider than {@code 2^-precisionBits} times its lower bound, and a quantile is answered with the middle of its
+ * bucket, within half that relative error. The values below {@code 2^precisionBits} get a bucket each and are exact.
+ * The bucket of a value is computed with a few shifts, without logarithms.
+ *
+ * Only the range of buckets between the smallest and the largest value recorded is allocated, so a sketch of values
+ * within a factor of four of each other takes about {@code 2^(precisionBits + 1)} counters. Two sketches with the same
+ * precision are merged by adding their counters, which gives the same sketch as recording both sets of values.
+ *
+ * A sketch can be encoded with {@link #toBytes()}, so it can be built where the samples are taken and merged with the
+ * sketches of other nodes wherever they are collected, at a cost that depends on the number of buckets and not on the
+ * number of samples. The layout of the encoding is:
+ * <ul>
+ *     <li>the {@link #FORMAT_MARKER} bytes, followed by the number of bits of precision in a single byte;</li>
+ *     <li>the number of values, the smallest value and the difference between the largest and the smallest one, as
+ *     unsigned varints, the last two only if there is any value;</li>
+ *     <li>the number of buckets with any value, and for each one of them, sorted, the difference of its index with the
+ *     index of the previous one, or of the bucket of the smallest value for the first one, followed by its counter,
+ *     all of them as unsigned varints.</li>
+ * </ul>
+ * As the round trip times of a window are close to each other, a sketch usually takes two or three bytes per bucket.
+ *
+ * It is not thread safe.
+ */
+public class TixLatencySketch {
+
+	/**
+	 * Default number of bits of precision, for a relative error of the quantiles below {@code 0.4%}.
+	 */
+	public static final int DEFAULT_PRECISION_BITS = 7;
+
+	/**
+	 * Maximum number of bits of precision.
+	 */
+	public static final int MAX_PRECISION_BITS = 16;
+
+	/**
+	 * Bytes that start every encoded sketch.
+	 */
+	public static final byte[] FORMAT_MARKER = {0x00, 'S', 0x01};
+
+	private static final String FORMAT_NAME = "latency sketch";
+
+	private static final int INITIAL_BUCKETS = 16;
+
+	/**
+	 * Number of bits of each value, after the most significant one, that select its bucket.
+	 */
+	private final int precisionBits;
+
+	/**
+	 * Counters of the buckets from {@link #offset} on.
+	 */
+	private long[] counts;
+
+	/**
+	 * Index of the bucket of {@code counts[0]}.
+	 */
+	private int offset;
+
+	private long count;
+
+	private long min = Long.MAX_VALUE;
+
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Creates a sketch with {@link #DEFAULT_PRECISION_BITS} bits of precision.
+	 */
+	public TixLatencySketch() {
+		this(DEFAULT_PRECISION_BITS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixLatencySketch}.
+	 *
+	 * @param precisionBits {@link #precisionBits}, from {@code 1} to {@link #MAX_PRECISION_BITS}
+	 */
+	public TixLatencySketch(int precisionBits) {
+		checkArgument(precisionBits >= 1 && precisionBits <= MAX_PRECISION_BITS,
+				"precisionBits must be between 1 and " + MAX_PRECISION_BITS + ", got " + precisionBits);
+		this.precisionBits = precisionBits;
+	}
+
+	/**
+	 * Records {@code value} once.
+	 *
+	 * @param value Value to record
+	 */
+	public void record(long value) {
+		checkNotNegative(value, "value");
+		int index = indexOf(value);
+		ensureCovers(index, index);
+		counts[index - offset]++;
+		count++;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Records the round trip time, in nanoseconds, of an echoed {@code packet}, as computed by
+	 * {@link TixCoreUtils#roundTripTime(long, long, long, long)}.
+	 *
+	 * @param packet {@link TixPacket} with its four timestamps
+	 */
+	public void record(TixPacket packet) {
+		checkNotNull(packet, "packet");
+		checkArgument(packet.getFinalTimestamp() != 0, "packet must have a final timestamp");
+		record(TixCoreUtils.roundTripTime(packet.getInitialTimestamp(), packet.getReceptionTimestamp(),
+				packet.getSentTimestamp(), packet.getFinalTimestamp()));
+	}
+
+	/**
+	 * Adds every value recorded in {@code other} to this sketch.
+	 *
+	 * @param other {@link TixLatencySketch} with the same {@link #precisionBits}
+	 */
+	public void merge(TixLatencySketch other) {
+		checkNotNull(other, "other");
+		checkArgument(other.precisionBits == precisionBits,
+				"Can not merge a sketch of " + other.precisionBits + " bits into one of " + precisionBits + " bits");
+		if (other.count == 0) {
+			return;
+		}
+		int first = other.offset;
+		int last = other.offset + other.counts.length - 1;
+		ensureCovers(first, last);
+		for (int i = 0; i < other.counts.length; i++) {
+			counts[first - offset + i] += other.counts[i];
+		}
+		count += other.count;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns the value at quantile {@code quantile}, the smallest value such that at least that fraction of the
+	 * values recorded are lower or equal, within the relative error of the sketch.
+	 *
+	 * @param quantile Quantile, from {@code 0} to {@code 1}
+	 * @return {@code long} value at the quantile, or {@code 0} if the sketch is empty
+	 */
+	public long getValueAtQuantile(double quantile) {
+		checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1, got " + quantile);
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				int index = offset + i;
+				long value = lowerBoundOf(index) + (widthOf(index) - 1) / 2;
+				return Math.max(min, Math.min(max, value));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns the maximum relative error of the values returned by {@link #getValueAtQuantile(double)}.
+	 *
+	 * @return {@code double} relative error
+	 */
+	public double getRelativeError() {
+		return 1.0 / (1 << (precisionBits + 1));
+	}
+
+	/**
+	 * Returns the number of bits of precision.
+	 * @return {@link #precisionBits}
+	 */
+	public int getPrecisionBits() {
+		return precisionBits;
+	}
+
+	/**
+	 * Returns the number of values recorded.
+	 * @return {@code long} number of values
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the smallest value recorded, exactly.
+	 * @return {@code long} smallest value, or {@code 0} if the sketch is empty
+	 */
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * Returns the largest value recorded, exactly.
+	 * @return {@code long} largest value, or {@code 0} if the sketch is empty
+	 */
+	public long getMax() {
+		return count == 0 ? 0 : max;
+	}
+
+	/**
+	 * Forgets every value recorded, keeping the counters allocated.
+	 */
+	public void clear() {
+		if (counts != null) {
+			Arrays.fill(counts, 0);
+		}
+		count = 0;
+		min = Long.MAX_VALUE;
+		max = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Encodes this sketch in its compact binary form.
+	 *
+	 * @return {@code byte[]} with the encoded sketch
+	 */
+	public byte[] toBytes() {
+		TixVarintWriter writer = new TixVarintWriter(FORMAT_MARKER.length + 32);
+		writer.writeBytes(FORMAT_MARKER);
+		writer.writeByte(precisionBits);
+		writer.writeVarint(count);
+		if (count == 0) {
+			return writer.toByteArray();
+		}
+		writer.writeVarint(min);
+		writer.writeVarint(max - min);
+		int buckets = 0;
+		for (long counter : counts) {
+			if (counter != 0) {
+				buckets++;
+			}
+		}
+		writer.writeVarint(buckets);
+		int previous = indexOf(min);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				writer.writeVarint(offset + i - previous);
+				writer.writeVarint(counts[i]);
+				previous = offset + i;
+			}
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Decodes a sketch encoded by {@link #toBytes()}.
+	 *
+	 * @param bytes {@code byte[]} with the encoded sketch
+	 * @return {@link TixLatencySketch} decoded
+	 * @throws IllegalArgumentException if {@code bytes} is not a well formed sketch
+	 */
+	public static TixLatencySketch fromBytes(byte[] bytes) {
+		checkNotNull(bytes, "bytes");
+		checkArgument(bytes.length >= FORMAT_MARKER.length
+						&& Arrays.equals(Arrays.copyOf(bytes, FORMAT_MARKER.length), FORMAT_MARKER),
+				"Not a " + FORMAT_NAME);
+		TixVarintReader reader = new TixVarintReader(bytes, FORMAT_MARKER.length, FORMAT_NAME);
+		int precisionBits = reader.readByte();
+		checkArgument(precisionBits >= 1 && precisionBits <= MAX_PRECISION_BITS,
+				"Malformed " + FORMAT_NAME + ": " + precisionBits + " bits of precision");
+		TixLatencySketch sketch = new TixLatencySketch(precisionBits);
+		long count = reader.readVarint();
+		checkArgument(count >= 0, "Malformed " + FORMAT_NAME + ": negative count");
+		if (count > 0) {
+			long min = reader.readVarint();
+			long max = min + reader.readVarint();
+			checkArgument(min >= 0 && max >= min, "Malformed " + FORMAT_NAME + ": invalid range");
+			long buckets = reader.readVarint();
+			checkArgument(buckets > 0 && buckets <= count,
+					"Malformed " + FORMAT_NAME + ": " + buckets + " buckets for " + count + " values");
+			int first = sketch.indexOf(min);
+			int last = sketch.indexOf(max);
+			sketch.counts = new long[last - first + 1];
+			sketch.offset = first;
+			long index = first;
+			long seen = 0;
+			for (long i = 0; i < buckets; i++) {
+				long gap = reader.readVarint();
+				long counter = reader.readVarint();
+				checkArgument(gap >= (i == 0 ? 0 : 1) && gap <= last - index,
+						"Malformed " + FORMAT_NAME + ": bucket out of range");
+				checkArgument(counter > 0 && counter <= count - seen,
+						"Malformed " + FORMAT_NAME + ": invalid counter");
+				index += gap;
+				sketch.counts[(int) (index - first)] = counter;
+				seen += counter;
+			}
+			checkArgument(seen == count && sketch.counts[0] != 0 && sketch.counts[last - first] != 0,
+					"Malformed " + FORMAT_NAME + ": counters do not match its values");
+			sketch.count = count;
+			sketch.min = min;
+			sketch.max = max;
+		}
+		checkArgument(reader.isAtEnd(), "Malformed " + FORMAT_NAME + ": trailing bytes");
+		return sketch;
+	}
+
+	/**
+	 * Returns the index of the bucket of {@code value}.
+	 */
+	int indexOf(long value) {
+		if (value < (1L << precisionBits)) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int block = exponent - precisionBits + 1;
+		int mantissa = (int) (value >>> (exponent - precisionBits)) & ((1 << precisionBits) - 1);
+		return (block << precisionBits) + mantissa;
+	}
+
+	/**
+	 * Returns the smallest value of the bucket {@code index}.
+	 */
+	long lowerBoundOf(int index) {
+		int block = index >>> precisionBits;
+		if (block == 0) {
+			return index;
+		}
+		long mantissa = index & ((1 << precisionBits) - 1);
+		return ((1L << precisionBits) + mantissa) << (block - 1);
+	}
+
+	private long widthOf(int index) {
+		int block = index >>> precisionBits;
+		return block == 0 ? 1 : 1L << (block - 1);
+	}
+
+	/**
+	 * Grows {@link #counts}, if needed, so it covers the buckets from {@code first} to {@code last}.
+	 */
+	private void ensureCovers(int first, int last) {
+		if (counts == null) {
+			counts = new long[Math.max(INITIAL_BUCKETS, last - first + 1)];
+			offset = Math.max(0, first - (counts.length - (last - first + 1)) / 2);
+			return;
+		}
+		int end = offset + counts.length;
+		if (first >= offset && last < end) {
+			return;
+		}
+		int newFirst = Math.min(first, offset);
+		int newEnd = Math.max(last + 1, end);
+		int length = Math.max(newEnd - newFirst, counts.length * 2);
+		if (first < offset) {
+			newFirst = Math.max(0, newEnd - length);
+		}
+		long[] grown = new long[length];
+		System.arraycopy(counts, 0, grown, offset - newFirst, counts.length);
+		counts = grown;
+		offset = newFirst;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+				.append("count", this.getCount())
+				.append("min", this.getMin())
+				.append("p50", this.getValueAtQuantile(0.5))
+				.append("p99", this.getValueAtQuantile(0.99))
+				.append("max", this.getMax())
+				.toString();
+	}
+}
@@ -0,0 +1,321 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Streaming reorder buffer that emits the timestamps of each installation sorted by their initial timestamp.
+ *
+ * The samples of each installation are held in a binary min heap laid out in primitive arrays. A sample is emitted
+ * once a sample at least {@link #latenessNanos} newer has been offered for the same installation, so each sample costs
+ * O(log n) where n is the number of samples within the lateness bound. Samples arriving after a newer one was already
+ * emitted can not be placed in order any more; they are dropped and counted in {@link #getLateSamples()}.
+ *
+ * An installation that stops sending would hold its last samples forever, so {@link #expire()} also emits them by the
+ * local {@link #clock}: the time elapsed since the newest sample of an installation was offered is taken as time
+ * elapsed on its clock, and the samples that would have been emitted by a sample offered now are emitted. It is meant
+ * to be called periodically by the user, as {@link #offer(long, long, long, long, long)} only releases the samples of
+ * the installation offered.
+ *
+ * The initial timestamps are nanoseconds of the day, so they are unwrapped across midnight before being compared. This
+ * is correct as long as the samples of an installation arrive less than half a day out of order.
+ *
+ * It is not thread safe.
+ */
+public class TixReorderBuffer {
+
+	/**
+	 * Receiver of the timestamps emitted by a {@link TixReorderBuffer}.
+	 */
+	@FunctionalInterface
+	public interface TimestampsConsumer {
+		/**
+		 * Receives the timestamps of a sample.
+		 *
+		 * @param installationId Installation ID of the sample
+		 * @param initialTimestamp Initial timestamp of the sample
+		 * @param receptionTimestamp Reception timestamp of the sample
+		 * @param sentTimestamp Sent timestamp of the sample
+		 * @param finalTimestamp Final timestamp of the sample
+		 */
+		void accept(long installationId, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+		            long finalTimestamp);
+	}
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Nanoseconds a sample is held waiting for older samples to arrive.
+	 */
+	private final long latenessNanos;
+
+	/**
+	 * {@link TimestampsConsumer} to which the sorted samples are emitted.
+	 */
+	private final TimestampsConsumer consumer;
+
+	/**
+	 * Monotonic clock, in nanoseconds, of the moment the newest sample of each installation was offered.
+	 */
+	private final LongSupplier clock;
+
+	private final LongObjectHashMap<Installation> installations = new LongObjectHashMap<>();
+
+	/**
+	 * Number of samples dropped for arriving after a newer sample was emitted.
+	 */
+	private long lateSamples;
+
+	/**
+	 * Number of samples held.
+	 */
+	private int size;
+
+	/**
+	 * Main constructor of the class {@code TixReorderBuffer}.
+	 *
+	 * @param latenessBound Time a sample is held waiting for older samples to arrive
+	 * @param unit {@link TimeUnit} of the {@code latenessBound}
+	 * @param consumer {@link #consumer}
+	 */
+	public TixReorderBuffer(long latenessBound, TimeUnit unit, TimestampsConsumer consumer) {
+		this(latenessBound, unit, consumer, System::nanoTime);
+	}
+
+	TixReorderBuffer(long latenessBound, TimeUnit unit, TimestampsConsumer consumer, LongSupplier clock) {
+		checkNotNegative(latenessBound, "latenessBound");
+		checkNotNull(unit, "unit");
+		checkArgument(unit.toNanos(latenessBound) < TixCoreUtils.NANOS_PER_DAY / 2,
+				"latenessBound must be shorter than half a day");
+		checkNotNull(consumer, "consumer");
+		checkNotNull(clock, "clock");
+		this.latenessNanos = unit.toNanos(latenessBound);
+		this.consumer = consumer;
+		this.clock = clock;
+	}
+
+	/**
+	 * Offers the timestamps of {@code packet} as a sample of {@code installationId}.
+	 *
+	 * @param installationId Installation ID of the sample
+	 * @param packet {@link TixPacket} with the timestamps of the sample
+	 */
+	public void offer(long installationId, TixPacket packet) {
+		offer(installationId, packet.getInitialTimestamp(), packet.getReceptionTimestamp(),
+				packet.getSentTimestamp(), packet.getFinalTimestamp());
+	}
+
+	/**
+	 * Offers a sample of {@code installationId}, emitting every sample of the installation that is now older than the
+	 * lateness bound.
+	 *
+	 * @param installationId Installation ID of the sample
+	 * @param initialTimestamp Initial timestamp of the sample, by which samples are sorted
+	 * @param receptionTimestamp Reception timestamp of the sample
+	 * @param sentTimestamp Sent timestamp of the sample
+	 * @param finalTimestamp Final timestamp of the sample
+	 */
+	public void offer(long installationId, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                  long finalTimestamp) {
+		Installation installation = installations.get(installationId);
+		if (installation == null) {
+			installation = new Installation(initialTimestamp, clock.getAsLong());
+			installations.put(installationId, installation);
+		}
+		long unwrapped = installation.latest
+				+ TixCoreUtils.nanosOfDayDifference(initialTimestamp, installation.latest);
+		if (unwrapped < installation.lastEmitted) {
+			lateSamples++;
+			return;
+		}
+		installation.push(unwrapped, initialTimestamp, receptionTimestamp, sentTimestamp, finalTimestamp);
+		size++;
+		if (unwrapped > installation.latest) {
+			installation.latest = unwrapped;
+			installation.latestOffered = clock.getAsLong();
+		}
+		emitUpTo(installationId, installation, installation.latest);
+	}
+
+	/**
+	 * Emits, for every installation, the samples that have been held for the lateness bound as measured by the
+	 * {@link #clock} since its newest sample was offered, as if a sample had been offered now.
+	 */
+	public void expire() {
+		long now = clock.getAsLong();
+		installations.forEach((installationId, installation) ->
+				emitUpTo(installationId, installation, installation.latest + (now - installation.latestOffered)));
+	}
+
+	/**
+	 * Emits the samples of {@code installation} that are older than the lateness bound at the unwrapped initial
+	 * timestamp {@code now}.
+	 */
+	private void emitUpTo(long installationId, Installation installation, long now) {
+		while (installation.size > 0 && now - installation.order[0] >= latenessNanos) {
+			emit(installationId, installation);
+		}
+	}
+
+	/**
+	 * Emits every sample held for {@code installationId}, regardless of the lateness bound.
+	 *
+	 * @param installationId Installation ID of the samples
+	 */
+	public void flush(long installationId) {
+		Installation installation = installations.get(installationId);
+		if (installation != null) {
+			while (installation.size > 0) {
+				emit(installationId, installation);
+			}
+		}
+	}
+
+	/**
+	 * Emits every sample held, regardless of the lateness bound.
+	 */
+	public void flush() {
+		installations.forEach((installationId, installation) -> {
+			while (installation.size > 0) {
+				emit(installationId, installation);
+			}
+		});
+	}
+
+	/**
+	 * Emits every sample held for {@code installationId} and forgets the installation.
+	 *
+	 * @param installationId Installation ID of the samples
+	 */
+	public void remove(long installationId) {
+		flush(installationId);
+		installations.remove(installationId);
+	}
+
+	/**
+	 * Returns the number of samples held.
+	 * @return {@link #size}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of samples dropped for arriving after a newer sample was emitted.
+	 * @return {@link #lateSamples}
+	 */
+	public long getLateSamples() {
+		return lateSamples;
+	}
+
+	private void emit(long installationId, Installation installation) {
+		long[] samples = installation.samples;
+		installation.lastEmitted = installation.order[0];
+		consumer.accept(installationId, samples[0], samples[1], samples[2], samples[3]);
+		installation.pop();
+		size--;
+	}
+
+	/**
+	 * Binary min heap of the samples of an installation, ordered by their unwrapped initial timestamp.
+	 */
+	private static final class Installation {
+		private long[] order = new long[INITIAL_CAPACITY];
+		private long[] samples = new long[INITIAL_CAPACITY * 4];
+		private int size;
+
+		/**
+		 * Newest unwrapped initial timestamp offered.
+		 */
+		private long latest;
+
+		/**
+		 * Moment, by the {@link #clock}, the newest sample was offered.
+		 */
+		private long latestOffered;
+
+		/**
+		 * Unwrapped initial timestamp of the last sample emitted.
+		 */
+		private long lastEmitted = Long.MIN_VALUE;
+
+		Installation(long firstTimestamp, long offered) {
+			this.latest = firstTimestamp;
+			this.latestOffered = offered;
+		}
+
+		void push(long key, long initialTimestamp, long receptionTimestamp, long sentTimestamp, long finalTimestamp) {
+			if (size == order.length) {
+				order = Arrays.copyOf(order, size * 2);
+				samples = Arrays.copyOf(samples, size * 8);
+			}
+			int index = size++;
+			set(index, key, initialTimestamp, receptionTimestamp, sentTimestamp, finalTimestamp);
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+				if (order[parent] <= order[index]) {
+					break;
+				}
+				swap(index, parent);
+				index = parent;
+			}
+		}
+
+		void pop() {
+			size--;
+			if (size == 0) {
+				return;
+			}
+			swap(0, size);
+			int index = 0;
+			while (true) {
+				int smallest = index;
+				int left = 2 * index + 1;
+				int right = left + 1;
+				if (left < size && order[left] < order[smallest]) {
+					smallest = left;
+				}
+				if (right < size && order[right] < order[smallest]) {
+					smallest = right;
+				}
+				if (smallest == index) {
+					return;
+				}
+				swap(index, smallest);
+				index = smallest;
+			}
+		}
+
+		private void set(int index, long key, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+		                 long finalTimestamp) {
+			order[index] = key;
+			int base = index * 4;
+			samples[base] = initialTimestamp;
+			samples[base + 1] = receptionTimestamp;
+			samples[base + 2] = sentTimestamp;
+			samples[base + 3] = finalTimestamp;
+		}
+
+		private void swap(int i, int j) {
+			long key = order[i];
+			order[i] = order[j];
+			order[j] = key;
+			int iBase = i * 4;
+			int jBase = j * 4;
+			for (int k = 0; k < 4; k++) {
+				long value = samples[iBase + k];
+				samples[iBase + k] = samples[jBase + k];
+				samples[jBase + k] = value;
+			}
+		}
+	}
+}
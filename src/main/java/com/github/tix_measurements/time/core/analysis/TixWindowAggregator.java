@@ -0,0 +1,216 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Streaming stage that reduces the samples of each installation into tumbling windows, emitting a
+ * {@link TixWindowSummary} per installation and window instead of the samples themselves.
+ *
+ * The windows are aligned to the initial timestamps of the samples, in nanoseconds of the day of the installation,
+ * so the window length must divide a day. Each installation has a single open window, which is emitted as soon as a
+ * sample of a later window arrives, or by {@link #expire()} once the installation did not send any sample for two
+ * windows. A sample of a window already emitted is dropped and counted in {@link #getLateSamples()}, so the samples
+ * are best offered through a {@link TixReorderBuffer}, which this class can consume from.
+ *
+ * The round trip time of each sample, its total delay minus the time it spent in the server, is recorded in a
+ * {@link TixLatencySketch}. A sample without final timestamp is a probe that was never echoed and is counted as lost.
+ *
+ * It is not thread safe.
+ */
+public class TixWindowAggregator implements TixReorderBuffer.TimestampsConsumer {
+
+	/**
+	 * Default length of the windows, in nanoseconds.
+	 */
+	public static final long DEFAULT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	/**
+	 * Length of the windows, in nanoseconds.
+	 */
+	private final long windowNanos;
+
+	/**
+	 * Number of bits of precision of the sketches.
+	 */
+	private final int precisionBits;
+
+	/**
+	 * Receiver of the summaries of the windows.
+	 */
+	private final Consumer<TixWindowSummary> consumer;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to expire the windows of the idle installations.
+	 */
+	private final LongSupplier clock;
+
+	private final LongObjectHashMap<Window> windows = new LongObjectHashMap<>();
+
+	/**
+	 * Number of samples dropped for belonging to a window already emitted.
+	 */
+	private long lateSamples;
+
+	/**
+	 * Number of summaries emitted.
+	 */
+	private long emittedSummaries;
+
+	/**
+	 * Creates an aggregator of one minute windows, with sketches of {@link TixLatencySketch#DEFAULT_PRECISION_BITS}.
+	 *
+	 * @param consumer {@link #consumer}
+	 */
+	public TixWindowAggregator(Consumer<TixWindowSummary> consumer) {
+		this(DEFAULT_WINDOW_NANOS, TimeUnit.NANOSECONDS, consumer);
+	}
+
+	/**
+	 * Creates an aggregator with sketches of {@link TixLatencySketch#DEFAULT_PRECISION_BITS}.
+	 *
+	 * @param window Length of the windows, which must divide a day
+	 * @param unit {@link TimeUnit} of the {@code window}
+	 * @param consumer {@link #consumer}
+	 */
+	public TixWindowAggregator(long window, TimeUnit unit, Consumer<TixWindowSummary> consumer) {
+		this(window, unit, TixLatencySketch.DEFAULT_PRECISION_BITS, consumer, System::nanoTime);
+	}
+
+	TixWindowAggregator(long window, TimeUnit unit, int precisionBits, Consumer<TixWindowSummary> consumer,
+	                    LongSupplier clock) {
+		checkPositive(window, "window");
+		checkNotNull(unit, "unit");
+		checkArgument(TixCoreUtils.NANOS_PER_DAY % unit.toNanos(window) == 0, "window must divide a day");
+		checkArgument(precisionBits >= 1 && precisionBits <= TixLatencySketch.MAX_PRECISION_BITS,
+				"precisionBits must be between 1 and " + TixLatencySketch.MAX_PRECISION_BITS);
+		checkNotNull(consumer, "consumer");
+		checkNotNull(clock, "clock");
+		this.windowNanos = unit.toNanos(window);
+		this.precisionBits = precisionBits;
+		this.consumer = consumer;
+		this.clock = clock;
+	}
+
+	/**
+	 * Adds a sample of {@code installationId} to its window, emitting the previous window of the installation if the
+	 * sample belongs to a later one.
+	 *
+	 * @param installationId Installation ID of the sample
+	 * @param initialTimestamp Initial timestamp of the sample, which selects its window
+	 * @param receptionTimestamp Reception timestamp of the sample
+	 * @param sentTimestamp Sent timestamp of the sample
+	 * @param finalTimestamp Final timestamp of the sample, or {@code 0} if the probe was never echoed
+	 */
+	@Override
+	public void accept(long installationId, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                   long finalTimestamp) {
+		long windowStart = initialTimestamp - Math.floorMod(initialTimestamp, windowNanos);
+		Window window = windows.get(installationId);
+		if (window == null) {
+			window = new Window(windowStart, new TixLatencySketch(precisionBits));
+			windows.put(installationId, window);
+		} else if (window.start != windowStart) {
+			if (TixCoreUtils.nanosOfDayDifference(windowStart, window.start) < 0) {
+				lateSamples++;
+				return;
+			}
+			emit(installationId, window);
+			window = new Window(windowStart, new TixLatencySketch(precisionBits));
+			windows.put(installationId, window);
+		}
+		window.lastUpdate = clock.getAsLong();
+		if (finalTimestamp == 0) {
+			window.lostProbes++;
+		} else {
+			window.sketch.record(TixCoreUtils.roundTripTime(initialTimestamp, receptionTimestamp, sentTimestamp,
+					finalTimestamp));
+		}
+	}
+
+	/**
+	 * Emits the windows of the installations that did not send any sample for two windows.
+	 *
+	 * @return {@code int} number of windows emitted
+	 */
+	public int expire() {
+		long now = clock.getAsLong();
+		long[] expired = new long[windows.size()];
+		int[] size = new int[1];
+		windows.forEach((installationId, window) -> {
+			if (now - window.lastUpdate >= 2 * windowNanos) {
+				expired[size[0]++] = installationId;
+			}
+		});
+		for (long installationId : Arrays.copyOf(expired, size[0])) {
+			emit(installationId, windows.remove(installationId));
+		}
+		return size[0];
+	}
+
+	/**
+	 * Emits every open window, for example before shutting down.
+	 *
+	 * @return {@code int} number of windows emitted
+	 */
+	public int flush() {
+		int flushed = windows.size();
+		windows.forEach(this::emit);
+		windows.clear();
+		return flushed;
+	}
+
+	/**
+	 * Returns the number of open windows.
+	 * @return {@code int} number of windows
+	 */
+	public int size() {
+		return windows.size();
+	}
+
+	/**
+	 * Returns the number of samples dropped for belonging to a window already emitted.
+	 * @return {@link #lateSamples}
+	 */
+	public long getLateSamples() {
+		return lateSamples;
+	}
+
+	/**
+	 * Returns the number of summaries emitted.
+	 * @return {@link #emittedSummaries}
+	 */
+	public long getEmittedSummaries() {
+		return emittedSummaries;
+	}
+
+	private void emit(long installationId, Window window) {
+		emittedSummaries++;
+		consumer.accept(new TixWindowSummary(installationId, window.start, windowNanos, window.lostProbes,
+				window.sketch));
+	}
+
+	/**
+	 * Open window of an installation.
+	 */
+	private static final class Window {
+		private final long start;
+		private final TixLatencySketch sketch;
+		private long lostProbes;
+		private long lastUpdate;
+
+		private Window(long start, TixLatencySketch sketch) {
+			this.start = start;
+			this.sketch = sketch;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Summary of the samples of an installation within a time window, as emitted by a {@link TixWindowAggregator}: the
+ * number of samples and lost probes, and the distribution of the round trip times of the samples.
+ *
+ * The {@link #getSketch()} is kept so the summaries of several windows or installations can be merged into a coarser
+ * one, and it must not be modified.
+ */
+public final class TixWindowSummary {
+
+	/**
+	 * Installation ID of the samples.
+	 */
+	private final long installationId;
+
+	/**
+	 * Start of the window, in nanoseconds of the day of the installation.
+	 */
+	private final long windowStart;
+
+	/**
+	 * Length of the window, in nanoseconds.
+	 */
+	private final long windowNanos;
+
+	/**
+	 * Number of probes of the window that were never echoed.
+	 */
+	private final long lostProbes;
+
+	/**
+	 * {@link TixLatencySketch} of the round trip times, in nanoseconds, of the samples of the window.
+	 */
+	private final TixLatencySketch sketch;
+
+	/**
+	 * Main constructor of the class {@code TixWindowSummary}.
+	 *
+	 * @param installationId {@link #installationId}
+	 * @param windowStart {@link #windowStart}
+	 * @param windowNanos {@link #windowNanos}
+	 * @param lostProbes {@link #lostProbes}
+	 * @param sketch {@link #sketch}
+	 */
+	public TixWindowSummary(long installationId, long windowStart, long windowNanos, long lostProbes,
+	                        TixLatencySketch sketch) {
+		this.installationId = installationId;
+		this.windowStart = windowStart;
+		this.windowNanos = windowNanos;
+		this.lostProbes = lostProbes;
+		this.sketch = sketch;
+	}
+
+	/**
+	 * Returns the {@link #installationId}
+	 * @return {@link #installationId}
+	 */
+	public long getInstallationId() {
+		return installationId;
+	}
+
+	/**
+	 * Returns the {@link #windowStart}
+	 * @return {@link #windowStart}
+	 */
+	public long getWindowStart() {
+		return windowStart;
+	}
+
+	/**
+	 * Returns the {@link #windowNanos}
+	 * @return {@link #windowNanos}
+	 */
+	public long getWindowNanos() {
+		return windowNanos;
+	}
+
+	/**
+	 * Returns the number of probes of the window whose echo arrived.
+	 * @return {@code long} number of samples
+	 */
+	public long getSamples() {
+		return sketch.getCount();
+	}
+
+	/**
+	 * Returns the {@link #lostProbes}
+	 * @return {@link #lostProbes}
+	 */
+	public long getLostProbes() {
+		return lostProbes;
+	}
+
+	/**
+	 * Returns the fraction of the probes of the window that were lost.
+	 * @return {@code double} loss rate, from {@code 0} to {@code 1}
+	 */
+	public double getLossRate() {
+		long probes = getSamples() + lostProbes;
+		return probes == 0 ? 0 : (double) lostProbes / probes;
+	}
+
+	/**
+	 * Returns the smallest round trip time, in nanoseconds.
+	 * @return {@code long} minimum round trip time
+	 */
+	public long getMinRtt() {
+		return sketch.getMin();
+	}
+
+	/**
+	 * Returns the median round trip time, in nanoseconds.
+	 * @return {@code long} median round trip time
+	 */
+	public long getMedianRtt() {
+		return sketch.getValueAtQuantile(0.5);
+	}
+
+	/**
+	 * Returns the round trip time, in nanoseconds, at {@code quantile}.
+	 *
+	 * @param quantile Quantile, from {@code 0} to {@code 1}
+	 * @return {@code long} round trip time at the quantile
+	 */
+	public long getRttAtQuantile(double quantile) {
+		return sketch.getValueAtQuantile(quantile);
+	}
+
+	/**
+	 * Returns the largest round trip time, in nanoseconds.
+	 * @return {@code long} maximum round trip time
+	 */
+	public long getMaxRtt() {
+		return sketch.getMax();
+	}
+
+	/**
+	 * Returns the {@link #sketch}
+	 * @return {@link #sketch}
+	 */
+	public TixLatencySketch getSketch() {
+		return sketch;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+				.append("installationId", this.getInstallationId())
+				.append("windowStart", this.getWindowStart())
+				.append("windowNanos", this.getWindowNanos())
+				.append("samples", this.getSamples())
+				.append("lostProbes", this.getLostProbes())
+				.append("minRtt", this.getMinRtt())
+				.append("medianRtt", this.getMedianRtt())
+				.append("p99Rtt", this.getRttAtQuantile(0.99))
+				.append("maxRtt", this.getMaxRtt())
+				.toString();
+	}
+}
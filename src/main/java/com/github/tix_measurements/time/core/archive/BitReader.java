@@ -0,0 +1,53 @@
+package com.github.tix_measurements.time.core.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reader of the bit fields written by a {@link BitWriter}, from a range of a {@link ByteBuffer} read with absolute
+ * indexes, so the buffer is not modified.
+ */
+final class BitReader {
+	private final ByteBuffer buffer;
+	private final int end;
+	private int position;
+
+	/**
+	 * Bits of the byte being read, right aligned, and their number.
+	 */
+	private int current;
+	private int remaining;
+
+	BitReader(ByteBuffer buffer, int start, int end) {
+		this.buffer = buffer;
+		this.position = start;
+		this.end = end;
+	}
+
+	/**
+	 * Reads {@code bits} bits as the least significant bits of a {@code long}.
+	 *
+	 * @throws IllegalArgumentException if the range ends before
+	 */
+	long read(int bits) {
+		long value = 0;
+		while (bits > 0) {
+			if (remaining == 0) {
+				if (position >= end) {
+					throw new IllegalArgumentException("Truncated archive block");
+				}
+				current = buffer.get(position++) & 0xFF;
+				remaining = 8;
+			}
+			int take = Math.min(remaining, bits);
+			int chunk = (current >>> (remaining - take)) & ((1 << take) - 1);
+			value = (value << take) | chunk;
+			remaining -= take;
+			bits -= take;
+		}
+		return value;
+	}
+
+	boolean readBit() {
+		return read(1) != 0;
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.tix_measurements.time.core.archive;
+
+import java.util.Arrays;
+
+/**
+ * Growable writer of bit fields, most significant bit first.
+ */
+final class BitWriter {
+	private byte[] bytes;
+	private int size;
+
+	/**
+	 * Bits of the byte being written, right aligned, and their number.
+	 */
+	private int current;
+	private int pending;
+
+	BitWriter(int capacity) {
+		bytes = new byte[Math.max(capacity, 8)];
+	}
+
+	/**
+	 * Writes the {@code bits} least significant bits of {@code value}.
+	 */
+	void write(long value, int bits) {
+		while (bits > 0) {
+			int take = Math.min(8 - pending, bits);
+			int chunk = (int) (value >>> (bits - take)) & ((1 << take) - 1);
+			current = (current << take) | chunk;
+			pending += take;
+			bits -= take;
+			if (pending == 8) {
+				if (size == bytes.length) {
+					bytes = Arrays.copyOf(bytes, size * 2);
+				}
+				bytes[size++] = (byte) current;
+				current = 0;
+				pending = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of bytes written, counting the one being written.
+	 */
+	int length() {
+		return size + (pending > 0 ? 1 : 0);
+	}
+
+	/**
+	 * Returns the bytes written, padding the last one with zeros.
+	 */
+	byte[] toByteArray() {
+		byte[] result = Arrays.copyOf(bytes, length());
+		if (pending > 0) {
+			result[size] = (byte) (current << (8 - pending));
+		}
+		return result;
+	}
+
+	void clear() {
+		size = 0;
+		current = 0;
+		pending = 0;
+	}
+}
@@ -0,0 +1,91 @@
+package com.github.tix_measurements.time.core.archive;
+
+import com.github.tix_measurements.time.core.analysis.TixReorderBuffer;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.github.tix_measurements.time.core.archive.BlockEncoder.DELTA_OF_DELTA_BITS;
+import static com.github.tix_measurements.time.core.archive.BlockEncoder.OFFSETS;
+import static com.github.tix_measurements.time.core.archive.BlockEncoder.XOR_HEADER_BITS;
+
+/**
+ * Decoder of the blocks written by a {@link BlockEncoder}.
+ */
+final class BlockDecoder {
+
+	private BlockDecoder() {
+	}
+
+	/**
+	 * Decodes the {@code count} samples of the block held from {@code start} to {@code end} of {@code buffer}, passing
+	 * to {@code consumer} the ones whose initial timestamp, in nanoseconds since the epoch, is from {@code fromTime}
+	 * and before {@code toTime}.
+	 *
+	 * @return {@code int} number of samples passed to the consumer
+	 * @throws IllegalArgumentException if the block is truncated or malformed
+	 */
+	static int decode(ByteBuffer buffer, int start, int end, int count, long installationId, long fromTime,
+	                  long toTime, TixReorderBuffer.TimestampsConsumer consumer) {
+		BitReader bits = new BitReader(buffer, start, end);
+		long time = 0;
+		long delta = 0;
+		long[] offsets = new long[OFFSETS];
+		int[] leadingZeros = new int[OFFSETS];
+		int[] trailingZeros = new int[OFFSETS];
+		Arrays.fill(leadingZeros, -1);
+		int passed = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				time = bits.read(Long.SIZE);
+			} else {
+				delta += readDeltaOfDelta(bits);
+				time += delta;
+			}
+			for (int column = 0; column < OFFSETS; column++) {
+				offsets[column] ^= readXor(bits, column, leadingZeros, trailingZeros);
+			}
+			if (time >= fromTime && time < toTime) {
+				long initialTimestamp = Math.floorMod(time, TixCoreUtils.NANOS_PER_DAY);
+				consumer.accept(installationId, initialTimestamp,
+						Math.floorMod(initialTimestamp + offsets[0], TixCoreUtils.NANOS_PER_DAY),
+						Math.floorMod(initialTimestamp + offsets[1], TixCoreUtils.NANOS_PER_DAY),
+						Math.floorMod(initialTimestamp + offsets[2], TixCoreUtils.NANOS_PER_DAY));
+				passed++;
+			}
+		}
+		return passed;
+	}
+
+	private static long readDeltaOfDelta(BitReader bits) {
+		if (!bits.readBit()) {
+			return 0;
+		}
+		// one more one for each wider field, the widest prefix has no trailing zero
+		int i = 0;
+		while (i < DELTA_OF_DELTA_BITS.length - 1 && bits.readBit()) {
+			i++;
+		}
+		long zigZag = bits.read(DELTA_OF_DELTA_BITS[i]);
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+
+	private static long readXor(BitReader bits, int column, int[] leadingZeros, int[] trailingZeros) {
+		if (!bits.readBit()) {
+			return 0;
+		}
+		if (bits.readBit()) {
+			leadingZeros[column] = (int) bits.read(XOR_HEADER_BITS);
+			int meaningful = (int) bits.read(XOR_HEADER_BITS) + 1;
+			trailingZeros[column] = Long.SIZE - leadingZeros[column] - meaningful;
+			if (trailingZeros[column] < 0) {
+				throw new IllegalArgumentException("Malformed archive block");
+			}
+		} else if (leadingZeros[column] < 0) {
+			throw new IllegalArgumentException("Malformed archive block");
+		}
+		int meaningful = Long.SIZE - leadingZeros[column] - trailingZeros[column];
+		return bits.read(meaningful) << trailingZeros[column];
+	}
+}
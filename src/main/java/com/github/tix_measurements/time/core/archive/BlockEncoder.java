@@ -0,0 +1,135 @@
+package com.github.tix_measurements.time.core.archive;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+/**
+ * Encoder of the samples of a block, as described in {@link TixArchiveWriter}.
+ */
+final class BlockEncoder {
+
+	/**
+	 * Prefixes of the non zero delta of deltas, their number of bits, and the width of the zig-zag delta of deltas
+	 * that follows each one.
+	 */
+	static final int[] DELTA_OF_DELTA_PREFIXES = {0b10, 0b110, 0b1110, 0b1111};
+	static final int[] DELTA_OF_DELTA_PREFIX_BITS = {2, 3, 4, 4};
+	static final int[] DELTA_OF_DELTA_BITS = {12, 24, 40, 64};
+
+	/**
+	 * Number of bits of the count of leading zeros and of the length of the meaningful bits of a XOR.
+	 */
+	static final int XOR_HEADER_BITS = 6;
+
+	/**
+	 * Number of timestamps stored as offsets from the initial one.
+	 */
+	static final int OFFSETS = 3;
+
+	private final BitWriter bits = new BitWriter(1024);
+
+	private int count;
+	private long minTime;
+	private long maxTime;
+
+	private long previousTime;
+	private long previousDelta;
+	private final long[] previousOffsets = new long[OFFSETS];
+	private final int[] leadingZeros = new int[OFFSETS];
+	private final int[] trailingZeros = new int[OFFSETS];
+
+	BlockEncoder() {
+		clear();
+	}
+
+	/**
+	 * Appends a sample.
+	 *
+	 * @param time Initial timestamp of the sample, in nanoseconds since the epoch
+	 */
+	void append(long time, long receptionTimestamp, long sentTimestamp, long finalTimestamp) {
+		if (count == 0) {
+			bits.write(time, Long.SIZE);
+		} else {
+			long delta = time - previousTime;
+			writeDeltaOfDelta(delta - previousDelta);
+			previousDelta = delta;
+		}
+		previousTime = time;
+		long initialTimestamp = Math.floorMod(time, TixCoreUtils.NANOS_PER_DAY);
+		writeOffset(0, TixCoreUtils.nanosOfDayDifference(receptionTimestamp, initialTimestamp));
+		writeOffset(1, TixCoreUtils.nanosOfDayDifference(sentTimestamp, initialTimestamp));
+		writeOffset(2, TixCoreUtils.nanosOfDayDifference(finalTimestamp, initialTimestamp));
+		count++;
+		minTime = Math.min(minTime, time);
+		maxTime = Math.max(maxTime, time);
+	}
+
+	int count() {
+		return count;
+	}
+
+	long minTime() {
+		return minTime;
+	}
+
+	long maxTime() {
+		return maxTime;
+	}
+
+	byte[] toByteArray() {
+		return bits.toByteArray();
+	}
+
+	void clear() {
+		bits.clear();
+		count = 0;
+		minTime = Long.MAX_VALUE;
+		maxTime = Long.MIN_VALUE;
+		previousTime = 0;
+		previousDelta = 0;
+		for (int i = 0; i < OFFSETS; i++) {
+			previousOffsets[i] = 0;
+			leadingZeros[i] = -1;
+			trailingZeros[i] = -1;
+		}
+	}
+
+	private void writeDeltaOfDelta(long deltaOfDelta) {
+		long zigZag = (deltaOfDelta << 1) ^ (deltaOfDelta >> 63);
+		if (zigZag == 0) {
+			bits.write(0, 1);
+			return;
+		}
+		for (int i = 0; i < DELTA_OF_DELTA_BITS.length; i++) {
+			int width = DELTA_OF_DELTA_BITS[i];
+			if (width == Long.SIZE || zigZag >>> width == 0) {
+				bits.write(DELTA_OF_DELTA_PREFIXES[i], DELTA_OF_DELTA_PREFIX_BITS[i]);
+				bits.write(zigZag, width);
+				return;
+			}
+		}
+	}
+
+	private void writeOffset(int column, long offset) {
+		long xor = offset ^ previousOffsets[column];
+		previousOffsets[column] = offset;
+		if (xor == 0) {
+			bits.write(0, 1);
+			return;
+		}
+		int leading = Long.numberOfLeadingZeros(xor);
+		int trailing = Long.numberOfTrailingZeros(xor);
+		if (leadingZeros[column] >= 0 && leading >= leadingZeros[column] && trailing >= trailingZeros[column]) {
+			bits.write(0b10, 2);
+			bits.write(xor >>> trailingZeros[column], Long.SIZE - leadingZeros[column] - trailingZeros[column]);
+			return;
+		}
+		int meaningful = Long.SIZE - leading - trailing;
+		bits.write(0b11, 2);
+		bits.write(leading, XOR_HEADER_BITS);
+		bits.write(meaningful - 1, XOR_HEADER_BITS);
+		bits.write(xor >>> trailing, meaningful);
+		leadingZeros[column] = leading;
+		trailingZeros[column] = trailing;
+	}
+}
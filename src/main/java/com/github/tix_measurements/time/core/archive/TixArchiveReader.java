@@ -0,0 +1,232 @@
+package com.github.tix_measurements.time.core.archive;
+
+import com.github.tix_measurements.time.core.analysis.TixReorderBuffer;
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.BLOCK_HEADER_BYTES;
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.FOOTER_BYTES;
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.HEADER_BYTES;
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.INDEX_ENTRY_BYTES;
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.MAGIC;
+import static com.github.tix_measurements.time.core.archive.TixArchiveWriter.VERSION;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Reader of the archives written by a {@link TixArchiveWriter}.
+ *
+ * Opening an archive only reads its index. The blocks are read through a memory mapped window of up to
+ * {@link #MAX_WINDOW_BYTES}, which is mapped again starting at a block only when the block falls out of it, so a time
+ * range query only pages in the blocks whose time range overlaps it and never the ones of other installations or other
+ * times.
+ *
+ * It is not thread safe.
+ */
+public class TixArchiveReader implements Closeable {
+
+	/**
+	 * Maximum number of bytes of the archive mapped at once.
+	 */
+	public static final int MAX_WINDOW_BYTES = 64 << 20;
+
+	/**
+	 * {@link FileChannel} of the archive.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Size of the archive, in bytes.
+	 */
+	private final long size;
+
+	/**
+	 * Index of the blocks, laid out in arrays by block number.
+	 */
+	private final long[] minTimes;
+	private final long[] maxTimes;
+	private final long[] offsets;
+	private final int[] counts;
+	private final int[] payloadLengths;
+
+	/**
+	 * Block numbers of each installation, in the order they were written.
+	 */
+	private final LongObjectHashMap<int[]> installationBlocks = new LongObjectHashMap<>();
+
+	/**
+	 * Part of the archive currently mapped, starting at {@link #windowOffset}, or {@code null} if none is.
+	 */
+	private MappedByteBuffer window;
+	private long windowOffset;
+
+	/**
+	 * Number of blocks decoded by the reads.
+	 */
+	private long decodedBlocks;
+
+	/**
+	 * Opens the archive {@code path} and reads its index.
+	 *
+	 * @param path {@link Path} of the archive
+	 * @throws IOException if the archive can not be read
+	 * @throws IllegalArgumentException if the archive is malformed
+	 */
+	public TixArchiveReader(Path path) throws IOException {
+		checkNotNull(path, "path");
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			this.size = channel.size();
+			checkArgument(size >= HEADER_BYTES + FOOTER_BYTES, "Malformed archive");
+			ByteBuffer header = read(0, HEADER_BYTES);
+			checkMagic(header);
+			checkArgument(header.get() == VERSION, "Unsupported archive version");
+			ByteBuffer footer = read(size - FOOTER_BYTES, FOOTER_BYTES);
+			long indexOffset = footer.getLong();
+			int blocks = footer.getInt();
+			checkMagic(footer);
+			checkArgument(blocks >= 0 && blocks <= Integer.MAX_VALUE / INDEX_ENTRY_BYTES
+					&& indexOffset >= HEADER_BYTES && indexOffset + (long) blocks * INDEX_ENTRY_BYTES + FOOTER_BYTES == size,
+					"Malformed archive");
+			ByteBuffer index = read(indexOffset, blocks * INDEX_ENTRY_BYTES);
+			long[] installationIds = new long[blocks];
+			LongObjectHashMap<int[]> blocksPerInstallation = new LongObjectHashMap<>();
+			this.minTimes = new long[blocks];
+			this.maxTimes = new long[blocks];
+			this.offsets = new long[blocks];
+			this.counts = new int[blocks];
+			this.payloadLengths = new int[blocks];
+			for (int block = 0; block < blocks; block++) {
+				installationIds[block] = index.getLong();
+				minTimes[block] = index.getLong();
+				maxTimes[block] = index.getLong();
+				offsets[block] = index.getLong();
+				counts[block] = index.getInt();
+				payloadLengths[block] = index.getInt();
+				checkArgument(counts[block] > 0 && minTimes[block] <= maxTimes[block] && payloadLengths[block] >= 0
+						&& payloadLengths[block] <= Integer.MAX_VALUE - BLOCK_HEADER_BYTES
+						&& offsets[block] >= HEADER_BYTES
+						&& offsets[block] + BLOCK_HEADER_BYTES + payloadLengths[block] <= indexOffset,
+						"Malformed archive");
+				int[] blocksLeft = blocksPerInstallation.get(installationIds[block]);
+				if (blocksLeft == null) {
+					blocksLeft = new int[1];
+					blocksPerInstallation.put(installationIds[block], blocksLeft);
+				}
+				blocksLeft[0]++;
+			}
+			// filled backwards, so the block numbers of each installation end up in ascending order
+			for (int block = blocks - 1; block >= 0; block--) {
+				int[] blocksLeft = blocksPerInstallation.get(installationIds[block]);
+				int[] installation = installationBlocks.get(installationIds[block]);
+				if (installation == null) {
+					installation = new int[blocksLeft[0]];
+					installationBlocks.put(installationIds[block], installation);
+				}
+				installation[--blocksLeft[0]] = block;
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Passes to {@code consumer} the samples of the installation {@code installationId} whose initial timestamp, in
+	 * nanoseconds since the epoch, is from {@code fromEpochNanos} and before {@code toEpochNanos}, in the order they
+	 * were appended. The timestamps passed are nanoseconds of the day.
+	 *
+	 * @param installationId Installation ID of the samples
+	 * @param fromEpochNanos Start of the time range, inclusive
+	 * @param toEpochNanos End of the time range, exclusive
+	 * @param consumer {@link TixReorderBuffer.TimestampsConsumer} receiving the samples
+	 * @return {@code long} number of samples passed to the consumer
+	 * @throws IOException if the archive can not be read
+	 * @throws IllegalArgumentException if a block read is malformed
+	 */
+	public long read(long installationId, long fromEpochNanos, long toEpochNanos,
+	                 TixReorderBuffer.TimestampsConsumer consumer) throws IOException {
+		checkNotNull(consumer, "consumer");
+		int[] blocks = installationBlocks.get(installationId);
+		if (blocks == null) {
+			return 0;
+		}
+		long samples = 0;
+		for (int block : blocks) {
+			if (maxTimes[block] < fromEpochNanos || minTimes[block] >= toEpochNanos) {
+				continue;
+			}
+			int length = BLOCK_HEADER_BYTES + payloadLengths[block];
+			ByteBuffer buffer = map(offsets[block], length);
+			int start = (int) (offsets[block] - windowOffset);
+			checkArgument(buffer.getLong(start) == installationId
+					&& buffer.getInt(start + 3 * Long.BYTES) == counts[block]
+					&& buffer.getInt(start + 3 * Long.BYTES + Integer.BYTES) == payloadLengths[block],
+					"Malformed archive");
+			samples += BlockDecoder.decode(buffer, start + BLOCK_HEADER_BYTES, start + length, counts[block],
+					installationId, fromEpochNanos, toEpochNanos, consumer);
+			decodedBlocks++;
+		}
+		return samples;
+	}
+
+	/**
+	 * Returns the number of blocks in the archive.
+	 *
+	 * @return {@code int}
+	 */
+	public int getBlocks() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the number of blocks decoded by {@link #read(long, long, long, TixReorderBuffer.TimestampsConsumer)}.
+	 *
+	 * @return {@code long}
+	 */
+	public long getDecodedBlocks() {
+		return decodedBlocks;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+	private ByteBuffer map(long offset, int length) throws IOException {
+		if (window == null || offset < windowOffset || offset + length > windowOffset + window.capacity()) {
+			long windowLength = Math.max(length, Math.min(MAX_WINDOW_BYTES, size - offset));
+			window = channel.map(FileChannel.MapMode.READ_ONLY, offset, windowLength);
+			windowOffset = offset;
+		}
+		return window;
+	}
+
+	private ByteBuffer read(long offset, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, offset + buffer.position()) < 0) {
+				throw new IllegalArgumentException("Malformed archive");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void checkMagic(ByteBuffer buffer) {
+		for (byte b : MAGIC) {
+			checkArgument(buffer.get() == b, "Malformed archive");
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package com.github.tix_measurements.time.core.archive;
+
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Streaming writer of archives of the timestamps of many installations, read back with a {@link TixArchiveReader}.
+ *
+ * The samples of each installation are gathered in blocks of up to {@link #blockSamples} samples, and each block is
+ * written as soon as it is full, so the writer only holds one open block per installation. Within a block the samples
+ * are stored column by column, as the Gorilla time series compression does:
+ * <ul>
+ *     <li>the initial timestamp, in nanoseconds since the epoch, is stored raw for the first sample, and as the
+ *     difference of its delta with the previous delta for the rest, written as a single {@code 0} bit when the
+ *     samples are taken at a regular pace or as a {@code 10}, {@code 110}, {@code 1110} or {@code 1111} prefix
+ *     followed by the zig-zag encoded value in 12, 24, 40 or 64 bits;</li>
+ *     <li>each other timestamp is stored as its difference with the initial one, XORed with the same difference of
+ *     the previous sample, and written as a single {@code 0} bit when it did not change, as {@code 10} followed by the
+ *     meaningful bits when they fit in the window of the previous XOR, or as {@code 11} followed by the number of
+ *     leading zeros and the number of meaningful bits minus one, in six bits each, and the meaningful bits.</li>
+ * </ul>
+ * The layout of the file is:
+ * <ul>
+ *     <li>the {@link #MAGIC} bytes and the {@link #VERSION} byte;</li>
+ *     <li>the blocks, each one with a {@link #BLOCK_HEADER_BYTES} header with its installation ID, its minimum and
+ *     maximum initial timestamps, its number of samples and the length of its payload, followed by the payload;</li>
+ *     <li>the index, with an {@link #INDEX_ENTRY_BYTES} entry for each block with its installation ID, its minimum and
+ *     maximum initial timestamps, its offset in the file, its number of samples and the length of its payload;</li>
+ *     <li>a {@link #FOOTER_BYTES} footer with the offset of the index, the number of blocks and the {@link #MAGIC}
+ *     bytes.</li>
+ * </ul>
+ * The index is written on {@link #close()}; the block headers repeat it so the blocks of a file whose writer did not
+ * close can still be recovered by walking them.
+ *
+ * The timestamps of the probes are nanoseconds of the day, so each sample is appended along with the day its initial
+ * timestamp belongs to, which lets an archive hold months of history and be queried by time range.
+ *
+ * It is not thread safe.
+ */
+public class TixArchiveWriter implements Closeable {
+
+	/**
+	 * Bytes that start and end every archive.
+	 */
+	public static final byte[] MAGIC = {'T', 'I', 'X', 'A'};
+
+	/**
+	 * Version of the layout of the archives written.
+	 */
+	public static final byte VERSION = 1;
+
+	/**
+	 * Default maximum number of samples of a block.
+	 */
+	public static final int DEFAULT_BLOCK_SAMPLES = 1024;
+
+	/**
+	 * Bytes of the header of the archive: the {@link #MAGIC} bytes and the {@link #VERSION} byte.
+	 */
+	public static final int HEADER_BYTES = MAGIC.length + 1;
+
+	/**
+	 * Bytes of the header of each block: installation ID, minimum and maximum initial timestamps, number of samples
+	 * and length of the payload.
+	 */
+	public static final int BLOCK_HEADER_BYTES = 3 * Long.BYTES + 2 * Integer.BYTES;
+
+	/**
+	 * Bytes of each entry of the index: installation ID, minimum and maximum initial timestamps, offset of the block,
+	 * number of samples and length of the payload.
+	 */
+	public static final int INDEX_ENTRY_BYTES = 4 * Long.BYTES + 2 * Integer.BYTES;
+
+	/**
+	 * Bytes of the footer of the archive: offset of the index, number of blocks and the {@link #MAGIC} bytes.
+	 */
+	public static final int FOOTER_BYTES = Long.BYTES + Integer.BYTES + MAGIC.length;
+
+	/**
+	 * Number of values of the index kept for each block: installation ID, minimum and maximum initial timestamps,
+	 * offset, number of samples and length of the payload.
+	 */
+	private static final int INDEX_FIELDS = 6;
+
+	/**
+	 * Maximum number of samples of a block.
+	 */
+	private final int blockSamples;
+
+	/**
+	 * Buffered stream of the archive.
+	 */
+	private final DataOutputStream out;
+
+	/**
+	 * Block being filled of each installation, by installation ID.
+	 */
+	private final LongObjectHashMap<BlockEncoder> openBlocks = new LongObjectHashMap<>();
+
+	/**
+	 * Index of the blocks written, {@link #INDEX_FIELDS} values per block, grown as needed.
+	 */
+	private long[] index = new long[16 * INDEX_FIELDS];
+
+	/**
+	 * Number of blocks written.
+	 */
+	private int blocks;
+
+	/**
+	 * Offset in the archive of the next block.
+	 */
+	private long offset;
+
+	/**
+	 * Number of samples appended.
+	 */
+	private long samples;
+
+	private boolean closed;
+
+	/**
+	 * Creates the archive {@code path}, replacing it if it exists, with blocks of {@link #DEFAULT_BLOCK_SAMPLES}
+	 * samples.
+	 *
+	 * @param path {@link Path} of the archive
+	 * @throws IOException if the archive can not be written
+	 */
+	public TixArchiveWriter(Path path) throws IOException {
+		this(path, DEFAULT_BLOCK_SAMPLES);
+	}
+
+	/**
+	 * Creates the archive {@code path}, replacing it if it exists.
+	 *
+	 * @param path {@link Path} of the archive
+	 * @param blockSamples Maximum number of samples of a block
+	 * @throws IOException if the archive can not be written
+	 */
+	public TixArchiveWriter(Path path, int blockSamples) throws IOException {
+		checkNotNull(path, "path");
+		this.blockSamples = (int) checkPositive(blockSamples, "blockSamples");
+		this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		offset = HEADER_BYTES;
+	}
+
+	/**
+	 * Appends the timestamps of a sample of the installation {@code installationId}. The samples of each installation
+	 * are expected in the order of their initial timestamps, which is the order they are read back in.
+	 *
+	 * @param installationId Installation ID of the sample
+	 * @param epochDay Day of the initial timestamp, in days since the epoch
+	 * @param initialTimestamp Initial timestamp of the sample, in nanoseconds of the day
+	 * @param receptionTimestamp Reception timestamp of the sample, in nanoseconds of the day
+	 * @param sentTimestamp Sent timestamp of the sample, in nanoseconds of the day
+	 * @param finalTimestamp Final timestamp of the sample, in nanoseconds of the day, or zero if it was lost
+	 * @throws IOException if a full block can not be written
+	 * @throws IllegalStateException if the archive was already closed
+	 */
+	public void append(long installationId, long epochDay, long initialTimestamp, long receptionTimestamp,
+	                   long sentTimestamp, long finalTimestamp) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Archive already closed");
+		}
+		checkNotNegative(epochDay, "epochDay");
+		checkTimestamp(initialTimestamp, "initialTimestamp");
+		checkTimestamp(receptionTimestamp, "receptionTimestamp");
+		checkTimestamp(sentTimestamp, "sentTimestamp");
+		checkTimestamp(finalTimestamp, "finalTimestamp");
+		BlockEncoder block = openBlocks.get(installationId);
+		if (block == null) {
+			block = new BlockEncoder();
+			openBlocks.put(installationId, block);
+		}
+		block.append(epochDay * TixCoreUtils.NANOS_PER_DAY + initialTimestamp, receptionTimestamp, sentTimestamp,
+				finalTimestamp);
+		samples++;
+		if (block.count() == blockSamples) {
+			writeBlock(installationId, block);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * Writes the open blocks, the index and the footer, and closes the archive.
+	 *
+	 * @throws IOException if the archive can not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			long[] installationIds = new long[openBlocks.size()];
+			int[] i = {0};
+			openBlocks.forEach((installationId, block) -> installationIds[i[0]++] = installationId);
+			for (long installationId : installationIds) {
+				BlockEncoder block = openBlocks.get(installationId);
+				if (block.count() > 0) {
+					writeBlock(installationId, block);
+				}
+			}
+			openBlocks.clear();
+			long indexOffset = offset;
+			for (int block = 0; block < blocks; block++) {
+				int base = block * INDEX_FIELDS;
+				out.writeLong(index[base]);
+				out.writeLong(index[base + 1]);
+				out.writeLong(index[base + 2]);
+				out.writeLong(index[base + 3]);
+				out.writeInt((int) index[base + 4]);
+				out.writeInt((int) index[base + 5]);
+			}
+			out.writeLong(indexOffset);
+			out.writeInt(blocks);
+			out.write(MAGIC);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of samples appended.
+	 *
+	 * @return {@code long}
+	 */
+	public long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * Returns the number of blocks written.
+	 *
+	 * @return {@code int}
+	 */
+	public int getBlocks() {
+		return blocks;
+	}
+
+	private void writeBlock(long installationId, BlockEncoder block) throws IOException {
+		byte[] payload = block.toByteArray();
+		out.writeLong(installationId);
+		out.writeLong(block.minTime());
+		out.writeLong(block.maxTime());
+		out.writeInt(block.count());
+		out.writeInt(payload.length);
+		out.write(payload);
+		if ((blocks + 1) * INDEX_FIELDS > index.length) {
+			index = Arrays.copyOf(index, index.length * 2);
+		}
+		int base = blocks * INDEX_FIELDS;
+		index[base] = installationId;
+		index[base + 1] = block.minTime();
+		index[base + 2] = block.maxTime();
+		index[base + 3] = offset;
+		index[base + 4] = block.count();
+		index[base + 5] = payload.length;
+		blocks++;
+		offset += BLOCK_HEADER_BYTES + payload.length;
+		block.clear();
+	}
+
+	private static void checkTimestamp(long timestamp, String name) {
+		checkArgument(timestamp >= 0 && timestamp < TixCoreUtils.NANOS_PER_DAY, name + " must be a nanosecond of the day");
+	}
+}
@@ -0,0 +1,208 @@
+package com.github.tix_measurements.time.core.client;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.codec.TixReassemblyBuffer;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Blocking client that sends and receives TiX packets over a plain {@link DatagramChannel}, with the
+ * {@link TixPacketCodec}, so it does not need Netty.
+ *
+ * Each client owns a direct {@link ByteBuffer} for sending and another one for receiving, reused for every datagram.
+ * They are guarded by {@link ReentrantLock}s instead of monitors, so a virtual thread blocked on the channel does not
+ * pin its carrier thread, and one thread can send while another one receives. On Java 8 it works the same way on
+ * platform threads.
+ *
+ * The LONG packets that do not fit in {@link #maxDatagramBytes} are sent split by the {@link TixFragmentCodec}, so a
+ * path with a smaller MTU does not fragment them in IP, and the fragments received are reassembled, whatever the size
+ * the client sends.
+ */
+public class TixDatagramClient implements Closeable {
+
+	/**
+	 * {@link DatagramChannel} through which the packets are sent and received.
+	 */
+	private final DatagramChannel channel;
+
+	/**
+	 * Maximum length of the datagrams sent.
+	 */
+	private final int maxDatagramBytes;
+
+	private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(TixPacketType.LONG.getSize());
+
+	/**
+	 * Buffer for the fragments of the packets that do not fit in {@link #maxDatagramBytes}, or {@code null} if all do.
+	 */
+	private final ByteBuffer fragmentBuffer;
+
+	/**
+	 * ID of the next packet sent split in fragments.
+	 */
+	private int nextPacketId;
+
+	/**
+	 * Buffer with room for one byte more than the largest packet, so a datagram truncated to fit it can be told apart
+	 * from a well formed one.
+	 */
+	private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(TixPacketType.LONG.getSize() + 1);
+
+	private final ReentrantLock sendLock = new ReentrantLock();
+
+	private final ReentrantLock receiveLock = new ReentrantLock();
+
+	/**
+	 * Reassembles the fragments received, guarded by the {@link #receiveLock}.
+	 */
+	private final TixReassemblyBuffer reassemblyBuffer = new TixReassemblyBuffer();
+
+	/**
+	 * Number of datagrams received and dropped for being malformed.
+	 */
+	private final LongAdder malformedPackets = new LongAdder();
+
+	/**
+	 * Opens a client connected to {@code server}, so it only receives the datagrams sent by it.
+	 *
+	 * @param server Address of the TiX server
+	 * @throws IOException if the channel can not be opened
+	 */
+	public TixDatagramClient(InetSocketAddress server) throws IOException {
+		this(DatagramChannel.open().connect(checkNotNull(server, "server")));
+	}
+
+	/**
+	 * Creates a client that sends every packet in a single datagram.
+	 *
+	 * @param channel {@link #channel}, in blocking mode and bound, or connected, to its local address
+	 */
+	public TixDatagramClient(DatagramChannel channel) {
+		this(channel, TixPacketType.LONG.getSize());
+	}
+
+	/**
+	 * Main constructor of the class {@code TixDatagramClient}.
+	 *
+	 * @param channel {@link #channel}, in blocking mode and bound, or connected, to its local address
+	 * @param maxDatagramBytes {@link #maxDatagramBytes}, at least {@link TixFragmentCodec#MIN_DATAGRAM_BYTES}, for
+	 *                         example the {@link TixFragmentCodec#DEFAULT_MAX_DATAGRAM_BYTES} of an Ethernet path
+	 */
+	public TixDatagramClient(DatagramChannel channel, int maxDatagramBytes) {
+		checkNotNull(channel, "channel");
+		checkArgument(channel.isBlocking(), "channel must be in blocking mode");
+		checkArgument(maxDatagramBytes >= TixFragmentCodec.MIN_DATAGRAM_BYTES,
+				"maxDatagramBytes must be at least " + TixFragmentCodec.MIN_DATAGRAM_BYTES);
+		this.channel = channel;
+		this.maxDatagramBytes = maxDatagramBytes;
+		this.fragmentBuffer = maxDatagramBytes < TixPacketType.LONG.getSize() ?
+				ByteBuffer.allocateDirect(maxDatagramBytes) : null;
+	}
+
+	/**
+	 * Sends {@code packet} to its recipient.
+	 *
+	 * @param packet {@link TixPacket} or {@link TixDataPacket} to send
+	 * @throws IOException if the datagram can not be sent
+	 */
+	public void send(TixPacket packet) throws IOException {
+		sendLock.lock();
+		try {
+			sendBuffer.clear();
+			TixPacketCodec.encode(packet, sendBuffer);
+			sendBuffer.flip();
+			if (sendBuffer.remaining() <= maxDatagramBytes) {
+				channel.send(sendBuffer, packet.getTo());
+				return;
+			}
+			int packetId = nextPacketId++;
+			int count = TixFragmentCodec.fragmentCount(sendBuffer.remaining(), maxDatagramBytes);
+			for (int i = 0; i < count; i++) {
+				fragmentBuffer.clear();
+				TixFragmentCodec.encode(sendBuffer, packetId, i, maxDatagramBytes, fragmentBuffer);
+				fragmentBuffer.flip();
+				channel.send(fragmentBuffer, packet.getTo());
+			}
+		} finally {
+			sendLock.unlock();
+		}
+	}
+
+	/**
+	 * Blocks until a well formed packet is received and returns it, reassembling it first if it was split. The
+	 * malformed datagrams received meanwhile are dropped and counted in {@link #getMalformedPackets()}. Closing the
+	 * client unblocks it.
+	 *
+	 * @return the {@link TixPacket} or {@link TixDataPacket} received
+	 * @throws IOException if the datagram can not be received, or the client is closed
+	 */
+	public TixPacket receive() throws IOException {
+		receiveLock.lock();
+		try {
+			while (true) {
+				receiveBuffer.clear();
+				SocketAddress sender = channel.receive(receiveBuffer);
+				receiveBuffer.flip();
+				ByteBuffer payload = receiveBuffer;
+				if (TixFragmentCodec.isFragment(receiveBuffer)) {
+					long malformedFragments = reassemblyBuffer.getMalformedFragments();
+					payload = reassemblyBuffer.offer((InetSocketAddress) sender, receiveBuffer);
+					if (payload == null) {
+						malformedPackets.add(reassemblyBuffer.getMalformedFragments() - malformedFragments);
+						continue;
+					}
+				}
+				TixPacket packet = TixPacketCodec.decode(payload, (InetSocketAddress) sender,
+						(InetSocketAddress) channel.getLocalAddress());
+				if (packet != null) {
+					return packet;
+				}
+				malformedPackets.increment();
+			}
+		} finally {
+			receiveLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the local address of the {@link #channel}.
+	 *
+	 * @return {@link InetSocketAddress}, or {@code null} if it is not bound
+	 * @throws IOException if the address can not be read
+	 */
+	public InetSocketAddress getLocalAddress() throws IOException {
+		return (InetSocketAddress) channel.getLocalAddress();
+	}
+
+	/**
+	 * Returns the number of datagrams received and dropped for being malformed.
+	 * @return {@link #malformedPackets}
+	 */
+	public long getMalformedPackets() {
+		return malformedPackets.sum();
+	}
+
+	/**
+	 * Closes the {@link #channel}, unblocking any thread waiting in {@link #receive()}.
+	 *
+	 * @throws IOException if the channel can not be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,262 @@
+package com.github.tix_measurements.time.core.client;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Client side scheduler that sends a probe, either a SHORT or a LONG {@link TixPacket}, at a fixed interval.
+ *
+ * The probes are sent from a dedicated thread at absolute deadlines, the start time plus a multiple of the interval,
+ * so the time spent sending a probe or waking up late never accumulates as drift. The thread parks until the deadline
+ * is {@link #spinNanos} away and then busy spins, which avoids the oversleeping of the timer of the operating system
+ * at the cost of burning a core for that fraction of each interval.
+ *
+ * A probe that could not be sent within an interval of its deadline, for example after a long garbage collection
+ * pause, is skipped instead of being sent in a burst with the following ones, as bunched probes skew the delay
+ * measurements. The lag between each deadline and the moment the probe is actually built is exposed, so the error
+ * added by the scheduling can be measured.
+ */
+public class TixProbeScheduler {
+
+	/**
+	 * Default time in nanoseconds before each deadline during which the thread busy spins instead of parking.
+	 */
+	public static final long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * Nanoseconds between two consecutive probes.
+	 */
+	private final long intervalNanos;
+
+	/**
+	 * Nanoseconds before each deadline during which the thread busy spins instead of parking.
+	 */
+	private final long spinNanos;
+
+	/**
+	 * Builds the probe of each sequence number, taking its initial timestamp.
+	 */
+	private final LongFunction<TixPacket> probeFactory;
+
+	/**
+	 * Sends each probe.
+	 */
+	private final Consumer<TixPacket> sender;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to pace the probes.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Parks the thread for the given nanoseconds.
+	 */
+	private final LongConsumer parker;
+
+	private volatile boolean running;
+
+	private Thread thread;
+
+	/**
+	 * Deadline of the next probe, in the {@link #clock}.
+	 */
+	private long deadline;
+
+	/**
+	 * Sequence number of the next probe.
+	 */
+	private long sequence;
+
+	/*
+	 * Metrics, only written by the scheduling thread.
+	 */
+	private volatile long sentProbes;
+	private volatile long skippedProbes;
+	private volatile long totalLagNanos;
+	private volatile long maxLagNanos;
+
+	/**
+	 * Creates a scheduler that busy spins the last {@link #DEFAULT_SPIN_NANOS} nanoseconds before each deadline.
+	 *
+	 * @param sender {@link #sender}, for example {@code probe -> channel.writeAndFlush(probe, channel.voidPromise())}
+	 *               to send them through a Netty channel
+	 * @param interval Time between two consecutive probes
+	 * @param unit {@link TimeUnit} of the {@code interval}
+	 * @param probeFactory {@link #probeFactory}
+	 */
+	public TixProbeScheduler(Consumer<TixPacket> sender, long interval, TimeUnit unit,
+	                         LongFunction<TixPacket> probeFactory) {
+		this(sender, interval, unit, DEFAULT_SPIN_NANOS, probeFactory);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixProbeScheduler}.
+	 *
+	 * @param sender {@link #sender}
+	 * @param interval Time between two consecutive probes
+	 * @param unit {@link TimeUnit} of the {@code interval}
+	 * @param spinNanos {@link #spinNanos}, capped to half the interval
+	 * @param probeFactory {@link #probeFactory}
+	 */
+	public TixProbeScheduler(Consumer<TixPacket> sender, long interval, TimeUnit unit, long spinNanos,
+	                         LongFunction<TixPacket> probeFactory) {
+		this(sender, interval, unit, spinNanos, probeFactory, System::nanoTime, LockSupport::parkNanos);
+	}
+
+	TixProbeScheduler(Consumer<TixPacket> sender, long interval, TimeUnit unit, long spinNanos,
+	                  LongFunction<TixPacket> probeFactory, LongSupplier clock, LongConsumer parker) {
+		checkNotNull(sender, "sender");
+		checkPositive(interval, "interval");
+		checkNotNull(unit, "unit");
+		checkNotNegative(spinNanos, "spinNanos");
+		checkNotNull(probeFactory, "probeFactory");
+		checkNotNull(clock, "clock");
+		checkNotNull(parker, "parker");
+		this.sender = sender;
+		this.intervalNanos = unit.toNanos(interval);
+		this.spinNanos = Math.min(spinNanos, intervalNanos / 2);
+		this.probeFactory = probeFactory;
+		this.clock = clock;
+		this.parker = parker;
+	}
+
+	/**
+	 * Starts sending probes, the first one right away, from a new daemon thread.
+	 *
+	 * @throws IllegalStateException if the scheduler was already started
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Scheduler already started");
+		}
+		logger.entry();
+		running = true;
+		deadline = clock.getAsLong();
+		thread = new Thread(this::run, "tix-probe-scheduler");
+		thread.setDaemon(true);
+		thread.start();
+		logger.exit();
+	}
+
+	/**
+	 * Stops sending probes, waiting for the thread to finish. The scheduler can not be started again.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized void stop() throws InterruptedException {
+		logger.entry();
+		running = false;
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			thread.join();
+		}
+		logger.exit();
+	}
+
+	/**
+	 * Returns the number of probes sent.
+	 * @return {@link #sentProbes}
+	 */
+	public long getSentProbes() {
+		return sentProbes;
+	}
+
+	/**
+	 * Returns the number of probes skipped for being more than an interval late.
+	 * @return {@link #skippedProbes}
+	 */
+	public long getSkippedProbes() {
+		return skippedProbes;
+	}
+
+	/**
+	 * Returns the largest lag, in nanoseconds, between the deadline of a probe and the moment it was built.
+	 * @return {@link #maxLagNanos}
+	 */
+	public long getMaxLagNanos() {
+		return maxLagNanos;
+	}
+
+	/**
+	 * Returns the mean lag, in nanoseconds, between the deadline of each probe and the moment it was built.
+	 * @return {@code double} mean lag, or {@code 0} if no probe was sent
+	 */
+	public double getMeanLagNanos() {
+		long sent = sentProbes;
+		return sent == 0 ? 0 : (double) totalLagNanos / sent;
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				step();
+			}
+		} catch (RuntimeException e) {
+			logger.catching(e);
+			running = false;
+		}
+	}
+
+	/**
+	 * Waits for the next deadline and sends its probe, skipping the deadlines missed by more than an interval.
+	 */
+	void step() {
+		long now = awaitDeadline();
+		if (!running) {
+			return;
+		}
+		long lag = now - deadline;
+		if (lag >= intervalNanos) {
+			long missed = lag / intervalNanos;
+			skippedProbes += missed;
+			sequence += missed;
+			deadline += missed * intervalNanos;
+			lag -= missed * intervalNanos;
+		}
+		TixPacket probe = probeFactory.apply(sequence);
+		sender.accept(probe);
+		sentProbes++;
+		totalLagNanos += lag;
+		if (lag > maxLagNanos) {
+			maxLagNanos = lag;
+		}
+		sequence++;
+		deadline += intervalNanos;
+	}
+
+	private long awaitDeadline() {
+		long now = clock.getAsLong();
+		while (running && now - deadline < 0) {
+			long remaining = deadline - now;
+			if (remaining > spinNanos) {
+				parker.accept(remaining - spinNanos);
+			}
+			now = clock.getAsLong();
+		}
+		return now;
+	}
+
+	/**
+	 * Starts the pacing at {@code deadline} without starting the thread, so {@link #step()} can be driven by a test.
+	 *
+	 * @param deadline First deadline, in the {@link #clock}
+	 */
+	void startManually(long deadline) {
+		this.running = true;
+		this.deadline = deadline;
+	}
+}
@@ -0,0 +1,374 @@
+package com.github.tix_measurements.time.core.client;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Client side tracker that matches each probe sent with its echo by the initial timestamp, and reports the probes
+ * whose echo never arrived.
+ *
+ * The probes are kept in a ring buffer in the order they were sent, with the time at which they expire, and indexed by
+ * an open addressing table of primitive {@code long} initial timestamps. As every probe has the same timeout, the ring
+ * is also sorted by expiration, so expiring the lost probes only looks at the probes that actually expired, instead of
+ * scanning every pending probe. The probes completed out of order leave their entries behind in the ring, so it has
+ * room for twice the {@link #capacity} and is compacted when full, which costs O(1) amortized per probe. Only when
+ * {@link #capacity} probes are pending, the oldest one is reported lost to make room.
+ *
+ * It is thread safe, so probes can be sent and echoes received from different threads. The {@link ProbeListener} is
+ * called while holding the lock of the tracker, so it must not block.
+ */
+public class TixProbeTracker {
+
+	/**
+	 * Receiver of the outcome of each probe.
+	 */
+	public interface ProbeListener {
+		/**
+		 * Receives a probe whose echo arrived.
+		 *
+		 * @param initialTimestamp Initial timestamp of the probe
+		 * @param receptionTimestamp Reception timestamp of the probe
+		 * @param sentTimestamp Sent timestamp of the probe
+		 * @param finalTimestamp Final timestamp of the probe
+		 */
+		void completed(long initialTimestamp, long receptionTimestamp, long sentTimestamp, long finalTimestamp);
+
+		/**
+		 * Receives a probe whose echo did not arrive in time.
+		 *
+		 * @param initialTimestamp Initial timestamp of the probe
+		 */
+		void lost(long initialTimestamp);
+	}
+
+	/**
+	 * Default maximum number of pending probes.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 12;
+
+	/**
+	 * Default time in nanoseconds after which a probe without echo is lost.
+	 */
+	public static final long DEFAULT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+	private static final long EMPTY = Long.MIN_VALUE;
+
+	/**
+	 * {@link ProbeListener} to which the outcome of each probe is reported.
+	 */
+	private final ProbeListener listener;
+
+	/**
+	 * Time in nanoseconds after which a probe without echo is lost.
+	 */
+	private final long timeoutNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to expire the probes.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Maximum number of pending probes.
+	 */
+	private final int capacity;
+
+	/**
+	 * Initial timestamps of the probes in the ring, in the order they were sent, or {@link #EMPTY} for the probes
+	 * already completed.
+	 */
+	private final long[] ring;
+
+	/**
+	 * Time, in the {@link #clock}, at which each probe of the {@link #ring} expires.
+	 */
+	private final long[] deadlines;
+
+	/**
+	 * Open addressing table of the initial timestamps of the pending probes.
+	 */
+	private final long[] keys;
+
+	/**
+	 * Index in the {@link #ring} of each probe of the {@link #keys}.
+	 */
+	private final int[] slots;
+
+	private final int mask;
+
+	/**
+	 * Index in the {@link #ring} of the oldest probe.
+	 */
+	private int head;
+
+	/**
+	 * Number of entries of the {@link #ring}, either pending or completed.
+	 */
+	private int count;
+
+	/**
+	 * Number of pending probes.
+	 */
+	private int pending;
+
+	private long completedProbes;
+
+	private long lostProbes;
+
+	private long unmatchedEchoes;
+
+	/**
+	 * Creates a tracker of up to {@value #DEFAULT_CAPACITY} pending probes that are lost after
+	 * {@link #DEFAULT_TIMEOUT_NANOS} nanoseconds.
+	 *
+	 * @param listener {@link #listener}
+	 */
+	public TixProbeTracker(ProbeListener listener) {
+		this(DEFAULT_CAPACITY, DEFAULT_TIMEOUT_NANOS, TimeUnit.NANOSECONDS, listener);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixProbeTracker}.
+	 *
+	 * @param capacity {@link #capacity}
+	 * @param timeout Time after which a probe without echo is lost
+	 * @param unit {@link TimeUnit} of the {@code timeout}
+	 * @param listener {@link #listener}
+	 */
+	public TixProbeTracker(int capacity, long timeout, TimeUnit unit, ProbeListener listener) {
+		this(capacity, timeout, unit, listener, System::nanoTime);
+	}
+
+	TixProbeTracker(int capacity, long timeout, TimeUnit unit, ProbeListener listener, LongSupplier clock) {
+		checkPositive(capacity, "capacity");
+		checkPositive(timeout, "timeout");
+		checkNotNull(unit, "unit");
+		checkNotNull(listener, "listener");
+		checkNotNull(clock, "clock");
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.listener = listener;
+		this.clock = clock;
+		this.capacity = capacity;
+		this.ring = new long[2 * capacity];
+		this.deadlines = new long[2 * capacity];
+		int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+		this.keys = new long[tableSize];
+		this.slots = new int[tableSize];
+		this.mask = tableSize - 1;
+		Arrays.fill(keys, EMPTY);
+	}
+
+	/**
+	 * Registers a probe that was just sent, after reporting the probes that expired.
+	 *
+	 * @param packet {@link TixPacket} sent
+	 * @return {@code false} if a probe with the same initial timestamp is already pending, {@code true} otherwise
+	 */
+	public boolean sent(TixPacket packet) {
+		return sent(packet.getInitialTimestamp());
+	}
+
+	/**
+	 * Registers a probe that was just sent, after reporting the probes that expired.
+	 *
+	 * @param initialTimestamp Initial timestamp of the probe
+	 * @return {@code false} if a probe with the same initial timestamp is already pending, {@code true} otherwise
+	 */
+	public synchronized boolean sent(long initialTimestamp) {
+		if (initialTimestamp < 0) {
+			throw new IllegalArgumentException("Initial timestamp must not be negative, got " + initialTimestamp);
+		}
+		long now = clock.getAsLong();
+		expire(now);
+		if (indexOf(initialTimestamp) >= 0) {
+			return false;
+		}
+		if (pending == capacity) {
+			while (!dropOldest()) {
+				// skips the completed probes before the oldest pending one
+			}
+		}
+		if (count == ring.length) {
+			compact();
+		}
+		int slot = (head + count) % ring.length;
+		ring[slot] = initialTimestamp;
+		deadlines[slot] = now + timeoutNanos;
+		count++;
+		pending++;
+		insert(initialTimestamp, slot);
+		return true;
+	}
+
+	/**
+	 * Matches the echo of a probe, reporting it as completed.
+	 *
+	 * @param packet {@link TixPacket} received, with its final timestamp already set
+	 * @return {@code true} if the echo matched a pending probe, {@code false} otherwise
+	 */
+	public boolean received(TixPacket packet) {
+		return received(packet.getInitialTimestamp(), packet.getReceptionTimestamp(), packet.getSentTimestamp(),
+				packet.getFinalTimestamp());
+	}
+
+	/**
+	 * Matches the echo of a probe, reporting it as completed.
+	 *
+	 * @param initialTimestamp Initial timestamp of the probe
+	 * @param receptionTimestamp Reception timestamp of the probe
+	 * @param sentTimestamp Sent timestamp of the probe
+	 * @param finalTimestamp Final timestamp of the probe
+	 * @return {@code true} if the echo matched a pending probe, {@code false} if it is unknown, duplicated or late
+	 */
+	public synchronized boolean received(long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                                     long finalTimestamp) {
+		int index = indexOf(initialTimestamp);
+		if (index < 0) {
+			unmatchedEchoes++;
+			return false;
+		}
+		ring[slots[index]] = EMPTY;
+		remove(index);
+		pending--;
+		completedProbes++;
+		listener.completed(initialTimestamp, receptionTimestamp, sentTimestamp, finalTimestamp);
+		return true;
+	}
+
+	/**
+	 * Reports as lost every pending probe whose timeout elapsed.
+	 *
+	 * @return {@code int} number of probes reported lost
+	 */
+	public synchronized int expire() {
+		return expire(clock.getAsLong());
+	}
+
+	/**
+	 * Returns the number of probes waiting for their echo.
+	 * @return {@link #pending}
+	 */
+	public synchronized int pending() {
+		return pending;
+	}
+
+	/**
+	 * Returns the number of probes whose echo arrived.
+	 * @return {@link #completedProbes}
+	 */
+	public synchronized long getCompletedProbes() {
+		return completedProbes;
+	}
+
+	/**
+	 * Returns the number of probes reported lost.
+	 * @return {@link #lostProbes}
+	 */
+	public synchronized long getLostProbes() {
+		return lostProbes;
+	}
+
+	/**
+	 * Returns the number of echoes that did not match any pending probe.
+	 * @return {@link #unmatchedEchoes}
+	 */
+	public synchronized long getUnmatchedEchoes() {
+		return unmatchedEchoes;
+	}
+
+	private int expire(long now) {
+		int expired = 0;
+		while (count > 0 && (ring[head] == EMPTY || now - deadlines[head] >= 0)) {
+			if (dropOldest()) {
+				expired++;
+			}
+		}
+		return expired;
+	}
+
+	/**
+	 * Removes the oldest entry of the {@link #ring}, reporting it as lost if it was still pending.
+	 *
+	 * @return {@code true} if a pending probe was reported lost
+	 */
+	private boolean dropOldest() {
+		long oldest = ring[head];
+		head = (head + 1) % ring.length;
+		count--;
+		if (oldest == EMPTY) {
+			return false;
+		}
+		remove(indexOf(oldest));
+		pending--;
+		lostProbes++;
+		listener.lost(oldest);
+		return true;
+	}
+
+	/**
+	 * Moves the pending probes of the {@link #ring} over the entries of the completed ones, keeping their order.
+	 */
+	private void compact() {
+		int to = head;
+		for (int i = 0; i < count; i++) {
+			int from = (head + i) % ring.length;
+			if (ring[from] != EMPTY) {
+				if (from != to) {
+					ring[to] = ring[from];
+					deadlines[to] = deadlines[from];
+					slots[indexOf(ring[to])] = to;
+				}
+				to = (to + 1) % ring.length;
+			}
+		}
+		count = pending;
+	}
+
+	private int indexOf(long key) {
+		int index = hash(key) & mask;
+		while (keys[index] != EMPTY) {
+			if (keys[index] == key) {
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(long key, int slot) {
+		int index = hash(key) & mask;
+		while (keys[index] != EMPTY) {
+			index = (index + 1) & mask;
+		}
+		keys[index] = key;
+		slots[index] = slot;
+	}
+
+	private void remove(int hole) {
+		keys[hole] = EMPTY;
+		int index = (hole + 1) & mask;
+		while (keys[index] != EMPTY) {
+			int home = hash(keys[index]) & mask;
+			if (((index - home) & mask) >= ((index - hole) & mask)) {
+				keys[hole] = keys[index];
+				slots[hole] = slots[index];
+				keys[index] = EMPTY;
+				hole = index;
+			}
+			index = (index + 1) & mask;
+		}
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
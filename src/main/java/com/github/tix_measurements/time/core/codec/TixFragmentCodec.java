@@ -0,0 +1,196 @@
+package com.github.tix_measurements.time.core.codec;
+
+import com.github.tix_measurements.time.core.data.TixPacketType;
+
+import java.nio.ByteBuffer;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+
+/**
+ * Wire format of the fragments a LONG packet is split into when it does not fit in a single datagram of the path, so
+ * it is not fragmented by IP instead.
+ *
+ * Each fragment starts with {@link #FRAGMENT_MARKER}, a negative {@code long}, which tells it apart from any packet as
+ * their initial timestamps are never negative. It is followed by the ID of the packet, chosen by its sender, the length
+ * of the packet and the offset of the fragment in it, as unsigned shorts, and the index of the fragment and the count
+ * of fragments of the packet, as unsigned bytes. The rest of the datagram is the fragment of the encoded packet. The
+ * fragments are reassembled by a {@link TixReassemblyBuffer}, after which the packet is decoded by the
+ * {@link TixPacketCodec} as if it had been received whole.
+ *
+ * As in the {@link TixPacketCodec}, the fragments are read with absolute index reads relative to the position of the
+ * buffer, so the buffer is never moved and no exception is thrown for a malformed fragment.
+ */
+public final class TixFragmentCodec {
+
+	/**
+	 * First {@code long} of every fragment, {@code "TIXFRAG"} in ASCII with the sign bit set.
+	 */
+	public static final long FRAGMENT_MARKER = 0x8054495846524147L;
+
+	/**
+	 * Bytes of the header of each fragment: the marker, the packet ID, the packet length, the offset, the index and the
+	 * count of fragments.
+	 */
+	public static final int HEADER_BYTES = Long.BYTES + Integer.BYTES + 2 * Short.BYTES + 2;
+
+	/**
+	 * Smallest datagram a packet can be split into, the largest UDP payload that is never fragmented over IPv4: the
+	 * minimum MTU of 576 bytes minus the largest IPv4 header and the UDP header.
+	 */
+	public static final int MIN_DATAGRAM_BYTES = 576 - 60 - 8;
+
+	/**
+	 * Largest UDP payload that is not fragmented on a path with the usual Ethernet MTU of 1500 bytes, over IPv4 or
+	 * IPv6 without extension headers.
+	 */
+	public static final int DEFAULT_MAX_DATAGRAM_BYTES = 1500 - 40 - 8;
+
+	/**
+	 * Maximum number of fragments of a packet, so the fragments received can be kept in the bits of a {@code long}.
+	 */
+	public static final int MAX_FRAGMENTS = Long.SIZE;
+
+	private static final int ID_OFFSET = Long.BYTES;
+	private static final int LENGTH_OFFSET = ID_OFFSET + Integer.BYTES;
+	private static final int OFFSET_OFFSET = LENGTH_OFFSET + Short.BYTES;
+	private static final int INDEX_OFFSET = OFFSET_OFFSET + Short.BYTES;
+	private static final int COUNT_OFFSET = INDEX_OFFSET + 1;
+
+	private TixFragmentCodec() { }
+
+	/**
+	 * Returns the number of datagrams of at most {@code maxDatagramBytes} a packet of {@code packetBytes} is split
+	 * into.
+	 *
+	 * @param packetBytes Length of the encoded packet, at most {@link TixPacketType#LONG} size
+	 * @param maxDatagramBytes Maximum length of each datagram, at least {@link #MIN_DATAGRAM_BYTES}
+	 * @return {@code int} number of fragments
+	 */
+	public static int fragmentCount(int packetBytes, int maxDatagramBytes) {
+		checkArgument(packetBytes > 0 && packetBytes <= TixPacketType.LONG.getSize(),
+				"packetBytes must be positive and at most the LONG size");
+		checkArgument(maxDatagramBytes >= MIN_DATAGRAM_BYTES,
+				"maxDatagramBytes must be at least " + MIN_DATAGRAM_BYTES);
+		int chunk = maxDatagramBytes - HEADER_BYTES;
+		return (packetBytes + chunk - 1) / chunk;
+	}
+
+	/**
+	 * Encodes the fragment {@code index} of the remaining bytes of {@code packet} into {@code out}, starting at its
+	 * position. The packet is not moved, so all its fragments can be encoded from it.
+	 *
+	 * @param packet {@link ByteBuffer} with the encoded packet
+	 * @param packetId ID of the packet, shared by all its fragments
+	 * @param index Index of the fragment, less than the {@link #fragmentCount(int, int)} of the packet
+	 * @param maxDatagramBytes Maximum length of each datagram, at least {@link #MIN_DATAGRAM_BYTES}
+	 * @param out {@link ByteBuffer} with at least {@code maxDatagramBytes} bytes remaining
+	 */
+	public static void encode(ByteBuffer packet, int packetId, int index, int maxDatagramBytes, ByteBuffer out) {
+		int length = packet.remaining();
+		int count = fragmentCount(length, maxDatagramBytes);
+		checkArgument(index >= 0 && index < count, "index must be less than the number of fragments");
+		int chunk = maxDatagramBytes - HEADER_BYTES;
+		int offset = index * chunk;
+		int end = Math.min(offset + chunk, length);
+		out.putLong(FRAGMENT_MARKER);
+		out.putInt(packetId);
+		out.putShort((short) length);
+		out.putShort((short) offset);
+		out.put((byte) index);
+		out.put((byte) count);
+		ByteBuffer fragment = packet.duplicate();
+		fragment.limit(packet.position() + end).position(packet.position() + offset);
+		out.put(fragment);
+	}
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code datagram} start with the {@link #FRAGMENT_MARKER}. It does
+	 * not check the rest of the fragment.
+	 *
+	 * @param datagram {@link ByteBuffer} with the content of the datagram
+	 * @return {@code true} if the datagram is a fragment, {@code false} otherwise
+	 */
+	public static boolean isFragment(ByteBuffer datagram) {
+		return datagram.remaining() >= HEADER_BYTES && datagram.getLong(datagram.position()) == FRAGMENT_MARKER;
+	}
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code datagram} are a well formed fragment of a packet of at most
+	 * {@link TixPacketType#LONG} size.
+	 *
+	 * @param datagram {@link ByteBuffer} with the content of the datagram
+	 * @return {@code true} if the fragment can be reassembled, {@code false} otherwise
+	 */
+	public static boolean isWellFormed(ByteBuffer datagram) {
+		if (!isFragment(datagram)) {
+			return false;
+		}
+		int length = packetLength(datagram);
+		int count = count(datagram);
+		int chunk = datagram.remaining() - HEADER_BYTES;
+		return length > 0 && length <= TixPacketType.LONG.getSize()
+				&& count > 0 && count <= MAX_FRAGMENTS && index(datagram) < count
+				&& chunk > 0 && offset(datagram) + chunk <= length;
+	}
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code datagram} are the well formed first fragment of a packet,
+	 * which holds the start of the packet, its timestamps and data header, right after the {@link #HEADER_BYTES}.
+	 *
+	 * @param datagram {@link ByteBuffer} with the content of the datagram
+	 * @return {@code true} if the datagram is the first fragment of a packet, {@code false} otherwise
+	 */
+	public static boolean isFirstFragment(ByteBuffer datagram) {
+		return isWellFormed(datagram) && index(datagram) == 0;
+	}
+
+	/**
+	 * Returns the ID of the packet of a fragment.
+	 *
+	 * @param fragment {@link ByteBuffer} with the content of a fragment
+	 * @return {@code int} packet ID
+	 */
+	public static int packetId(ByteBuffer fragment) {
+		return fragment.getInt(fragment.position() + ID_OFFSET);
+	}
+
+	/**
+	 * Returns the length of the packet of a fragment.
+	 *
+	 * @param fragment {@link ByteBuffer} with the content of a fragment
+	 * @return {@code int} packet length, in bytes
+	 */
+	public static int packetLength(ByteBuffer fragment) {
+		return Short.toUnsignedInt(fragment.getShort(fragment.position() + LENGTH_OFFSET));
+	}
+
+	/**
+	 * Returns the offset of a fragment in its packet.
+	 *
+	 * @param fragment {@link ByteBuffer} with the content of a fragment
+	 * @return {@code int} offset, in bytes
+	 */
+	public static int offset(ByteBuffer fragment) {
+		return Short.toUnsignedInt(fragment.getShort(fragment.position() + OFFSET_OFFSET));
+	}
+
+	/**
+	 * Returns the index of a fragment in its packet.
+	 *
+	 * @param fragment {@link ByteBuffer} with the content of a fragment
+	 * @return {@code int} index
+	 */
+	public static int index(ByteBuffer fragment) {
+		return Byte.toUnsignedInt(fragment.get(fragment.position() + INDEX_OFFSET));
+	}
+
+	/**
+	 * Returns the number of fragments of the packet of a fragment.
+	 *
+	 * @param fragment {@link ByteBuffer} with the content of a fragment
+	 * @return {@code int} number of fragments
+	 */
+	public static int count(ByteBuffer fragment) {
+		return Byte.toUnsignedInt(fragment.get(fragment.position() + COUNT_OFFSET));
+	}
+}
@@ -0,0 +1,282 @@
+package com.github.tix_measurements.time.core.codec;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Wire format of the TiX packets over plain {@link ByteBuffer}s, so it can be used with or without Netty.
+ *
+ * The validation is done with absolute index reads relative to the position of the buffer, so the buffer is never
+ * moved and no exception is thrown for a malformed payload. A payload considered well formed can be decoded without
+ * any further bounds or delimiter checks. The characters of the base 64 encoded message are not checked here but in
+ * the single pass that decodes them, so a data packet with a junk message is decoded, and then its
+ * {@link TixDataPacket#getMessage()} throws.
+ */
+public final class TixPacketCodec {
+
+	private static final byte[] DATA_HEADER_BYTES = TixDataPacket.DATA_HEADER.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] COMPRESSED_DATA_HEADER_BYTES =
+			TixDataPacket.COMPRESSED_DATA_HEADER.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] DATA_DELIMITER_BYTES = TixDataPacket.DATA_DELIMITER.getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * First byte of the delimiter repeated in every byte of a {@code long}, and the masks that flag its zero bytes once
+	 * XORed with it.
+	 */
+	private static final long DELIMITER_WORD = (DATA_DELIMITER_BYTES[0] & 0xFFL) * 0x0101010101010101L;
+	private static final long LOW_BITS = 0x0101010101010101L;
+	private static final long HIGH_BITS = 0x8080808080808080L;
+
+	/**
+	 * Offset of the data header, right after the four timestamps.
+	 */
+	public static final int DATA_HEADER_OFFSET = TixPacketType.SHORT.getSize();
+
+	/**
+	 * Offset of the user ID, right after the data header and its delimiter.
+	 */
+	public static final int USER_ID_OFFSET = DATA_HEADER_OFFSET + DATA_HEADER_BYTES.length + DATA_DELIMITER_BYTES.length;
+
+	/**
+	 * Offset of the public key, right after the user and installation IDs and their delimiter.
+	 */
+	public static final int PUBLIC_KEY_OFFSET = USER_ID_OFFSET + 2 * Long.BYTES + DATA_DELIMITER_BYTES.length;
+
+	/**
+	 * Offset of the base 64 encoded message, right after the public key and its delimiter.
+	 */
+	public static final int MESSAGE_OFFSET = PUBLIC_KEY_OFFSET + TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH
+			+ DATA_DELIMITER_BYTES.length;
+
+	private TixPacketCodec() { }
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code payload} are a well formed TiX packet, either a SHORT one,
+	 * a LONG one, or a LONG one carrying data.
+	 *
+	 * @param payload {@link ByteBuffer} with the content of the datagram
+	 * @return {@code true} if the payload can be decoded, {@code false} otherwise
+	 */
+	public static boolean isWellFormed(ByteBuffer payload) {
+		return hasWellFormedTimestamps(payload) && (payload.remaining() == TixPacketType.SHORT.getSize()
+				|| !isDataPacket(payload) || wellFormedMessageEndIndex(payload) >= 0);
+	}
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code payload} start with the timestamps followed by the data
+	 * header, either the plain or the compressed one. It does not check the rest of the data.
+	 *
+	 * @param payload {@link ByteBuffer} with the content of a LONG datagram
+	 * @return {@code true} if the payload announces data, {@code false} otherwise
+	 */
+	public static boolean isDataPacket(ByteBuffer payload) {
+		int start = payload.position();
+		return payload.remaining() >= USER_ID_OFFSET
+				&& (matches(payload, start + DATA_HEADER_OFFSET, DATA_HEADER_BYTES)
+						|| matches(payload, start + DATA_HEADER_OFFSET, COMPRESSED_DATA_HEADER_BYTES))
+				&& matches(payload, start + DATA_HEADER_OFFSET + DATA_HEADER_BYTES.length, DATA_DELIMITER_BYTES);
+	}
+
+	/**
+	 * Returns {@code true} if the remaining bytes of {@code payload} announce data with a compressed message. It does
+	 * not check the rest of the data.
+	 *
+	 * @param payload {@link ByteBuffer} with the content of a LONG datagram
+	 * @return {@code true} if the payload announces compressed data, {@code false} otherwise
+	 */
+	public static boolean isCompressedDataPacket(ByteBuffer payload) {
+		return isDataPacket(payload)
+				&& matches(payload, payload.position() + DATA_HEADER_OFFSET, COMPRESSED_DATA_HEADER_BYTES);
+	}
+
+	/**
+	 * Returns the absolute index of the delimiter that ends the base 64 encoded message of a data packet, or
+	 * {@code -1} if there is none.
+	 *
+	 * As the delimiter is not a base 64 character, it is the first occurrence of its first byte after the start of the
+	 * message. The bytes are compared eight at a time, XORing each {@code long} with the byte repeated and checking
+	 * whether any byte of the result is zero, and only the {@code long} holding the delimiter is scanned byte by
+	 * byte.
+	 *
+	 * @param payload {@link ByteBuffer} with the content of a LONG datagram carrying data
+	 * @return {@code int} index of the delimiter
+	 */
+	public static int messageEndIndex(ByteBuffer payload) {
+		int end = payload.limit();
+		int i = payload.position() + MESSAGE_OFFSET;
+		for (; i + Long.BYTES <= end; i += Long.BYTES) {
+			long word = payload.getLong(i) ^ DELIMITER_WORD;
+			if (((word - LOW_BITS) & ~word & HIGH_BITS) != 0) {
+				break;
+			}
+		}
+		byte delimiter = DATA_DELIMITER_BYTES[0];
+		for (; i < end; i++) {
+			if (payload.get(i) == delimiter) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Decodes the remaining bytes of {@code payload} into a {@link TixPacket} or a {@link TixDataPacket}, consuming
+	 * them.
+	 *
+	 * @param payload {@link ByteBuffer} with the content of the datagram
+	 * @param from Sender of the datagram
+	 * @param to Recipient of the datagram
+	 * @return the decoded packet, or {@code null} if the payload is malformed, in which case it is not consumed
+	 */
+	public static TixPacket decode(ByteBuffer payload, InetSocketAddress from, InetSocketAddress to) {
+		if (!hasWellFormedTimestamps(payload)) {
+			return null;
+		}
+		final TixPacketType packetType = payload.remaining() == TixPacketType.SHORT.getSize() ?
+				TixPacketType.SHORT : TixPacketType.LONG;
+		final boolean isDataPacket = packetType == TixPacketType.LONG && isDataPacket(payload);
+		final int messageEnd = isDataPacket ? wellFormedMessageEndIndex(payload) : -1;
+		if (isDataPacket && messageEnd < 0) {
+			return null;
+		}
+		final boolean isCompressed = isDataPacket && isCompressedDataPacket(payload);
+		final long initialTimestamp = payload.getLong();
+		final long receivedTimestamp = payload.getLong();
+		final long sentTimestamp = payload.getLong();
+		final long finalTimestamp = payload.getLong();
+		TixPacket tixPacket;
+		if (isDataPacket) {
+			skip(payload, DATA_HEADER_BYTES.length + DATA_DELIMITER_BYTES.length);
+			final long userId = payload.getLong();
+			final long installationId = payload.getLong();
+			skip(payload, DATA_DELIMITER_BYTES.length);
+			int messageLength = messageEnd - payload.position() - TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH
+					- DATA_DELIMITER_BYTES.length;
+			byte[] encodedFields = new byte[TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH + messageLength
+					+ TixCoreUtils.SIGNATURE_BYTES_SIZE + 2 * DATA_DELIMITER_BYTES.length];
+			payload.get(encodedFields);
+			skip(payload, DATA_DELIMITER_BYTES.length);
+			tixPacket = TixDataPacket.encoded(from, to, initialTimestamp, userId, installationId, encodedFields,
+					messageLength, isCompressed);
+		} else {
+			tixPacket = new TixPacket(from, to, packetType, initialTimestamp);
+		}
+		tixPacket.setReceptionTimestamp(receivedTimestamp);
+		tixPacket.setSentTimestamp(sentTimestamp);
+		tixPacket.setFinalTimestamp(finalTimestamp);
+		payload.position(payload.limit());
+		return tixPacket;
+	}
+
+	/**
+	 * Encodes {@code packet} into {@code out}, starting at its position. A LONG packet is padded with random bytes up
+	 * to {@link TixPacketType#LONG} size.
+	 *
+	 * @param packet {@link TixPacket} or {@link TixDataPacket} to encode
+	 * @param out {@link ByteBuffer} with at least {@link TixPacketType#getSize()} bytes remaining
+	 * @throws IllegalArgumentException if the data of the packet does not fit in a LONG packet
+	 */
+	public static void encode(TixPacket packet, ByteBuffer out) {
+		int start = out.position();
+		out.putLong(packet.getInitialTimestamp());
+		out.putLong(packet.getReceptionTimestamp());
+		out.putLong(packet.getSentTimestamp());
+		out.putLong(packet.getFinalTimestamp());
+		if (packet.getType() == TixPacketType.LONG) {
+			if (packet instanceof TixDataPacket) {
+				TixDataPacket dataPacket = (TixDataPacket) packet;
+				byte[] message = Base64.getEncoder().encode(dataPacket.isCompressed() ?
+						dataPacket.getCompressedMessage() : dataPacket.getMessage());
+				int dataSize = MESSAGE_OFFSET + message.length + DATA_DELIMITER_BYTES.length
+						+ dataPacket.getSignature().length + DATA_DELIMITER_BYTES.length;
+				if (dataSize > TixPacketType.LONG.getSize()) {
+					throw new IllegalArgumentException("Data packet of " + dataSize + " bytes does not fit in a "
+							+ TixPacketType.LONG.getSize() + " bytes packet");
+				}
+				out.put(dataPacket.isCompressed() ? COMPRESSED_DATA_HEADER_BYTES : DATA_HEADER_BYTES);
+				out.put(DATA_DELIMITER_BYTES);
+				out.putLong(dataPacket.getUserId());
+				out.putLong(dataPacket.getInstallationId());
+				out.put(DATA_DELIMITER_BYTES);
+				for (byte[] bytes : new byte[][]{dataPacket.getPublicKey(), message, dataPacket.getSignature()}) {
+					out.put(bytes);
+					out.put(DATA_DELIMITER_BYTES);
+				}
+			}
+			pad(out, start + TixPacketType.LONG.getSize());
+		}
+	}
+
+	private static void pad(ByteBuffer out, int end) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (end - out.position() >= Long.BYTES) {
+			out.putLong(random.nextLong());
+		}
+		while (out.position() < end) {
+			out.put((byte) random.nextInt());
+		}
+	}
+
+	private static void skip(ByteBuffer payload, int length) {
+		payload.position(payload.position() + length);
+	}
+
+	private static boolean hasWellFormedTimestamps(ByteBuffer payload) {
+		int length = payload.remaining();
+		if (length != TixPacketType.SHORT.getSize() && length != TixPacketType.LONG.getSize()) {
+			return false;
+		}
+		int start = payload.position();
+		for (int i = 0; i < 4; i++) {
+			if (payload.getLong(start + i * Long.BYTES) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the {@link #messageEndIndex(ByteBuffer)} of a data packet if the rest of its data is well formed, or
+	 * {@code -1} otherwise, so the message is scanned once per decode.
+	 */
+	private static int wellFormedMessageEndIndex(ByteBuffer payload) {
+		int start = payload.position();
+		int end = payload.limit();
+		if (payload.getLong(start + USER_ID_OFFSET) <= 0
+				|| payload.getLong(start + USER_ID_OFFSET + Long.BYTES) <= 0
+				|| !matches(payload, start + PUBLIC_KEY_OFFSET - DATA_DELIMITER_BYTES.length, DATA_DELIMITER_BYTES)
+				|| !matches(payload, start + MESSAGE_OFFSET - DATA_DELIMITER_BYTES.length, DATA_DELIMITER_BYTES)) {
+			return -1;
+		}
+		int messageEnd = messageEndIndex(payload);
+		if (messageEnd <= start + MESSAGE_OFFSET) {
+			return -1;
+		}
+		int signatureEnd = messageEnd + DATA_DELIMITER_BYTES.length + TixCoreUtils.SIGNATURE_BYTES_SIZE;
+		return signatureEnd + DATA_DELIMITER_BYTES.length <= end
+				&& matches(payload, messageEnd, DATA_DELIMITER_BYTES)
+				&& matches(payload, signatureEnd, DATA_DELIMITER_BYTES) ? messageEnd : -1;
+	}
+
+	private static boolean matches(ByteBuffer payload, int index, byte[] expected) {
+		if (index < 0 || index + expected.length > payload.limit()) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (payload.get(index + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
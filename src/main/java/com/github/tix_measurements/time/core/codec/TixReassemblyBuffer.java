@@ -0,0 +1,339 @@
+package com.github.tix_measurements.time.core.codec;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Bounded buffer that reassembles the packets split by the {@link TixFragmentCodec}, keyed by their sender and packet
+ * ID, so the fragments can arrive in any order and interleaved with those of other packets.
+ *
+ * At most {@link #maxPendingPackets} packets are kept waiting for the rest of their fragments, each with a buffer of
+ * its length, so the memory used is bounded by that many LONG packets. A packet whose fragments do not all arrive
+ * within {@link #timeoutNanos} of the first one is evicted, as it is when the buffer is full and another packet
+ * starts, the oldest one first. A lost fragment loses its whole packet, as a lost IP fragment does. A single sender,
+ * identified by its IP address whatever its port, can have at most {@link #maxPendingPacketsPerSender} packets
+ * waiting, and the fragments of its further packets are dropped until some of them complete or expire, so it can not
+ * evict the packets of the other senders by starting new packets.
+ *
+ * The fragments must tile their packet as the {@link TixFragmentCodec} splits it: all but the last one have the same
+ * length and start at their index times that length, and the last one ends the packet. A fragment that does not agree
+ * with the ones already received of its packet is dropped, so overlapping fragments are never reassembled.
+ *
+ * It is not thread safe.
+ */
+public class TixReassemblyBuffer {
+
+	/**
+	 * Default maximum number of packets waiting for the rest of their fragments.
+	 */
+	public static final int DEFAULT_MAX_PENDING_PACKETS = 1024;
+
+	/**
+	 * Default maximum number of packets of a single sender waiting for the rest of their fragments.
+	 */
+	public static final int DEFAULT_MAX_PENDING_PACKETS_PER_SENDER = 16;
+
+	/**
+	 * Default time, in nanoseconds, the fragments of a packet are waited for.
+	 */
+	public static final long DEFAULT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+	/**
+	 * Maximum number of packets waiting for the rest of their fragments.
+	 */
+	private final int maxPendingPackets;
+
+	/**
+	 * Maximum number of packets of a single sender waiting for the rest of their fragments.
+	 */
+	private final int maxPendingPacketsPerSender;
+
+	/**
+	 * Time, in nanoseconds, the fragments of a packet are waited for since the first one arrived.
+	 */
+	private final long timeoutNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, of the arrival of the fragments.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Packets waiting for the rest of their fragments, in the order their first fragment arrived.
+	 */
+	private final LinkedHashMap<Key, Pending> pending = new LinkedHashMap<>();
+
+	/**
+	 * Number of packets waiting for the rest of their fragments of each sender, by {@link #senderOf(Key)}.
+	 */
+	private final Map<Object, Integer> pendingBySender = new HashMap<>();
+
+	private long reassembledPackets;
+	private long evictedPackets;
+	private long rejectedPackets;
+	private long malformedFragments;
+
+	/**
+	 * Creates a buffer with the {@link #DEFAULT_MAX_PENDING_PACKETS}, the
+	 * {@link #DEFAULT_MAX_PENDING_PACKETS_PER_SENDER} and the {@link #DEFAULT_TIMEOUT_NANOS}.
+	 */
+	public TixReassemblyBuffer() {
+		this(DEFAULT_MAX_PENDING_PACKETS, DEFAULT_MAX_PENDING_PACKETS_PER_SENDER, DEFAULT_TIMEOUT_NANOS,
+				TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixReassemblyBuffer}.
+	 *
+	 * @param maxPendingPackets {@link #maxPendingPackets}
+	 * @param maxPendingPacketsPerSender {@link #maxPendingPacketsPerSender}
+	 * @param timeout Time the fragments of a packet are waited for since the first one arrived
+	 * @param unit {@link TimeUnit} of the {@code timeout}
+	 */
+	public TixReassemblyBuffer(int maxPendingPackets, int maxPendingPacketsPerSender, long timeout, TimeUnit unit) {
+		this(maxPendingPackets, maxPendingPacketsPerSender, timeout, unit, System::nanoTime);
+	}
+
+	TixReassemblyBuffer(int maxPendingPackets, int maxPendingPacketsPerSender, long timeout, TimeUnit unit,
+	                    LongSupplier clock) {
+		checkPositive(maxPendingPackets, "maxPendingPackets");
+		checkPositive(maxPendingPacketsPerSender, "maxPendingPacketsPerSender");
+		checkPositive(timeout, "timeout");
+		checkNotNull(unit, "unit");
+		checkNotNull(clock, "clock");
+		this.maxPendingPackets = maxPendingPackets;
+		this.maxPendingPacketsPerSender = maxPendingPacketsPerSender;
+		this.timeoutNanos = unit.toNanos(timeout);
+		this.clock = clock;
+	}
+
+	/**
+	 * Adds the fragment in the remaining bytes of {@code fragment}, sent by {@code sender}, to its packet, and returns
+	 * the packet if it was the last fragment missing. The fragment is copied, and {@code fragment} is never moved.
+	 * The malformed fragments, and those that do not agree with the previous fragments of their packet, are dropped
+	 * and counted in {@link #getMalformedFragments()}, and the duplicated ones are ignored. The first fragment of a
+	 * packet whose sender already has {@link #maxPendingPacketsPerSender} packets waiting is dropped and counted in
+	 * {@link #getRejectedPackets()}.
+	 *
+	 * @param sender Sender of the fragment
+	 * @param fragment {@link ByteBuffer} with the content of the datagram
+	 * @return {@link ByteBuffer} with the reassembled packet, or {@code null} if some of its fragments are missing
+	 */
+	public ByteBuffer offer(InetSocketAddress sender, ByteBuffer fragment) {
+		long now = clock.getAsLong();
+		expire(now);
+		if (!TixFragmentCodec.isWellFormed(fragment)) {
+			malformedFragments++;
+			return null;
+		}
+		int length = TixFragmentCodec.packetLength(fragment);
+		int count = TixFragmentCodec.count(fragment);
+		int index = TixFragmentCodec.index(fragment);
+		int offset = TixFragmentCodec.offset(fragment);
+		int size = fragment.remaining() - TixFragmentCodec.HEADER_BYTES;
+		int chunk = chunkOf(length, count, index, offset, size);
+		if (chunk < 0) {
+			malformedFragments++;
+			return null;
+		}
+		Key key = new Key(sender, TixFragmentCodec.packetId(fragment));
+		Pending packet = pending.get(key);
+		if (packet == null) {
+			Object senderKey = senderOf(key);
+			if (pendingBySender.getOrDefault(senderKey, 0) >= maxPendingPacketsPerSender) {
+				rejectedPackets++;
+				return null;
+			}
+			if (pending.size() == maxPendingPackets) {
+				evictEldest();
+			}
+			packet = new Pending(length, count, chunk, now);
+			pending.put(key, packet);
+			pendingBySender.merge(senderKey, 1, Integer::sum);
+		} else if (packet.bytes.length != length || packet.count != count || packet.chunk != chunk) {
+			malformedFragments++;
+			return null;
+		}
+		long bit = 1L << index;
+		if ((packet.received & bit) != 0) {
+			return null;
+		}
+		ByteBuffer source = fragment.duplicate();
+		source.position(fragment.position() + TixFragmentCodec.HEADER_BYTES);
+		source.get(packet.bytes, offset, size);
+		packet.received |= bit;
+		if (packet.received != packet.allReceived()) {
+			return null;
+		}
+		remove(key);
+		reassembledPackets++;
+		return ByteBuffer.wrap(packet.bytes);
+	}
+
+	/**
+	 * Returns the length of all but the last fragment of a packet, as implied by a well formed fragment of it, or
+	 * {@code -1} if the fragment is not where the {@link TixFragmentCodec} would have put it.
+	 */
+	private static int chunkOf(int length, int count, int index, int offset, int size) {
+		if (index < count - 1) {
+			return offset == index * size ? size : -1;
+		}
+		if (offset + size != length) {
+			return -1;
+		}
+		if (index == 0) {
+			return size;
+		}
+		return offset % index == 0 && offset / index >= size ? offset / index : -1;
+	}
+
+	/**
+	 * Evicts the packets whose fragments have been waited for longer than {@link #timeoutNanos}. It is done on every
+	 * {@link #offer(InetSocketAddress, ByteBuffer)}, so it only needs to be called to release them while no fragments
+	 * arrive.
+	 */
+	public void expire() {
+		expire(clock.getAsLong());
+	}
+
+	private void expire(long now) {
+		Iterator<Map.Entry<Key, Pending>> iterator = pending.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key, Pending> eldest = iterator.next();
+			if (now - eldest.getValue().firstArrival < timeoutNanos) {
+				return;
+			}
+			iterator.remove();
+			releaseSender(eldest.getKey());
+			evictedPackets++;
+		}
+	}
+
+	private void evictEldest() {
+		Iterator<Key> iterator = pending.keySet().iterator();
+		Key eldest = iterator.next();
+		iterator.remove();
+		releaseSender(eldest);
+		evictedPackets++;
+	}
+
+	private void remove(Key key) {
+		pending.remove(key);
+		releaseSender(key);
+	}
+
+	private void releaseSender(Key key) {
+		pendingBySender.computeIfPresent(senderOf(key), (sender, packets) -> packets == 1 ? null : packets - 1);
+	}
+
+	/**
+	 * Returns the IP address of the sender of a packet, or its host name if it is unresolved, so the packets sent from
+	 * any of its ports count against the same limit.
+	 */
+	private static Object senderOf(Key key) {
+		if (key.sender == null || key.sender.getAddress() == null) {
+			return key.sender == null ? null : key.sender.getHostString();
+		}
+		return key.sender.getAddress();
+	}
+
+	/**
+	 * Returns the number of packets waiting for the rest of their fragments.
+	 * @return {@code int} number of packets
+	 */
+	public int size() {
+		return pending.size();
+	}
+
+	/**
+	 * Returns the number of packets reassembled.
+	 * @return {@link #reassembledPackets}
+	 */
+	public long getReassembledPackets() {
+		return reassembledPackets;
+	}
+
+	/**
+	 * Returns the number of packets evicted before all their fragments arrived, because they timed out or the buffer
+	 * was full.
+	 * @return {@link #evictedPackets}
+	 */
+	public long getEvictedPackets() {
+		return evictedPackets;
+	}
+
+	/**
+	 * Returns the number of packets whose first fragment was dropped because their sender had
+	 * {@link #maxPendingPacketsPerSender} packets waiting.
+	 * @return {@link #rejectedPackets}
+	 */
+	public long getRejectedPackets() {
+		return rejectedPackets;
+	}
+
+	/**
+	 * Returns the number of fragments dropped for being malformed.
+	 * @return {@link #malformedFragments}
+	 */
+	public long getMalformedFragments() {
+		return malformedFragments;
+	}
+
+	private static final class Key {
+		private final InetSocketAddress sender;
+		private final int packetId;
+
+		private Key(InetSocketAddress sender, int packetId) {
+			this.sender = sender;
+			this.packetId = packetId;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return packetId == other.packetId && (sender == null ? other.sender == null : sender.equals(other.sender));
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (sender == null ? 0 : sender.hashCode()) + packetId;
+		}
+	}
+
+	/**
+	 * Packet waiting for the rest of its fragments, with a bit set in {@link #received} for each one that arrived.
+	 */
+	private static final class Pending {
+		private final byte[] bytes;
+		private final int count;
+		private final int chunk;
+		private final long firstArrival;
+		private long received;
+
+		private Pending(int length, int count, int chunk, long firstArrival) {
+			this.bytes = new byte[length];
+			this.count = count;
+			this.chunk = chunk;
+			this.firstArrival = firstArrival;
+		}
+
+		private long allReceived() {
+			return count == Long.SIZE ? -1L : (1L << count) - 1;
+		}
+	}
+}
@@ -1,14 +1,15 @@
 package com.github.tix_measurements.time.core.data;
 
 import com.github.tix_measurements.time.core.util.TixCoreUtils;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import java.net.InetSocketAddress;
+import java.util.Arrays;
 
-import static org.assertj.core.api.Assertions.*;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
 
 /**
  * The  TiX Data Packet is a long packet type. With the four timestamps that represents the number of nanoseconds since
@@ -31,22 +32,56 @@ public class TixDataPacket extends TixPacket {
 	 */
 	public static final String DATA_DELIMITER = ";;";
 
+	/**
+	 * Constant exposing the header that announces the existence of a data in the payload of the UDP Packet whose
+	 * message is compressed by {@link TixCoreUtils#COMPRESSOR}
+	 */
+	public static final String COMPRESSED_DATA_HEADER = "DATZ";
+
 	/**
 	 * User's public key generated by the {@value TixCoreUtils#KEY_ALGORITHM}
 	 * algorithm.
 	 */
-	private byte[] publicKey;
+	private volatile byte[] publicKey;
+
+	/**
+	 * User's file that contains the last 10 measurements. For a compressed packet it is decompressed from
+	 * {@link #compressedMessage} the first time it is read.
+	 */
+	private volatile byte[] message;
+
+	/**
+	 * {@link #message} compressed by {@link TixCoreUtils#COMPRESSOR}, or {@code null} if the packet is not compressed.
+	 */
+	private volatile byte[] compressedMessage;
 
 	/**
-	 * User's file that contains the last 10 measurements.
+	 * {@code true} if the {@link #message} is sent compressed.
 	 */
-	private byte[] message;
+	private boolean compressed;
 
 	/**
 	 * Signature of the of the log file contents made with the user's private key with the
-	 * {@value TixCoreUtils#SIGNING_ALGORITHM} signing algorithm, and verifiable by {@link #publicKey}.
+	 * {@value TixCoreUtils#SIGNING_ALGORITHM} signing algorithm, and verifiable by {@link #publicKey}. For a compressed
+	 * packet it signs the {@link #compressedMessage}, so it can be verified without decompressing it.
+	 */
+	private volatile byte[] signature;
+
+	/**
+	 * Raw public key, base 64 encoded message and signature, separated by {@link #DATA_DELIMITER}, as they were read
+	 * from the network, or {@code null} if the packet was not decoded.
+	 */
+	private byte[] encodedFields;
+
+	/**
+	 * Length of the base 64 encoded message within the {@link #encodedFields}.
+	 */
+	private int encodedMessageLength;
+
+	/**
+	 * Cached hash of the fields of this class, or {@code 0} if it was not computed yet.
 	 */
-	private byte[] signature;
+	private int contentHash;
 
 	/**
 	 * User ID to which this packet belongs.
@@ -74,30 +109,101 @@ public class TixDataPacket extends TixPacket {
 	 */
 	public TixDataPacket(InetSocketAddress from, InetSocketAddress to, long initialTimestamp, long userId,
 	                     long installationId, byte[] publicKey, byte[] message, byte[] signature) {
+		this(from, to, initialTimestamp, userId, installationId, publicKey, message, null, signature);
+	}
+
+	private TixDataPacket(InetSocketAddress from, InetSocketAddress to, long initialTimestamp, long userId,
+	                      long installationId, byte[] publicKey, byte[] message, byte[] compressedMessage,
+	                      byte[] signature) {
 		super(from, to, TixPacketType.LONG, initialTimestamp);
-		try {
-			assertThat(userId).isPositive();
-			assertThat(installationId).isPositive();
-			assertThat(publicKey).isNotNull();
-			assertThat(publicKey).isNotEmpty();
-			assertThat(message).isNotNull();
-			assertThat(message).isNotEmpty();
-			assertThat(signature).isNotNull();
-		} catch (AssertionError ae) {
-			throw new IllegalArgumentException(ae);
-		}
+		checkPositive(userId, "userId");
+		checkPositive(installationId, "installationId");
+		checkNotNull(publicKey, "publicKey");
+		checkArgument(publicKey.length > 0, "publicKey must not be empty");
+		byte[] content = checkNotNull(message != null ? message : compressedMessage, "message");
+		checkArgument(content.length > 0, "message must not be empty");
+		checkNotNull(signature, "signature");
 		this.publicKey = publicKey;
 		this.signature = signature;
 		this.message = message;
+		this.compressedMessage = compressedMessage;
+		this.compressed = compressedMessage != null;
+		this.userId = userId;
+		this.installationId = installationId;
+	}
+
+	private TixDataPacket(InetSocketAddress from, InetSocketAddress to, long initialTimestamp, long userId,
+	                      long installationId, byte[] encodedFields, int encodedMessageLength, boolean compressed) {
+		super(from, to, TixPacketType.LONG, initialTimestamp);
+		checkPositive(userId, "userId");
+		checkPositive(installationId, "installationId");
+		checkNotNull(encodedFields, "encodedFields");
+		checkPositive(encodedMessageLength, "encodedMessageLength");
+		checkArgument(encodedFields.length == TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH + encodedMessageLength
+				+ TixCoreUtils.SIGNATURE_BYTES_SIZE + 2 * DATA_DELIMITER.length(),
+				"encodedFields does not match its layout");
+		this.encodedFields = encodedFields;
+		this.encodedMessageLength = encodedMessageLength;
+		this.compressed = compressed;
 		this.userId = userId;
 		this.installationId = installationId;
 	}
 
+	/**
+	 * Creates a packet whose message is sent compressed, announced by the {@value #COMPRESSED_DATA_HEADER} header.
+	 * The message is only decompressed when {@link #getMessage()} is first called.
+	 *
+	 * @param from Sender of the packet
+	 * @param to Recipient of the packet
+	 * @param initialTimestamp {@link #initialTimestamp}
+	 * @param userId {@link #userId}
+	 * @param installationId {@link #installationId}
+	 * @param publicKey {@link #publicKey}
+	 * @param compressedMessage {@link #compressedMessage}, as returned by {@link TixCoreUtils#COMPRESSOR}
+	 * @param signature {@link #signature} of the {@code compressedMessage}
+	 * @return {@link TixDataPacket}
+	 */
+	public static TixDataPacket compressed(InetSocketAddress from, InetSocketAddress to, long initialTimestamp,
+	                                       long userId, long installationId, byte[] publicKey,
+	                                       byte[] compressedMessage, byte[] signature) {
+		return new TixDataPacket(from, to, initialTimestamp, userId, installationId, publicKey, null,
+				compressedMessage, signature);
+	}
+
+	/**
+	 * Creates a packet from its fields as they are read from the network: the public key, the base 64 encoded
+	 * message, either plain or compressed, and the signature, separated by {@link #DATA_DELIMITER}. None of them is
+	 * copied nor decoded until its getter is first called, so a packet that is only routed by its IDs and timestamps
+	 * costs a single copy of the datagram. As the message is decoded lazily, a malformed one makes
+	 * {@link #getMessage()} throw instead of this method.
+	 *
+	 * @param from Sender of the packet
+	 * @param to Recipient of the packet
+	 * @param initialTimestamp {@link #initialTimestamp}
+	 * @param userId {@link #userId}
+	 * @param installationId {@link #installationId}
+	 * @param encodedFields {@link #encodedFields}, which must not be modified afterwards
+	 * @param encodedMessageLength {@link #encodedMessageLength}
+	 * @param compressed {@link #compressed}
+	 * @return {@link TixDataPacket}
+	 */
+	public static TixDataPacket encoded(InetSocketAddress from, InetSocketAddress to, long initialTimestamp,
+	                                    long userId, long installationId, byte[] encodedFields,
+	                                    int encodedMessageLength, boolean compressed) {
+		return new TixDataPacket(from, to, initialTimestamp, userId, installationId, encodedFields,
+				encodedMessageLength, compressed);
+	}
+
 	/**
 	 * Returns the {@link #publicKey}
 	 * @return {@link #publicKey}
 	 */
 	public byte[] getPublicKey() {
+		byte[] publicKey = this.publicKey;
+		if (publicKey == null) {
+			publicKey = Arrays.copyOfRange(encodedFields, 0, TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH);
+			this.publicKey = publicKey;
+		}
 		return publicKey;
 	}
 
@@ -106,17 +212,67 @@ public class TixDataPacket extends TixPacket {
 	 * @return {@link #signature}
 	 */
 	public byte[] getSignature() {
+		byte[] signature = this.signature;
+		if (signature == null) {
+			int from = encodedFields.length - TixCoreUtils.SIGNATURE_BYTES_SIZE;
+			signature = Arrays.copyOfRange(encodedFields, from, encodedFields.length);
+			this.signature = signature;
+		}
 		return signature;
 	}
 
 	/**
-	 * Returns the {@link #message}
+	 * Returns the {@link #message}, decoding and decompressing it if needed.
 	 * @return {@link #message}
+	 * @throws IllegalStateException if the message can not be decoded or decompressed
 	 */
 	public byte[] getMessage() {
+		byte[] message = this.message;
+		if (message == null) {
+			try {
+				message = compressed ? TixCoreUtils.DECOMPRESSOR.apply(getCompressedMessage()) : decodeMessage();
+			} catch (IllegalArgumentException iae) {
+				throw new IllegalStateException(iae);
+			}
+			this.message = message;
+		}
 		return message;
 	}
 
+	/**
+	 * Returns the {@link #compressedMessage}, decoding it if needed.
+	 * @return {@link #compressedMessage}, or {@code null} if the packet is not compressed
+	 * @throws IllegalStateException if the message can not be decoded
+	 */
+	public byte[] getCompressedMessage() {
+		if (!compressed) {
+			return null;
+		}
+		byte[] compressedMessage = this.compressedMessage;
+		if (compressedMessage == null) {
+			try {
+				compressedMessage = decodeMessage();
+			} catch (IllegalArgumentException iae) {
+				throw new IllegalStateException(iae);
+			}
+			this.compressedMessage = compressedMessage;
+		}
+		return compressedMessage;
+	}
+
+	/**
+	 * Returns {@code true} if the {@link #message} of this packet is sent compressed.
+	 * @return {@link #compressed}
+	 */
+	public boolean isCompressed() {
+		return compressed;
+	}
+
+	private byte[] decodeMessage() {
+		return TixCoreUtils.decodeBase64(encodedFields, TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH + DATA_DELIMITER.length(),
+				encodedMessageLength);
+	}
+
 	/**
 	 * Returns the {@link #userId}
 	 * @return {@link #userId}
@@ -134,13 +290,14 @@ public class TixDataPacket extends TixPacket {
 	}
 
 	/**
-	 * Returns {@code true} if this packet's {@link #message} can be verified with the its {@link #signature} by its
-	 * {@link #publicKey}. Returns {@code false} otherwise.
+	 * Returns {@code true} if this packet's {@link #message}, or {@link #compressedMessage} if it is compressed, can be
+	 * verified with the its {@link #signature} by its {@link #publicKey}. Returns {@code false} otherwise.
 	 * @return {@code boolean}
 	 */
 	public boolean isValid() {
 		try {
-			return TixCoreUtils.verify(message, publicKey, signature);
+			return TixCoreUtils.verify(isCompressed() ? getCompressedMessage() : getMessage(), getPublicKey(),
+					getSignature());
 		} catch (IllegalArgumentException iae) {
 			throw new IllegalStateException(iae);
 		}
@@ -158,29 +315,46 @@ public class TixDataPacket extends TixPacket {
 			return true;
 		}
 		TixDataPacket other = (TixDataPacket) obj;
-		return new EqualsBuilder()
-				.appendSuper(super.equals(other))
-				.append(this.getPublicKey(), other.getPublicKey())
-				.append(this.getSignature(), other.getSignature())
-				.append(this.getMessage(), other.getMessage())
-				.append(this.getUserId(), other.getUserId())
-				.append(this.getInstallationId(), other.getInstallationId())
-				.isEquals();
+		if (this.userId != other.userId
+				|| this.installationId != other.installationId
+				|| this.compressed != other.compressed
+				|| !super.equals(other)) {
+			return false;
+		}
+		if (this.contentHash != 0 && other.contentHash != 0 && this.contentHash != other.contentHash) {
+			return false;
+		}
+		if (this.encodedFields != null && other.encodedFields != null
+				&& Arrays.equals(this.encodedFields, other.encodedFields)) {
+			return true;
+		}
+		return Arrays.equals(this.getSignature(), other.getSignature())
+				&& Arrays.equals(this.getPublicKey(), other.getPublicKey())
+				&& (compressed ?
+						Arrays.equals(this.getCompressedMessage(), other.getCompressedMessage()) :
+						Arrays.equals(this.getMessage(), other.getMessage()));
 	}
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * Besides the fields of the {@link TixPacket}, it only hashes the IDs and the {@link #signature}, which already
+	 * digests the message, and caches the result, so neither the message nor the public key are read.
 	 */
 	@Override
 	public int hashCode() {
-		return new HashCodeBuilder()
-				.append(super.hashCode())
-				.append(this.getPublicKey())
-				.append(this.getSignature())
-				.append(this.getMessage())
-				.append(this.getUserId())
-				.append(this.getInstallationId())
-				.hashCode();
+		int hash = contentHash;
+		if (hash == 0) {
+			hash = Long.hashCode(userId);
+			hash = 31 * hash + Long.hashCode(installationId);
+			hash = 31 * hash + Boolean.hashCode(compressed);
+			hash = 31 * hash + Arrays.hashCode(getSignature());
+			if (hash == 0) {
+				hash = 1;
+			}
+			contentHash = hash;
+		}
+		return 31 * super.hashCode() + hash;
 	}
 
 	/**
@@ -192,7 +366,8 @@ public class TixDataPacket extends TixPacket {
 				.appendSuper(super.toString())
 				.append("publicKey", this.getPublicKey())
 				.append("signature", this.getSignature())
-				.append("message", this.getMessage())
+				.append("message", this.isCompressed() ? this.getCompressedMessage() : this.getMessage())
+				.append("compressed", this.isCompressed())
 				.append("userId", this.getUserId())
 				.append("installationId", this.getInstallationId())
 				.toString();
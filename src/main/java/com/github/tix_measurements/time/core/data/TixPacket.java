@@ -1,45 +1,22 @@
 package com.github.tix_measurements.time.core.data;
 
-import io.netty.buffer.ByteBuf;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import java.net.InetSocketAddress;
-import java.util.function.BiFunction;
-import java.util.function.Function;
+import java.util.Objects;
 
-import static org.assertj.core.api.Assertions.assertThat;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
 
 /**
  * Basic TiX Packet. It contains four timestamps that represents the number of nanoseconds since the start of the day in
  * local timezone, and exposes the sender and recipient of the packet with two {@link InetSocketAddress}.
  *
- * It also exposes some variables and lambda functions to allow an easier handling when marshalling into the network.
+ * Its wire format is implemented by {@link com.github.tix_measurements.time.core.codec.TixPacketCodec}.
  */
 public class TixPacket {
 
-	/**
-	 * Lambda function that reads a timestamp from the {@link ByteBuf}.
-	 */
-	public static final Function<ByteBuf, Long> TIMESTAMP_READER = ByteBuf::readLong;
-
-	/**
-	 * Lambda function that writes a timestamp into a {@link ByteBuf}.
-	 */
-	public static final BiFunction<ByteBuf, Long, ByteBuf> TIMESTAMP_WRITER = ByteBuf::writeLong;
-
-	/**
-	 * Lambda function that reads an Entity ID into a {@link ByteBuf}.
-	 */
-	public static final Function<ByteBuf, Long> ENTITY_ID_READER = ByteBuf::readLong;
-
-	/**
-	 * Lambda function that writes an Entity ID into a {@link ByteBuf}.
-	 */
-	public static final BiFunction<ByteBuf, Long, ByteBuf> ENTITY_ID_WRITER = ByteBuf::writeLong;
-
 	/**
 	 * {@link InetSocketAddress} expressing the sender of the packet.
 	 */
@@ -89,15 +66,10 @@ public class TixPacket {
 	 * @param initialTimestamp {@link #initialTimestamp}
 	 */
 	public TixPacket(InetSocketAddress from, InetSocketAddress to, TixPacketType type, long initialTimestamp) {
-		try {
-			assertThat(from).isNotNull();
-			assertThat(to).isNotNull();
-			assertThat(type).isNotNull();
-			assertThat(type).isIn((Object[]) TixPacketType.values());
-			assertThat(initialTimestamp).isNotNegative();
-		} catch (AssertionError ae) {
-			throw new IllegalArgumentException(ae);
-		}
+		checkNotNull(from, "from");
+		checkNotNull(to, "to");
+		checkNotNull(type, "type");
+		checkNotNegative(initialTimestamp, "initialTimestamp");
 		this.from = from;
 		this.to = to;
 		this.type = type;
@@ -165,7 +137,7 @@ public class TixPacket {
 	 * @param sentTimestamp {@link #sentTimestamp}
 	 */
 	public void setSentTimestamp(long sentTimestamp) {
-		assertThat(sentTimestamp).isNotNegative();
+		checkNotNegative(sentTimestamp, "sentTimestamp");
 		this.sentTimestamp = sentTimestamp;
 	}
 
@@ -174,7 +146,7 @@ public class TixPacket {
 	 * @param receptionTimestamp {@link #receptionTimestamp}
 	 */
 	public void setReceptionTimestamp(long receptionTimestamp) {
-		assertThat(receptionTimestamp).isNotNegative();
+		checkNotNegative(receptionTimestamp, "receptionTimestamp");
 		this.receptionTimestamp = receptionTimestamp;
 	}
 
@@ -183,7 +155,7 @@ public class TixPacket {
 	 * @param finalTimestamp {@link #finalTimestamp}
 	 */
 	public void setFinalTimestamp(long finalTimestamp) {
-		assertThat(finalTimestamp).isNotNegative();
+		checkNotNegative(finalTimestamp, "finalTimestamp");
 		this.finalTimestamp = finalTimestamp;
 	}
 
@@ -199,28 +171,28 @@ public class TixPacket {
 			return true;
 		}
 		TixPacket other = (TixPacket) obj;
-		return new EqualsBuilder()
-				.append(this.getInitialTimestamp(), other.getInitialTimestamp())
-				.append(this.getReceptionTimestamp(), other.getReceptionTimestamp())
-				.append(this.getSentTimestamp(), other.getSentTimestamp())
-				.append(this.getFinalTimestamp(), other.getFinalTimestamp())
-				.append(this.getFrom(), other.getFrom())
-				.append(this.getTo(), other.getTo())
-				.append(this.getType(), other.getType())
-				.isEquals();
+		return this.initialTimestamp == other.initialTimestamp
+				&& this.receptionTimestamp == other.receptionTimestamp
+				&& this.sentTimestamp == other.sentTimestamp
+				&& this.finalTimestamp == other.finalTimestamp
+				&& this.type == other.type
+				&& Objects.equals(this.from, other.from)
+				&& Objects.equals(this.to, other.to);
 	}
 
 	/**
 	 * {@inheritDoc}
+	 *
+	 * It only depends on the fields that do not change once the packet is created, so the packet can be used as a key
+	 * while its timestamps are being filled.
 	 */
 	@Override
 	public int hashCode() {
-		return new HashCodeBuilder()
-				.append(this.getInitialTimestamp())
-				.append(this.getFrom())
-				.append(this.getTo())
-				.append(this.getType())
-				.hashCode();
+		int result = Long.hashCode(initialTimestamp);
+		result = 31 * result + Objects.hashCode(from);
+		result = 31 * result + Objects.hashCode(to);
+		result = 31 * result + Objects.hashCode(type);
+		return result;
 	}
 
 	/**
@@ -0,0 +1,101 @@
+package com.github.tix_measurements.time.core.data;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Lightweight identity of a {@link TixDataPacket}, made of its installation ID and its initial timestamp, which the
+ * client never repeats for the same installation.
+ *
+ * It is meant to be used as the key of the maps and sets that correlate packets, instead of the packet itself, whose
+ * {@code equals} has to compare its public key, message and signature.
+ */
+public final class TixPacketKey {
+
+	/**
+	 * Installation ID of the packet.
+	 */
+	private final long installationId;
+
+	/**
+	 * Initial timestamp of the packet.
+	 */
+	private final long initialTimestamp;
+
+	/**
+	 * Main constructor of the class {@code TixPacketKey}.
+	 *
+	 * @param installationId {@link #installationId}
+	 * @param initialTimestamp {@link #initialTimestamp}
+	 */
+	public TixPacketKey(long installationId, long initialTimestamp) {
+		this.installationId = installationId;
+		this.initialTimestamp = initialTimestamp;
+	}
+
+	/**
+	 * Returns the key of {@code packet}.
+	 *
+	 * @param packet {@link TixDataPacket}
+	 * @return {@link TixPacketKey}
+	 */
+	public static TixPacketKey of(TixDataPacket packet) {
+		return new TixPacketKey(packet.getInstallationId(), packet.getInitialTimestamp());
+	}
+
+	/**
+	 * Returns the {@link #installationId}
+	 * @return {@link #installationId}
+	 */
+	public long getInstallationId() {
+		return installationId;
+	}
+
+	/**
+	 * Returns the {@link #initialTimestamp}
+	 * @return {@link #initialTimestamp}
+	 */
+	public long getInitialTimestamp() {
+		return initialTimestamp;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof TixPacketKey)) {
+			return false;
+		}
+		TixPacketKey other = (TixPacketKey) obj;
+		return this.installationId == other.installationId && this.initialTimestamp == other.initialTimestamp;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The fields are mixed, as consecutive initial timestamps of an installation only differ in their lower bits.
+	 */
+	@Override
+	public int hashCode() {
+		long hash = installationId * 0x9E3779B97F4A7C15L + initialTimestamp;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return (int) hash;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+				.append("installationId", this.getInstallationId())
+				.append("initialTimestamp", this.getInitialTimestamp())
+				.toString();
+	}
+}
@@ -0,0 +1,257 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Compact and concurrent index of the {@link TixDataPacket} already seen, used to detect the retransmissions of the
+ * same signed measurement log.
+ *
+ * Each packet is reduced to a 64 bits fingerprint of its user ID, installation ID and signature. The fingerprints are
+ * kept in a number of independently locked stripes, each one made of an open addressing table of primitive
+ * {@code long} values for the lookups and a ring buffer, in insertion order, for the eviction. An entry is evicted
+ * either when it is older than the configured expiration or when its stripe is full, whatever happens first.
+ */
+public class TixDeduplicationIndex {
+
+	/**
+	 * Default number of fingerprints the index holds.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	/**
+	 * Default time in nanoseconds after which a fingerprint is forgotten.
+	 */
+	public static final long DEFAULT_EXPIRATION_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+	private static final int STRIPES = 16;
+
+	/**
+	 * Stripes in which the fingerprints are distributed.
+	 */
+	private final Stripe[] stripes;
+
+	/**
+	 * Time in nanoseconds after which a fingerprint is forgotten.
+	 */
+	private final long expirationNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to expire the fingerprints.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Creates an index of {@value #DEFAULT_CAPACITY} fingerprints that are forgotten after
+	 * {@link #DEFAULT_EXPIRATION_NANOS} nanoseconds.
+	 */
+	public TixDeduplicationIndex() {
+		this(DEFAULT_CAPACITY, DEFAULT_EXPIRATION_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixDeduplicationIndex}.
+	 *
+	 * @param capacity Maximum number of fingerprints the index holds
+	 * @param expiration Time after which a fingerprint is forgotten
+	 * @param unit {@link TimeUnit} of the {@code expiration}
+	 */
+	public TixDeduplicationIndex(int capacity, long expiration, TimeUnit unit) {
+		this(capacity, expiration, unit, System::nanoTime);
+	}
+
+	TixDeduplicationIndex(int capacity, long expiration, TimeUnit unit, LongSupplier clock) {
+		checkPositive(capacity, "capacity");
+		checkPositive(expiration, "expiration");
+		checkNotNull(unit, "unit");
+		checkNotNull(clock, "clock");
+		this.expirationNanos = unit.toNanos(expiration);
+		this.clock = clock;
+		this.stripes = new Stripe[STRIPES];
+		int stripeCapacity = Math.max(1, (capacity + STRIPES - 1) / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Records the {@code packet} in the index.
+	 *
+	 * @param packet {@link TixDataPacket} to record
+	 * @return {@code true} if the packet was not in the index, {@code false} if it is a duplicate
+	 */
+	public boolean markIfAbsent(TixDataPacket packet) {
+		return markIfAbsent(packet.getUserId(), packet.getInstallationId(), packet.getSignature());
+	}
+
+	/**
+	 * Records the data packet identified by the arguments in the index.
+	 *
+	 * @param userId User ID of the packet
+	 * @param installationId Installation ID of the packet
+	 * @param signature Signature of the packet
+	 * @return {@code true} if the packet was not in the index, {@code false} if it is a duplicate
+	 */
+	public boolean markIfAbsent(long userId, long installationId, byte[] signature) {
+		long fingerprint = fingerprint(userId, installationId, signature);
+		return stripeOf(fingerprint).markIfAbsent(fingerprint, clock.getAsLong());
+	}
+
+	/**
+	 * Returns {@code true} if the data packet identified by the arguments was recorded and has not expired yet.
+	 *
+	 * @param userId User ID of the packet
+	 * @param installationId Installation ID of the packet
+	 * @param signature Signature of the packet
+	 * @return {@code true} if the packet is in the index, {@code false} otherwise
+	 */
+	public boolean contains(long userId, long installationId, byte[] signature) {
+		long fingerprint = fingerprint(userId, installationId, signature);
+		return stripeOf(fingerprint).contains(fingerprint, clock.getAsLong());
+	}
+
+	/**
+	 * Returns the number of fingerprints currently held, expired ones that were not evicted yet included.
+	 * @return {@code int}
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the 64 bits fingerprint of a data packet. It is never {@code 0}, which is reserved for empty slots.
+	 *
+	 * @param userId User ID of the packet
+	 * @param installationId Installation ID of the packet
+	 * @param signature Signature of the packet
+	 * @return {@code long} fingerprint
+	 */
+	static long fingerprint(long userId, long installationId, byte[] signature) {
+		// FNV-1a over the signature, then mixed with the IDs and finalized as in MurmurHash3
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : signature) {
+			hash ^= b & 0xFF;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= mix(userId * 0x9E3779B97F4A7C15L);
+		hash = mix(hash ^ Long.rotateLeft(installationId * 0xC2B2AE3D27D4EB4FL, 31));
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private Stripe stripeOf(long fingerprint) {
+		return stripes[(int) (fingerprint >>> 60) & (STRIPES - 1)];
+	}
+
+	private final class Stripe {
+		/**
+		 * Open addressing table of fingerprints, {@code 0} meaning an empty slot.
+		 */
+		private final long[] table;
+		private final int mask;
+
+		/**
+		 * Ring buffer of fingerprints in insertion order, along with their insertion times.
+		 */
+		private final long[] ringFingerprints;
+		private final long[] ringTimes;
+		private int head;
+		private int size;
+
+		Stripe(int capacity) {
+			int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+			this.table = new long[tableSize];
+			this.mask = tableSize - 1;
+			this.ringFingerprints = new long[capacity];
+			this.ringTimes = new long[capacity];
+		}
+
+		synchronized boolean markIfAbsent(long fingerprint, long now) {
+			expire(now);
+			int slot = indexOf(fingerprint);
+			if (table[slot] == fingerprint) {
+				return false;
+			}
+			if (size == ringFingerprints.length) {
+				evictHead();
+				slot = indexOf(fingerprint);
+			}
+			table[slot] = fingerprint;
+			int tail = (head + size) % ringFingerprints.length;
+			ringFingerprints[tail] = fingerprint;
+			ringTimes[tail] = now;
+			size++;
+			return true;
+		}
+
+		synchronized boolean contains(long fingerprint, long now) {
+			expire(now);
+			return table[indexOf(fingerprint)] == fingerprint;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		private void expire(long now) {
+			while (size > 0 && now - ringTimes[head] >= expirationNanos) {
+				evictHead();
+			}
+		}
+
+		private void evictHead() {
+			remove(ringFingerprints[head]);
+			head = (head + 1) % ringFingerprints.length;
+			size--;
+		}
+
+		/**
+		 * Returns the slot holding the fingerprint, or the empty slot where it should be inserted.
+		 */
+		private int indexOf(long fingerprint) {
+			int slot = (int) fingerprint & mask;
+			while (table[slot] != 0 && table[slot] != fingerprint) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Removes the fingerprint shifting back the following entries of its cluster, so no tombstones are needed.
+		 */
+		private void remove(long fingerprint) {
+			int hole = indexOf(fingerprint);
+			if (table[hole] == 0) {
+				return;
+			}
+			table[hole] = 0;
+			int slot = (hole + 1) & mask;
+			while (table[slot] != 0) {
+				int home = (int) table[slot] & mask;
+				if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+					table[hole] = table[slot];
+					table[slot] = 0;
+					hole = slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.tix_measurements.time.core.filter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Lock-free token bucket rate limiter for many sources, each one identified by a primitive {@code long} key.
+ *
+ * The buckets are implemented with the Generic Cell Rate Algorithm, so each one is a single {@code long} holding its
+ * theoretical arrival time, updated with a compare and set. The buckets live in a fixed size
+ * {@link AtomicLongArray} indexed by the hash of the key, so the memory used does not depend on the number of sources
+ * and nothing is allocated per check. Two sources whose keys land in the same slot share their bucket; the
+ * {@link #DEFAULT_SLOTS} default makes that unlikely for the number of clients a single reflector serves.
+ */
+public class TixRateLimiter {
+
+	/**
+	 * Default number of buckets.
+	 */
+	public static final int DEFAULT_SLOTS = 1 << 16;
+
+	/**
+	 * Theoretical arrival time of each bucket, relative to {@link #origin}. {@code 0} means the bucket is full.
+	 */
+	private final AtomicLongArray buckets;
+	private final int mask;
+
+	/**
+	 * Nanoseconds between two permits of the same bucket.
+	 */
+	private final long emissionIntervalNanos;
+
+	/**
+	 * Nanoseconds of permits that can be taken ahead of time, that is the burst size.
+	 */
+	private final long toleranceNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Clock reading at construction, so the relative times are always positive.
+	 */
+	private final long origin;
+
+	/**
+	 * Creates a limiter of {@value #DEFAULT_SLOTS} buckets.
+	 *
+	 * @param permitsPerSecond Sustained rate allowed for each source
+	 * @param burst Number of permits a source can take at once
+	 */
+	public TixRateLimiter(double permitsPerSecond, int burst) {
+		this(permitsPerSecond, burst, DEFAULT_SLOTS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixRateLimiter}.
+	 *
+	 * @param permitsPerSecond Sustained rate allowed for each source
+	 * @param burst Number of permits a source can take at once
+	 * @param slots Number of buckets, rounded up to a power of two
+	 */
+	public TixRateLimiter(double permitsPerSecond, int burst, int slots) {
+		this(permitsPerSecond, burst, slots, System::nanoTime);
+	}
+
+	TixRateLimiter(double permitsPerSecond, int burst, int slots, LongSupplier clock) {
+		checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive, got " + permitsPerSecond);
+		checkPositive(burst, "burst");
+		checkPositive(slots, "slots");
+		checkNotNull(clock, "clock");
+		int size = slots == 1 ? 1 : Integer.highestOneBit(slots - 1) << 1;
+		this.buckets = new AtomicLongArray(size);
+		this.mask = size - 1;
+		this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+		this.clock = clock;
+		this.origin = clock.getAsLong() - 1;
+	}
+
+	/**
+	 * Takes a permit from the bucket of {@code key} if there is any available.
+	 *
+	 * @param key Identifier of the source
+	 * @return {@code true} if the permit was granted, {@code false} if the source is over its rate
+	 */
+	public boolean tryAcquire(long key) {
+		int slot = slotOf(key);
+		long now = clock.getAsLong() - origin;
+		while (true) {
+			long theoreticalArrival = buckets.get(slot);
+			long base = Math.max(theoreticalArrival, now);
+			if (base - now > toleranceNanos) {
+				return false;
+			}
+			if (buckets.compareAndSet(slot, theoreticalArrival, base + emissionIntervalNanos)) {
+				return true;
+			}
+		}
+	}
+
+	private int slotOf(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key & mask;
+	}
+}
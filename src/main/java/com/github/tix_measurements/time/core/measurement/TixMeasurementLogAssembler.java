@@ -0,0 +1,125 @@
+package com.github.tix_measurements.time.core.measurement;
+
+import com.github.tix_measurements.time.core.util.LongObjectHashMap;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Server side reassembly of the delta encoded measurement logs sent by each installation.
+ *
+ * It remembers, for each installation, the sequence number of the next measurement it expects, so the measurements
+ * resent while their acknowledgement was on its way are skipped and each measurement is handed to the consumer only
+ * once, without parsing the history again. Measurements the client discarded before they were received are counted
+ * in {@link #getMissingMeasurements()}. A malformed log is rejected as a whole, before any of its measurements is
+ * handed to the consumer or changes the state of its installation.
+ *
+ * A log written with another epoch than the previous one of its installation comes from a client that restarted,
+ * whose sequence numbers started over, so the installation starts over from that log and the restart is counted in
+ * {@link #getRestarts()}.
+ *
+ * It is thread safe.
+ */
+public class TixMeasurementLogAssembler {
+
+	/**
+	 * Consumer that drops the measurements, used to check that a log is well formed before applying it.
+	 */
+	private static final TixMeasurementLogCodec.MeasurementConsumer VALIDATOR =
+			(sequence, initial, reception, sent, last) -> { };
+
+	private final LongObjectHashMap<Installation> installations = new LongObjectHashMap<>();
+
+	/**
+	 * Number of measurements that were never received.
+	 */
+	private long missingMeasurements;
+
+	/**
+	 * Number of times an installation started over with a new epoch.
+	 */
+	private long restarts;
+
+	/**
+	 * Decodes a delta encoded log of {@code installationId}, passing only its new measurements to {@code consumer}.
+	 * The whole log is decoded once first to check it is well formed, so a malformed one is not partly applied.
+	 *
+	 * @param installationId Installation ID that sent the log
+	 * @param message {@code byte[]} with the delta encoded log
+	 * @param consumer {@link TixMeasurementLogCodec.MeasurementConsumer} receiving the new measurements
+	 * @return {@code long} sequence number up to which the installation can be acknowledged, {@code -1} if none
+	 * @throws IllegalArgumentException if {@code message} is not a well formed delta encoded log
+	 */
+	public synchronized long accept(long installationId, byte[] message,
+	                                TixMeasurementLogCodec.MeasurementConsumer consumer) {
+		checkNotNull(message, "message");
+		checkNotNull(consumer, "consumer");
+		TixMeasurementLogCodec.decode(message, VALIDATOR);
+		long epoch = TixMeasurementLogCodec.epoch(message);
+		Installation installation = installations.get(installationId);
+		if (installation == null) {
+			installation = new Installation(epoch);
+			installations.put(installationId, installation);
+		} else if (installation.epoch != epoch) {
+			installation.epoch = epoch;
+			installation.nextSequence = 0;
+			restarts++;
+		}
+		final Installation state = installation;
+		TixMeasurementLogCodec.decode(message, (sequence, initial, reception, sent, last) -> {
+			if (sequence < state.nextSequence) {
+				return;
+			}
+			if (state.nextSequence > 0 && sequence > state.nextSequence) {
+				missingMeasurements += sequence - state.nextSequence;
+			}
+			state.nextSequence = sequence + 1;
+			consumer.accept(sequence, initial, reception, sent, last);
+		});
+		return state.nextSequence - 1;
+	}
+
+	/**
+	 * Returns the sequence number of the next measurement expected from {@code installationId}.
+	 *
+	 * @param installationId Installation ID
+	 * @return {@code long} next sequence number, {@code 0} for an unknown installation
+	 */
+	public synchronized long getNextSequence(long installationId) {
+		Installation installation = installations.get(installationId);
+		return installation == null ? 0 : installation.nextSequence;
+	}
+
+	/**
+	 * Forgets the state of {@code installationId}.
+	 *
+	 * @param installationId Installation ID
+	 */
+	public synchronized void forget(long installationId) {
+		installations.remove(installationId);
+	}
+
+	/**
+	 * Returns the number of measurements that were never received.
+	 * @return {@link #missingMeasurements}
+	 */
+	public synchronized long getMissingMeasurements() {
+		return missingMeasurements;
+	}
+
+	/**
+	 * Returns the number of times an installation started over with a new epoch.
+	 * @return {@link #restarts}
+	 */
+	public synchronized long getRestarts() {
+		return restarts;
+	}
+
+	private static final class Installation {
+		private long epoch;
+		private long nextSequence;
+
+		private Installation(long epoch) {
+			this.epoch = epoch;
+		}
+	}
+}
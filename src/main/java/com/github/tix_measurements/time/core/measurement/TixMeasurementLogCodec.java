@@ -0,0 +1,180 @@
+package com.github.tix_measurements.time.core.measurement;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import com.github.tix_measurements.time.core.util.TixVarintReader;
+import com.github.tix_measurements.time.core.util.TixVarintWriter;
+
+/**
+ * Codec of the delta encoded measurement logs carried in the {@link TixDataPacket#getMessage()}.
+ *
+ * A delta encoded log holds a run of consecutive measurements, each one with its four timestamps and identified by a
+ * sequence number, so a client only needs to send the measurements the server has not acknowledged yet. The sequence
+ * numbers start over when the client restarts, so each log also carries the epoch of its writer, a random number
+ * drawn when it is created, which tells the server to start over too. Its layout is:
+ * <ul>
+ *     <li>the {@link #FORMAT_MARKER} bytes, which can not start a plain text log nor a log of raw timestamps;</li>
+ *     <li>the epoch, the sequence number of the first measurement and the number of measurements, as unsigned
+ *     varints;</li>
+ *     <li>for each measurement, the difference of its initial timestamp with the previous initial timestamp,
+ *     followed by the difference of each other timestamp minus the initial one with the same value of the previous
+ *     measurement, all of them as zig-zag varints.</li>
+ * </ul>
+ * As measurements are taken at a regular pace and the delays change slowly, most values take one to three bytes
+ * instead of eight.
+ */
+public class TixMeasurementLogCodec {
+
+	/**
+	 * Bytes that start every delta encoded log: a {@code NUL}, which no text log starts with, and a byte no raw
+	 * timestamp of the day can have in its second most significant position.
+	 */
+	public static final byte[] FORMAT_MARKER = {0x00, 'D', 0x01};
+
+	/**
+	 * Maximum number of bytes of a message that, once base 64 encoded, still fits in a
+	 * {@link TixPacketType#LONG} data packet.
+	 */
+	public static final int MAX_MESSAGE_BYTES;
+
+	static {
+		int delimiter = TixDataPacket.DATA_DELIMITER.length();
+		int overhead = TixPacketType.SHORT.getSize() + TixDataPacket.DATA_HEADER.length() + delimiter
+				+ 2 * Long.BYTES + delimiter + TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH + delimiter
+				+ delimiter + TixCoreUtils.SIGNATURE_BYTES_SIZE + delimiter;
+		MAX_MESSAGE_BYTES = (TixPacketType.LONG.getSize() - overhead) / 4 * 3;
+	}
+
+	/**
+	 * Receiver of the measurements decoded from a log.
+	 */
+	@FunctionalInterface
+	public interface MeasurementConsumer {
+		/**
+		 * Receives a measurement.
+		 *
+		 * @param sequence Sequence number of the measurement
+		 * @param initialTimestamp Initial timestamp of the measurement
+		 * @param receptionTimestamp Reception timestamp of the measurement
+		 * @param sentTimestamp Sent timestamp of the measurement
+		 * @param finalTimestamp Final timestamp of the measurement
+		 */
+		void accept(long sequence, long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+		            long finalTimestamp);
+	}
+
+	/**
+	 * Returns {@code true} if {@code message} is a delta encoded log.
+	 *
+	 * @param message {@code byte[]} with the message of a data packet
+	 * @return {@code boolean}
+	 */
+	public static boolean isDeltaEncoded(byte[] message) {
+		if (message == null || message.length < FORMAT_MARKER.length) {
+			return false;
+		}
+		for (int i = 0; i < FORMAT_MARKER.length; i++) {
+			if (message[i] != FORMAT_MARKER[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Encodes {@code count} measurements, whose timestamps are laid out consecutively in groups of four in
+	 * {@code timestamps} starting at the measurement {@code offset}.
+	 *
+	 * @param epoch Epoch of the writer of the log
+	 * @param firstSequence Sequence number of the first measurement
+	 * @param timestamps {@code long[]} with the four timestamps of each measurement
+	 * @param offset Index of the first measurement to encode
+	 * @param count Number of measurements to encode
+	 * @return {@code byte[]} with the encoded log
+	 */
+	public static byte[] encode(long epoch, long firstSequence, long[] timestamps, int offset, int count) {
+		if (epoch < 0 || firstSequence < 0 || offset < 0 || count < 0 || (offset + count) * 4 > timestamps.length) {
+			throw new IllegalArgumentException("Invalid measurements range");
+		}
+		TixVarintWriter writer = new TixVarintWriter(FORMAT_MARKER.length + 3 * 10 + count * 4 * 3);
+		writer.writeBytes(FORMAT_MARKER);
+		writer.writeVarint(epoch);
+		writer.writeVarint(firstSequence);
+		writer.writeVarint(count);
+		long previousInitial = 0;
+		long previousReception = 0;
+		long previousSent = 0;
+		long previousFinal = 0;
+		for (int i = offset; i < offset + count; i++) {
+			int base = i * 4;
+			long initial = timestamps[base];
+			long reception = timestamps[base + 1] - initial;
+			long sent = timestamps[base + 2] - initial;
+			long last = timestamps[base + 3] - initial;
+			writer.writeZigZag(initial - previousInitial);
+			writer.writeZigZag(reception - previousReception);
+			writer.writeZigZag(sent - previousSent);
+			writer.writeZigZag(last - previousFinal);
+			previousInitial = initial;
+			previousReception = reception;
+			previousSent = sent;
+			previousFinal = last;
+		}
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Returns the epoch of the writer of a delta encoded log, without decoding its measurements.
+	 *
+	 * @param message {@code byte[]} with the encoded log
+	 * @return {@code long} epoch
+	 * @throws IllegalArgumentException if {@code message} does not start with a well formed header
+	 */
+	public static long epoch(byte[] message) {
+		if (!isDeltaEncoded(message)) {
+			throw new IllegalArgumentException("Message is not a delta encoded log");
+		}
+		long epoch = new TixVarintReader(message, FORMAT_MARKER.length, "delta encoded log").readVarint();
+		if (epoch < 0) {
+			throw new IllegalArgumentException("Malformed delta encoded log");
+		}
+		return epoch;
+	}
+
+	/**
+	 * Decodes a delta encoded log, passing each measurement to {@code consumer} in order.
+	 *
+	 * @param message {@code byte[]} with the encoded log
+	 * @param consumer {@link MeasurementConsumer} receiving the measurements
+	 * @return {@code int} number of measurements decoded
+	 * @throws IllegalArgumentException if {@code message} is not a well formed delta encoded log
+	 */
+	public static int decode(byte[] message, MeasurementConsumer consumer) {
+		if (!isDeltaEncoded(message)) {
+			throw new IllegalArgumentException("Message is not a delta encoded log");
+		}
+		TixVarintReader reader = new TixVarintReader(message, FORMAT_MARKER.length, "delta encoded log");
+		long epoch = reader.readVarint();
+		long sequence = reader.readVarint();
+		long count = reader.readVarint();
+		if (epoch < 0 || sequence < 0 || count < 0 || count > message.length) {
+			throw new IllegalArgumentException("Malformed delta encoded log");
+		}
+		long initial = 0;
+		long reception = 0;
+		long sent = 0;
+		long last = 0;
+		for (long i = 0; i < count; i++) {
+			initial += reader.readZigZag();
+			reception += reader.readZigZag();
+			sent += reader.readZigZag();
+			last += reader.readZigZag();
+			consumer.accept(sequence + i, initial, initial + reception, initial + sent, initial + last);
+		}
+		if (!reader.isAtEnd()) {
+			throw new IllegalArgumentException("Trailing bytes in delta encoded log");
+		}
+		return (int) count;
+	}
+}
@@ -0,0 +1,186 @@
+package com.github.tix_measurements.time.core.measurement;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Client side log of the measurements not yet acknowledged by the server.
+ *
+ * Each measurement appended gets the next sequence number. {@link #nextMessage()} encodes, with the
+ * {@link TixMeasurementLogCodec}, the oldest pending measurements that fit in a data packet, and
+ * {@link #acknowledge(long)} discards them once the server confirms it has them, so each measurement is sent until
+ * acknowledged but no history is resent after that. When the log is full the oldest measurements are discarded.
+ *
+ * The sequence numbers start at {@code 0} for every new log, so each one draws a random {@link #epoch} that is sent in
+ * its messages, and tells the server the client restarted and its sequence numbers started over.
+ *
+ * It is thread safe.
+ */
+public class TixMeasurementLogWriter {
+
+	/**
+	 * Default maximum number of pending measurements.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * Four timestamps of each pending measurement, oldest first.
+	 */
+	private final long[] timestamps;
+
+	/**
+	 * Maximum number of pending measurements.
+	 */
+	private final int capacity;
+
+	/**
+	 * Epoch of this log, sent in every message so the server can tell it from the logs of the previous runs of the
+	 * client.
+	 */
+	private final long epoch;
+
+	/**
+	 * Sequence number of the oldest pending measurement.
+	 */
+	private long firstSequence;
+
+	/**
+	 * Number of pending measurements.
+	 */
+	private int size;
+
+	/**
+	 * Number of measurements discarded before being acknowledged, for lack of space.
+	 */
+	private long droppedMeasurements;
+
+	/**
+	 * Creates a log of up to {@value #DEFAULT_CAPACITY} pending measurements.
+	 */
+	public TixMeasurementLogWriter() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixMeasurementLogWriter}.
+	 *
+	 * @param capacity {@link #capacity}
+	 */
+	public TixMeasurementLogWriter(int capacity) {
+		this(capacity, ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE);
+	}
+
+	TixMeasurementLogWriter(int capacity, long epoch) {
+		checkPositive(capacity, "capacity");
+		this.capacity = capacity;
+		this.epoch = epoch;
+		this.timestamps = new long[capacity * 4];
+	}
+
+	/**
+	 * Appends a measurement to the log.
+	 *
+	 * @param initialTimestamp Initial timestamp of the measurement
+	 * @param receptionTimestamp Reception timestamp of the measurement
+	 * @param sentTimestamp Sent timestamp of the measurement
+	 * @param finalTimestamp Final timestamp of the measurement
+	 * @return {@code long} sequence number of the measurement
+	 */
+	public synchronized long append(long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                                long finalTimestamp) {
+		if (size == capacity) {
+			discard(1);
+			droppedMeasurements++;
+		}
+		int base = size * 4;
+		timestamps[base] = initialTimestamp;
+		timestamps[base + 1] = receptionTimestamp;
+		timestamps[base + 2] = sentTimestamp;
+		timestamps[base + 3] = finalTimestamp;
+		size++;
+		return firstSequence + size - 1;
+	}
+
+	/**
+	 * Discards every measurement up to {@code sequence}, inclusive.
+	 *
+	 * @param sequence Sequence number acknowledged by the server
+	 */
+	public synchronized void acknowledge(long sequence) {
+		if (sequence >= firstSequence) {
+			discard((int) Math.min(size, sequence - firstSequence + 1));
+		}
+	}
+
+	/**
+	 * Returns the oldest pending measurements that fit in a data packet, delta encoded, or {@code null} if there are
+	 * no pending measurements.
+	 *
+	 * @return {@code byte[]} message for a data packet
+	 */
+	public synchronized byte[] nextMessage() {
+		return nextMessage(Function.identity());
+	}
+
+	/**
+	 * Returns the oldest pending measurements that fit in a compressed data packet, delta encoded and compressed by
+	 * {@link TixCoreUtils#COMPRESSOR}, or {@code null} if there are no pending measurements. It usually carries
+	 * several times more measurements than {@link #nextMessage()}.
+	 *
+	 * @return {@code byte[]} compressed message for a data packet
+	 * @see com.github.tix_measurements.time.core.data.TixDataPacket#compressed
+	 */
+	public synchronized byte[] nextCompressedMessage() {
+		return nextMessage(TixCoreUtils.COMPRESSOR);
+	}
+
+	private byte[] nextMessage(Function<byte[], byte[]> transformation) {
+		if (size == 0) {
+			return null;
+		}
+		int count = size;
+		byte[] message = transformation.apply(TixMeasurementLogCodec.encode(epoch, firstSequence, timestamps, 0, count));
+		while (message.length > TixMeasurementLogCodec.MAX_MESSAGE_BYTES) {
+			count = Math.max(1, Math.min(count - 1,
+					(int) ((long) count * TixMeasurementLogCodec.MAX_MESSAGE_BYTES / message.length)));
+			message = transformation.apply(TixMeasurementLogCodec.encode(epoch, firstSequence, timestamps, 0, count));
+		}
+		return message;
+	}
+
+	/**
+	 * Returns the {@link #epoch}
+	 * @return {@link #epoch}
+	 */
+	public long getEpoch() {
+		return epoch;
+	}
+
+	/**
+	 * Returns the number of pending measurements.
+	 * @return {@link #size}
+	 */
+	public synchronized int pending() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of measurements discarded before being acknowledged, for lack of space.
+	 * @return {@link #droppedMeasurements}
+	 */
+	public synchronized long getDroppedMeasurements() {
+		return droppedMeasurements;
+	}
+
+	private void discard(int count) {
+		System.arraycopy(timestamps, count * 4, timestamps, 0, (size - count) * 4);
+		Arrays.fill(timestamps, (size - count) * 4, size * 4, 0L);
+		size -= count;
+		firstSequence += count;
+	}
+}
@@ -0,0 +1,147 @@
+package com.github.tix_measurements.time.core.session;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Snapshot of the state that a {@link TixSessionRegistry} keeps for an installation.
+ *
+ * Instances are filled by {@link TixSessionRegistry#read(long, TixSession)}, so a single instance can be reused for
+ * every lookup done by a thread.
+ */
+public class TixSession {
+
+	/**
+	 * Installation ID of the session.
+	 */
+	long installationId;
+
+	/**
+	 * User ID owning the installation.
+	 */
+	long userId;
+
+	/**
+	 * Time, in the clock of the registry, when the installation was last seen.
+	 */
+	long lastSeen;
+
+	/**
+	 * Number of packets recorded for the installation.
+	 */
+	long packetCount;
+
+	/**
+	 * Last initial timestamp recorded for the installation.
+	 */
+	long initialTimestamp;
+
+	/**
+	 * Last reception timestamp recorded for the installation.
+	 */
+	long receptionTimestamp;
+
+	/**
+	 * Last sent timestamp recorded for the installation.
+	 */
+	long sentTimestamp;
+
+	/**
+	 * Last final timestamp recorded for the installation.
+	 */
+	long finalTimestamp;
+
+	/**
+	 * Last public key recorded for the installation, if any.
+	 */
+	byte[] publicKey;
+
+	/**
+	 * Returns the {@link #installationId}
+	 * @return {@link #installationId}
+	 */
+	public long getInstallationId() {
+		return installationId;
+	}
+
+	/**
+	 * Returns the {@link #userId}
+	 * @return {@link #userId}
+	 */
+	public long getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Returns the {@link #lastSeen}
+	 * @return {@link #lastSeen}
+	 */
+	public long getLastSeen() {
+		return lastSeen;
+	}
+
+	/**
+	 * Returns the {@link #packetCount}
+	 * @return {@link #packetCount}
+	 */
+	public long getPacketCount() {
+		return packetCount;
+	}
+
+	/**
+	 * Returns the {@link #initialTimestamp}
+	 * @return {@link #initialTimestamp}
+	 */
+	public long getInitialTimestamp() {
+		return initialTimestamp;
+	}
+
+	/**
+	 * Returns the {@link #receptionTimestamp}
+	 * @return {@link #receptionTimestamp}
+	 */
+	public long getReceptionTimestamp() {
+		return receptionTimestamp;
+	}
+
+	/**
+	 * Returns the {@link #sentTimestamp}
+	 * @return {@link #sentTimestamp}
+	 */
+	public long getSentTimestamp() {
+		return sentTimestamp;
+	}
+
+	/**
+	 * Returns the {@link #finalTimestamp}
+	 * @return {@link #finalTimestamp}
+	 */
+	public long getFinalTimestamp() {
+		return finalTimestamp;
+	}
+
+	/**
+	 * Returns the {@link #publicKey}
+	 * @return {@link #publicKey}
+	 */
+	public byte[] getPublicKey() {
+		return publicKey;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+				.append("installationId", this.getInstallationId())
+				.append("userId", this.getUserId())
+				.append("lastSeen", this.getLastSeen())
+				.append("packetCount", this.getPacketCount())
+				.append("initialTimestamp", this.getInitialTimestamp())
+				.append("receptionTimestamp", this.getReceptionTimestamp())
+				.append("sentTimestamp", this.getSentTimestamp())
+				.append("finalTimestamp", this.getFinalTimestamp())
+				.toString();
+	}
+}
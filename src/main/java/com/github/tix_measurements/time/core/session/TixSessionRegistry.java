@@ -0,0 +1,402 @@
+package com.github.tix_measurements.time.core.session;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Concurrent registry of the installations currently talking to a TiX server, keyed by their installation ID.
+ *
+ * The sessions are spread over a fixed number of segments. Each segment is an open addressing table laid out as
+ * parallel primitive arrays, one per field of the {@link TixSession}, so each slot of a table costs about 72 bytes,
+ * and the public key of a session is cached apart from it. Lookups are lock-free, done under the optimistic read mode
+ * of the {@link StampedLock} of the segment, and only fall back to a read lock when they race with a writer. Updates
+ * take the write lock of their segment only.
+ *
+ * A table is kept at most three quarters full, and doubles when a new session would fill it over that, so each live
+ * session takes between 4/3 and 8/3 slots, from about 100 to 200 bytes. While it doubles, a segment holds both its
+ * old table and the new one, twice as large, until the sessions are copied. The tables never shrink when sessions are
+ * removed, so the memory follows the peak number of sessions rather than the current one, and is only bounded by the
+ * maximum number of sessions: each segment grows to the smallest power of two that holds its share of them at three
+ * quarters full, about 600 MB over all the segments for the {@link #DEFAULT_MAX_SESSIONS}.
+ *
+ * The idle sessions are removed by {@link #evictIdle()}, which is meant to be called periodically by the user.
+ */
+public class TixSessionRegistry {
+
+	/**
+	 * Default time in nanoseconds after which an installation that has not been seen is evicted.
+	 */
+	public static final long DEFAULT_IDLE_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+	/**
+	 * Default maximum number of sessions held.
+	 */
+	public static final int DEFAULT_MAX_SESSIONS = 1 << 22;
+
+	private static final int SEGMENTS = 64;
+
+	private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+	private final Segment[] segments;
+
+	/**
+	 * Maximum number of sessions held by each segment.
+	 */
+	private final int maxSessionsPerSegment;
+
+	/**
+	 * Time in nanoseconds after which an installation that has not been seen is evicted.
+	 */
+	private final long idleTimeoutNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to track when an installation was last seen.
+	 */
+	private final LongSupplier clock;
+
+	/**
+	 * Creates a registry of up to {@value #DEFAULT_MAX_SESSIONS} sessions, evicted after
+	 * {@link #DEFAULT_IDLE_TIMEOUT_NANOS} nanoseconds of inactivity.
+	 */
+	public TixSessionRegistry() {
+		this(DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixSessionRegistry}.
+	 *
+	 * @param maxSessions Maximum number of sessions held
+	 * @param idleTimeout Time after which an installation that has not been seen is evicted
+	 * @param unit {@link TimeUnit} of the {@code idleTimeout}
+	 */
+	public TixSessionRegistry(int maxSessions, long idleTimeout, TimeUnit unit) {
+		this(maxSessions, idleTimeout, unit, System::nanoTime);
+	}
+
+	TixSessionRegistry(int maxSessions, long idleTimeout, TimeUnit unit, LongSupplier clock) {
+		checkPositive(maxSessions, "maxSessions");
+		checkPositive(idleTimeout, "idleTimeout");
+		checkNotNull(unit, "unit");
+		checkNotNull(clock, "clock");
+		this.maxSessionsPerSegment = Math.max(1, (maxSessions + SEGMENTS - 1) / SEGMENTS);
+		this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+		this.clock = clock;
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment();
+		}
+	}
+
+	/**
+	 * Records a {@link TixDataPacket} in the session of its installation, caching its public key.
+	 *
+	 * @param packet {@link TixDataPacket} to record
+	 * @return {@code true} if the packet was recorded, {@code false} if the registry is full
+	 */
+	public boolean record(TixDataPacket packet) {
+		return record(packet.getInstallationId(), packet.getUserId(), packet.getInitialTimestamp(),
+				packet.getReceptionTimestamp(), packet.getSentTimestamp(), packet.getFinalTimestamp(),
+				packet.getPublicKey());
+	}
+
+	/**
+	 * Records a packet in the session of its installation, creating it if needed.
+	 *
+	 * @param installationId Installation ID that sent the packet, must be positive
+	 * @param userId User ID owning the installation
+	 * @param initialTimestamp Initial timestamp of the packet
+	 * @param receptionTimestamp Reception timestamp of the packet
+	 * @param sentTimestamp Sent timestamp of the packet
+	 * @param finalTimestamp Final timestamp of the packet
+	 * @param publicKey Public key of the installation, or {@code null} to keep the one already cached
+	 * @return {@code true} if the packet was recorded, {@code false} if the registry is full
+	 */
+	public boolean record(long installationId, long userId, long initialTimestamp, long receptionTimestamp,
+	                      long sentTimestamp, long finalTimestamp, byte[] publicKey) {
+		checkInstallationId(installationId);
+		long now = clock.getAsLong();
+		Segment segment = segmentOf(installationId);
+		long stamp = segment.lock.writeLock();
+		try {
+			Table table = segment.table;
+			int slot = table.indexOf(installationId);
+			if (table.keys[slot] == 0) {
+				if (segment.size >= maxSessionsPerSegment) {
+					return false;
+				}
+				if ((segment.size + 1) * 4 > table.keys.length * 3) {
+					table = segment.table = table.grow();
+					slot = table.indexOf(installationId);
+				}
+				table.keys[slot] = installationId;
+				table.packetCounts[slot] = 0;
+				table.publicKeys[slot] = null;
+				segment.size++;
+			}
+			table.userIds[slot] = userId;
+			table.lastSeen[slot] = now;
+			table.packetCounts[slot]++;
+			int base = slot * 4;
+			table.timestamps[base] = initialTimestamp;
+			table.timestamps[base + 1] = receptionTimestamp;
+			table.timestamps[base + 2] = sentTimestamp;
+			table.timestamps[base + 3] = finalTimestamp;
+			if (publicKey != null) {
+				table.publicKeys[slot] = publicKey;
+			}
+			return true;
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Copies the session of {@code installationId} into {@code session} without taking any lock in the common case.
+	 *
+	 * @param installationId Installation ID of the session
+	 * @param session {@link TixSession} where the state is copied
+	 * @return {@code true} if the session exists, {@code false} otherwise, in which case {@code session} must be ignored
+	 */
+	public boolean read(long installationId, TixSession session) {
+		checkInstallationId(installationId);
+		Segment segment = segmentOf(installationId);
+		long stamp = segment.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			boolean found = segment.table.copyTo(installationId, session);
+			if (segment.lock.validate(stamp)) {
+				return found;
+			}
+		}
+		stamp = segment.lock.readLock();
+		try {
+			return segment.table.copyTo(installationId, session);
+		} finally {
+			segment.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Returns a new {@link TixSession} with the state of the session of {@code installationId}.
+	 *
+	 * @param installationId Installation ID of the session
+	 * @return {@link TixSession}, or {@code null} if there is no session for the installation
+	 */
+	public TixSession get(long installationId) {
+		TixSession session = new TixSession();
+		return read(installationId, session) ? session : null;
+	}
+
+	/**
+	 * Returns {@code true} if there is a session for {@code installationId}.
+	 *
+	 * @param installationId Installation ID of the session
+	 * @return {@code boolean}
+	 */
+	public boolean contains(long installationId) {
+		checkInstallationId(installationId);
+		Segment segment = segmentOf(installationId);
+		long stamp = segment.lock.tryOptimisticRead();
+		if (stamp != 0) {
+			Table table = segment.table;
+			boolean found = table.keys[table.indexOf(installationId)] == installationId;
+			if (segment.lock.validate(stamp)) {
+				return found;
+			}
+		}
+		stamp = segment.lock.readLock();
+		try {
+			Table table = segment.table;
+			return table.keys[table.indexOf(installationId)] == installationId;
+		} finally {
+			segment.lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Removes the session of {@code installationId}.
+	 *
+	 * @param installationId Installation ID of the session
+	 * @return {@code true} if the session existed, {@code false} otherwise
+	 */
+	public boolean remove(long installationId) {
+		checkInstallationId(installationId);
+		Segment segment = segmentOf(installationId);
+		long stamp = segment.lock.writeLock();
+		try {
+			int slot = segment.table.indexOf(installationId);
+			if (segment.table.keys[slot] == 0) {
+				return false;
+			}
+			segment.table.delete(slot);
+			segment.size--;
+			return true;
+		} finally {
+			segment.lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Removes every session that has not been seen for longer than the idle timeout.
+	 *
+	 * @return {@code int} number of sessions removed
+	 */
+	public int evictIdle() {
+		long now = clock.getAsLong();
+		int evicted = 0;
+		for (Segment segment : segments) {
+			long stamp = segment.lock.writeLock();
+			try {
+				Table table = segment.table;
+				int slot = 0;
+				while (slot < table.keys.length) {
+					if (table.keys[slot] != 0 && now - table.lastSeen[slot] >= idleTimeoutNanos) {
+						// The delete may shift a following entry into this slot, so it is checked again
+						table.delete(slot);
+						segment.size--;
+						evicted++;
+					} else {
+						slot++;
+					}
+				}
+			} finally {
+				segment.lock.unlockWrite(stamp);
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Returns the number of sessions currently held.
+	 * @return {@code int}
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			long stamp = segment.lock.readLock();
+			try {
+				size += segment.size;
+			} finally {
+				segment.lock.unlockRead(stamp);
+			}
+		}
+		return size;
+	}
+
+	private static void checkInstallationId(long installationId) {
+		if (installationId <= 0) {
+			throw new IllegalArgumentException("Installation ID must be positive, got " + installationId);
+		}
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private Segment segmentOf(long installationId) {
+		return segments[(hash(installationId) >>> 26) & (SEGMENTS - 1)];
+	}
+
+	private static final class Segment {
+		private final StampedLock lock = new StampedLock();
+		private Table table = new Table(INITIAL_SEGMENT_CAPACITY);
+		private int size;
+	}
+
+	/**
+	 * Open addressing table of sessions, with linear probing and backward shift deletion. Key {@code 0} marks an
+	 * empty slot.
+	 */
+	private static final class Table {
+		private final long[] keys;
+		private final long[] userIds;
+		private final long[] lastSeen;
+		private final long[] packetCounts;
+		private final long[] timestamps;
+		private final byte[][] publicKeys;
+		private final int mask;
+
+		Table(int capacity) {
+			keys = new long[capacity];
+			userIds = new long[capacity];
+			lastSeen = new long[capacity];
+			packetCounts = new long[capacity];
+			timestamps = new long[capacity * 4];
+			publicKeys = new byte[capacity][];
+			mask = capacity - 1;
+		}
+
+		/**
+		 * Returns the slot holding the key, or the empty slot where it should be inserted. It gives up after a full
+		 * turn, which can only happen while racing with a writer in an optimistic read.
+		 */
+		int indexOf(long key) {
+			int slot = hash(key) & mask;
+			for (int probes = 0; probes <= mask && keys[slot] != 0 && keys[slot] != key; probes++) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		boolean copyTo(long key, TixSession session) {
+			int slot = indexOf(key);
+			if (keys[slot] != key) {
+				return false;
+			}
+			int base = slot * 4;
+			session.installationId = key;
+			session.userId = userIds[slot];
+			session.lastSeen = lastSeen[slot];
+			session.packetCount = packetCounts[slot];
+			session.initialTimestamp = timestamps[base];
+			session.receptionTimestamp = timestamps[base + 1];
+			session.sentTimestamp = timestamps[base + 2];
+			session.finalTimestamp = timestamps[base + 3];
+			session.publicKey = publicKeys[slot];
+			return true;
+		}
+
+		Table grow() {
+			Table grown = new Table(keys.length * 2);
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (keys[slot] != 0) {
+					grown.move(grown.indexOf(keys[slot]), this, slot);
+				}
+			}
+			return grown;
+		}
+
+		void delete(int hole) {
+			keys[hole] = 0;
+			publicKeys[hole] = null;
+			int slot = (hole + 1) & mask;
+			while (keys[slot] != 0) {
+				int home = hash(keys[slot]) & mask;
+				if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+					move(hole, this, slot);
+					keys[slot] = 0;
+					publicKeys[slot] = null;
+					hole = slot;
+				}
+				slot = (slot + 1) & mask;
+			}
+		}
+
+		private void move(int to, Table source, int from) {
+			keys[to] = source.keys[from];
+			userIds[to] = source.userIds[from];
+			lastSeen[to] = source.lastSeen[from];
+			packetCounts[to] = source.packetCounts[from];
+			System.arraycopy(source.timestamps, from * 4, timestamps, to * 4, 4);
+			publicKeys[to] = source.publicKeys[from];
+		}
+	}
+}
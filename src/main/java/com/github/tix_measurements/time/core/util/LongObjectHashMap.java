@@ -0,0 +1,204 @@
+package com.github.tix_measurements.time.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive {@code long} keys to non {@code null} values, so the per installation state
+ * of the streaming stages can be looked up without boxing the installation IDs.
+ *
+ * It uses linear probing with backward shift deletion, and a {@code null} value marks an empty slot. It is not
+ * thread safe.
+ *
+ * @param <V> Type of the values
+ */
+public class LongObjectHashMap<V> {
+
+	/**
+	 * Operation done over each entry of the map.
+	 *
+	 * @param <V> Type of the values
+	 */
+	@FunctionalInterface
+	public interface EntryConsumer<V> {
+		/**
+		 * Performs this operation on the given entry.
+		 *
+		 * @param key Key of the entry
+		 * @param value Value of the entry
+		 */
+		void accept(long key, V value);
+	}
+
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size;
+
+	/**
+	 * Creates an empty map.
+	 */
+	public LongObjectHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty map able to hold {@code expectedSize} entries before growing.
+	 *
+	 * @param expectedSize Number of entries expected
+	 */
+	public LongObjectHashMap(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must not be negative, got " + expectedSize);
+		}
+		int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2) - 1) << 1;
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the value associated to {@code key}, or {@code null} if there is none.
+	 *
+	 * @param key Key of the entry
+	 * @return {@code V}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		return (V) values[indexOf(key)];
+	}
+
+	/**
+	 * Associates {@code value} to {@code key}.
+	 *
+	 * @param key Key of the entry
+	 * @param value Value of the entry, not {@code null}
+	 * @return the previous value associated to {@code key}, or {@code null} if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Value must not be null");
+		}
+		int slot = indexOf(key);
+		V previous = (V) values[slot];
+		if (previous == null) {
+			if ((size + 1) * 2 > keys.length) {
+				grow();
+				slot = indexOf(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+		return previous;
+	}
+
+	/**
+	 * Removes the entry of {@code key}.
+	 *
+	 * @param key Key of the entry
+	 * @return the value that was associated to {@code key}, or {@code null} if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int hole = indexOf(key);
+		V previous = (V) values[hole];
+		if (previous == null) {
+			return null;
+		}
+		values[hole] = null;
+		size--;
+		int slot = (hole + 1) & mask;
+		while (values[slot] != null) {
+			int home = hash(keys[slot]) & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				keys[hole] = keys[slot];
+				values[hole] = values[slot];
+				values[slot] = null;
+				hole = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return previous;
+	}
+
+	/**
+	 * Returns {@code true} if there is an entry for {@code key}.
+	 *
+	 * @param key Key of the entry
+	 * @return {@code boolean}
+	 */
+	public boolean containsKey(long key) {
+		return values[indexOf(key)] != null;
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * @return {@code int}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns {@code true} if there are no entries.
+	 * @return {@code boolean}
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes every entry.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * Performs {@code consumer} over each entry. The map must not be modified meanwhile.
+	 *
+	 * @param consumer {@link EntryConsumer} to apply
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(EntryConsumer<? super V> consumer) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (values[slot] != null) {
+				consumer.accept(keys[slot], (V) values[slot]);
+			}
+		}
+	}
+
+	private int indexOf(long key) {
+		int slot = hash(key) & mask;
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldValues[slot] != null) {
+				int newSlot = indexOf(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
@@ -0,0 +1,338 @@
+package com.github.tix_measurements.time.core.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Maps the monotonic {@link System#nanoTime()} to nanoseconds since the epoch, recalibrating the mapping against
+ * {@link System#currentTimeMillis()} from a background thread so the timestamps follow the wall clock as NTP adjusts it.
+ *
+ * Each calibration takes {@link #samples} samples of the wall clock and keeps the tightest one. A sample waits for the
+ * wall clock to tick to the next millisecond, so its offset is not limited by the millisecond resolution but by the
+ * time between two readings of the clocks, which is reported as {@link #getCalibrationErrorNanos()}.
+ *
+ * A correction smaller than {@link #STEP_THRESHOLD_NANOS} is slewed, applying it at {@code 1 / }{@link #SLEW_DIVISOR}
+ * of the elapsed time so the timestamps never go backwards, while a larger one is a step of the wall clock and is
+ * applied at once. The mapping is published as an immutable snapshot in a volatile field, so {@link #epochNanos()} is
+ * wait free and the calibrations never block the readers.
+ *
+ * The calibrations are serialized, while the readings are thread safe.
+ */
+public class TixClockCalibrator {
+
+	/**
+	 * Default number of samples taken by each calibration.
+	 */
+	public static final int DEFAULT_SAMPLES = 8;
+
+	/**
+	 * Default time between two calibrations, in nanoseconds.
+	 */
+	public static final long DEFAULT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+	/**
+	 * Correction, in nanoseconds, from which it is applied at once instead of slewed, like {@code ntpd} does.
+	 */
+	public static final long STEP_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(128);
+
+	/**
+	 * Nanoseconds that must elapse to slew the mapping one nanosecond, so the slew rate is 500 parts per million.
+	 */
+	public static final long SLEW_DIVISOR = 2000;
+
+	/**
+	 * Longest time a sample waits for the wall clock to tick, in nanoseconds.
+	 */
+	private static final long MAX_TICK_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * Number of samples taken by each calibration.
+	 */
+	private final int samples;
+
+	/**
+	 * Time between two calibrations, in nanoseconds.
+	 */
+	private final long intervalNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, that is mapped to the epoch.
+	 */
+	private final LongSupplier nanoClock;
+
+	/**
+	 * Wall clock, in milliseconds since the epoch.
+	 */
+	private final LongSupplier millisClock;
+
+	/**
+	 * Parks the thread for the given nanoseconds.
+	 */
+	private final LongConsumer parker;
+
+	private volatile Mapping mapping;
+
+	private volatile boolean running;
+
+	private Thread thread;
+
+	/*
+	 * Metrics, only written by the calibrations.
+	 */
+	private volatile long calibrations;
+	private volatile long steps;
+	private volatile long lastCorrectionNanos;
+	private volatile long calibrationErrorNanos;
+	private volatile double driftPpm;
+
+	/**
+	 * Offset and {@link #nanoClock} of the last calibration, to estimate the drift.
+	 */
+	private long lastOffset;
+	private long lastCalibrationNanos;
+
+	/**
+	 * Creates a calibrator of {@link System#nanoTime()} that takes {@link #DEFAULT_SAMPLES} samples of
+	 * {@link System#currentTimeMillis()} every {@link #DEFAULT_INTERVAL_NANOS} nanoseconds.
+	 */
+	public TixClockCalibrator() {
+		this(DEFAULT_SAMPLES, DEFAULT_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Creates a calibrator of {@link System#nanoTime()} against {@link System#currentTimeMillis()}.
+	 *
+	 * @param samples {@link #samples}
+	 * @param interval Time between two calibrations
+	 * @param unit {@link TimeUnit} of the {@code interval}
+	 */
+	public TixClockCalibrator(int samples, long interval, TimeUnit unit) {
+		this(samples, interval, unit, System::nanoTime, System::currentTimeMillis, LockSupport::parkNanos);
+	}
+
+	TixClockCalibrator(int samples, long interval, TimeUnit unit, LongSupplier nanoClock, LongSupplier millisClock,
+	                   LongConsumer parker) {
+		checkPositive(samples, "samples");
+		checkPositive(interval, "interval");
+		checkNotNull(unit, "unit");
+		checkNotNull(nanoClock, "nanoClock");
+		checkNotNull(millisClock, "millisClock");
+		checkNotNull(parker, "parker");
+		this.samples = samples;
+		this.intervalNanos = unit.toNanos(interval);
+		this.nanoClock = nanoClock;
+		this.millisClock = millisClock;
+		this.parker = parker;
+		long before = nanoClock.getAsLong();
+		long millis = millisClock.getAsLong();
+		long after = nanoClock.getAsLong();
+		this.lastOffset = millis * NANOS_PER_MILLI - (before + (after - before) / 2);
+		this.lastCalibrationNanos = after;
+		this.calibrationErrorNanos = NANOS_PER_MILLI + (after - before) / 2;
+		this.mapping = new Mapping(after, lastOffset, lastOffset);
+	}
+
+	/**
+	 * Returns the current time, in nanoseconds since the epoch.
+	 *
+	 * @return {@code long} nanoseconds since the epoch
+	 */
+	public long epochNanos() {
+		long now = nanoClock.getAsLong();
+		return now + mapping.offsetAt(now);
+	}
+
+	/**
+	 * Returns the current time, in nanoseconds since the start of the day in UTC.
+	 *
+	 * @return {@code long} nanoseconds of the day
+	 */
+	public long nanosOfDay() {
+		return Math.floorMod(epochNanos(), TixCoreUtils.NANOS_PER_DAY);
+	}
+
+	/**
+	 * Samples the wall clock and updates the mapping, slewing or stepping it to the new offset.
+	 */
+	public synchronized void calibrate() {
+		long offset = 0;
+		long error = Long.MAX_VALUE;
+		for (int i = 0; i < samples; i++) {
+			long[] sample = sample();
+			if (sample[1] < error) {
+				offset = sample[0];
+				error = sample[1];
+			}
+		}
+		long now = nanoClock.getAsLong();
+		long current = mapping.offsetAt(now);
+		long correction = offset - current;
+		if (Math.abs(correction) >= STEP_THRESHOLD_NANOS) {
+			mapping = new Mapping(now, offset, offset);
+			steps++;
+			logger.warn("Wall clock stepped {} ns", correction);
+		} else {
+			mapping = new Mapping(now, current, offset);
+		}
+		if (now != lastCalibrationNanos) {
+			driftPpm = (offset - lastOffset) * 1e6 / (now - lastCalibrationNanos);
+		}
+		lastOffset = offset;
+		lastCalibrationNanos = now;
+		lastCorrectionNanos = correction;
+		calibrationErrorNanos = error;
+		calibrations++;
+	}
+
+	/**
+	 * Starts calibrating right away, and then every {@link #intervalNanos}, from a new daemon thread.
+	 *
+	 * @throws IllegalStateException if the calibrator was already started
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Calibrator already started");
+		}
+		running = true;
+		thread = new Thread(this::run, "tix-clock-calibrator");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops calibrating, waiting for the thread to finish. The mapping keeps its last calibration.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void stop() throws InterruptedException {
+		Thread calibrating;
+		synchronized (this) {
+			running = false;
+			calibrating = thread;
+		}
+		if (calibrating != null) {
+			LockSupport.unpark(calibrating);
+			calibrating.join();
+		}
+	}
+
+	/**
+	 * Returns the number of calibrations done.
+	 * @return {@link #calibrations}
+	 */
+	public long getCalibrations() {
+		return calibrations;
+	}
+
+	/**
+	 * Returns the number of calibrations whose correction was applied at once instead of slewed.
+	 * @return {@link #steps}
+	 */
+	public long getSteps() {
+		return steps;
+	}
+
+	/**
+	 * Returns the correction, in nanoseconds, found by the last calibration between the wall clock and the mapping.
+	 * @return {@link #lastCorrectionNanos}
+	 */
+	public long getLastCorrectionNanos() {
+		return lastCorrectionNanos;
+	}
+
+	/**
+	 * Returns the uncertainty, in nanoseconds, of the offset measured by the last calibration.
+	 * @return {@link #calibrationErrorNanos}
+	 */
+	public long getCalibrationErrorNanos() {
+		return calibrationErrorNanos;
+	}
+
+	/**
+	 * Returns the drift of the monotonic clock from the wall clock between the last two calibrations, in parts per
+	 * million. It is positive when the monotonic clock runs slow.
+	 * @return {@link #driftPpm}
+	 */
+	public double getDriftPpm() {
+		return driftPpm;
+	}
+
+	private void run() {
+		try {
+			while (running) {
+				calibrate();
+				long deadline = nanoClock.getAsLong() + intervalNanos;
+				for (long remaining = intervalNanos; running && remaining > 0;
+				     remaining = deadline - nanoClock.getAsLong()) {
+					parker.accept(remaining);
+				}
+			}
+		} catch (RuntimeException e) {
+			logger.catching(e);
+			running = false;
+		}
+	}
+
+	/**
+	 * Waits for the wall clock to tick and returns the offset of the tick from the {@link #nanoClock}, and its
+	 * uncertainty, the time between the last reading before the tick and the first one after it.
+	 */
+	private long[] sample() {
+		long previousStart = nanoClock.getAsLong();
+		long previousMillis = millisClock.getAsLong();
+		long deadline = previousStart + MAX_TICK_WAIT_NANOS;
+		while (true) {
+			long start = nanoClock.getAsLong();
+			long millis = millisClock.getAsLong();
+			long end = nanoClock.getAsLong();
+			if (millis != previousMillis) {
+				return new long[]{millis * NANOS_PER_MILLI - (previousStart + (end - previousStart) / 2),
+						end - previousStart};
+			}
+			if (end - deadline >= 0) {
+				return new long[]{millis * NANOS_PER_MILLI - (start + (end - start) / 2),
+						NANOS_PER_MILLI + (end - start) / 2};
+			}
+			previousStart = start;
+		}
+	}
+
+	/**
+	 * Immutable mapping from the {@link #nanoClock} to the epoch, slewing from one offset to another.
+	 */
+	private static final class Mapping {
+		/**
+		 * {@link #nanoClock} from which the slew starts.
+		 */
+		private final long anchorNanos;
+		private final long fromOffset;
+		private final long toOffset;
+
+		private Mapping(long anchorNanos, long fromOffset, long toOffset) {
+			this.anchorNanos = anchorNanos;
+			this.fromOffset = fromOffset;
+			this.toOffset = toOffset;
+		}
+
+		private long offsetAt(long nanos) {
+			long correction = toOffset - fromOffset;
+			long slewed = Math.max(0, nanos - anchorNanos) / SLEW_DIVISOR;
+			if (slewed >= Math.abs(correction)) {
+				return toOffset;
+			}
+			return correction > 0 ? fromOffset + slewed : fromOffset - slewed;
+		}
+	}
+}
@@ -1,14 +1,19 @@
 package com.github.tix_measurements.time.core.util;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
-import java.time.*;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.TimeZone;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * Class that contains all the utilities functions and methods that are used across all the <code>tix-time-core</code> lib project.
@@ -40,9 +45,26 @@ public class TixCoreUtils {
 	public static final int SIGNATURE_BYTES_SIZE = KEY_PAIR_BITS_LENGTH / 8;
 
 	/**
-	 * Returns the number of nanoseconds since the start of the day at local time.
+	 * Constant exposing the number of nanoseconds in a day, the modulus of the timestamps of the TiX packets.
 	 */
-	public static final Supplier<Long> NANOS_OF_DAY = new NanosOfDayTimestampSupplier();
+	public static final long NANOS_PER_DAY = 24L * 60 * 60 * 1000000000L;
+
+	/**
+	 * Holder of the {@link TixClockCalibrator} of the timestamps of the lib, so its thread is only started by the first
+	 * use of the timestamps and not by any other use of this class.
+	 */
+	private static final class ClockCalibratorHolder {
+		private static final TixClockCalibrator CLOCK_CALIBRATOR = new TixClockCalibrator();
+
+		static {
+			CLOCK_CALIBRATOR.start();
+		}
+	}
+
+	/**
+	 * Returns the number of nanoseconds since the start of the day in UTC, from the {@link #clockCalibrator()}.
+	 */
+	public static final Supplier<Long> NANOS_OF_DAY = () -> clockCalibrator().nanosOfDay();
 
 	/**
 	 * Lambda function that decodes a base 64 encoded {@link String} into a simple {@link byte[]} .
@@ -54,6 +76,103 @@ public class TixCoreUtils {
 	 */
 	public static final Function<byte[], String> ENCODER = (byte[] bytes) -> Base64.getEncoder().encodeToString(bytes);
 
+	/**
+	 * Values of the characters of the basic base 64 alphabet, indexed by byte, or {@code -1} for the other bytes.
+	 */
+	private static final byte[] BASE64_VALUES = new byte[256];
+
+	static {
+		Arrays.fill(BASE64_VALUES, (byte) -1);
+		byte[] alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+				.getBytes(StandardCharsets.US_ASCII);
+		for (int i = 0; i < alphabet.length; i++) {
+			BASE64_VALUES[alphabet[i]] = (byte) i;
+		}
+	}
+
+	/**
+	 * Constant exposing the maximum size in bytes a compressed message is allowed to decompress to
+	 */
+	public static final int MAX_DECOMPRESSED_BYTES_LENGTH = 1 << 20;
+
+	private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+	private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	/**
+	 * Lambda function that compresses a simple {@code byte[]} with raw Deflate.
+	 */
+	public static final Function<byte[], byte[]> COMPRESSOR = (byte[] bytes) -> {
+		Deflater deflater = DEFLATERS.get();
+		deflater.reset();
+		deflater.setInput(bytes);
+		deflater.finish();
+		byte[] buffer = new byte[bytes.length + bytes.length / 1000 + 64];
+		int length = 0;
+		while (!deflater.finished()) {
+			if (length == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			length += deflater.deflate(buffer, length, buffer.length - length);
+		}
+		return Arrays.copyOf(buffer, length);
+	};
+
+	/**
+	 * Lambda function that decompresses a {@code byte[]} compressed by {@link #COMPRESSOR}. It throws an
+	 * {@link IllegalArgumentException} if the input is corrupt or decompresses to more than
+	 * {@value #MAX_DECOMPRESSED_BYTES_LENGTH} bytes.
+	 */
+	public static final Function<byte[], byte[]> DECOMPRESSOR = (byte[] bytes) -> {
+		Inflater inflater = INFLATERS.get();
+		inflater.reset();
+		inflater.setInput(bytes);
+		byte[] buffer = new byte[Math.min(MAX_DECOMPRESSED_BYTES_LENGTH, Math.max(64, bytes.length * 4))];
+		int length = 0;
+		try {
+			while (!inflater.finished()) {
+				if (length == buffer.length) {
+					if (buffer.length == MAX_DECOMPRESSED_BYTES_LENGTH) {
+						throw new IllegalArgumentException("Decompressed message exceeds " + MAX_DECOMPRESSED_BYTES_LENGTH + " bytes");
+					}
+					buffer = Arrays.copyOf(buffer, Math.min(MAX_DECOMPRESSED_BYTES_LENGTH, buffer.length * 2));
+				}
+				int inflated = inflater.inflate(buffer, length, buffer.length - length);
+				if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalArgumentException("Truncated compressed message");
+				}
+				length += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException(e);
+		}
+		return Arrays.copyOf(buffer, length);
+	};
+
+	/**
+	 * Constant exposing the maximum number of decoded public keys kept by {@link #verify(byte[], byte[], byte[])}
+	 */
+	public static final int MAX_CACHED_PUBLIC_KEYS = 4096;
+
+	/**
+	 * Decoded public keys that verified a signature, in access order so the least recently used one is evicted when it
+	 * is full. It is guarded by its own lock.
+	 */
+	static final Map<ByteBuffer, PublicKey> PUBLIC_KEYS = new LinkedHashMap<ByteBuffer, PublicKey>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKey> eldest) {
+			return size() > MAX_CACHED_PUBLIC_KEYS;
+		}
+	};
+
+	private static final ThreadLocal<Signature> VERIFIERS = ThreadLocal.withInitial(() -> {
+		try {
+			return Signature.getInstance(SIGNING_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
 	/**
 	 * Returns a new {@link KeyPair} generated with the {@value #KEY_ALGORITHM} algorithm of {@value #KEY_PAIR_BITS_LENGTH} bits
 	 */
@@ -88,6 +207,11 @@ public class TixCoreUtils {
 
 	/**
 	 * Verifies a message {@link String} with the supplied bytes of the {@link PublicKey} encoded using {@link PublicKey#getEncoded()} and the signature. The key must be made with the algorithm {@value #KEY_ALGORITHM} and the signature with {@value SIGNING_ALGORITHM}.
+	 *
+	 * The keys are decoded once and kept, up to {@value #MAX_CACHED_PUBLIC_KEYS} of them, as the same installations
+	 * send their keys over and over, and each thread reuses its {@link Signature}. A key is only kept once it verified a
+	 * signature, and when the cache is full the least recently used key is evicted, to be decoded again on its next
+	 * use.
 	 * @param message {@code byte[]} representing the message to verify
 	 * @param encodedPublicKey {@code byte[]} resulting of using {@link PublicKey#getEncoded()} in an {@value #KEY_ALGORITHM} public key.
 	 * @param signature {@code byte[]} representing the signature made with {@value #SIGNING_ALGORITHM}
@@ -95,39 +219,129 @@ public class TixCoreUtils {
 	 */
 	public static boolean verify(byte[] message, byte[] encodedPublicKey, byte[] signature) {
 		try {
-			PublicKey publicKey = KeyFactory.getInstance(KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(encodedPublicKey));
-			Signature signer = Signature.getInstance(SIGNING_ALGORITHM);
+			PublicKey publicKey;
+			synchronized (PUBLIC_KEYS) {
+				publicKey = PUBLIC_KEYS.get(ByteBuffer.wrap(encodedPublicKey));
+			}
+			boolean cached = publicKey != null;
+			if (!cached) {
+				publicKey = KeyFactory.getInstance(KEY_ALGORITHM)
+						.generatePublic(new X509EncodedKeySpec(encodedPublicKey));
+			}
+			Signature signer = VERIFIERS.get();
 			signer.initVerify(publicKey);
 			signer.update(message);
-			return signer.verify(signature);
+			boolean verified = signer.verify(signature);
+			if (verified && !cached) {
+				synchronized (PUBLIC_KEYS) {
+					PUBLIC_KEYS.put(ByteBuffer.wrap(encodedPublicKey.clone()), publicKey);
+				}
+			}
+			return verified;
 		} catch (InvalidKeySpecException | NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
 			throw new IllegalArgumentException(e);
 		}
 	}
 
-	private static class NanosOfDayTimestampSupplier implements Supplier<Long> {
-		private final long startNanos;
-		private final long nanoDeltaToEpoch;
-
-		private static long millisToNanos(long millis) {
-			return millis * 1000000;
+	/**
+	 * Decodes {@code length} base 64 encoded bytes of {@code src} starting at {@code offset}, as the basic
+	 * {@link Base64#getDecoder()} does, into an array of the exact decoded size.
+	 *
+	 * Unlike decoding through a {@link String} or a {@link ByteBuffer}, it makes a single pass over the input and only
+	 * allocates the result. Each four characters are looked up in a table and joined in an {@code int}, which is
+	 * negative if any of them is not a base 64 character. It is the only check of the characters of the messages of
+	 * the data packets, which are decoded lazily, so they are never scanned once more only to be validated.
+	 *
+	 * @param src {@code byte[]} holding the base 64 encoded bytes
+	 * @param offset Index of the first encoded byte
+	 * @param length Number of encoded bytes, including the padding
+	 * @return {@code byte[]} with the decoded bytes
+	 * @throws IllegalArgumentException if the bytes are not valid base 64
+	 */
+	public static byte[] decodeBase64(byte[] src, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > src.length) {
+			throw new IllegalArgumentException("Invalid range of the base 64 input");
 		}
-
-		public NanosOfDayTimestampSupplier() {
-			startNanos = System.nanoTime();
-			long currentMillis = System.currentTimeMillis();
-			long currentMillisInNanos = millisToNanos(currentMillis);
-			long currentNanos = System.nanoTime();
-			nanoDeltaToEpoch = currentMillisInNanos - currentNanos;
+		int end = offset + length;
+		int padding = 0;
+		while (padding < 2 && length - padding > 0 && src[end - padding - 1] == '=') {
+			padding++;
 		}
-
-		@Override
-		public Long get() {
-			long todayStartMillis = LocalDate.now().atStartOfDay(ZoneId.of(ZoneOffset.UTC.getId())).toInstant().toEpochMilli();
-			long todayStartNanos = millisToNanos(todayStartMillis);
-			long currentNanos = System.nanoTime();
-			return currentNanos + nanoDeltaToEpoch - todayStartNanos;
+		int chars = length - padding;
+		if ((padding > 0 && length % 4 != 0) || chars % 4 == 1) {
+			throw new IllegalArgumentException("Invalid length of the base 64 input");
+		}
+		byte[] decoded = new byte[chars / 4 * 3 + Math.max(0, chars % 4 - 1)];
+		int i = offset;
+		int o = 0;
+		for (int quadsEnd = offset + chars / 4 * 4; i < quadsEnd; i += 4) {
+			int bits = base64Value(src[i]) << 18 | base64Value(src[i + 1]) << 12
+					| base64Value(src[i + 2]) << 6 | base64Value(src[i + 3]);
+			if (bits < 0) {
+				throw new IllegalArgumentException("Invalid character in the base 64 input");
+			}
+			decoded[o++] = (byte) (bits >> 16);
+			decoded[o++] = (byte) (bits >> 8);
+			decoded[o++] = (byte) bits;
 		}
+		if (o < decoded.length) {
+			int bits = base64Value(src[i]) << 18 | base64Value(src[i + 1]) << 12
+					| (chars % 4 == 3 ? base64Value(src[i + 2]) << 6 : 0);
+			if (bits < 0) {
+				throw new IllegalArgumentException("Invalid character in the base 64 input");
+			}
+			decoded[o++] = (byte) (bits >> 16);
+			if (o < decoded.length) {
+				decoded[o] = (byte) (bits >> 8);
+			}
+		}
+		return decoded;
+	}
+
+	/**
+	 * Returns the {@link TixClockCalibrator} of the timestamps of the lib, recalibrated every minute from a daemon
+	 * thread started on the first call.
+	 *
+	 * @return {@link TixClockCalibrator}
+	 */
+	public static TixClockCalibrator clockCalibrator() {
+		return ClockCalibratorHolder.CLOCK_CALIBRATOR;
+	}
+
+	private static int base64Value(byte b) {
+		return BASE64_VALUES[b & 0xFF];
+	}
+
+	/**
+	 * Returns the signed difference {@code to - from} between two nanoseconds of day timestamps, taking into account
+	 * that they wrap around at midnight. The result is in the range ({@code -NANOS_PER_DAY / 2},
+	 * {@code NANOS_PER_DAY / 2}], so it is only meaningful for timestamps less than half a day apart.
+	 *
+	 * @param to {@code long} later timestamp, in nanoseconds of the day
+	 * @param from {@code long} earlier timestamp, in nanoseconds of the day
+	 * @return {@code long} nanoseconds elapsed from {@code from} to {@code to}
+	 */
+	public static long nanosOfDayDifference(long to, long from) {
+		long difference = Math.floorMod(to - from, NANOS_PER_DAY);
+		return difference > NANOS_PER_DAY / 2 ? difference - NANOS_PER_DAY : difference;
+	}
+
+	/**
+	 * Returns the round trip time of a probe, its total delay measured by the client minus the time it spent in the
+	 * server, taking into account that each pair of timestamps may wrap around at midnight. A round trip time made
+	 * negative by the resolution of the clocks is returned as {@code 0}.
+	 *
+	 * @param initialTimestamp Initial timestamp of the probe
+	 * @param receptionTimestamp Reception timestamp of the probe
+	 * @param sentTimestamp Sent timestamp of the probe
+	 * @param finalTimestamp Final timestamp of the probe
+	 * @return {@code long} round trip time in nanoseconds
+	 */
+	public static long roundTripTime(long initialTimestamp, long receptionTimestamp, long sentTimestamp,
+	                                 long finalTimestamp) {
+		long rtt = nanosOfDayDifference(finalTimestamp, initialTimestamp)
+				- nanosOfDayDifference(sentTimestamp, receptionTimestamp);
+		return Math.max(0, rtt);
 	}
 
 }
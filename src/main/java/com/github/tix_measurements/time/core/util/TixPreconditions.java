@@ -0,0 +1,71 @@
+package com.github.tix_measurements.time.core.util;
+
+/**
+ * Argument checks of the constructors and methods of the <code>tix-time-core</code> lib project.
+ *
+ * They used to be written with assertj assertions, which are meant for tests and made assertj a runtime dependency
+ * of the lib. Every check throws an {@link IllegalArgumentException} naming the offending argument.
+ */
+public final class TixPreconditions {
+
+	private TixPreconditions() { }
+
+	/**
+	 * Checks that {@code condition} holds.
+	 *
+	 * @param condition Condition to check
+	 * @param message Message of the exception thrown if it does not hold
+	 * @throws IllegalArgumentException if {@code condition} is {@code false}
+	 */
+	public static void checkArgument(boolean condition, String message) {
+		if (!condition) {
+			throw new IllegalArgumentException(message);
+		}
+	}
+
+	/**
+	 * Checks that {@code value} is not {@code null}.
+	 *
+	 * @param value Value to check
+	 * @param name Name of the argument
+	 * @param <T> Type of the argument
+	 * @return {@code value}
+	 * @throws IllegalArgumentException if {@code value} is {@code null}
+	 */
+	public static <T> T checkNotNull(T value, String name) {
+		if (value == null) {
+			throw new IllegalArgumentException(name + " must not be null");
+		}
+		return value;
+	}
+
+	/**
+	 * Checks that {@code value} is greater than zero.
+	 *
+	 * @param value Value to check
+	 * @param name Name of the argument
+	 * @return {@code value}
+	 * @throws IllegalArgumentException if {@code value} is zero or negative
+	 */
+	public static long checkPositive(long value, String name) {
+		if (value <= 0) {
+			throw new IllegalArgumentException(name + " must be positive, got " + value);
+		}
+		return value;
+	}
+
+	/**
+	 * Checks that {@code value} is zero or greater.
+	 *
+	 * @param value Value to check
+	 * @param name Name of the argument
+	 * @return {@code value}
+	 * @throws IllegalArgumentException if {@code value} is negative
+	 */
+	public static long checkNotNegative(long value, String name) {
+		if (value < 0) {
+			throw new IllegalArgumentException(name + " must not be negative, got " + value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.tix_measurements.time.core.util;
+
+/**
+ * Reader of the varints written by a {@link TixVarintWriter}, that throws an {@link IllegalArgumentException}
+ * naming the format being read when the bytes are truncated or malformed.
+ *
+ * It is not thread safe.
+ */
+public final class TixVarintReader {
+	private final byte[] bytes;
+	private final String format;
+	private int position;
+
+	/**
+	 * Main constructor of the class {@code TixVarintReader}.
+	 *
+	 * @param bytes {@code byte[]} to read
+	 * @param position Index of the first byte to read
+	 * @param format Name of the format being read, for the exception messages
+	 */
+	public TixVarintReader(byte[] bytes, int position, String format) {
+		this.bytes = bytes;
+		this.position = position;
+		this.format = format;
+	}
+
+	/**
+	 * Reads a single byte.
+	 *
+	 * @return {@code int} unsigned value of the byte
+	 */
+	public int readByte() {
+		if (position >= bytes.length) {
+			throw new IllegalArgumentException("Truncated " + format);
+		}
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * Reads a zig-zag varint.
+	 *
+	 * @return {@code long} signed value
+	 */
+	public long readZigZag() {
+		long value = readVarint();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 *
+	 * @return {@code long} value
+	 */
+	public long readVarint() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			if (position >= bytes.length) {
+				throw new IllegalArgumentException("Truncated " + format);
+			}
+			byte b = bytes[position++];
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint in " + format);
+	}
+
+	/**
+	 * Returns {@code true} if every byte was read.
+	 *
+	 * @return {@code boolean}
+	 */
+	public boolean isAtEnd() {
+		return position == bytes.length;
+	}
+}
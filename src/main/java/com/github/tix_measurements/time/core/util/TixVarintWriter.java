@@ -0,0 +1,83 @@
+package com.github.tix_measurements.time.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Growable byte array writer of unsigned and zig-zag varints, the variable length encoding of integers used by the
+ * compact binary formats of the lib: seven bits per byte, least significant first, with the high bit set on every
+ * byte but the last.
+ *
+ * It is not thread safe.
+ */
+public final class TixVarintWriter {
+	private byte[] bytes;
+	private int position;
+
+	/**
+	 * Creates a writer with room for {@code capacity} bytes before growing.
+	 *
+	 * @param capacity Initial capacity in bytes
+	 */
+	public TixVarintWriter(int capacity) {
+		bytes = new byte[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Writes {@code source} as is.
+	 *
+	 * @param source {@code byte[]} to write
+	 */
+	public void writeBytes(byte[] source) {
+		ensureCapacity(source.length);
+		System.arraycopy(source, 0, bytes, position, source.length);
+		position += source.length;
+	}
+
+	/**
+	 * Writes a single byte.
+	 *
+	 * @param value Byte to write
+	 */
+	public void writeByte(int value) {
+		ensureCapacity(1);
+		bytes[position++] = (byte) value;
+	}
+
+	/**
+	 * Writes a signed value as a zig-zag varint, so values close to zero take few bytes whatever their sign.
+	 *
+	 * @param value Value to write
+	 */
+	public void writeZigZag(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Writes {@code value} as an unsigned varint.
+	 *
+	 * @param value Value to write
+	 */
+	public void writeVarint(long value) {
+		ensureCapacity(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte) value;
+	}
+
+	/**
+	 * Returns the bytes written.
+	 *
+	 * @return {@code byte[]} copy of the bytes written
+	 */
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, position);
+	}
+
+	private void ensureCapacity(int extra) {
+		if (position + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+		}
+	}
+}
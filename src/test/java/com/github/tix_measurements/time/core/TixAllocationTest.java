@@ -0,0 +1,138 @@
+package com.github.tix_measurements.time.core;
+
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixDataPacketTest;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.util.TixAllocationMeter;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.Signature;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Allocation budgets of the hot paths, in bytes per operation. A budget only allows for the objects the path returns,
+ * so any new allocation on the way fails the build.
+ */
+public class TixAllocationTest {
+
+	private static final int ITERATIONS = 10_000;
+
+	private static final int VERIFY_ITERATIONS = 200;
+
+	/**
+	 * Upper bounds of the size of the objects returned, for any usual 64 bits JVM.
+	 */
+	private static final double PACKET_BYTES = 64;
+	private static final double ARRAY_HEADER_BYTES = 24;
+	private static final double BOXED_LONG_BYTES = 24;
+
+	private static KeyPair keyPair;
+	private static byte[] message;
+
+	private InetSocketAddress from;
+	private InetSocketAddress to;
+	private ByteBuffer buffer;
+
+	@BeforeClass
+	public static void setUpClass() throws Exception {
+		keyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+		message = TixDataPacketTest.generateMessage();
+	}
+
+	@Before
+	public void setUp() {
+		assumeTrue(TixAllocationMeter.isSupported());
+		from = InetSocketAddress.createUnresolved("localhost", 4500);
+		to = InetSocketAddress.createUnresolved("localhost", 4501);
+		buffer = ByteBuffer.allocateDirect(TixPacketType.LONG.getSize());
+	}
+
+	private ByteBuffer encode(TixPacket packet) {
+		buffer.clear();
+		TixPacketCodec.encode(packet, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	private double decoding(TixPacket packet) {
+		ByteBuffer encoded = encode(packet);
+		int limit = encoded.limit();
+		return TixAllocationMeter.bytesPerOperation(() -> {
+			encoded.limit(limit).position(0);
+			TixPacketCodec.decode(encoded, from, to);
+		}, ITERATIONS);
+	}
+
+	private double encoding(TixPacket packet) {
+		return TixAllocationMeter.bytesPerOperation(() -> encode(packet), ITERATIONS);
+	}
+
+	@Test
+	public void testShortPacket() {
+		TixPacket packet = new TixPacket(from, to, TixPacketType.SHORT, 1L);
+		assertThat(decoding(packet)).isLessThanOrEqualTo(PACKET_BYTES);
+		assertThat(encoding(packet)).isZero();
+	}
+
+	@Test
+	public void testLongPacket() {
+		TixPacket packet = new TixPacket(from, to, TixPacketType.LONG, 1L);
+		assertThat(decoding(packet)).isLessThanOrEqualTo(PACKET_BYTES);
+		assertThat(encoding(packet)).isZero();
+	}
+
+	@Test
+	public void testDataPacket() {
+		TixDataPacket packet = new TixDataPacket(from, to, 1L, 1L, 1L, keyPair.getPublic().getEncoded(), message,
+				TixCoreUtils.sign(message, keyPair));
+		int encodedMessage = 4 * ((message.length + 2) / 3);
+		int encodedFields = TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH + encodedMessage + TixCoreUtils.SIGNATURE_BYTES_SIZE
+				+ 2 * TixDataPacket.DATA_DELIMITER.length();
+		// The packet and the fields it keeps encoded
+		assertThat(decoding(packet)).isLessThanOrEqualTo(2 * PACKET_BYTES + ARRAY_HEADER_BYTES + encodedFields);
+		// The base 64 encoded message
+		assertThat(encoding(packet)).isLessThanOrEqualTo(PACKET_BYTES + ARRAY_HEADER_BYTES + encodedMessage);
+	}
+
+	@Test
+	public void testNanosOfDay() {
+		assertThat(TixAllocationMeter.bytesPerOperation(TixCoreUtils.clockCalibrator()::nanosOfDay, ITERATIONS))
+				.isZero();
+		// The boxed Long
+		assertThat(TixAllocationMeter.bytesPerOperation(TixCoreUtils.NANOS_OF_DAY::get, ITERATIONS))
+				.isLessThanOrEqualTo(BOXED_LONG_BYTES);
+	}
+
+	@Test
+	public void testVerifyWithWarmKeyCache() throws Exception {
+		byte[] encodedPublicKey = keyPair.getPublic().getEncoded();
+		byte[] signature = TixCoreUtils.sign(message, keyPair);
+		Signature verifier = Signature.getInstance(TixCoreUtils.SIGNING_ALGORITHM);
+		PublicKey publicKey = keyPair.getPublic();
+		double baseline = TixAllocationMeter.bytesPerOperation(() -> {
+			try {
+				verifier.initVerify(publicKey);
+				verifier.update(message);
+				verifier.verify(signature);
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}, VERIFY_ITERATIONS);
+		double verify = TixAllocationMeter.bytesPerOperation(
+				() -> TixCoreUtils.verify(message, encodedPublicKey, signature), VERIFY_ITERATIONS);
+		// Only the lookup of the key may be added to the signature check itself
+		assertThat(verify).isLessThanOrEqualTo(baseline + PACKET_BYTES);
+	}
+}
@@ -0,0 +1,201 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TixClockSkewEstimatorTest {
+	private static final long INSTALLATION_ID = 1L;
+	private static final long OTHER_INSTALLATION_ID = 2L;
+	private static final long MIN_DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long MEAN_QUEUEING = TimeUnit.MILLISECONDS.toNanos(3);
+	private static final long PROCESSING = TimeUnit.MICROSECONDS.toNanos(20);
+
+	private TixClockSkewEstimator estimator;
+	private Random random;
+
+	@Before
+	public void setup() {
+		estimator = new TixClockSkewEstimator();
+		random = new Random(1L);
+	}
+
+	private long queueing() {
+		return (long) (-MEAN_QUEUEING * Math.log(1 - random.nextDouble()));
+	}
+
+	/**
+	 * Offers {@code count} samples a second apart of a server whose clock is {@code offset} nanoseconds ahead of the
+	 * installation clock at the first sample, and gains {@code skewPpm} microseconds per second, returning the
+	 * installation clock times and the offsets of the samples as batch least squares inputs.
+	 */
+	private double[][] offer(long installationId, long start, int count, double skewPpm, long offset) {
+		double[][] samples = new double[2][count];
+		for (int i = 0; i < count; i++) {
+			long time = i * TimeUnit.SECONDS.toNanos(1) + random.nextInt(1_000_000);
+			long serverOffset = offset + (long) (skewPpm * time / 1e6);
+			long initial = start + time;
+			long reception = initial + MIN_DELAY + queueing() + serverOffset;
+			long sent = reception + PROCESSING;
+			long last = sent + MIN_DELAY + queueing() - serverOffset;
+			estimator.accept(installationId, Math.floorMod(initial, TixCoreUtils.NANOS_PER_DAY),
+					Math.floorMod(reception, TixCoreUtils.NANOS_PER_DAY),
+					Math.floorMod(sent, TixCoreUtils.NANOS_PER_DAY), Math.floorMod(last, TixCoreUtils.NANOS_PER_DAY));
+			samples[0][i] = time;
+			samples[1][i] = ((reception - initial) - (last - sent)) / 2.0;
+		}
+		return samples;
+	}
+
+	/**
+	 * Returns the slope and intercept of the least squares line of {@code ys} by {@code xs}, as the analytics fit the
+	 * offsets over full windows.
+	 */
+	private static double[] leastSquares(double[] xs, double[] ys) {
+		double meanX = 0;
+		double meanY = 0;
+		for (int i = 0; i < xs.length; i++) {
+			meanX += xs[i] / xs.length;
+			meanY += ys[i] / xs.length;
+		}
+		double covariance = 0;
+		double variance = 0;
+		for (int i = 0; i < xs.length; i++) {
+			covariance += (xs[i] - meanX) * (ys[i] - meanY);
+			variance += (xs[i] - meanX) * (xs[i] - meanX);
+		}
+		double slope = covariance / variance;
+		return new double[]{slope, meanY - slope * meanX};
+	}
+
+	private void assertMatchesBatch(long installationId, double[][] samples, double skewPpm, long offset) {
+		double[] batch = leastSquares(samples[0], samples[1]);
+		double latest = samples[0][samples[0].length - 1];
+		double trueOffset = offset + skewPpm * latest / 1e6;
+		assertThat(batch[0] * 1e6).isCloseTo(skewPpm, within(0.5));
+		assertThat(estimator.getSkewPpm(installationId)).isCloseTo(skewPpm, within(0.5));
+		assertThat(estimator.getSkewPpm(installationId)).isCloseTo(batch[0] * 1e6, within(0.5));
+		assertThat(batch[0] * latest + batch[1]).isCloseTo(trueOffset, within(200_000.0));
+		assertThat(estimator.getOffsetNanos(installationId)).isCloseTo(trueOffset, within(200_000.0));
+	}
+
+	@Test
+	public void testDriftingClocks() {
+		long start = TimeUnit.HOURS.toNanos(3);
+		double[][] samples = offer(INSTALLATION_ID, start, 3600, 40.0, TimeUnit.MILLISECONDS.toNanos(2));
+		double[][] otherSamples = offer(OTHER_INSTALLATION_ID, start, 3600, -15.0, -TimeUnit.MILLISECONDS.toNanos(7));
+		assertMatchesBatch(INSTALLATION_ID, samples, 40.0, TimeUnit.MILLISECONDS.toNanos(2));
+		assertMatchesBatch(OTHER_INSTALLATION_ID, otherSamples, -15.0, -TimeUnit.MILLISECONDS.toNanos(7));
+		assertThat(estimator.size()).isEqualTo(2);
+	}
+
+	@Test
+	public void testAcrossMidnight() {
+		long start = TixCoreUtils.NANOS_PER_DAY - TimeUnit.MINUTES.toNanos(10);
+		double[][] samples = offer(INSTALLATION_ID, start, 1800, 25.0, TimeUnit.MILLISECONDS.toNanos(1));
+		assertMatchesBatch(INSTALLATION_ID, samples, 25.0, TimeUnit.MILLISECONDS.toNanos(1));
+		assertThat(estimator.getOutOfOrderSamples()).isZero();
+	}
+
+	@Test
+	public void testMatchesBatchLowerBound() {
+		// constant delays back, so the skew is half the slope of the best lower bound line of the delays forth
+		long backDelay = MIN_DELAY;
+		int count = 150;
+		long[] times = new long[count];
+		long[] delays = new long[count];
+		double meanTime = 0;
+		for (int i = 0; i < count; i++) {
+			times[i] = i * TimeUnit.SECONDS.toNanos(1) + random.nextInt(1_000_000_000);
+			delays[i] = MIN_DELAY + times[i] / 20_000 + queueing();
+			long sent = times[i] + delays[i] + PROCESSING;
+			estimator.accept(INSTALLATION_ID, times[i], times[i] + delays[i], sent, sent + backDelay);
+			meanTime += (double) times[i] / count;
+		}
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double bestSlope = Double.NaN;
+		for (int i = 0; i < count; i++) {
+			for (int j = i + 1; j < count; j++) {
+				double slope = (double) (delays[j] - delays[i]) / (times[j] - times[i]);
+				boolean below = true;
+				for (int k = 0; k < count && below; k++) {
+					below = delays[k] - (delays[i] + slope * (times[k] - times[i])) >= -1e-3;
+				}
+				double value = delays[i] + slope * (meanTime - times[i]);
+				if (below && value > bestValue) {
+					bestValue = value;
+					bestSlope = slope;
+				}
+			}
+		}
+		assertThat(estimator.getSkewPpm(INSTALLATION_ID)).isCloseTo(bestSlope / 2 * 1e6, within(1e-6));
+		double offset = (bestValue - backDelay) / 2 + bestSlope / 2 * (times[count - 1] - meanTime);
+		assertThat(estimator.getOffsetNanos(INSTALLATION_ID)).isCloseTo(offset, within(1.0));
+	}
+
+	@Test
+	public void testIgnoredSamples() {
+		assertThat(estimator.hasEstimate(INSTALLATION_ID)).isFalse();
+		assertThat(estimator.getSkewPpm(INSTALLATION_ID)).isNaN();
+		long second = TimeUnit.SECONDS.toNanos(1);
+		estimator.accept(INSTALLATION_ID, 10 * second, 10 * second + MIN_DELAY, 10 * second + MIN_DELAY, 0);
+		assertThat(estimator.size()).isZero();
+		estimator.accept(INSTALLATION_ID, 10 * second, 10 * second + MIN_DELAY, 10 * second + MIN_DELAY,
+				10 * second + 2 * MIN_DELAY);
+		assertThat(estimator.hasEstimate(INSTALLATION_ID)).isFalse();
+		assertThat(estimator.getOffsetNanos(INSTALLATION_ID)).isNaN();
+		estimator.accept(INSTALLATION_ID, 9 * second, 9 * second + MIN_DELAY, 9 * second + MIN_DELAY,
+				9 * second + 2 * MIN_DELAY);
+		assertThat(estimator.getOutOfOrderSamples()).isEqualTo(1);
+		estimator.accept(INSTALLATION_ID, 11 * second, 11 * second + MIN_DELAY, 11 * second + MIN_DELAY,
+				11 * second + 2 * MIN_DELAY);
+		assertThat(estimator.hasEstimate(INSTALLATION_ID)).isTrue();
+		assertThat(estimator.getSkewPpm(INSTALLATION_ID)).isCloseTo(0.0, within(1e-9));
+		assertThat(estimator.getOffsetNanos(INSTALLATION_ID)).isCloseTo(0.0, within(1e-3));
+		estimator.remove(INSTALLATION_ID);
+		assertThat(estimator.hasEstimate(INSTALLATION_ID)).isFalse();
+	}
+
+	@Test
+	public void testBoundedHull() {
+		estimator = new TixClockSkewEstimator(8);
+		// delays growing ever faster put every sample on the hull
+		long second = TimeUnit.SECONDS.toNanos(1);
+		for (long i = 0; i < 1000; i++) {
+			long initial = i * second;
+			long reception = initial + MIN_DELAY + i * i;
+			estimator.accept(INSTALLATION_ID, initial, reception, reception, reception + MIN_DELAY);
+		}
+		// half the slope of the newest samples, about a microsecond per second, as the oldest ones were forgotten
+		assertThat(estimator.getSkewPpm(INSTALLATION_ID)).isGreaterThan(0.9);
+		assertThat(estimator.getOffsetNanos(INSTALLATION_ID)).isNotNaN();
+	}
+
+	@Test
+	public void testMeanTimeOfFullHull() {
+		// delays growing ever faster put every sample on the hull, which is halved at 256 points every 128 samples
+		long second = TimeUnit.SECONDS.toNanos(1);
+		int count = 1000;
+		for (long i = 0; i < count; i++) {
+			long initial = i * second;
+			long reception = initial + MIN_DELAY + i * i;
+			estimator.accept(INSTALLATION_ID, initial, reception, reception, reception + MIN_DELAY);
+		}
+		// so it keeps the samples since the 768th, the edges are taken at their mean time, and not the mean time of
+		// all the samples, which is before the hull
+		long oldest = 768;
+		double meanTime = (oldest + count - 1) / 2.0;
+		long edge = (long) meanTime;
+		double slope = (double) ((edge + 1) * (edge + 1) - edge * edge) / second;
+		double delay = edge * edge + slope * (meanTime - edge) * second;
+		assertThat(estimator.getSkewPpm(INSTALLATION_ID)).isCloseTo(slope / 2 * 1e6, within(1e-9));
+		assertThat(estimator.getOffsetNanos(INSTALLATION_ID))
+				.isCloseTo(delay / 2 + slope / 2 * (count - 1 - meanTime) * second, within(1e-3));
+	}
+}
@@ -0,0 +1,208 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+public class TixLatencySketchTest {
+
+	private static long[] rtts(long seed, int count) {
+		Random random = new Random(seed);
+		long[] values = new long[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = (long) (20_000_000 * Math.exp(random.nextGaussian() * 0.5));
+		}
+		return values;
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TixLatencySketch(0));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixLatencySketch(TixLatencySketch.MAX_PRECISION_BITS + 1));
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TixLatencySketch().record(-1L));
+	}
+
+	@Test
+	public void testEmpty() {
+		TixLatencySketch sketch = new TixLatencySketch();
+		assertThat(sketch.getCount()).isZero();
+		assertThat(sketch.getMin()).isZero();
+		assertThat(sketch.getMax()).isZero();
+		assertThat(sketch.getValueAtQuantile(0.5)).isZero();
+	}
+
+	@Test
+	public void testBucketBounds() {
+		TixLatencySketch sketch = new TixLatencySketch(3);
+		for (long value : new long[]{0L, 7L, 8L, 15L, 16L, 1000L, 123456789L, Long.MAX_VALUE}) {
+			int index = sketch.indexOf(value);
+			assertThat(sketch.lowerBoundOf(index)).isLessThanOrEqualTo(value);
+			if (value < Long.MAX_VALUE) {
+				assertThat(sketch.indexOf(sketch.lowerBoundOf(index))).isEqualTo(index);
+				assertThat(sketch.lowerBoundOf(index + 1)).isGreaterThan(value);
+			}
+		}
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		TixLatencySketch sketch = new TixLatencySketch();
+		for (long value = 1; value <= 100; value++) {
+			sketch.record(value);
+		}
+		assertThat(sketch.getValueAtQuantile(0)).isEqualTo(1L);
+		assertThat(sketch.getValueAtQuantile(0.5)).isEqualTo(50L);
+		assertThat(sketch.getValueAtQuantile(0.99)).isEqualTo(99L);
+		assertThat(sketch.getValueAtQuantile(1)).isEqualTo(100L);
+	}
+
+	@Test
+	public void testRelativeError() {
+		long[] values = rtts(42L, 100_000);
+		TixLatencySketch sketch = new TixLatencySketch();
+		for (long value : values) {
+			sketch.record(value);
+		}
+		Arrays.sort(values);
+		assertThat(sketch.getCount()).isEqualTo(values.length);
+		assertThat(sketch.getMin()).isEqualTo(values[0]);
+		assertThat(sketch.getMax()).isEqualTo(values[values.length - 1]);
+		for (double quantile : new double[]{0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+			long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+			assertThat((double) sketch.getValueAtQuantile(quantile))
+					.isCloseTo(expected, within(expected * sketch.getRelativeError()));
+		}
+	}
+
+	@Test
+	public void testMerge() {
+		long[] first = rtts(1L, 1000);
+		long[] second = rtts(2L, 1000);
+		TixLatencySketch merged = new TixLatencySketch();
+		TixLatencySketch other = new TixLatencySketch();
+		TixLatencySketch union = new TixLatencySketch();
+		for (long value : first) {
+			merged.record(value);
+			union.record(value);
+		}
+		for (long value : second) {
+			other.record(value * 100);
+			union.record(value * 100);
+		}
+		merged.merge(other);
+		merged.merge(new TixLatencySketch());
+		assertThat(merged.getCount()).isEqualTo(union.getCount());
+		assertThat(merged.getMin()).isEqualTo(union.getMin());
+		assertThat(merged.getMax()).isEqualTo(union.getMax());
+		for (double quantile = 0; quantile <= 1; quantile += 0.05) {
+			assertThat(merged.getValueAtQuantile(quantile)).isEqualTo(union.getValueAtQuantile(quantile));
+		}
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> merged.merge(new TixLatencySketch(3)));
+	}
+
+	@Test
+	public void testRecordPacket() {
+		InetSocketAddress from = InetSocketAddress.createUnresolved("localhost", 4500);
+		InetSocketAddress to = InetSocketAddress.createUnresolved("localhost", 4501);
+		TixPacket packet = new TixPacket(from, to, TixPacketType.SHORT, 1_000L);
+		TixLatencySketch sketch = new TixLatencySketch();
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> sketch.record(packet));
+		packet.setReceptionTimestamp(5_000L);
+		packet.setSentTimestamp(6_000L);
+		packet.setFinalTimestamp(11_000L);
+		sketch.record(packet);
+		assertThat(sketch.getCount()).isEqualTo(1L);
+		assertThat(sketch.getMin()).isEqualTo(9_000L);
+		assertThat(sketch.getMax()).isEqualTo(9_000L);
+	}
+
+	@Test
+	public void testEncoding() {
+		TixLatencySketch empty = TixLatencySketch.fromBytes(new TixLatencySketch(5).toBytes());
+		assertThat(empty.getPrecisionBits()).isEqualTo(5);
+		assertThat(empty.getCount()).isZero();
+		TixLatencySketch sketch = new TixLatencySketch();
+		for (long value : rtts(3L, 1000)) {
+			sketch.record(value);
+		}
+		sketch.record(0L);
+		byte[] bytes = sketch.toBytes();
+		assertThat(bytes.length).isLessThan(1000);
+		TixLatencySketch decoded = TixLatencySketch.fromBytes(bytes);
+		assertThat(decoded.getPrecisionBits()).isEqualTo(sketch.getPrecisionBits());
+		assertThat(decoded.getCount()).isEqualTo(sketch.getCount());
+		assertThat(decoded.getMin()).isEqualTo(sketch.getMin());
+		assertThat(decoded.getMax()).isEqualTo(sketch.getMax());
+		for (double quantile = 0; quantile <= 1; quantile += 0.05) {
+			assertThat(decoded.getValueAtQuantile(quantile)).isEqualTo(sketch.getValueAtQuantile(quantile));
+		}
+		assertThat(decoded.toBytes()).isEqualTo(bytes);
+	}
+
+	@Test
+	public void testMalformedEncoding() {
+		TixLatencySketch sketch = new TixLatencySketch();
+		sketch.record(1_000L);
+		sketch.record(2_000_000L);
+		byte[] bytes = sketch.toBytes();
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixLatencySketch.fromBytes(new byte[]{0x00, 'D', 0x01}));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixLatencySketch.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixLatencySketch.fromBytes(Arrays.copyOf(bytes, bytes.length + 1)));
+		byte[] precision = bytes.clone();
+		precision[TixLatencySketch.FORMAT_MARKER.length] = TixLatencySketch.MAX_PRECISION_BITS + 1;
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixLatencySketch.fromBytes(precision));
+		byte[] counter = bytes.clone();
+		counter[counter.length - 1]++;
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixLatencySketch.fromBytes(counter));
+	}
+
+	@Test
+	public void testMergeEncodedAcrossNodes() {
+		int nodes = 5;
+		List<byte[]> encoded = new ArrayList<>();
+		long[] values = new long[0];
+		for (int node = 0; node < nodes; node++) {
+			long[] nodeValues = rtts(100L + node, 20_000);
+			TixLatencySketch sketch = new TixLatencySketch();
+			for (long value : nodeValues) {
+				sketch.record(value * (node + 1));
+			}
+			encoded.add(sketch.toBytes());
+			int previous = values.length;
+			values = Arrays.copyOf(values, previous + nodeValues.length);
+			for (int i = 0; i < nodeValues.length; i++) {
+				values[previous + i] = nodeValues[i] * (node + 1);
+			}
+		}
+		TixLatencySketch collector = new TixLatencySketch();
+		for (byte[] bytes : encoded) {
+			collector.merge(TixLatencySketch.fromBytes(bytes));
+		}
+		Arrays.sort(values);
+		assertThat(collector.getCount()).isEqualTo(values.length);
+		assertThat(collector.getMin()).isEqualTo(values[0]);
+		assertThat(collector.getMax()).isEqualTo(values[values.length - 1]);
+		for (double quantile : new double[]{0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+			long expected = values[(int) Math.ceil(quantile * values.length) - 1];
+			assertThat((double) collector.getValueAtQuantile(quantile))
+					.isCloseTo(expected, within(expected * collector.getRelativeError()));
+		}
+	}
+}
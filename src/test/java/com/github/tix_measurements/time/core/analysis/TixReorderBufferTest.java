@@ -0,0 +1,141 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixReorderBufferTest {
+	private static final long LATENESS_MILLIS = 500L;
+	private static final long INSTALLATION_ID = 1L;
+	private static final long OTHER_INSTALLATION_ID = 2L;
+
+	private List<long[]> emitted;
+	private AtomicLong clock;
+	private TixReorderBuffer buffer;
+
+	@Before
+	public void setup() {
+		emitted = new ArrayList<>();
+		clock = new AtomicLong();
+		buffer = new TixReorderBuffer(LATENESS_MILLIS, TimeUnit.MILLISECONDS,
+				(installationId, initial, reception, sent, last) ->
+						emitted.add(new long[]{installationId, initial, reception, sent, last}),
+				clock::get);
+	}
+
+	private void offer(long installationId, long initialTimestamp) {
+		buffer.offer(installationId, initialTimestamp, initialTimestamp + 1, initialTimestamp + 2, initialTimestamp + 3);
+	}
+
+	private static long millis(long millis) {
+		return TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixReorderBuffer(-1L, TimeUnit.MILLISECONDS, (i, a, b, c, d) -> {}));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixReorderBuffer(1L, TimeUnit.DAYS, (i, a, b, c, d) -> {}));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixReorderBuffer(1L, TimeUnit.MILLISECONDS, null));
+	}
+
+	@Test
+	public void testSamplesAreEmittedInOrder() {
+		List<Long> timestamps = new ArrayList<>();
+		for (long i = 0; i < 1000; i++) {
+			timestamps.add(millis(1000 + i * 10));
+		}
+		// Reorder within windows shorter than the lateness bound
+		Random random = new Random(42);
+		for (int i = 0; i < timestamps.size(); i += 20) {
+			Collections.shuffle(timestamps.subList(i, Math.min(i + 20, timestamps.size())), random);
+		}
+		for (long timestamp : timestamps) {
+			offer(INSTALLATION_ID, timestamp);
+		}
+		assertThat(buffer.size()).isPositive();
+		buffer.flush();
+		assertThat(buffer.size()).isZero();
+		assertThat(emitted).hasSize(timestamps.size());
+		for (int i = 0; i < emitted.size(); i++) {
+			long[] sample = emitted.get(i);
+			assertThat(sample[1]).isEqualTo(millis(1000 + i * 10));
+			assertThat(sample[2]).isEqualTo(sample[1] + 1);
+			assertThat(sample[4]).isEqualTo(sample[1] + 3);
+		}
+		assertThat(buffer.getLateSamples()).isZero();
+	}
+
+	@Test
+	public void testSamplesAreHeldUntilTheLatenessBound() {
+		offer(INSTALLATION_ID, millis(1000));
+		offer(INSTALLATION_ID, millis(1400));
+		assertThat(emitted).isEmpty();
+		offer(INSTALLATION_ID, millis(1500));
+		assertThat(emitted).hasSize(1);
+		assertThat(emitted.get(0)[1]).isEqualTo(millis(1000));
+		// Installations do not hold each other
+		offer(OTHER_INSTALLATION_ID, millis(5000));
+		assertThat(emitted).hasSize(1);
+	}
+
+	@Test
+	public void testLateSamplesAreDropped() {
+		offer(INSTALLATION_ID, millis(1000));
+		offer(INSTALLATION_ID, millis(2000));
+		offer(INSTALLATION_ID, millis(900));
+		assertThat(buffer.getLateSamples()).isEqualTo(1L);
+		buffer.flush(INSTALLATION_ID);
+		assertThat(emitted).extracting(sample -> sample[1]).containsExactly(millis(1000), millis(2000));
+	}
+
+	@Test
+	public void testExpire() {
+		offer(INSTALLATION_ID, millis(1000));
+		offer(INSTALLATION_ID, millis(1300));
+		clock.addAndGet(millis(100));
+		offer(OTHER_INSTALLATION_ID, millis(5000));
+		clock.addAndGet(millis(50));
+		buffer.expire();
+		assertThat(emitted).isEmpty();
+		// the samples held for the lateness bound since the newest one of their installation are emitted in order
+		clock.addAndGet(millis(50));
+		buffer.expire();
+		assertThat(emitted).extracting(sample -> sample[1]).containsExactly(millis(1000));
+		clock.addAndGet(millis(300));
+		buffer.expire();
+		assertThat(emitted).extracting(sample -> sample[1]).containsExactly(millis(1000), millis(1300));
+		clock.addAndGet(millis(100));
+		buffer.expire();
+		assertThat(emitted).extracting(sample -> sample[1])
+				.containsExactly(millis(1000), millis(1300), millis(5000));
+		assertThat(buffer.size()).isZero();
+		// and the samples they were released past are late
+		offer(INSTALLATION_ID, millis(1200));
+		assertThat(buffer.getLateSamples()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testMidnightWrapAround() {
+		long beforeMidnight = TixCoreUtils.NANOS_PER_DAY - millis(100);
+		long afterMidnight = millis(100);
+		offer(INSTALLATION_ID, afterMidnight);
+		offer(INSTALLATION_ID, beforeMidnight);
+		offer(INSTALLATION_ID, millis(1000));
+		assertThat(emitted).extracting(sample -> sample[1]).containsExactly(beforeMidnight, afterMidnight);
+		buffer.remove(INSTALLATION_ID);
+		assertThat(emitted).extracting(sample -> sample[1]).containsExactly(beforeMidnight, afterMidnight, millis(1000));
+	}
+}
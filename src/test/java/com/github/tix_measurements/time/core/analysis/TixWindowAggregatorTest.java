@@ -0,0 +1,109 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.assertj.core.api.Assertions.within;
+
+public class TixWindowAggregatorTest {
+	private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+	private static final long INSTALLATION_ID = 1L;
+	private static final long OTHER_INSTALLATION_ID = 2L;
+
+	private AtomicLong clock;
+	private List<TixWindowSummary> summaries;
+	private TixWindowAggregator aggregator;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		summaries = new ArrayList<>();
+		aggregator = new TixWindowAggregator(WINDOW_NANOS, TimeUnit.NANOSECONDS,
+				TixLatencySketch.DEFAULT_PRECISION_BITS, summaries::add, clock::get);
+	}
+
+	private void sample(long installationId, long initialTimestamp, long rtt) {
+		long reception = initialTimestamp + rtt / 2;
+		aggregator.accept(installationId, initialTimestamp, reception, reception + 1000, initialTimestamp + rtt + 1000);
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixWindowAggregator(0L, TimeUnit.MINUTES, summaries::add));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixWindowAggregator(7L, TimeUnit.MINUTES, summaries::add));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixWindowAggregator(1L, TimeUnit.MINUTES, null));
+	}
+
+	@Test
+	public void testWindowIsEmittedWhenTheNextOneStarts() {
+		long start = 10 * WINDOW_NANOS;
+		for (int i = 0; i < 60; i++) {
+			sample(INSTALLATION_ID, start + TimeUnit.SECONDS.toNanos(i), TimeUnit.MILLISECONDS.toNanos(10 + i));
+		}
+		aggregator.accept(INSTALLATION_ID, start + TimeUnit.SECONDS.toNanos(30), 0L, 0L, 0L);
+		sample(OTHER_INSTALLATION_ID, start, TimeUnit.MILLISECONDS.toNanos(5));
+		assertThat(summaries).isEmpty();
+		sample(INSTALLATION_ID, start + WINDOW_NANOS, TimeUnit.MILLISECONDS.toNanos(10));
+		assertThat(summaries).hasSize(1);
+		TixWindowSummary summary = summaries.get(0);
+		assertThat(summary.getInstallationId()).isEqualTo(INSTALLATION_ID);
+		assertThat(summary.getWindowStart()).isEqualTo(start);
+		assertThat(summary.getWindowNanos()).isEqualTo(WINDOW_NANOS);
+		assertThat(summary.getSamples()).isEqualTo(60L);
+		assertThat(summary.getLostProbes()).isEqualTo(1L);
+		assertThat(summary.getLossRate()).isEqualTo(1.0 / 61);
+		assertThat(summary.getMinRtt()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+		assertThat(summary.getMaxRtt()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(69));
+		assertThat((double) summary.getMedianRtt()).isCloseTo(TimeUnit.MILLISECONDS.toNanos(39),
+				within(TimeUnit.MILLISECONDS.toNanos(39) * 0.005));
+		assertThat(aggregator.size()).isEqualTo(2);
+		assertThat(aggregator.getEmittedSummaries()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testLateSamplesAreDropped() {
+		sample(INSTALLATION_ID, 2 * WINDOW_NANOS, 1000L);
+		sample(INSTALLATION_ID, WINDOW_NANOS, 1000L);
+		assertThat(aggregator.getLateSamples()).isEqualTo(1L);
+		assertThat(summaries).isEmpty();
+	}
+
+	@Test
+	public void testWindowsWrapAtMidnight() {
+		long lastWindow = TixCoreUtils.NANOS_PER_DAY - WINDOW_NANOS;
+		sample(INSTALLATION_ID, lastWindow + 1, TixCoreUtils.NANOS_PER_DAY);
+		sample(INSTALLATION_ID, TixCoreUtils.NANOS_PER_DAY - 1, 1000L);
+		sample(INSTALLATION_ID, 1L, 1000L);
+		assertThat(aggregator.getLateSamples()).isZero();
+		assertThat(summaries).hasSize(1);
+		assertThat(summaries.get(0).getWindowStart()).isEqualTo(lastWindow);
+		assertThat(summaries.get(0).getSamples()).isEqualTo(2L);
+		assertThat(summaries.get(0).getMaxRtt()).isLessThan(TixCoreUtils.NANOS_PER_DAY);
+	}
+
+	@Test
+	public void testExpireAndFlush() {
+		sample(INSTALLATION_ID, 0L, 1000L);
+		clock.addAndGet(WINDOW_NANOS);
+		sample(OTHER_INSTALLATION_ID, 0L, 1000L);
+		clock.addAndGet(WINDOW_NANOS);
+		assertThat(aggregator.expire()).isEqualTo(1);
+		assertThat(summaries).hasSize(1);
+		assertThat(summaries.get(0).getInstallationId()).isEqualTo(INSTALLATION_ID);
+		assertThat(aggregator.flush()).isEqualTo(1);
+		assertThat(summaries).hasSize(2);
+		assertThat(summaries.get(1).getInstallationId()).isEqualTo(OTHER_INSTALLATION_ID);
+		assertThat(aggregator.size()).isZero();
+	}
+}
@@ -0,0 +1,199 @@
+package com.github.tix_measurements.time.core.archive;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixArchiveTest {
+	private static final long INSTALLATION_ID = 1L;
+	private static final long OTHER_INSTALLATION_ID = 2L;
+	private static final long EPOCH_DAY = 17500L;
+	private static final long PERIOD = TimeUnit.SECONDS.toNanos(1);
+	private static final int BLOCK_SAMPLES = 64;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path path;
+	private List<long[]> read;
+
+	@Before
+	public void setup() throws IOException {
+		path = folder.newFile("samples.tixa").toPath();
+		read = new ArrayList<>();
+	}
+
+	private static long epochNanos(long epochDay, long nanosOfDay) {
+		return epochDay * TixCoreUtils.NANOS_PER_DAY + nanosOfDay;
+	}
+
+	/**
+	 * Generates {@code count} samples a second apart starting at {@code start}, as day and timestamps, with jittery
+	 * delays and every tenth probe lost.
+	 */
+	private static List<long[]> samples(long start, int count, long seed) {
+		Random random = new Random(seed);
+		List<long[]> samples = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			long time = start + i * PERIOD + random.nextInt(1000);
+			long initial = Math.floorMod(time, TixCoreUtils.NANOS_PER_DAY);
+			long reception = (initial + 5_000_000L + random.nextInt(200_000)) % TixCoreUtils.NANOS_PER_DAY;
+			long sent = (reception + 20_000L + random.nextInt(1000)) % TixCoreUtils.NANOS_PER_DAY;
+			long last = i % 10 == 9 ? 0 : (sent + 5_000_000L + random.nextInt(200_000)) % TixCoreUtils.NANOS_PER_DAY;
+			samples.add(new long[]{Math.floorDiv(time, TixCoreUtils.NANOS_PER_DAY), initial, reception, sent, last});
+		}
+		return samples;
+	}
+
+	private void write(long installationId, List<long[]> samples, TixArchiveWriter writer) throws IOException {
+		for (long[] sample : samples) {
+			writer.append(installationId, sample[0], sample[1], sample[2], sample[3], sample[4]);
+		}
+	}
+
+	private long read(TixArchiveReader reader, long installationId, long from, long to) throws IOException {
+		return reader.read(installationId, from, to, (id, initial, reception, sent, last) -> {
+			assertThat(id).isEqualTo(installationId);
+			read.add(new long[]{initial, reception, sent, last});
+		});
+	}
+
+	private static void assertSamples(List<long[]> actual, List<long[]> expected) {
+		assertThat(actual).hasSize(expected.size());
+		for (int i = 0; i < expected.size(); i++) {
+			long[] sample = expected.get(i);
+			assertThat(actual.get(i)).containsExactly(sample[1], sample[2], sample[3], sample[4]);
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		// crosses midnight, so the initial timestamps wrap while the times since the epoch keep growing
+		List<long[]> samples = samples(epochNanos(EPOCH_DAY, TixCoreUtils.NANOS_PER_DAY - 100 * PERIOD), 1000, 1L);
+		try (TixArchiveWriter writer = new TixArchiveWriter(path, BLOCK_SAMPLES)) {
+			write(INSTALLATION_ID, samples, writer);
+			assertThat(writer.getSamples()).isEqualTo(samples.size());
+		}
+		try (TixArchiveReader reader = new TixArchiveReader(path)) {
+			assertThat(reader.getBlocks()).isEqualTo((samples.size() + BLOCK_SAMPLES - 1) / BLOCK_SAMPLES);
+			assertThat(read(reader, INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(samples.size());
+			assertThat(read(reader, OTHER_INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE)).isZero();
+		}
+		assertSamples(read, samples);
+	}
+
+	@Test
+	public void testIrregularSamples() throws IOException {
+		Random random = new Random(2L);
+		List<long[]> samples = new ArrayList<>();
+		long time = epochNanos(EPOCH_DAY, 0);
+		for (int i = 0; i < 500; i++) {
+			time += random.nextInt(4) == 0 ? TimeUnit.HOURS.toNanos(random.nextInt(48)) : random.nextInt(1 << 20);
+			long initial = Math.floorMod(time, TixCoreUtils.NANOS_PER_DAY);
+			samples.add(new long[]{Math.floorDiv(time, TixCoreUtils.NANOS_PER_DAY), initial,
+					Math.floorMod(random.nextLong(), TixCoreUtils.NANOS_PER_DAY),
+					Math.floorMod(random.nextLong(), TixCoreUtils.NANOS_PER_DAY), random.nextBoolean() ? 0 : initial});
+		}
+		try (TixArchiveWriter writer = new TixArchiveWriter(path, BLOCK_SAMPLES)) {
+			write(INSTALLATION_ID, samples, writer);
+		}
+		try (TixArchiveReader reader = new TixArchiveReader(path)) {
+			read(reader, INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+		assertSamples(read, samples);
+	}
+
+	@Test
+	public void testTimeRange() throws IOException {
+		long start = epochNanos(EPOCH_DAY, TimeUnit.HOURS.toNanos(12));
+		List<long[]> samples = samples(start, 10 * BLOCK_SAMPLES, 3L);
+		try (TixArchiveWriter writer = new TixArchiveWriter(path, BLOCK_SAMPLES)) {
+			write(INSTALLATION_ID, samples, writer);
+		}
+		// the samples of the fourth and fifth blocks, the ones the range overlaps
+		long from = start + 3 * BLOCK_SAMPLES * PERIOD;
+		long to = start + 5 * BLOCK_SAMPLES * PERIOD;
+		try (TixArchiveReader reader = new TixArchiveReader(path)) {
+			assertThat(read(reader, INSTALLATION_ID, from, to)).isEqualTo(2 * BLOCK_SAMPLES);
+			assertThat(reader.getDecodedBlocks()).isEqualTo(2);
+			assertThat(read(reader, INSTALLATION_ID, to + TixCoreUtils.NANOS_PER_DAY, Long.MAX_VALUE)).isZero();
+			assertThat(reader.getDecodedBlocks()).isEqualTo(2);
+		}
+		assertSamples(read, samples.subList(3 * BLOCK_SAMPLES, 5 * BLOCK_SAMPLES));
+	}
+
+	@Test
+	public void testInstallations() throws IOException {
+		long start = epochNanos(EPOCH_DAY, 0);
+		List<long[]> samples = samples(start, 300, 4L);
+		List<long[]> otherSamples = samples(start, 300, 5L);
+		try (TixArchiveWriter writer = new TixArchiveWriter(path, BLOCK_SAMPLES)) {
+			for (int i = 0; i < samples.size(); i++) {
+				write(INSTALLATION_ID, samples.subList(i, i + 1), writer);
+				write(OTHER_INSTALLATION_ID, otherSamples.subList(i, i + 1), writer);
+			}
+		}
+		try (TixArchiveReader reader = new TixArchiveReader(path)) {
+			read(reader, OTHER_INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+			assertSamples(read, otherSamples);
+			read.clear();
+			read(reader, INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE);
+			assertSamples(read, samples);
+		}
+	}
+
+	@Test
+	public void testCompression() throws IOException {
+		List<long[]> samples = samples(epochNanos(EPOCH_DAY, 0), 100_000, 6L);
+		try (TixArchiveWriter writer = new TixArchiveWriter(path)) {
+			write(INSTALLATION_ID, samples, writer);
+		}
+		// raw, the four timestamps and the day take 40 bytes
+		assertThat((double) Files.size(path) / samples.size()).isLessThan(16.0);
+	}
+
+	@Test
+	public void testMalformedArchive() throws IOException {
+		try (TixArchiveWriter writer = new TixArchiveWriter(path, BLOCK_SAMPLES)) {
+			write(INSTALLATION_ID, samples(epochNanos(EPOCH_DAY, 0), 100, 7L), writer);
+		}
+		byte[] bytes = Files.readAllBytes(path);
+		Path truncated = folder.newFile("truncated.tixa").toPath();
+		Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TixArchiveReader(truncated));
+		Path empty = folder.newFile("empty.tixa").toPath();
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TixArchiveReader(empty));
+		// a block whose header does not match its index entry
+		bytes[TixArchiveWriter.HEADER_BYTES + 3 * Long.BYTES + Integer.BYTES + 3]++;
+		Path corrupted = folder.newFile("corrupted.tixa").toPath();
+		Files.write(corrupted, bytes);
+		try (TixArchiveReader reader = new TixArchiveReader(corrupted)) {
+			assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+					read(reader, INSTALLATION_ID, Long.MIN_VALUE, Long.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testAppendAfterClose() throws IOException {
+		TixArchiveWriter writer = new TixArchiveWriter(path);
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() ->
+				writer.append(INSTALLATION_ID, EPOCH_DAY, TixCoreUtils.NANOS_PER_DAY, 0, 0, 0));
+		writer.close();
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() ->
+				writer.append(INSTALLATION_ID, EPOCH_DAY, 0, 0, 0, 0));
+	}
+}
@@ -0,0 +1,149 @@
+package com.github.tix_measurements.time.core.client;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.codec.TixReassemblyBuffer;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixDatagramClientTest {
+
+	private DatagramChannel server;
+	private InetSocketAddress serverAddress;
+	private TixDatagramClient client;
+
+	@Before
+	public void setUp() throws Exception {
+		server = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		serverAddress = (InetSocketAddress) server.getLocalAddress();
+		client = new TixDatagramClient(serverAddress);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		client.close();
+		server.close();
+	}
+
+	private void echo() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(TixPacketType.LONG.getSize());
+		SocketAddress sender = server.receive(buffer);
+		buffer.flip();
+		TixPacket packet = TixPacketCodec.decode(buffer, (InetSocketAddress) sender, serverAddress);
+		assertThat(packet).isNotNull();
+		packet.setReceptionTimestamp(packet.getInitialTimestamp() + 1);
+		packet.setSentTimestamp(packet.getInitialTimestamp() + 2);
+		buffer.clear();
+		TixPacketCodec.encode(packet, buffer);
+		buffer.flip();
+		server.send(buffer, sender);
+	}
+
+	@Test
+	public void testEcho() throws Exception {
+		for (TixPacketType type : TixPacketType.values()) {
+			long initialTimestamp = TixCoreUtils.NANOS_OF_DAY.get();
+			client.send(new TixPacket(client.getLocalAddress(), serverAddress, type, initialTimestamp));
+			echo();
+			TixPacket echoed = client.receive();
+			assertThat(echoed.getType()).isEqualTo(type);
+			assertThat(echoed.getFrom()).isEqualTo(serverAddress);
+			assertThat(echoed.getTo()).isEqualTo(client.getLocalAddress());
+			assertThat(echoed.getInitialTimestamp()).isEqualTo(initialTimestamp);
+			assertThat(echoed.getReceptionTimestamp()).isEqualTo(initialTimestamp + 1);
+			assertThat(echoed.getSentTimestamp()).isEqualTo(initialTimestamp + 2);
+		}
+	}
+
+	@Test
+	public void testSkipsMalformedDatagrams() throws Exception {
+		server.send(ByteBuffer.allocate(TixPacketType.SHORT.getSize() + 1), client.getLocalAddress());
+		server.send(ByteBuffer.allocate(TixPacketType.LONG.getSize() + 1), client.getLocalAddress());
+		client.send(new TixPacket(client.getLocalAddress(), serverAddress, TixPacketType.SHORT, 1L));
+		echo();
+		assertThat(client.receive().getInitialTimestamp()).isEqualTo(1L);
+		assertThat(client.getMalformedPackets()).isEqualTo(2);
+	}
+
+	@Test
+	public void testFragmentedEcho() throws Exception {
+		int maxDatagramBytes = TixFragmentCodec.DEFAULT_MAX_DATAGRAM_BYTES;
+		try (TixDatagramClient splitting = new TixDatagramClient(DatagramChannel.open().connect(serverAddress),
+				maxDatagramBytes)) {
+			long initialTimestamp = TixCoreUtils.NANOS_OF_DAY.get();
+			splitting.send(new TixPacket(splitting.getLocalAddress(), serverAddress, TixPacketType.LONG,
+					initialTimestamp));
+			TixReassemblyBuffer reassemblyBuffer = new TixReassemblyBuffer();
+			ByteBuffer datagram = ByteBuffer.allocate(TixPacketType.LONG.getSize());
+			ByteBuffer packet = null;
+			SocketAddress sender = null;
+			while (packet == null) {
+				datagram.clear();
+				sender = server.receive(datagram);
+				datagram.flip();
+				assertThat(datagram.remaining()).isLessThanOrEqualTo(maxDatagramBytes);
+				packet = reassemblyBuffer.offer((InetSocketAddress) sender, datagram);
+			}
+			assertThat(reassemblyBuffer.getReassembledPackets()).isEqualTo(1);
+			TixPacket received = TixPacketCodec.decode(packet, (InetSocketAddress) sender, serverAddress);
+			assertThat(received.getInitialTimestamp()).isEqualTo(initialTimestamp);
+			received.setReceptionTimestamp(initialTimestamp + 1);
+			received.setSentTimestamp(initialTimestamp + 2);
+			packet.clear();
+			TixPacketCodec.encode(received, packet);
+			packet.flip();
+			// echoed split the other way round, so it is reassembled out of order
+			for (int i = TixFragmentCodec.fragmentCount(packet.remaining(), maxDatagramBytes) - 1; i >= 0; i--) {
+				datagram.clear();
+				TixFragmentCodec.encode(packet, 1, i, maxDatagramBytes, datagram);
+				datagram.flip();
+				server.send(datagram, sender);
+			}
+			TixPacket echoed = splitting.receive();
+			assertThat(echoed.getType()).isEqualTo(TixPacketType.LONG);
+			assertThat(echoed.getSentTimestamp()).isEqualTo(initialTimestamp + 2);
+			assertThat(splitting.getMalformedPackets()).isZero();
+		}
+	}
+
+	@Test
+	public void testCloseUnblocksReceive() throws Exception {
+		CompletableFuture<TixPacket> received = CompletableFuture.supplyAsync(() -> {
+			try {
+				return client.receive();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		Thread.sleep(100L);
+		client.close();
+		assertThatExceptionOfType(ExecutionException.class)
+				.isThrownBy(() -> received.get(5, TimeUnit.SECONDS))
+				.withRootCauseInstanceOf(AsynchronousCloseException.class);
+	}
+
+	@Test
+	public void testNullArguments() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixDatagramClient((InetSocketAddress) null));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixDatagramClient((DatagramChannel) null));
+	}
+}
@@ -0,0 +1,118 @@
+package com.github.tix_measurements.time.core.client;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixProbeSchedulerTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final long INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private AtomicLong clock;
+	private List<Long> parks;
+	private List<TixPacket> sent;
+	private List<Long> sentAt;
+	private TixProbeScheduler scheduler;
+
+	private final LongFunction<TixPacket> probeFactory = sequence ->
+			new TixPacket(FROM, TO, sequence % 10 == 9 ? TixPacketType.LONG : TixPacketType.SHORT, sequence);
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong(1000L);
+		parks = new ArrayList<>();
+		sent = new ArrayList<>();
+		sentAt = new ArrayList<>();
+		scheduler = new TixProbeScheduler(probe -> {
+			sent.add(probe);
+			sentAt.add(clock.get());
+		}, INTERVAL_NANOS, TimeUnit.NANOSECONDS, SPIN_NANOS, probeFactory, () -> clock.getAndAdd(10L), nanos -> {
+			parks.add(nanos);
+			clock.addAndGet(nanos);
+		});
+		scheduler.startManually(clock.get());
+	}
+
+	@Test
+	public void testConstructor() {
+		Consumer<TixPacket> sender = sent::add;
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeScheduler(null, 1L, TimeUnit.SECONDS, probeFactory));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeScheduler(sender, 0L, TimeUnit.SECONDS, probeFactory));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeScheduler(sender, 1L, null, probeFactory));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeScheduler(sender, 1L, TimeUnit.SECONDS, -1L, probeFactory));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeScheduler(sender, 1L, TimeUnit.SECONDS, null));
+	}
+
+	@Test
+	public void testProbesArePacedAtAbsoluteDeadlines() {
+		for (int i = 0; i < 100; i++) {
+			scheduler.step();
+		}
+		assertThat(sent).hasSize(100);
+		for (int i = 0; i < 100; i++) {
+			assertThat(sent.get(i).getInitialTimestamp()).isEqualTo(i);
+			// The lag of each probe never accumulates over the following ones
+			assertThat(sentAt.get(i) - (1000L + i * INTERVAL_NANOS)).isBetween(0L, SPIN_NANOS);
+		}
+		assertThat(sent.get(9).getType()).isEqualTo(TixPacketType.LONG);
+		// The thread parks until the spin threshold and then spins
+		assertThat(parks).isNotEmpty();
+		for (long nanos : parks) {
+			assertThat(nanos).isLessThanOrEqualTo(INTERVAL_NANOS - SPIN_NANOS);
+		}
+		assertThat(scheduler.getSentProbes()).isEqualTo(100L);
+		assertThat(scheduler.getSkippedProbes()).isZero();
+		assertThat(scheduler.getMaxLagNanos()).isLessThan(SPIN_NANOS);
+		assertThat(scheduler.getMeanLagNanos()).isLessThanOrEqualTo(scheduler.getMaxLagNanos());
+	}
+
+	@Test
+	public void testLateProbesAreSkippedInsteadOfBunched() {
+		scheduler.step();
+		clock.addAndGet(3 * INTERVAL_NANOS + INTERVAL_NANOS / 2);
+		scheduler.step();
+		scheduler.step();
+		assertThat(sent).extracting(TixPacket::getInitialTimestamp).containsExactly(0L, 3L, 4L);
+		assertThat(scheduler.getSkippedProbes()).isEqualTo(2L);
+		assertThat(sentAt.get(2) - sentAt.get(1)).isGreaterThan(INTERVAL_NANOS / 4);
+		assertThat(scheduler.getMaxLagNanos()).isGreaterThanOrEqualTo(INTERVAL_NANOS / 2);
+	}
+
+	@Test
+	public void testStartAndStop() throws InterruptedException {
+		List<TixPacket> probes = new ArrayList<>();
+		TixProbeScheduler realScheduler = new TixProbeScheduler(probe -> {
+			synchronized (probes) {
+				probes.add(probe);
+			}
+		}, 1L, TimeUnit.MILLISECONDS, SPIN_NANOS, probeFactory, System::nanoTime, LockSupport::parkNanos);
+		realScheduler.start();
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(realScheduler::start);
+		Thread.sleep(50L);
+		realScheduler.stop();
+		long count = realScheduler.getSentProbes();
+		assertThat(count).isPositive();
+		Thread.sleep(10L);
+		assertThat(realScheduler.getSentProbes()).isEqualTo(count);
+	}
+}
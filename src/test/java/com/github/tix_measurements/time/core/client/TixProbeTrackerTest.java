@@ -0,0 +1,143 @@
+package com.github.tix_measurements.time.core.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixProbeTrackerTest {
+	private static final int CAPACITY = 8;
+	private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private AtomicLong clock;
+	private List<long[]> completed;
+	private List<Long> lost;
+	private TixProbeTracker tracker;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		completed = new ArrayList<>();
+		lost = new ArrayList<>();
+		tracker = new TixProbeTracker(CAPACITY, TIMEOUT_NANOS, TimeUnit.NANOSECONDS,
+				new TixProbeTracker.ProbeListener() {
+					@Override
+					public void completed(long initial, long reception, long sent, long last) {
+						completed.add(new long[]{initial, reception, sent, last});
+					}
+
+					@Override
+					public void lost(long initialTimestamp) {
+						lost.add(initialTimestamp);
+					}
+				}, clock::get);
+	}
+
+	@Test
+	public void testConstructor() {
+		TixProbeTracker.ProbeListener listener = new TixProbeTracker.ProbeListener() {
+			@Override
+			public void completed(long initial, long reception, long sent, long last) { }
+
+			@Override
+			public void lost(long initialTimestamp) { }
+		};
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeTracker(0, 1L, TimeUnit.SECONDS, listener));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeTracker(1, 0L, TimeUnit.SECONDS, listener));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeTracker(1, 1L, null, listener));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixProbeTracker(1, 1L, TimeUnit.SECONDS, null));
+	}
+
+	@Test
+	public void testEchoesCompleteTheirProbes() {
+		assertThat(tracker.sent(100L)).isTrue();
+		assertThat(tracker.sent(200L)).isTrue();
+		assertThat(tracker.sent(200L)).isFalse();
+		assertThat(tracker.pending()).isEqualTo(2);
+		assertThat(tracker.received(200L, 201L, 202L, 203L)).isTrue();
+		assertThat(tracker.received(200L, 201L, 202L, 203L)).isFalse();
+		assertThat(tracker.received(300L, 301L, 302L, 303L)).isFalse();
+		assertThat(completed).containsExactly(new long[]{200L, 201L, 202L, 203L});
+		assertThat(tracker.pending()).isEqualTo(1);
+		assertThat(tracker.getCompletedProbes()).isEqualTo(1L);
+		assertThat(tracker.getUnmatchedEchoes()).isEqualTo(2L);
+	}
+
+	@Test
+	public void testProbesWithoutEchoAreLost() {
+		tracker.sent(100L);
+		clock.addAndGet(TIMEOUT_NANOS / 2);
+		tracker.sent(200L);
+		tracker.received(200L, 201L, 202L, 203L);
+		tracker.sent(300L);
+		assertThat(tracker.expire()).isZero();
+		clock.addAndGet(TIMEOUT_NANOS / 2);
+		assertThat(tracker.expire()).isEqualTo(1);
+		assertThat(lost).containsExactly(100L);
+		assertThat(tracker.received(100L, 101L, 102L, 103L)).isFalse();
+		clock.addAndGet(TIMEOUT_NANOS);
+		assertThat(tracker.expire()).isEqualTo(1);
+		assertThat(lost).containsExactly(100L, 300L);
+		assertThat(tracker.pending()).isZero();
+		assertThat(tracker.getLostProbes()).isEqualTo(2L);
+	}
+
+	@Test
+	public void testOldestProbeIsLostWhenFull() {
+		for (long i = 1; i <= CAPACITY; i++) {
+			tracker.sent(i);
+		}
+		tracker.received(1L, 1L, 1L, 1L);
+		tracker.sent(CAPACITY + 1);
+		assertThat(lost).isEmpty();
+		tracker.sent(CAPACITY + 2);
+		assertThat(lost).containsExactly(2L);
+		assertThat(tracker.pending()).isEqualTo(CAPACITY);
+	}
+
+	@Test
+	public void testCompletedProbesDoNotTakeRoom() {
+		for (long i = 1; i <= CAPACITY; i++) {
+			tracker.sent(i);
+		}
+		for (long i = 2; i <= CAPACITY; i++) {
+			tracker.received(i, i, i, i);
+		}
+		tracker.sent(CAPACITY + 1);
+		assertThat(lost).isEmpty();
+		assertThat(tracker.pending()).isEqualTo(2);
+		// the oldest probe stays pending while the later ones complete out of order
+		for (long i = CAPACITY + 2; i <= 10 * CAPACITY; i++) {
+			tracker.sent(i);
+			assertThat(tracker.received(i - 1, 1L, 2L, 3L)).isTrue();
+		}
+		assertThat(lost).isEmpty();
+		assertThat(tracker.received(1L, 1L, 2L, 3L)).isTrue();
+		assertThat(tracker.received(10 * CAPACITY, 1L, 2L, 3L)).isTrue();
+		assertThat(tracker.pending()).isZero();
+	}
+
+	@Test
+	public void testManyProbes() {
+		for (long i = 0; i < 100000; i++) {
+			clock.addAndGet(TIMEOUT_NANOS / 4);
+			tracker.sent(i * 1000L);
+			if (i % 3 != 0) {
+				assertThat(tracker.received(i * 1000L, 1L, 2L, 3L)).isTrue();
+			}
+		}
+		tracker.expire();
+		assertThat(completed).hasSize(66666);
+		assertThat(lost.size() + tracker.pending()).isEqualTo(33334);
+	}
+}
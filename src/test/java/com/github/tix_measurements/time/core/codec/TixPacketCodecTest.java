@@ -0,0 +1,144 @@
+package com.github.tix_measurements.time.core.codec;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixDataPacketTest;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixPacketCodecTest {
+
+	private InetSocketAddress from;
+	private InetSocketAddress to;
+	private KeyPair keyPair;
+	private byte[] message;
+
+	@Before
+	public void setUp() throws Exception {
+		from = InetSocketAddress.createUnresolved("localhost", 4500);
+		to = InetSocketAddress.createUnresolved("localhost", 4501);
+		keyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+		message = TixDataPacketTest.generateMessage();
+	}
+
+	private ByteBuffer encode(TixPacket packet) {
+		ByteBuffer buffer = ByteBuffer.allocate(TixPacketType.LONG.getSize());
+		TixPacketCodec.encode(packet, buffer);
+		buffer.flip();
+		return buffer;
+	}
+
+	private void testRoundTrip(TixPacket packet) {
+		packet.setReceptionTimestamp(packet.getInitialTimestamp() + 1);
+		packet.setSentTimestamp(packet.getInitialTimestamp() + 2);
+		packet.setFinalTimestamp(packet.getInitialTimestamp() + 3);
+		ByteBuffer buffer = encode(packet);
+		assertThat(buffer.remaining()).isEqualTo(packet.getType().getSize());
+		TixPacket decoded = TixPacketCodec.decode(buffer, from, to);
+		assertThat(decoded).isNotSameAs(packet).isEqualTo(packet);
+		assertThat(buffer.hasRemaining()).isFalse();
+	}
+
+	@Test
+	public void testShortPacket() {
+		testRoundTrip(new TixPacket(from, to, TixPacketType.SHORT, TixCoreUtils.NANOS_OF_DAY.get()));
+	}
+
+	@Test
+	public void testLongPacket() {
+		testRoundTrip(new TixPacket(from, to, TixPacketType.LONG, TixCoreUtils.NANOS_OF_DAY.get()));
+	}
+
+	@Test
+	public void testDataPacket() {
+		testRoundTrip(new TixDataPacket(from, to, TixCoreUtils.NANOS_OF_DAY.get(), 1L, 1L,
+				keyPair.getPublic().getEncoded(), message, TixCoreUtils.sign(message, keyPair)));
+	}
+
+	@Test
+	public void testCompressedDataPacket() {
+		byte[] compressedMessage = TixCoreUtils.COMPRESSOR.apply(message);
+		TixDataPacket packet = TixDataPacket.compressed(from, to, TixCoreUtils.NANOS_OF_DAY.get(), 1L, 1L,
+				keyPair.getPublic().getEncoded(), compressedMessage, TixCoreUtils.sign(compressedMessage, keyPair));
+		ByteBuffer buffer = encode(packet);
+		assertThat(TixPacketCodec.isCompressedDataPacket(buffer)).isTrue();
+		testRoundTrip(packet);
+	}
+
+	@Test
+	public void testDecodeRelativeToPosition() {
+		TixPacket packet = new TixPacket(from, to, TixPacketType.SHORT, TixCoreUtils.NANOS_OF_DAY.get());
+		ByteBuffer buffer = ByteBuffer.allocate(TixPacketType.SHORT.getSize() + 8);
+		buffer.position(8);
+		TixPacketCodec.encode(packet, buffer);
+		buffer.flip().position(8);
+		assertThat(TixPacketCodec.decode(buffer, from, to)).isEqualTo(packet);
+	}
+
+	@Test
+	public void testMalformedPayloads() {
+		assertThat(TixPacketCodec.decode(ByteBuffer.allocate(TixPacketType.SHORT.getSize() - 1), from, to)).isNull();
+		assertThat(TixPacketCodec.decode(ByteBuffer.allocate(TixPacketType.LONG.getSize() + 1), from, to)).isNull();
+		ByteBuffer negative = ByteBuffer.allocate(TixPacketType.SHORT.getSize());
+		negative.putLong(0, -1L);
+		assertThat(TixPacketCodec.decode(negative, from, to)).isNull();
+		assertThat(negative.position()).isZero();
+		ByteBuffer truncated = encode(new TixDataPacket(from, to, TixCoreUtils.NANOS_OF_DAY.get(), 1L, 1L,
+				keyPair.getPublic().getEncoded(), message, TixCoreUtils.sign(message, keyPair)));
+		truncated.put(TixPacketCodec.MESSAGE_OFFSET - 1, (byte) 0);
+		assertThat(TixPacketCodec.decode(truncated, from, to)).isNull();
+	}
+
+	@Test
+	public void testJunkMessage() {
+		for (byte junk : new byte[]{'!', '=', (byte) 0xE9}) {
+			ByteBuffer payload = encode(new TixDataPacket(from, to, TixCoreUtils.NANOS_OF_DAY.get(), 1L, 1L,
+					keyPair.getPublic().getEncoded(), message, TixCoreUtils.sign(message, keyPair)));
+			payload.put(TixPacketCodec.MESSAGE_OFFSET + 1, junk);
+			assertThat(TixPacketCodec.isWellFormed(payload)).isTrue();
+			TixDataPacket decoded = (TixDataPacket) TixPacketCodec.decode(payload, from, to);
+			assertThat(decoded).isNotNull();
+			assertThatExceptionOfType(IllegalStateException.class).isThrownBy(decoded::getMessage);
+			assertThatExceptionOfType(IllegalStateException.class).isThrownBy(decoded::isValid);
+		}
+	}
+
+	@Test
+	public void testMessageEndIndex() {
+		ByteBuffer payload = ByteBuffer.allocate(TixPacketType.LONG.getSize());
+		int start = TixPacketCodec.MESSAGE_OFFSET;
+		for (int i = start; i < payload.limit(); i++) {
+			payload.put(i, (byte) 'A');
+		}
+		assertThat(TixPacketCodec.messageEndIndex(payload)).isEqualTo(-1);
+		// a delimiter at every position of a word and in the bytes left after the last whole word
+		for (int end = start; end < payload.limit(); end++) {
+			payload.put(end, (byte) ';');
+			assertThat(TixPacketCodec.messageEndIndex(payload)).isEqualTo(end);
+			payload.put(end, (byte) 'A');
+		}
+		payload.put(start + 20, (byte) ';');
+		payload.put(start + 11, (byte) ';');
+		assertThat(TixPacketCodec.messageEndIndex(payload)).isEqualTo(start + 11);
+		payload.position(12);
+		assertThat(TixPacketCodec.messageEndIndex(payload)).isEqualTo(start + 20);
+	}
+
+	@Test
+	public void testOversizedDataPacket() {
+		byte[] largeMessage = new byte[TixPacketType.LONG.getSize()];
+		TixDataPacket packet = new TixDataPacket(from, to, TixCoreUtils.NANOS_OF_DAY.get(), 1L, 1L,
+				keyPair.getPublic().getEncoded(), largeMessage, TixCoreUtils.sign(largeMessage, keyPair));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixPacketCodec.encode(packet, ByteBuffer.allocate(TixPacketType.LONG.getSize())));
+	}
+}
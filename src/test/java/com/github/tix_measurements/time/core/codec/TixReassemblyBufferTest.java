@@ -0,0 +1,215 @@
+package com.github.tix_measurements.time.core.codec;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixReassemblyBufferTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress OTHER = InetSocketAddress.createUnresolved("localhost", 4502);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final int MAX_DATAGRAM_BYTES = TixFragmentCodec.DEFAULT_MAX_DATAGRAM_BYTES;
+
+	private AtomicLong clock;
+	private TixReassemblyBuffer buffer;
+
+	@Before
+	public void setUp() {
+		clock = new AtomicLong();
+		buffer = new TixReassemblyBuffer(2, 2, 1, TimeUnit.SECONDS, clock::get);
+	}
+
+	private static ByteBuffer encode(long initialTimestamp) {
+		ByteBuffer packet = ByteBuffer.allocate(TixPacketType.LONG.getSize());
+		TixPacketCodec.encode(new TixPacket(FROM, TO, TixPacketType.LONG, initialTimestamp), packet);
+		packet.flip();
+		return packet;
+	}
+
+	private static ByteBuffer[] split(ByteBuffer packet, int packetId) {
+		ByteBuffer[] fragments = new ByteBuffer[TixFragmentCodec.fragmentCount(packet.remaining(), MAX_DATAGRAM_BYTES)];
+		for (int i = 0; i < fragments.length; i++) {
+			fragments[i] = ByteBuffer.allocate(MAX_DATAGRAM_BYTES);
+			TixFragmentCodec.encode(packet, packetId, i, MAX_DATAGRAM_BYTES, fragments[i]);
+			fragments[i].flip();
+		}
+		return fragments;
+	}
+
+	@Test
+	public void testFragments() {
+		ByteBuffer packet = encode(1_000L);
+		ByteBuffer[] fragments = split(packet, 7);
+		assertThat(fragments).hasSize(4);
+		for (ByteBuffer fragment : fragments) {
+			assertThat(fragment.remaining()).isLessThanOrEqualTo(MAX_DATAGRAM_BYTES);
+			assertThat(TixFragmentCodec.isWellFormed(fragment)).isTrue();
+			assertThat(TixFragmentCodec.packetId(fragment)).isEqualTo(7);
+			assertThat(TixFragmentCodec.packetLength(fragment)).isEqualTo(TixPacketType.LONG.getSize());
+			assertThat(TixFragmentCodec.count(fragment)).isEqualTo(4);
+			assertThat(TixPacketCodec.isWellFormed(fragment)).isFalse();
+		}
+		assertThat(packet.position()).isZero();
+		assertThat(TixFragmentCodec.isFragment(packet)).isFalse();
+		assertThat(TixFragmentCodec.fragmentCount(TixPacketType.LONG.getSize(), TixPacketType.LONG.getSize()
+				+ TixFragmentCodec.HEADER_BYTES)).isEqualTo(1);
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixFragmentCodec.fragmentCount(TixPacketType.LONG.getSize(),
+						TixFragmentCodec.MIN_DATAGRAM_BYTES - 1));
+	}
+
+	@Test
+	public void testReassemblesOutOfOrder() {
+		ByteBuffer packet = encode(1_000L);
+		ByteBuffer otherPacket = encode(2_000L);
+		ByteBuffer[] fragments = split(packet, 1);
+		ByteBuffer[] otherFragments = split(otherPacket, 1);
+		for (int i = fragments.length - 1; i > 0; i--) {
+			assertThat(buffer.offer(FROM, fragments[i])).isNull();
+			assertThat(buffer.offer(OTHER, otherFragments[i])).isNull();
+		}
+		assertThat(buffer.offer(FROM, fragments[1])).isNull();
+		assertThat(buffer.size()).isEqualTo(2);
+		ByteBuffer reassembled = buffer.offer(FROM, fragments[0]);
+		assertThat(reassembled).isEqualTo(packet);
+		assertThat(fragments[0].position()).isZero();
+		TixPacket decoded = TixPacketCodec.decode(reassembled, FROM, TO);
+		assertThat(decoded.getType()).isEqualTo(TixPacketType.LONG);
+		assertThat(decoded.getInitialTimestamp()).isEqualTo(1_000L);
+		assertThat(buffer.offer(OTHER, otherFragments[0])).isEqualTo(otherPacket);
+		assertThat(buffer.size()).isZero();
+		assertThat(buffer.getReassembledPackets()).isEqualTo(2);
+		assertThat(buffer.getEvictedPackets()).isZero();
+		assertThat(buffer.getMalformedFragments()).isZero();
+	}
+
+	@Test
+	public void testEvictsTimedOutPackets() {
+		ByteBuffer[] fragments = split(encode(1_000L), 1);
+		for (int i = 1; i < fragments.length; i++) {
+			assertThat(buffer.offer(FROM, fragments[i])).isNull();
+		}
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		buffer.expire();
+		assertThat(buffer.size()).isZero();
+		assertThat(buffer.getEvictedPackets()).isEqualTo(1);
+		// the late fragment starts the packet over
+		assertThat(buffer.offer(FROM, fragments[0])).isNull();
+		assertThat(buffer.size()).isEqualTo(1);
+	}
+
+	private static InetSocketAddress sender(int host) {
+		return InetSocketAddress.createUnresolved("host" + host, 4500);
+	}
+
+	@Test
+	public void testBounded() {
+		for (int id = 0; id < 3; id++) {
+			assertThat(buffer.offer(sender(id), split(encode(1_000L + id), id)[0])).isNull();
+			clock.incrementAndGet();
+		}
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.getEvictedPackets()).isEqualTo(1);
+		// the oldest packet was evicted, so its fragments start it over
+		ByteBuffer[] fragments = split(encode(1_000L), 0);
+		for (int i = 1; i < fragments.length; i++) {
+			assertThat(buffer.offer(sender(0), fragments[i])).isNull();
+		}
+		assertThat(buffer.getEvictedPackets()).isEqualTo(2);
+		assertThat(buffer.getRejectedPackets()).isZero();
+	}
+
+	@Test
+	public void testBoundedPerSender() {
+		buffer = new TixReassemblyBuffer(4, 2, 1, TimeUnit.SECONDS, clock::get);
+		ByteBuffer other = encode(3_000L);
+		ByteBuffer[] otherFragments = split(other, 0);
+		assertThat(buffer.offer(sender(1), otherFragments[0])).isNull();
+		// a sender starting packets from any of its ports can not evict the packets of the others
+		ByteBuffer packet = encode(1_000L);
+		ByteBuffer[] fragments = split(packet, 0);
+		assertThat(buffer.offer(FROM, fragments[0])).isNull();
+		for (int id = 1; id < 8; id++) {
+			assertThat(buffer.offer(id % 2 == 0 ? FROM : OTHER, split(encode(1_000L + id), id)[0])).isNull();
+		}
+		assertThat(buffer.size()).isEqualTo(3);
+		assertThat(buffer.getEvictedPackets()).isZero();
+		assertThat(buffer.getRejectedPackets()).isEqualTo(6);
+		for (int i = 1; i < otherFragments.length - 1; i++) {
+			assertThat(buffer.offer(sender(1), otherFragments[i])).isNull();
+		}
+		assertThat(buffer.offer(sender(1), otherFragments[otherFragments.length - 1])).isEqualTo(other);
+		assertThat(buffer.offer(OTHER, split(encode(1_008L), 8)[0])).isNull();
+		assertThat(buffer.getRejectedPackets()).isEqualTo(7);
+		// the sender can start new packets once its own complete or expire
+		for (int i = 1; i < fragments.length - 1; i++) {
+			assertThat(buffer.offer(FROM, fragments[i])).isNull();
+		}
+		assertThat(buffer.offer(FROM, fragments[fragments.length - 1])).isEqualTo(packet);
+		assertThat(buffer.offer(OTHER, split(encode(1_008L), 8)[0])).isNull();
+		assertThat(buffer.offer(OTHER, split(encode(1_009L), 9)[0])).isNull();
+		assertThat(buffer.getRejectedPackets()).isEqualTo(8);
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		buffer.expire();
+		assertThat(buffer.size()).isZero();
+		assertThat(buffer.offer(OTHER, split(encode(1_009L), 9)[0])).isNull();
+		assertThat(buffer.size()).isEqualTo(1);
+		assertThat(buffer.getRejectedPackets()).isEqualTo(8);
+	}
+
+	@Test
+	public void testMisalignedFragments() {
+		ByteBuffer packet = encode(1_000L);
+		ByteBuffer[] fragments = split(packet, 1);
+		int chunk = fragments[0].remaining() - TixFragmentCodec.HEADER_BYTES;
+		assertThat(buffer.offer(FROM, fragments[0])).isNull();
+		// a fragment overlapping the first one, at an offset that is not its index times the chunk
+		ByteBuffer overlapping = ByteBuffer.allocate(fragments[1].remaining());
+		overlapping.put(fragments[1].duplicate()).flip();
+		overlapping.putShort(TixFragmentCodec.HEADER_BYTES - 4, (short) (chunk / 2));
+		assertThat(buffer.offer(FROM, overlapping)).isNull();
+		// a shorter fragment that would leave a gap after it
+		ByteBuffer shorter = fragments[1].duplicate();
+		shorter.limit(shorter.limit() - 1);
+		assertThat(buffer.offer(FROM, shorter)).isNull();
+		// a last fragment that does not end the packet
+		ByteBuffer last = fragments[fragments.length - 1].duplicate();
+		last.limit(last.limit() - 1);
+		assertThat(buffer.offer(FROM, last)).isNull();
+		assertThat(buffer.getMalformedFragments()).isEqualTo(3);
+		for (int i = 1; i < fragments.length - 1; i++) {
+			assertThat(buffer.offer(FROM, fragments[i])).isNull();
+		}
+		assertThat(buffer.offer(FROM, fragments[fragments.length - 1])).isEqualTo(packet);
+	}
+
+	@Test
+	public void testMalformedFragments() {
+		ByteBuffer[] fragments = split(encode(1_000L), 1);
+		ByteBuffer truncated = fragments[0].duplicate();
+		truncated.limit(TixFragmentCodec.HEADER_BYTES);
+		assertThat(buffer.offer(FROM, truncated)).isNull();
+		assertThat(buffer.offer(FROM, encode(1_000L))).isNull();
+		assertThat(buffer.offer(FROM, fragments[0])).isNull();
+		ByteBuffer mismatched = split(encode(2_000L), 1)[1];
+		mismatched.put(TixFragmentCodec.HEADER_BYTES - 1, (byte) 5);
+		assertThat(buffer.offer(FROM, mismatched)).isNull();
+		assertThat(buffer.getMalformedFragments()).isEqualTo(3);
+		// duplicates are ignored
+		assertThat(buffer.offer(FROM, fragments[0])).isNull();
+		assertThat(buffer.getMalformedFragments()).isEqualTo(3);
+		for (int i = 1; i < fragments.length - 1; i++) {
+			assertThat(buffer.offer(FROM, fragments[i])).isNull();
+		}
+		assertThat(buffer.offer(FROM, fragments[fragments.length - 1])).isNotNull();
+	}
+}
@@ -209,4 +209,81 @@ public class TixDataPacketTest {
 		dataPacket.setSentTimestamp(SENT_TIMESTAMP);
 		assertThat(dataPacket).isEqualTo(other);
 	}
+
+	@Test
+	public void testCompressedMessageIsDecompressedLazily() throws InvalidKeyException, SignatureException {
+		byte[] compressedMessage = TixCoreUtils.COMPRESSOR.apply(MESSAGE);
+		byte[] compressedSignature = TixCoreUtils.sign(compressedMessage, KEY_PAIR);
+		TixDataPacket packet = TixDataPacket.compressed(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY,
+				compressedMessage, compressedSignature);
+		assertThat(packet.isCompressed()).isTrue();
+		assertThat(dataPacket.isCompressed()).isFalse();
+		assertThat(packet.getCompressedMessage()).isEqualTo(compressedMessage);
+		assertThat(packet.isValid()).isTrue();
+		assertThat(packet.getMessage()).isEqualTo(MESSAGE);
+		assertThat(packet.getMessage()).isSameAs(packet.getMessage());
+		assertThat(packet).isNotEqualTo(dataPacket);
+	}
+
+	@Test
+	public void testCorruptCompressedMessage() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixDataPacket.compressed(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY, new byte[0], SIGNATURE));
+		TixDataPacket packet = TixDataPacket.compressed(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY,
+				new byte[]{(byte) 0xFF, 0x01, 0x02}, SIGNATURE);
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(packet::getMessage);
+	}
+
+	private static byte[] encodedFields(byte[] encodedMessage) {
+		ByteBuffer buffer = ByteBuffer.allocate(PUBLIC_KEY.length + encodedMessage.length + SIGNATURE.length
+				+ 2 * TixDataPacket.DATA_DELIMITER.length());
+		buffer.put(PUBLIC_KEY).put(TixDataPacket.DATA_DELIMITER.getBytes())
+				.put(encodedMessage).put(TixDataPacket.DATA_DELIMITER.getBytes())
+				.put(SIGNATURE);
+		return buffer.array();
+	}
+
+	@Test
+	public void testEncodedFieldsAreDecodedLazily() {
+		byte[] encodedMessage = TixCoreUtils.ENCODER.apply(MESSAGE).getBytes();
+		TixDataPacket packet = TixDataPacket.encoded(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID,
+				encodedFields(encodedMessage), encodedMessage.length, false);
+		assertThat(packet.isCompressed()).isFalse();
+		assertThat(packet.getCompressedMessage()).isNull();
+		assertThat(packet.getPublicKey()).isEqualTo(PUBLIC_KEY).isSameAs(packet.getPublicKey());
+		assertThat(packet.getSignature()).isEqualTo(SIGNATURE).isSameAs(packet.getSignature());
+		assertThat(packet.getMessage()).isEqualTo(MESSAGE).isSameAs(packet.getMessage());
+		assertThat(packet.isValid()).isTrue();
+		assertThat(packet).isEqualTo(dataPacket);
+		assertThat(packet.hashCode()).isEqualTo(dataPacket.hashCode());
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixDataPacket.encoded(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID,
+						encodedFields(encodedMessage), encodedMessage.length + 1, false));
+	}
+
+	@Test
+	public void testMalformedEncodedMessageFailsOnAccess() {
+		byte[] encodedMessage = "not base 64!".getBytes();
+		TixDataPacket packet = TixDataPacket.encoded(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID,
+				encodedFields(encodedMessage), encodedMessage.length, true);
+		assertThat(packet.getPublicKey()).isEqualTo(PUBLIC_KEY);
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(packet::getCompressedMessage);
+		assertThatExceptionOfType(IllegalStateException.class).isThrownBy(packet::getMessage);
+	}
+
+	@Test
+	public void testEqualsComparesContent() throws InvalidKeyException, SignatureException, InterruptedException {
+		byte[] otherMessage = generateMessage();
+		byte[] otherSignature = TixCoreUtils.sign(otherMessage, KEY_PAIR);
+		TixDataPacket other = new TixDataPacket(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY, otherMessage, otherSignature);
+		assertThat(dataPacket).isNotEqualTo(other);
+		other = new TixDataPacket(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY, otherMessage, SIGNATURE);
+		assertThat(dataPacket).isNotEqualTo(other);
+		other = new TixDataPacket(FROM, TO, INITIAL_TIMESTAMP, USER_ID, INSTALLATION_ID, PUBLIC_KEY,
+				Arrays.copyOf(MESSAGE, MESSAGE.length), Arrays.copyOf(SIGNATURE, SIGNATURE.length));
+		assertThat(other.hashCode()).isEqualTo(dataPacket.hashCode());
+		assertThat(dataPacket).isEqualTo(other);
+		other = new TixDataPacket(FROM, TO, INITIAL_TIMESTAMP, USER_ID + 1, INSTALLATION_ID, PUBLIC_KEY, MESSAGE, SIGNATURE);
+		assertThat(dataPacket).isNotEqualTo(other);
+	}
 }
@@ -0,0 +1,44 @@
+package com.github.tix_measurements.time.core.data;
+
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixPacketKeyTest {
+
+	@Test
+	public void testEqualsAndHashCode() {
+		TixPacketKey key = new TixPacketKey(1L, 1000L);
+		assertThat(key).isEqualTo(key);
+		assertThat(key).isNotEqualTo(null);
+		assertThat(key).isNotEqualTo(new Object());
+		assertThat(key).isEqualTo(new TixPacketKey(1L, 1000L));
+		assertThat(key.hashCode()).isEqualTo(new TixPacketKey(1L, 1000L).hashCode());
+		assertThat(key).isNotEqualTo(new TixPacketKey(2L, 1000L));
+		assertThat(key).isNotEqualTo(new TixPacketKey(1L, 1001L));
+	}
+
+	@Test
+	public void testOf() {
+		InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 4500);
+		TixDataPacket packet = new TixDataPacket(address, address, 1000L, 2L, 3L, new byte[]{1}, new byte[]{2},
+				new byte[]{3});
+		TixPacketKey key = TixPacketKey.of(packet);
+		assertThat(key.getInstallationId()).isEqualTo(3L);
+		assertThat(key.getInitialTimestamp()).isEqualTo(1000L);
+		assertThat(key).isEqualTo(new TixPacketKey(3L, 1000L));
+	}
+
+	@Test
+	public void testHashCodeSpreadsConsecutiveTimestamps() {
+		Set<Integer> buckets = new HashSet<>();
+		for (long i = 0; i < 1024; i++) {
+			buckets.add(new TixPacketKey(1L, i * 1000000000L).hashCode() & 1023);
+		}
+		assertThat(buckets.size()).isGreaterThan(512);
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.tix_measurements.time.core.filter;
+
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixDeduplicationIndexTest {
+	private static final long USER_ID = 1L;
+	private static final long INSTALLATION_ID = 1L;
+	private static final long EXPIRATION_SECONDS = 60L;
+	private static final int CAPACITY = 1024;
+
+	private AtomicLong clock;
+	private TixDeduplicationIndex index;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		index = new TixDeduplicationIndex(CAPACITY, EXPIRATION_SECONDS, TimeUnit.SECONDS, clock::get);
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixDeduplicationIndex(0, EXPIRATION_SECONDS, TimeUnit.SECONDS));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixDeduplicationIndex(CAPACITY, 0, TimeUnit.SECONDS));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixDeduplicationIndex(CAPACITY, EXPIRATION_SECONDS, null));
+	}
+
+	@Test
+	public void testMarkIfAbsent() {
+		byte[] signature = RandomUtils.nextBytes(256);
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signature)).isFalse();
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signature)).isTrue();
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signature)).isTrue();
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signature.clone())).isFalse();
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDifferentIdsAreNotDuplicates() {
+		byte[] signature = RandomUtils.nextBytes(256);
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signature)).isTrue();
+		assertThat(index.markIfAbsent(USER_ID + 1, INSTALLATION_ID, signature)).isTrue();
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID + 1, signature)).isTrue();
+		byte[] otherSignature = signature.clone();
+		otherSignature[0]++;
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, otherSignature)).isTrue();
+		assertThat(index.size()).isEqualTo(4);
+	}
+
+	@Test
+	public void testExpiration() {
+		byte[] signature = RandomUtils.nextBytes(256);
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signature)).isTrue();
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(EXPIRATION_SECONDS) - 1);
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signature)).isTrue();
+		clock.incrementAndGet();
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signature)).isFalse();
+		assertThat(index.size()).isZero();
+		assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signature)).isTrue();
+	}
+
+	@Test
+	public void testCapacityIsBounded() {
+		byte[][] signatures = new byte[CAPACITY * 4][];
+		for (int i = 0; i < signatures.length; i++) {
+			signatures[i] = RandomUtils.nextBytes(256);
+			assertThat(index.markIfAbsent(USER_ID, INSTALLATION_ID, signatures[i])).isTrue();
+		}
+		assertThat(index.size()).isLessThanOrEqualTo(CAPACITY);
+		// The most recent ones are always kept
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signatures[signatures.length - 1])).isTrue();
+		assertThat(index.contains(USER_ID, INSTALLATION_ID, signatures[0])).isFalse();
+		// Eviction must not lose the entries that were shifted in the table
+		int kept = 0;
+		for (byte[] signature : signatures) {
+			if (index.contains(USER_ID, INSTALLATION_ID, signature)) {
+				kept++;
+			}
+		}
+		assertThat(kept).isEqualTo(index.size());
+	}
+}
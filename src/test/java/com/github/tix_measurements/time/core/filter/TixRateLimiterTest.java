@@ -0,0 +1,75 @@
+package com.github.tix_measurements.time.core.filter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixRateLimiterTest {
+	private static final double PERMITS_PER_SECOND = 10;
+	private static final int BURST = 5;
+	private static final long KEY = 42L;
+	private static final long OTHER_KEY = 4242L;
+
+	private AtomicLong clock;
+	private TixRateLimiter limiter;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+		limiter = new TixRateLimiter(PERMITS_PER_SECOND, BURST, TixRateLimiter.DEFAULT_SLOTS, clock::get);
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixRateLimiter(0, BURST));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixRateLimiter(PERMITS_PER_SECOND, 0));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixRateLimiter(PERMITS_PER_SECOND, BURST, 0));
+	}
+
+	@Test
+	public void testBurstIsAllowedAndThenLimited() {
+		for (int i = 0; i < BURST; i++) {
+			assertThat(limiter.tryAcquire(KEY)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(KEY)).isFalse();
+		// Other sources are not affected
+		assertThat(limiter.tryAcquire(OTHER_KEY)).isTrue();
+	}
+
+	@Test
+	public void testPermitsAreRefilledAtTheRate() {
+		for (int i = 0; i < BURST; i++) {
+			assertThat(limiter.tryAcquire(KEY)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(KEY)).isFalse();
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+		assertThat(limiter.tryAcquire(KEY)).isTrue();
+		assertThat(limiter.tryAcquire(KEY)).isFalse();
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		for (int i = 0; i < BURST; i++) {
+			assertThat(limiter.tryAcquire(KEY)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(KEY)).isFalse();
+	}
+
+	@Test
+	public void testSustainedRate() {
+		int granted = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (limiter.tryAcquire(KEY)) {
+				granted++;
+			}
+			clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+		// 10 seconds at 10 permits per second, plus the initial burst
+		assertThat(granted).isBetween(100, 100 + BURST);
+	}
+}
@@ -0,0 +1,93 @@
+package com.github.tix_measurements.time.core.measurement;
+
+import com.github.tix_measurements.time.core.data.TixDataPacketTest;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixMeasurementLogCodecTest {
+
+	static long[] generateTimestamps(int measurements, long start) {
+		Random random = new Random(42);
+		long[] timestamps = new long[measurements * 4];
+		long initial = start;
+		for (int i = 0; i < measurements; i++) {
+			initial = (initial + 1000000000L + random.nextInt(1000000)) % TixCoreUtils.NANOS_PER_DAY;
+			long offset = 5000000L + random.nextInt(100000);
+			timestamps[i * 4] = initial;
+			timestamps[i * 4 + 1] = (initial + offset) % TixCoreUtils.NANOS_PER_DAY;
+			timestamps[i * 4 + 2] = (initial + offset + 20000 + random.nextInt(1000)) % TixCoreUtils.NANOS_PER_DAY;
+			timestamps[i * 4 + 3] = (initial + 2 * offset + random.nextInt(100000)) % TixCoreUtils.NANOS_PER_DAY;
+		}
+		return timestamps;
+	}
+
+	private static long[] decode(byte[] message) {
+		List<Long> decoded = new ArrayList<>();
+		TixMeasurementLogCodec.decode(message, (sequence, initial, reception, sent, last) ->
+				decoded.addAll(Arrays.asList(initial, reception, sent, last)));
+		return decoded.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	@Test
+	public void testRoundTrip() {
+		long[] timestamps = generateTimestamps(100, 0L);
+		byte[] message = TixMeasurementLogCodec.encode(3L, 7L, timestamps, 0, 100);
+		assertThat(TixMeasurementLogCodec.isDeltaEncoded(message)).isTrue();
+		assertThat(decode(message)).isEqualTo(timestamps);
+		List<Long> sequences = new ArrayList<>();
+		assertThat(TixMeasurementLogCodec.decode(message, (sequence, a, b, c, d) -> sequences.add(sequence))).isEqualTo(100);
+		assertThat(sequences).startsWith(7L).endsWith(106L);
+		assertThat(TixMeasurementLogCodec.epoch(message)).isEqualTo(3L);
+	}
+
+	@Test
+	public void testRoundTripAcrossMidnight() {
+		long[] timestamps = generateTimestamps(100, TixCoreUtils.NANOS_PER_DAY - 50000000000L);
+		assertThat(decode(TixMeasurementLogCodec.encode(1L, 0L, timestamps, 0, 100))).isEqualTo(timestamps);
+	}
+
+	@Test
+	public void testEncodeRange() {
+		long[] timestamps = generateTimestamps(10, 0L);
+		byte[] message = TixMeasurementLogCodec.encode(1L, 0L, timestamps, 3, 4);
+		assertThat(decode(message)).isEqualTo(Arrays.copyOfRange(timestamps, 12, 28));
+		assertThat(decode(TixMeasurementLogCodec.encode(1L, 0L, timestamps, 0, 0))).isEmpty();
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixMeasurementLogCodec.encode(1L, 0L, timestamps, 8, 4));
+	}
+
+	@Test
+	public void testIsSmallerThanRawTimestamps() {
+		long[] timestamps = generateTimestamps(100, 0L);
+		byte[] message = TixMeasurementLogCodec.encode(1L, 0L, timestamps, 0, 100);
+		assertThat(message.length).isLessThan(timestamps.length * Long.BYTES / 2);
+	}
+
+	@Test
+	public void testOtherFormatsAreNotDeltaEncoded() throws InterruptedException {
+		assertThat(TixMeasurementLogCodec.isDeltaEncoded(null)).isFalse();
+		assertThat(TixMeasurementLogCodec.isDeltaEncoded(new byte[0])).isFalse();
+		assertThat(TixMeasurementLogCodec.isDeltaEncoded(TixDataPacketTest.generateMessage())).isFalse();
+		assertThat(TixMeasurementLogCodec.isDeltaEncoded("1500000000000 1500000000010".getBytes(StandardCharsets.US_ASCII))).isFalse();
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixMeasurementLogCodec.decode(new byte[]{1, 2, 3}, (s, a, b, c, d) -> {}));
+	}
+
+	@Test
+	public void testMalformedLogs() {
+		byte[] message = TixMeasurementLogCodec.encode(1L, 0L, generateTimestamps(10, 0L), 0, 10);
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixMeasurementLogCodec.decode(Arrays.copyOf(message, message.length - 1), (s, a, b, c, d) -> {}));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixMeasurementLogCodec.decode(Arrays.copyOf(message, message.length + 1), (s, a, b, c, d) -> {}));
+	}
+}
@@ -0,0 +1,138 @@
+package com.github.tix_measurements.time.core.measurement;
+
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixMeasurementLogWriterTest {
+	private static final long INSTALLATION_ID = 1L;
+
+	private TixMeasurementLogWriter writer;
+	private TixMeasurementLogAssembler assembler;
+	private List<Long> received;
+
+	@Before
+	public void setup() {
+		writer = new TixMeasurementLogWriter(500);
+		assembler = new TixMeasurementLogAssembler();
+		received = new ArrayList<>();
+	}
+
+	private void append(int measurements) {
+		long[] timestamps = TixMeasurementLogCodecTest.generateTimestamps(measurements, 0L);
+		for (int i = 0; i < measurements; i++) {
+			writer.append(timestamps[i * 4], timestamps[i * 4 + 1], timestamps[i * 4 + 2], timestamps[i * 4 + 3]);
+		}
+	}
+
+	private long send() {
+		return assembler.accept(INSTALLATION_ID, writer.nextMessage(), (sequence, a, b, c, d) -> received.add(sequence));
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> new TixMeasurementLogWriter(0));
+	}
+
+	@Test
+	public void testOnlyNewMeasurementsAreSentAfterAcknowledgement() {
+		assertThat(writer.nextMessage()).isNull();
+		append(10);
+		long acknowledged = send();
+		assertThat(acknowledged).isEqualTo(9L);
+		writer.acknowledge(acknowledged);
+		assertThat(writer.pending()).isZero();
+		append(5);
+		assertThat(send()).isEqualTo(14L);
+		assertThat(received).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L);
+	}
+
+	@Test
+	public void testTruncatedLogIsNotApplied() {
+		append(10);
+		byte[] message = writer.nextMessage();
+		byte[] truncated = Arrays.copyOf(message, message.length - 2);
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> assembler.accept(INSTALLATION_ID,
+				truncated, (sequence, a, b, c, d) -> received.add(sequence)));
+		byte[] trailing = Arrays.copyOf(message, message.length + 1);
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> assembler.accept(INSTALLATION_ID,
+				trailing, (sequence, a, b, c, d) -> received.add(sequence)));
+		assertThat(received).isEmpty();
+		assertThat(assembler.getNextSequence(INSTALLATION_ID)).isZero();
+		// the valid log resent afterwards is applied whole
+		assertThat(send()).isEqualTo(9L);
+		assertThat(received).hasSize(10);
+	}
+
+	@Test
+	public void testResentMeasurementsAreSkipped() {
+		append(10);
+		send();
+		// The acknowledgement is lost, so the next message resends the same measurements plus the new ones
+		append(2);
+		assertThat(send()).isEqualTo(11L);
+		assertThat(received).hasSize(12).doesNotHaveDuplicates();
+		assertThat(assembler.getNextSequence(INSTALLATION_ID)).isEqualTo(12L);
+	}
+
+	@Test
+	public void testRestartedClientStartsOver() {
+		writer = new TixMeasurementLogWriter(500, 1L);
+		append(10);
+		writer.acknowledge(send());
+		// the client restarts, and its new log numbers the measurements from 0 again
+		writer = new TixMeasurementLogWriter(500, 2L);
+		append(3);
+		long acknowledged = send();
+		assertThat(acknowledged).isEqualTo(2L);
+		writer.acknowledge(acknowledged);
+		assertThat(writer.pending()).isZero();
+		assertThat(received).containsExactly(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 0L, 1L, 2L);
+		assertThat(assembler.getNextSequence(INSTALLATION_ID)).isEqualTo(3L);
+		assertThat(assembler.getRestarts()).isEqualTo(1L);
+		assertThat(assembler.getMissingMeasurements()).isZero();
+	}
+
+	@Test
+	public void testMessagesFitInADataPacket() {
+		append(500);
+		int messages = 0;
+		while (writer.pending() > 0) {
+			byte[] message = writer.nextMessage();
+			assertThat(message.length).isLessThanOrEqualTo(TixMeasurementLogCodec.MAX_MESSAGE_BYTES);
+			writer.acknowledge(assembler.accept(INSTALLATION_ID, message, (sequence, a, b, c, d) -> received.add(sequence)));
+			messages++;
+		}
+		assertThat(messages).isGreaterThan(1);
+		assertThat(received).hasSize(500).doesNotHaveDuplicates().isSorted();
+	}
+
+	@Test
+	public void testCompressedMessagesCarryMoreMeasurements() {
+		append(500);
+		int plainCount = TixMeasurementLogCodec.decode(writer.nextMessage(), (sequence, a, b, c, d) -> { });
+		byte[] compressed = writer.nextCompressedMessage();
+		assertThat(compressed.length).isLessThanOrEqualTo(TixMeasurementLogCodec.MAX_MESSAGE_BYTES);
+		byte[] message = TixCoreUtils.DECOMPRESSOR.apply(compressed);
+		assertThat(TixMeasurementLogCodec.decode(message, (sequence, a, b, c, d) -> { })).isGreaterThan(plainCount);
+	}
+
+	@Test
+	public void testOldestMeasurementsAreDroppedWhenFull() {
+		append(10);
+		send();
+		writer.acknowledge(9L);
+		append(600);
+		assertThat(writer.pending()).isEqualTo(500);
+		assertThat(writer.getDroppedMeasurements()).isEqualTo(100L);
+		send();
+		assertThat(assembler.getMissingMeasurements()).isEqualTo(100L);
+	}
+}
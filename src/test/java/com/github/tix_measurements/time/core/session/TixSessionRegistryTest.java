@@ -0,0 +1,157 @@
+package com.github.tix_measurements.time.core.session;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class TixSessionRegistryTest {
+	private static final long IDLE_TIMEOUT_SECONDS = 60L;
+	private static final int MAX_SESSIONS = 1 << 16;
+	private static final long USER_ID = 7L;
+	private static final long INSTALLATION_ID = 42L;
+
+	private AtomicLong clock;
+	private TixSessionRegistry registry;
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		registry = new TixSessionRegistry(MAX_SESSIONS, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, clock::get);
+	}
+
+	@Test
+	public void testConstructor() {
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixSessionRegistry(0, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixSessionRegistry(MAX_SESSIONS, 0, TimeUnit.SECONDS));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> new TixSessionRegistry(MAX_SESSIONS, IDLE_TIMEOUT_SECONDS, null));
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> registry.contains(0L));
+	}
+
+	@Test
+	public void testRecordAndRead() {
+		assertThat(registry.get(INSTALLATION_ID)).isNull();
+		clock.set(100L);
+		assertThat(registry.record(INSTALLATION_ID, USER_ID, 1L, 2L, 3L, 4L, null)).isTrue();
+		clock.set(200L);
+		byte[] publicKey = RandomUtils.nextBytes(294);
+		assertThat(registry.record(INSTALLATION_ID, USER_ID, 5L, 6L, 7L, 8L, publicKey)).isTrue();
+		assertThat(registry.record(INSTALLATION_ID, USER_ID, 9L, 10L, 11L, 12L, null)).isTrue();
+		TixSession session = new TixSession();
+		assertThat(registry.read(INSTALLATION_ID, session)).isTrue();
+		assertThat(session.getInstallationId()).isEqualTo(INSTALLATION_ID);
+		assertThat(session.getUserId()).isEqualTo(USER_ID);
+		assertThat(session.getLastSeen()).isEqualTo(200L);
+		assertThat(session.getPacketCount()).isEqualTo(3L);
+		assertThat(session.getInitialTimestamp()).isEqualTo(9L);
+		assertThat(session.getReceptionTimestamp()).isEqualTo(10L);
+		assertThat(session.getSentTimestamp()).isEqualTo(11L);
+		assertThat(session.getFinalTimestamp()).isEqualTo(12L);
+		assertThat(session.getPublicKey()).isSameAs(publicKey);
+		assertThat(registry.contains(INSTALLATION_ID)).isTrue();
+		assertThat(registry.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testRecordDataPacket() {
+		InetSocketAddress address = InetSocketAddress.createUnresolved("localhost", 4500);
+		TixDataPacket packet = new TixDataPacket(address, address, 1L, USER_ID, INSTALLATION_ID,
+				RandomUtils.nextBytes(294), RandomUtils.nextBytes(320), RandomUtils.nextBytes(256));
+		assertThat(registry.record(packet)).isTrue();
+		TixSession session = registry.get(INSTALLATION_ID);
+		assertThat(session.getUserId()).isEqualTo(USER_ID);
+		assertThat(session.getPublicKey()).isEqualTo(packet.getPublicKey());
+	}
+
+	@Test
+	public void testManySessionsAndRemoval() {
+		int sessions = 10000;
+		for (long id = 1; id <= sessions; id++) {
+			assertThat(registry.record(id, USER_ID, id, id, id, id, null)).isTrue();
+		}
+		assertThat(registry.size()).isEqualTo(sessions);
+		for (long id = 1; id <= sessions; id += 2) {
+			assertThat(registry.remove(id)).isTrue();
+		}
+		assertThat(registry.remove(1L)).isFalse();
+		assertThat(registry.size()).isEqualTo(sessions / 2);
+		TixSession session = new TixSession();
+		for (long id = 1; id <= sessions; id++) {
+			assertThat(registry.read(id, session)).isEqualTo(id % 2 == 0);
+			if (id % 2 == 0) {
+				assertThat(session.getInitialTimestamp()).isEqualTo(id);
+			}
+		}
+	}
+
+	@Test
+	public void testMaxSessions() {
+		TixSessionRegistry small = new TixSessionRegistry(1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		int recorded = 0;
+		for (long id = 1; id <= 1000; id++) {
+			if (small.record(id, USER_ID, 1L, 2L, 3L, 4L, null)) {
+				recorded++;
+			}
+		}
+		assertThat(small.size()).isEqualTo(recorded).isLessThan(1000);
+	}
+
+	@Test
+	public void testEvictIdle() {
+		for (long id = 1; id <= 1000; id++) {
+			clock.set(id <= 500 ? 0L : TimeUnit.SECONDS.toNanos(30));
+			registry.record(id, USER_ID, 1L, 2L, 3L, 4L, null);
+		}
+		clock.set(TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS));
+		assertThat(registry.evictIdle()).isEqualTo(500);
+		assertThat(registry.size()).isEqualTo(500);
+		for (long id = 1; id <= 1000; id++) {
+			assertThat(registry.contains(id)).isEqualTo(id > 500);
+		}
+	}
+
+	@Test
+	public void testConcurrentReadsAndWrites() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (long round = 1; round <= 20; round++) {
+					for (long id = 1; id <= 5000; id++) {
+						registry.record(id, id, round, round, round, round, null);
+					}
+				}
+			});
+			Future<?> reader = executor.submit(() -> {
+				TixSession session = new TixSession();
+				while (!writer.isDone()) {
+					for (long id = 1; id <= 5000; id++) {
+						if (registry.read(id, session)) {
+							assertThat(session.getUserId()).isEqualTo(id);
+							assertThat(session.getInitialTimestamp()).isEqualTo(session.getFinalTimestamp());
+						}
+					}
+				}
+			});
+			writer.get();
+			reader.get();
+		} finally {
+			executor.shutdownNow();
+		}
+		assertThat(registry.size()).isEqualTo(5000);
+		assertThat(registry.get(5000L).getPacketCount()).isEqualTo(20L);
+	}
+}
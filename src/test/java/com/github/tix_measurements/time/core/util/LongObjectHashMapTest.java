@@ -0,0 +1,52 @@
+package com.github.tix_measurements.time.core.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class LongObjectHashMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		assertThat(map.isEmpty()).isTrue();
+		assertThat(map.put(0L, "zero")).isNull();
+		assertThat(map.put(-1L, "minus one")).isNull();
+		assertThat(map.put(0L, "cero")).isEqualTo("zero");
+		assertThat(map.get(0L)).isEqualTo("cero");
+		assertThat(map.get(-1L)).isEqualTo("minus one");
+		assertThat(map.get(1L)).isNull();
+		assertThat(map.size()).isEqualTo(2);
+		assertThat(map.remove(0L)).isEqualTo("cero");
+		assertThat(map.remove(0L)).isNull();
+		assertThat(map.containsKey(-1L)).isTrue();
+		assertThat(map.size()).isEqualTo(1);
+		map.clear();
+		assertThat(map.isEmpty()).isTrue();
+		assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> map.put(1L, null));
+	}
+
+	@Test
+	public void testBehavesLikeHashMap() {
+		LongObjectHashMap<Long> map = new LongObjectHashMap<>(4);
+		Map<Long, Long> expected = new HashMap<>();
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			long key = random.nextInt(2000);
+			if (random.nextBoolean()) {
+				assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+			} else {
+				assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+			}
+		}
+		assertThat(map.size()).isEqualTo(expected.size());
+		Map<Long, Long> actual = new HashMap<>();
+		map.forEach(actual::put);
+		assertThat(actual).isEqualTo(expected);
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.tix_measurements.time.core.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated by the current thread per run of an operation, with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ *
+ * Each measurement warms the operation up for twice the runs of a round, then takes the smallest mean of several
+ * rounds, so an allocation made once by the class loading, the compilation or a lazily initialized cache does not
+ * count. The bytes allocated by the measurement itself are subtracted.
+ */
+public final class TixAllocationMeter {
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private static final int ROUNDS = 5;
+
+	private TixAllocationMeter() {
+	}
+
+	/**
+	 * Returns {@code true} if the JVM can measure the bytes allocated by a thread.
+	 *
+	 * @return {@code boolean}
+	 */
+	public static boolean isSupported() {
+		return THREADS instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+				&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+	}
+
+	/**
+	 * Returns the bytes allocated by each run of {@code operation}.
+	 *
+	 * @param operation Operation to measure
+	 * @param iterations Runs of each round
+	 * @return {@code double} bytes allocated per run
+	 */
+	public static double bytesPerOperation(Runnable operation, int iterations) {
+		Runnable empty = () -> { };
+		for (int i = 0; i < 2 * iterations; i++) {
+			operation.run();
+			empty.run();
+		}
+		double best = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long overhead = allocatedBytes(empty, iterations);
+			long allocated = allocatedBytes(operation, iterations);
+			best = Math.min(best, (double) Math.max(0, allocated - overhead) / iterations);
+		}
+		return best;
+	}
+
+	private static long allocatedBytes(Runnable operation, int iterations) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < iterations; i++) {
+			operation.run();
+		}
+		return threads.getThreadAllocatedBytes(threadId) - before;
+	}
+}
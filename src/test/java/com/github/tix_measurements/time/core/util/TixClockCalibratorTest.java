@@ -0,0 +1,113 @@
+package com.github.tix_measurements.time.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class TixClockCalibratorTest {
+
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+
+	/**
+	 * Monotonic clock that advances {@code 100} nanoseconds on each reading, and wall clock {@link #offset}
+	 * nanoseconds ahead of it.
+	 */
+	private long nanos;
+	private long offset;
+	private TixClockCalibrator calibrator;
+
+	private long nanoTime() {
+		nanos += 100;
+		return nanos;
+	}
+
+	private long currentTimeMillis() {
+		return Math.floorDiv(nanos + offset, NANOS_PER_MILLI);
+	}
+
+	private long error() {
+		long epochNanos = calibrator.epochNanos();
+		return epochNanos - (nanos + offset);
+	}
+
+	@Before
+	public void setUp() {
+		nanos = 123_456_789L;
+		offset = 1_500_000_000_000_000_000L + 654_321L;
+		calibrator = new TixClockCalibrator(4, 1, TimeUnit.MINUTES, this::nanoTime, this::currentTimeMillis,
+				parkNanos -> nanos += parkNanos);
+	}
+
+	@Test
+	public void testCalibrate() {
+		assertThat(Math.abs(error())).isLessThanOrEqualTo(NANOS_PER_MILLI);
+		calibrator.calibrate();
+		nanos += TixClockCalibrator.SLEW_DIVISOR * NANOS_PER_MILLI;
+		assertThat(Math.abs(error())).isLessThan(1_000L);
+		assertThat(calibrator.getCalibrations()).isEqualTo(1L);
+		assertThat(calibrator.getSteps()).isZero();
+		assertThat(calibrator.getCalibrationErrorNanos()).isLessThan(1_000L);
+		long nanosOfDay = Math.floorMod(nanos + offset, TixCoreUtils.NANOS_PER_DAY);
+		assertThat(calibrator.nanosOfDay()).isCloseTo(nanosOfDay, within(1_000L));
+	}
+
+	@Test
+	public void testSlew() {
+		calibrator.calibrate();
+		nanos += TixClockCalibrator.SLEW_DIVISOR * NANOS_PER_MILLI;
+		offset += 2 * NANOS_PER_MILLI;
+		calibrator.calibrate();
+		assertThat(calibrator.getLastCorrectionNanos()).isCloseTo(2 * NANOS_PER_MILLI, within(1_000L));
+		assertThat(calibrator.getSteps()).isZero();
+		long slewNanos = TixClockCalibrator.SLEW_DIVISOR * 2 * NANOS_PER_MILLI;
+		long previous = calibrator.epochNanos();
+		assertThat(error()).isCloseTo(-2 * NANOS_PER_MILLI, within(1_000L));
+		for (int i = 0; i < 10; i++) {
+			nanos += slewNanos / 10;
+			long epochNanos = calibrator.epochNanos();
+			assertThat(epochNanos - previous).isGreaterThan(slewNanos / 10)
+					.isLessThanOrEqualTo(slewNanos / 10 + slewNanos / 10 / TixClockCalibrator.SLEW_DIVISOR + 1_000L);
+			previous = epochNanos;
+		}
+		assertThat(Math.abs(error())).isLessThan(1_000L);
+	}
+
+	@Test
+	public void testStep() {
+		calibrator.calibrate();
+		offset -= TimeUnit.SECONDS.toNanos(1);
+		calibrator.calibrate();
+		assertThat(calibrator.getSteps()).isEqualTo(1L);
+		assertThat(calibrator.getLastCorrectionNanos()).isLessThan(-TixClockCalibrator.STEP_THRESHOLD_NANOS);
+		assertThat(Math.abs(error())).isLessThan(1_000L);
+	}
+
+	@Test
+	public void testDrift() {
+		calibrator.calibrate();
+		long elapsed = TimeUnit.SECONDS.toNanos(10);
+		nanos += elapsed;
+		offset += elapsed / 20_000;
+		calibrator.calibrate();
+		assertThat(calibrator.getDriftPpm()).isCloseTo(50, within(1.0));
+	}
+
+	@Test
+	public void testBackgroundCalibration() throws InterruptedException {
+		TixClockCalibrator calibrator = new TixClockCalibrator(2, 10, TimeUnit.MILLISECONDS);
+		calibrator.start();
+		while (calibrator.getCalibrations() < 2) {
+			Thread.sleep(1);
+		}
+		calibrator.stop();
+		long calibrations = calibrator.getCalibrations();
+		Thread.sleep(50);
+		assertThat(calibrator.getCalibrations()).isEqualTo(calibrations);
+		long epochMillis = calibrator.epochNanos() / NANOS_PER_MILLI;
+		assertThat(epochMillis).isCloseTo(System.currentTimeMillis(), within(50L));
+	}
+}
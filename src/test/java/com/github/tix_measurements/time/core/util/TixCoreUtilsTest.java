@@ -2,12 +2,18 @@ package com.github.tix_measurements.time.core.util;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoField;
+import java.util.Base64;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 public class TixCoreUtilsTest {
 
@@ -55,4 +61,73 @@ public class TixCoreUtilsTest {
 		}
 		assertThat(hoursOfDay).isEqualTo(expectedHoursOfDay);
 	}
+
+	@Test
+	public void testDecodeBase64() {
+		Random random = new Random(1L);
+		for (int length = 0; length < 64; length++) {
+			byte[] bytes = new byte[length];
+			random.nextBytes(bytes);
+			for (Base64.Encoder encoder : new Base64.Encoder[]{Base64.getEncoder(), Base64.getEncoder().withoutPadding()}) {
+				byte[] encoded = encoder.encode(bytes);
+				byte[] framed = new byte[encoded.length + 4];
+				System.arraycopy(encoded, 0, framed, 2, encoded.length);
+				assertThat(TixCoreUtils.decodeBase64(framed, 2, encoded.length)).containsExactly(bytes);
+				assertThat(TixCoreUtils.decodeBase64(encoded, 0, encoded.length))
+						.containsExactly(Base64.getDecoder().decode(encoded));
+			}
+		}
+		for (String malformed : new String[]{"A", "QUJDR", "QQ=", "QQ=A", "QUJ=D", "====", "QU;D", "QUJD=", "Q\u00e9=="}) {
+			byte[] encoded = malformed.getBytes(StandardCharsets.ISO_8859_1);
+			assertThatExceptionOfType(IllegalArgumentException.class)
+					.isThrownBy(() -> Base64.getDecoder().decode(encoded));
+			assertThatExceptionOfType(IllegalArgumentException.class)
+					.isThrownBy(() -> TixCoreUtils.decodeBase64(encoded, 0, encoded.length));
+		}
+		assertThatExceptionOfType(IllegalArgumentException.class)
+				.isThrownBy(() -> TixCoreUtils.decodeBase64(new byte[4], 2, 4));
+	}
+
+	@Test
+	public void testRoundTripTime() {
+		assertThat(TixCoreUtils.roundTripTime(1_000L, 5_000L, 6_000L, 11_000L)).isEqualTo(9_000L);
+		long beforeMidnight = TixCoreUtils.NANOS_PER_DAY - 4_000L;
+		assertThat(TixCoreUtils.roundTripTime(beforeMidnight, 1_000L, 2_000L, 6_000L)).isEqualTo(9_000L);
+		assertThat(TixCoreUtils.roundTripTime(1_000L, 5_000L, 8_000L, 3_000L)).isZero();
+	}
+
+	@Test
+	public void testPublicKeyCache() {
+		byte[] message = "message".getBytes(StandardCharsets.US_ASCII);
+		KeyPair keyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+		KeyPair otherKeyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+		byte[] publicKey = keyPair.getPublic().getEncoded();
+		byte[] otherPublicKey = otherKeyPair.getPublic().getEncoded();
+		synchronized (TixCoreUtils.PUBLIC_KEYS) {
+			TixCoreUtils.PUBLIC_KEYS.clear();
+		}
+		try {
+			// a key is not cached until it verifies a signature
+			assertThat(TixCoreUtils.verify(message, publicKey, TixCoreUtils.sign(message, otherKeyPair))).isFalse();
+			assertThat(TixCoreUtils.PUBLIC_KEYS).doesNotContainKey(ByteBuffer.wrap(publicKey));
+			assertThat(TixCoreUtils.verify(message, publicKey, TixCoreUtils.sign(message, keyPair))).isTrue();
+			assertThat(TixCoreUtils.PUBLIC_KEYS).containsKey(ByteBuffer.wrap(publicKey));
+			synchronized (TixCoreUtils.PUBLIC_KEYS) {
+				for (int i = 1; i < TixCoreUtils.MAX_CACHED_PUBLIC_KEYS; i++) {
+					TixCoreUtils.PUBLIC_KEYS.put(ByteBuffer.allocate(Integer.BYTES).putInt(0, i), keyPair.getPublic());
+				}
+			}
+			// the oldest key is used again, so the least recently used one is evicted instead
+			assertThat(TixCoreUtils.verify(message, publicKey, TixCoreUtils.sign(message, keyPair))).isTrue();
+			assertThat(TixCoreUtils.verify(message, otherPublicKey, TixCoreUtils.sign(message, otherKeyPair)))
+					.isTrue();
+			assertThat(TixCoreUtils.PUBLIC_KEYS).hasSize(TixCoreUtils.MAX_CACHED_PUBLIC_KEYS)
+					.containsKeys(ByteBuffer.wrap(publicKey), ByteBuffer.wrap(otherPublicKey))
+					.doesNotContainKey(ByteBuffer.allocate(Integer.BYTES).putInt(0, 1));
+		} finally {
+			synchronized (TixCoreUtils.PUBLIC_KEYS) {
+				TixCoreUtils.PUBLIC_KEYS.clear();
+			}
+		}
+	}
 }
@@ -0,0 +1,115 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.apache.commons.lang3.RandomUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of handling the junk datagrams that reach a public TiX port, compared against the cost of
+ * decoding a well formed SHORT packet and against rejecting the junk with an exception, as it used to be done. It
+ * also measures decoding a data packet when only its IDs are read, and when its message is read too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TixMessageDecoderBenchmark {
+	private static final InetSocketAddress FROM = new InetSocketAddress("127.0.0.1", 4500);
+	private static final InetSocketAddress TO = new InetSocketAddress("127.0.0.1", 4501);
+
+	private final TixMessageDecoder decoder = new TixMessageDecoder();
+	private final List<Object> out = new ArrayList<>();
+
+	private DatagramPacket shortPacket;
+	private DatagramPacket randomJunk;
+	private DatagramPacket longSizedJunk;
+	private DatagramPacket dataPacket;
+
+	@Setup
+	public void setup() throws Exception {
+		shortPacket = new DatagramPacket(Unpooled.buffer(TixPacketType.SHORT.getSize())
+				.writeLong(1L).writeLong(2L).writeLong(3L).writeLong(4L), TO, FROM);
+		randomJunk = new DatagramPacket(Unpooled.wrappedBuffer(RandomUtils.nextBytes(517)), TO, FROM);
+		byte[] longSized = RandomUtils.nextBytes(TixPacketType.LONG.getSize());
+		longSized[0] = 0;
+		System.arraycopy("DATA;;".getBytes(), 0, longSized, TixPacketType.SHORT.getSize(), 6);
+		longSizedJunk = new DatagramPacket(Unpooled.wrappedBuffer(longSized), TO, FROM);
+		KeyPair keyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+		byte[] message = RandomUtils.nextBytes(2048);
+		EmbeddedChannel channel = new EmbeddedChannel(new TixMessageEncoder());
+		channel.writeOutbound(new TixDataPacket(FROM, TO, 1L, 1L, 1L, keyPair.getPublic().getEncoded(), message,
+				TixCoreUtils.sign(message, keyPair)));
+		dataPacket = (DatagramPacket) channel.readOutbound();
+	}
+
+	private List<Object> decode(DatagramPacket datagramPacket) throws Exception {
+		out.clear();
+		datagramPacket.content().readerIndex(0);
+		decoder.decode(null, datagramPacket, out);
+		return out;
+	}
+
+	@Benchmark
+	public List<Object> decodeShortPacket() throws Exception {
+		return decode(shortPacket);
+	}
+
+	@Benchmark
+	public long decodeDataPacketIds() throws Exception {
+		TixDataPacket packet = (TixDataPacket) decode(dataPacket).get(0);
+		return packet.getUserId() + packet.getInstallationId();
+	}
+
+	@Benchmark
+	public byte[] decodeDataPacketMessage() throws Exception {
+		return ((TixDataPacket) decode(dataPacket).get(0)).getMessage();
+	}
+
+	@Benchmark
+	public List<Object> rejectRandomJunk() throws Exception {
+		return decode(randomJunk);
+	}
+
+	@Benchmark
+	public List<Object> rejectLongSizedJunk() throws Exception {
+		return decode(longSizedJunk);
+	}
+
+	@Benchmark
+	public Object rejectWithException() {
+		try {
+			throw new IllegalArgumentException("Malformed data package");
+		} catch (IllegalArgumentException iae) {
+			return iae;
+		}
+	}
+
+	@Benchmark
+	public TixPacket baselinePacketAllocation() {
+		return new TixPacket(FROM, TO, TixPacketType.SHORT, 1L);
+	}
+}
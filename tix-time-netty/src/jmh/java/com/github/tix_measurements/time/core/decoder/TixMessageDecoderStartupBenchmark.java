@@ -0,0 +1,66 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup cost of the Netty handlers, the time to encode and decode the first packets through a pipeline
+ * in a fresh JVM. Run it with {@code -prof cl} to get the number of classes loaded to do it, to be compared with the
+ * {@code TixPacketCodecStartupBenchmark} of the core module, which does the same round trip without Netty.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class TixMessageDecoderStartupBenchmark {
+
+	private InetSocketAddress from;
+	private InetSocketAddress to;
+	private byte[] publicKey;
+	private byte[] message;
+	private byte[] signature;
+
+	@Setup
+	public void setup() {
+		from = InetSocketAddress.createUnresolved("localhost", 4500);
+		to = InetSocketAddress.createUnresolved("localhost", 4501);
+		publicKey = new byte[294];
+		Arrays.fill(publicKey, (byte) 1);
+		message = "1;2;3;4;5;6;7;8\n".getBytes(StandardCharsets.US_ASCII);
+		signature = new byte[256];
+		Arrays.fill(signature, (byte) 2);
+	}
+
+	@Benchmark
+	public Object firstRoundTrip() {
+		EmbeddedChannel channel = new EmbeddedChannel(new TixMessageEncoder(), new TixMessageDecoder());
+		channel.writeOutbound(new TixPacket(from, to, TixPacketType.SHORT, 1L));
+		channel.writeInbound(channel.readOutbound());
+		TixPacket shortPacket = (TixPacket) channel.readInbound();
+		channel.writeOutbound(new TixDataPacket(from, to, 2L, 1L, 1L, publicKey, message, signature));
+		channel.writeInbound(channel.readOutbound());
+		TixDataPacket dataPacket = (TixDataPacket) channel.readInbound();
+		channel.finish();
+		return dataPacket.getMessage().length + shortPacket.getInitialTimestamp();
+	}
+}
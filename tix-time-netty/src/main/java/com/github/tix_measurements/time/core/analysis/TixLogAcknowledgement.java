@@ -0,0 +1,97 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogAssembler;
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogWriter;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Event fired by the {@link TixWindowAggregationHandler} for each delta encoded log it accepts, with the sequence
+ * number up to which the {@link TixMeasurementLogAssembler} has the measurements of the installation, so the server
+ * can send it back and the client can {@link TixMeasurementLogWriter#acknowledge(long)} them instead of resending
+ * them.
+ */
+public final class TixLogAcknowledgement {
+
+	/**
+	 * Sender of the log, where the acknowledgement is due.
+	 */
+	private final InetSocketAddress from;
+
+	/**
+	 * User ID of the installation.
+	 */
+	private final long userId;
+
+	/**
+	 * Installation ID that sent the log.
+	 */
+	private final long installationId;
+
+	/**
+	 * Sequence number up to which the measurements of the installation were received, inclusive.
+	 */
+	private final long sequence;
+
+	/**
+	 * Main constructor of the class {@code TixLogAcknowledgement}.
+	 *
+	 * @param from {@link #from}
+	 * @param userId {@link #userId}
+	 * @param installationId {@link #installationId}
+	 * @param sequence {@link #sequence}
+	 */
+	public TixLogAcknowledgement(InetSocketAddress from, long userId, long installationId, long sequence) {
+		this.from = from;
+		this.userId = userId;
+		this.installationId = installationId;
+		this.sequence = sequence;
+	}
+
+	/**
+	 * Returns the {@link #from}
+	 * @return {@link #from}
+	 */
+	public InetSocketAddress getFrom() {
+		return from;
+	}
+
+	/**
+	 * Returns the {@link #userId}
+	 * @return {@link #userId}
+	 */
+	public long getUserId() {
+		return userId;
+	}
+
+	/**
+	 * Returns the {@link #installationId}
+	 * @return {@link #installationId}
+	 */
+	public long getInstallationId() {
+		return installationId;
+	}
+
+	/**
+	 * Returns the {@link #sequence}
+	 * @return {@link #sequence}
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.JSON_STYLE)
+				.append("from", this.getFrom())
+				.append("userId", this.getUserId())
+				.append("installationId", this.getInstallationId())
+				.append("sequence", this.getSequence())
+				.toString();
+	}
+}
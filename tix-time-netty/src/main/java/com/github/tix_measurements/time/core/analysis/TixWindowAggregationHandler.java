@@ -0,0 +1,225 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogAssembler;
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogCodec;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * {@link MessageToMessageDecoder} that reduces the measurements carried by the {@link TixDataPacket} into a
+ * {@link TixWindowSummary} per installation and window, with a {@link TixWindowAggregator}.
+ *
+ * It is meant to be placed after the {@link TixMessageDecoder} and after the handler that echoes the packets, so the
+ * handlers that store the measurements only receive the summaries. The data packets with a delta encoded log are
+ * consumed, so their signature is verified here, and those that do not pass {@link TixDataPacket#isValid()} are
+ * dropped. The measurements of the valid ones are passed through a {@link TixMeasurementLogAssembler} so the ones
+ * resent by the client are only counted once, and a {@link TixLogAcknowledgement} with the sequence number up to which
+ * the installation can be acknowledged is fired as a user event for the handler that answers the client. Any other
+ * message, including the data packets with a log in another format, is passed through untouched.
+ *
+ * The windows of the installations that stop sending data are emitted from a task scheduled on the event loop of the
+ * channel, which also makes the assembler forget those installations, so its state is bounded by the open windows.
+ * Every open window is emitted when the channel becomes inactive. As it keeps the windows of its channel, it can not be
+ * shared.
+ */
+public class TixWindowAggregationHandler extends MessageToMessageDecoder<TixDataPacket> {
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	private final TixMeasurementLogAssembler assembler = new TixMeasurementLogAssembler();
+
+	/**
+	 * Summaries emitted by the {@link #aggregator} and not yet passed to the next handler.
+	 */
+	private final List<TixWindowSummary> summaries = new ArrayList<>();
+
+	/**
+	 * {@link TixWindowAggregator} where the measurements are reduced.
+	 */
+	private final TixWindowAggregator aggregator;
+
+	/**
+	 * Length of the windows, in nanoseconds.
+	 */
+	private final long windowNanos;
+
+	private ScheduledFuture<?> expiration;
+
+	/**
+	 * Number of data packets dropped for carrying a malformed log, or a message that can not be decoded.
+	 */
+	private long malformedLogs;
+
+	/**
+	 * Number of data packets with a delta encoded log dropped for not passing {@link TixDataPacket#isValid()}.
+	 */
+	private long invalidPackets;
+
+	/**
+	 * Creates a handler of one minute windows.
+	 */
+	public TixWindowAggregationHandler() {
+		this(TixWindowAggregator.DEFAULT_WINDOW_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixWindowAggregationHandler}.
+	 *
+	 * @param window Length of the windows, which must divide a day
+	 * @param unit {@link TimeUnit} of the {@code window}
+	 */
+	public TixWindowAggregationHandler(long window, TimeUnit unit) {
+		this(window, unit, System::nanoTime);
+	}
+
+	TixWindowAggregationHandler(long window, TimeUnit unit, LongSupplier clock) {
+		this.aggregator = new TixWindowAggregator(window, unit, TixLatencySketch.DEFAULT_PRECISION_BITS,
+				summaries::add, clock);
+		this.windowNanos = checkNotNull(unit, "unit").toNanos(window);
+	}
+
+	/**
+	 * Returns the {@link #aggregator}
+	 * @return {@link #aggregator}
+	 */
+	public TixWindowAggregator getAggregator() {
+		return aggregator;
+	}
+
+	/**
+	 * Returns the {@link #assembler}
+	 * @return {@link #assembler}
+	 */
+	public TixMeasurementLogAssembler getAssembler() {
+		return assembler;
+	}
+
+	/**
+	 * Returns the number of data packets dropped for carrying a malformed log, or a message that can not be decoded.
+	 * @return {@link #malformedLogs}
+	 */
+	public long getMalformedLogs() {
+		return malformedLogs;
+	}
+
+	/**
+	 * Returns the number of data packets with a delta encoded log dropped for not passing
+	 * {@link TixDataPacket#isValid()}.
+	 * @return {@link #invalidPackets}
+	 */
+	public long getInvalidPackets() {
+		return invalidPackets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		expiration = ctx.executor().scheduleAtFixedRate(() -> expire(ctx), windowNanos, windowNanos,
+				TimeUnit.NANOSECONDS);
+		super.handlerAdded(ctx);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		if (expiration != null) {
+			expiration.cancel(false);
+		}
+		super.handlerRemoved(ctx);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		aggregator.flush();
+		fireSummaries(ctx);
+		super.channelInactive(ctx);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void decode(ChannelHandlerContext ctx, TixDataPacket msg, List<Object> out) throws Exception {
+		byte[] message;
+		try {
+			message = msg.getMessage();
+		} catch (IllegalStateException e) {
+			malformedLogs++;
+			logger.debug("Dropping data packet {}-{} with a message that can not be decoded from {}",
+					msg.getUserId(), msg.getInstallationId(), msg.getFrom());
+			return;
+		}
+		if (!TixMeasurementLogCodec.isDeltaEncoded(message)) {
+			out.add(msg);
+			return;
+		}
+		boolean valid;
+		try {
+			valid = msg.isValid();
+		} catch (IllegalStateException e) {
+			valid = false;
+		}
+		if (!valid) {
+			invalidPackets++;
+			logger.debug("Dropping data packet {}-{} with an invalid signature from {}",
+					msg.getUserId(), msg.getInstallationId(), msg.getFrom());
+			return;
+		}
+		final long installationId = msg.getInstallationId();
+		try {
+			long acknowledged = assembler.accept(installationId, message, (sequence, initial, reception, sent, last) ->
+					aggregator.accept(installationId, initial, reception, sent, last));
+			if (acknowledged >= 0) {
+				ctx.fireUserEventTriggered(new TixLogAcknowledgement(msg.getFrom(), msg.getUserId(), installationId,
+						acknowledged));
+			}
+		} catch (IllegalArgumentException e) {
+			malformedLogs++;
+			logger.debug("Dropping data packet {}-{} with a malformed log from {}",
+					msg.getUserId(), msg.getInstallationId(), msg.getFrom());
+		}
+		out.addAll(summaries);
+		summaries.clear();
+	}
+
+	/**
+	 * Emits the windows of the installations that stopped sending data, and forgets those installations in the
+	 * {@link #assembler}.
+	 */
+	void expire(ChannelHandlerContext ctx) {
+		aggregator.expire();
+		for (TixWindowSummary summary : summaries) {
+			assembler.forget(summary.getInstallationId());
+		}
+		fireSummaries(ctx);
+	}
+
+	private void fireSummaries(ChannelHandlerContext ctx) {
+		if (summaries.isEmpty()) {
+			return;
+		}
+		for (TixWindowSummary summary : summaries) {
+			ctx.fireChannelRead(summary);
+		}
+		summaries.clear();
+		ctx.fireChannelReadComplete();
+	}
+}
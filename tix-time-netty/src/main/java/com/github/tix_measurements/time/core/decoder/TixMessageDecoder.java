@@ -0,0 +1,152 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.codec.TixReassemblyBuffer;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * {@link MessageToMessageDecoder} that decodes a {@link DatagramPacket} to a TiX Packet, either {@link TixPacket} or
+ * {@link TixDataPacket}.
+ *
+ * Every datagram is checked first as in {@link TixPacketValidator#isWellFormed(ByteBuf)}. The malformed ones are
+ * dropped and counted in {@link #getMalformedPackets()}, without throwing any exception. The fragments of the packets
+ * split by the {@link TixFragmentCodec} are reassembled first in the {@link #reassemblyBuffer}, and their packets
+ * decoded as if they had been received whole. As it keeps the fragments of its channel, it can not be shared.
+ *
+ * The public key, message and signature of a data packet are copied at once and left encoded, see
+ * {@link TixDataPacket#encoded}, so they are only decoded if a later handler reads them. The wire format itself is
+ * implemented by the {@link TixPacketCodec}, which does not depend on Netty.
+ *
+ * A decoder that stamps the arrivals reads the clock as soon as a datagram enters the pipeline, and sets that time as
+ * the reception timestamp of the packets that do not have one yet, the probes received by a server, or else as the
+ * final timestamp of those that do not have one, the echoes received by a client. As the decoder is placed first in
+ * the pipeline, or only after filters that pass the probes on at once such as the
+ * {@link com.github.tix_measurements.time.core.filter.TixPriorityFilter}, the timestamps do not include the time spent
+ * in the later handlers nor waiting for their executors, which grows with the rate of packets. The datagrams read in
+ * a single batch are stamped one after the other, so the {@link ChannelOption#MAX_MESSAGES_PER_READ} of the channel
+ * bounds how late a stamp can be. A reassembled packet is stamped with the arrival of its last fragment, when it was
+ * received whole.
+ */
+public class TixMessageDecoder extends MessageToMessageDecoder<DatagramPacket> {
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * Number of datagrams dropped for being malformed.
+	 */
+	private final LongAdder malformedPackets = new LongAdder();
+
+	/**
+	 * Clock of the arrivals, in nanoseconds of the day, or {@code null} if they are not stamped.
+	 */
+	private final LongSupplier arrivalClock;
+
+	/**
+	 * {@link TixReassemblyBuffer} of the fragments received.
+	 */
+	private final TixReassemblyBuffer reassemblyBuffer;
+
+	/**
+	 * Creates a decoder that leaves the timestamps as they were received.
+	 */
+	public TixMessageDecoder() {
+		this(false);
+	}
+
+	/**
+	 * Creates a decoder that reassembles the fragments in a {@link TixReassemblyBuffer} with its default bounds.
+	 *
+	 * @param stampArrivals Whether the arrival of each datagram is set as the reception timestamp, or else the final
+	 *                      timestamp, of its packet
+	 */
+	public TixMessageDecoder(boolean stampArrivals) {
+		this(stampArrivals, new TixReassemblyBuffer());
+	}
+
+	/**
+	 * Main constructor of the class {@code TixMessageDecoder}.
+	 *
+	 * @param stampArrivals Whether the arrival of each datagram is set as the reception timestamp, or else the final
+	 *                      timestamp, of its packet
+	 * @param reassemblyBuffer {@link #reassemblyBuffer}, only used by this decoder
+	 */
+	public TixMessageDecoder(boolean stampArrivals, TixReassemblyBuffer reassemblyBuffer) {
+		this(stampArrivals ? TixCoreUtils.clockCalibrator()::nanosOfDay : null, reassemblyBuffer);
+	}
+
+	TixMessageDecoder(LongSupplier arrivalClock) {
+		this(arrivalClock, new TixReassemblyBuffer());
+	}
+
+	TixMessageDecoder(LongSupplier arrivalClock, TixReassemblyBuffer reassemblyBuffer) {
+		this.arrivalClock = arrivalClock;
+		this.reassemblyBuffer = checkNotNull(reassemblyBuffer, "reassemblyBuffer");
+	}
+
+	/**
+	 * Returns the number of datagrams dropped for being malformed.
+	 * @return {@link #malformedPackets}
+	 */
+	public long getMalformedPackets() {
+		return malformedPackets.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void decode(ChannelHandlerContext ctx, DatagramPacket msg,
+	                      List<Object> out) throws Exception {
+		long arrival = arrivalClock == null ? 0 : arrivalClock.getAsLong();
+		logger.entry(ctx, msg, out);
+		ByteBuf payload = msg.content();
+		ByteBuffer datagram = payload.nioBuffer();
+		if (TixFragmentCodec.isFragment(datagram)) {
+			long malformedFragments = reassemblyBuffer.getMalformedFragments();
+			datagram = reassemblyBuffer.offer(msg.sender(), datagram);
+			payload.skipBytes(payload.readableBytes());
+			if (datagram == null) {
+				malformedPackets.add(reassemblyBuffer.getMalformedFragments() - malformedFragments);
+				logger.exit();
+				return;
+			}
+		}
+		TixPacket tixPacket = TixPacketCodec.decode(datagram, msg.sender(), msg.recipient());
+		if (tixPacket == null) {
+			malformedPackets.increment();
+			logger.debug("Dropping malformed datagram from {}", msg.sender());
+			logger.exit();
+			return;
+		}
+		payload.skipBytes(payload.readableBytes());
+		if (arrivalClock != null) {
+			stampArrival(tixPacket, arrival);
+		}
+		out.add(tixPacket);
+		logger.exit(tixPacket);
+	}
+
+	private static void stampArrival(TixPacket tixPacket, long arrival) {
+		if (tixPacket.getReceptionTimestamp() == 0) {
+			tixPacket.setReceptionTimestamp(arrival);
+		} else if (tixPacket.getFinalTimestamp() == 0) {
+			tixPacket.setFinalTimestamp(arrival);
+		}
+	}
+}
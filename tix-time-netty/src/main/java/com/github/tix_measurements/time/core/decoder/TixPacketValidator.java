@@ -0,0 +1,80 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Structural validation of the raw payload of a TiX datagram, done before any of it is parsed.
+ *
+ * It checks the readable bytes of the {@link ByteBuf} through a {@link java.nio.ByteBuffer} view of them with the
+ * {@link TixPacketCodec}, so its reader index is never moved and nothing is copied, and no exception is thrown for a
+ * malformed payload. A payload considered well formed can be read by the {@link TixMessageDecoder} without any further
+ * bounds or delimiter checks.
+ */
+public class TixPacketValidator {
+
+	/**
+	 * Offset of the data header, right after the four timestamps.
+	 */
+	static final int DATA_HEADER_OFFSET = TixPacketCodec.DATA_HEADER_OFFSET;
+
+	/**
+	 * Offset of the user ID, right after the data header and its delimiter.
+	 */
+	static final int USER_ID_OFFSET = TixPacketCodec.USER_ID_OFFSET;
+
+	/**
+	 * Offset of the public key, right after the user and installation IDs and their delimiter.
+	 */
+	static final int PUBLIC_KEY_OFFSET = TixPacketCodec.PUBLIC_KEY_OFFSET;
+
+	/**
+	 * Offset of the base 64 encoded message, right after the public key and its delimiter.
+	 */
+	static final int MESSAGE_OFFSET = TixPacketCodec.MESSAGE_OFFSET;
+
+	/**
+	 * Returns {@code true} if the readable bytes of {@code payload} are a well formed TiX packet, either a SHORT one,
+	 * a LONG one, or a LONG one carrying data.
+	 *
+	 * @param payload {@link ByteBuf} with the content of the datagram
+	 * @return {@code true} if the payload can be decoded, {@code false} otherwise
+	 */
+	public static boolean isWellFormed(ByteBuf payload) {
+		return TixPacketCodec.isWellFormed(payload.nioBuffer());
+	}
+
+	/**
+	 * Returns {@code true} if the readable bytes of {@code payload} start with the timestamps followed by the data
+	 * header, either the plain or the compressed one. It does not check the rest of the data.
+	 *
+	 * @param payload {@link ByteBuf} with the content of a LONG datagram
+	 * @return {@code true} if the payload announces data, {@code false} otherwise
+	 */
+	public static boolean isDataPacket(ByteBuf payload) {
+		return TixPacketCodec.isDataPacket(payload.nioBuffer());
+	}
+
+	/**
+	 * Returns {@code true} if the readable bytes of {@code payload} announce data with a compressed message. It does
+	 * not check the rest of the data.
+	 *
+	 * @param payload {@link ByteBuf} with the content of a LONG datagram
+	 * @return {@code true} if the payload announces compressed data, {@code false} otherwise
+	 */
+	public static boolean isCompressedDataPacket(ByteBuf payload) {
+		return TixPacketCodec.isCompressedDataPacket(payload.nioBuffer());
+	}
+
+	/**
+	 * Returns the absolute index of the delimiter that ends the base 64 encoded message of a data packet, or
+	 * {@code -1} if there is none.
+	 *
+	 * @param payload {@link ByteBuf} with the content of a LONG datagram carrying data
+	 * @return {@code int} index of the delimiter
+	 */
+	static int messageEndIndex(ByteBuf payload) {
+		int index = TixPacketCodec.messageEndIndex(payload.nioBuffer());
+		return index < 0 ? -1 : payload.readerIndex() + index;
+	}
+}
@@ -0,0 +1,241 @@
+package com.github.tix_measurements.time.core.encoder;
+
+import com.github.tix_measurements.time.core.data.TixPacket;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNegative;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Duplex handler that coalesces the flushes of the replies, so a burst of echoed {@link TixPacket}s reaches the
+ * transport in a single flush instead of one per reply.
+ *
+ * It must be placed before the {@link TixMessageEncoder}, closer to the transport. The flushes requested while a read
+ * is in progress, typically by a handler that {@code writeAndFlush}es each reply from {@code channelRead}, are held
+ * until the read completes, which bounds them to the {@link ChannelOption#MAX_MESSAGES_PER_READ} of the channel. As
+ * the datagram channels read a single datagram per read by default, that option must be raised for the replies to be
+ * batched. A flush is passed on at once when {@link #maxBatch} writes are pending, so the replies never pile up.
+ * The flushes requested outside a read, for example by a handler running in another executor, are passed on at once,
+ * or held at most {@link #maxDelayNanos} if a delay is set.
+ *
+ * Each flush makes the transport write every pending datagram in one pass of the event loop, and with it a single
+ * wake up of the selector when the replies are written from another thread. The NIO transport still sends one
+ * datagram per system call, but keeps the replies of a burst together for the transports able to send them at once.
+ * A reply held by a delay is sent that much later than its sent timestamp, so the delay trades the accuracy of the
+ * timestamps for throughput and is disabled by default.
+ *
+ * As it keeps the pending writes of its channel, it can not be shared.
+ */
+public class TixFlushBatchingHandler extends ChannelDuplexHandler {
+
+	/**
+	 * Default maximum number of writes pending before a flush is passed on.
+	 */
+	public static final int DEFAULT_MAX_BATCH = 64;
+
+	/**
+	 * Maximum number of writes pending before a flush is passed on.
+	 */
+	private final int maxBatch;
+
+	/**
+	 * Maximum time, in nanoseconds, a flush requested outside a read is held, or {@code 0} to pass it on at once.
+	 */
+	private final long maxDelayNanos;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to measure how long the flushes are held.
+	 */
+	private final LongSupplier clock;
+
+	private boolean reading;
+
+	/**
+	 * Writes since the last flush passed on, and whether a flush was requested for them and since when.
+	 */
+	private int pendingWrites;
+	private boolean flushRequested;
+	private long flushRequestedAt;
+
+	private ScheduledFuture<?> scheduledFlush;
+
+	/*
+	 * Metrics, only written by the event loop.
+	 */
+	private volatile long writes;
+	private volatile long flushRequests;
+	private volatile long flushes;
+	private volatile long maxFlushDelayNanos;
+
+	/**
+	 * Creates a handler that holds the flushes until the end of each read, or {@link #DEFAULT_MAX_BATCH} writes.
+	 */
+	public TixFlushBatchingHandler() {
+		this(DEFAULT_MAX_BATCH, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixFlushBatchingHandler}.
+	 *
+	 * @param maxBatch {@link #maxBatch}
+	 * @param maxDelay Maximum time a flush requested outside a read is held, or {@code 0} to pass it on at once
+	 * @param unit {@link TimeUnit} of the {@code maxDelay}
+	 */
+	public TixFlushBatchingHandler(int maxBatch, long maxDelay, TimeUnit unit) {
+		this(maxBatch, maxDelay, unit, System::nanoTime);
+	}
+
+	TixFlushBatchingHandler(int maxBatch, long maxDelay, TimeUnit unit, LongSupplier clock) {
+		checkPositive(maxBatch, "maxBatch");
+		checkNotNegative(maxDelay, "maxDelay");
+		checkNotNull(unit, "unit");
+		checkNotNull(clock, "clock");
+		this.maxBatch = maxBatch;
+		this.maxDelayNanos = unit.toNanos(maxDelay);
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the number of writes.
+	 * @return {@link #writes}
+	 */
+	public long getWrites() {
+		return writes;
+	}
+
+	/**
+	 * Returns the number of flushes requested by the later handlers.
+	 * @return {@link #flushRequests}
+	 */
+	public long getFlushRequests() {
+		return flushRequests;
+	}
+
+	/**
+	 * Returns the number of flushes passed on to the transport.
+	 * @return {@link #flushes}
+	 */
+	public long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * Returns the longest time, in nanoseconds, a requested flush was held.
+	 * @return {@link #maxFlushDelayNanos}
+	 */
+	public long getMaxFlushDelayNanos() {
+		return maxFlushDelayNanos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		reading = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		reading = false;
+		if (flushRequested) {
+			flush0(ctx);
+		}
+		ctx.fireChannelReadComplete();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		writes++;
+		pendingWrites++;
+		ctx.write(msg, promise);
+		if (flushRequested && pendingWrites >= maxBatch) {
+			flush0(ctx);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		flushRequests++;
+		if (!flushRequested) {
+			flushRequested = true;
+			flushRequestedAt = clock.getAsLong();
+		}
+		if (pendingWrites >= maxBatch || (!reading && maxDelayNanos == 0)) {
+			flush0(ctx);
+		} else if (!reading && scheduledFlush == null) {
+			scheduledFlush = ctx.executor().schedule(() -> {
+				scheduledFlush = null;
+				if (flushRequested) {
+					flush0(ctx);
+				}
+			}, maxDelayNanos, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		if (flushRequested) {
+			flush0(ctx);
+		}
+		ctx.close(promise);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		if (flushRequested) {
+			flush0(ctx);
+		}
+		ctx.disconnect(promise);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		if (flushRequested) {
+			flush0(ctx);
+		}
+		super.handlerRemoved(ctx);
+	}
+
+	private void flush0(ChannelHandlerContext ctx) {
+		if (scheduledFlush != null) {
+			scheduledFlush.cancel(false);
+			scheduledFlush = null;
+		}
+		long delay = clock.getAsLong() - flushRequestedAt;
+		if (delay > maxFlushDelayNanos) {
+			maxFlushDelayNanos = delay;
+		}
+		flushRequested = false;
+		pendingWrites = 0;
+		flushes++;
+		ctx.flush();
+	}
+}
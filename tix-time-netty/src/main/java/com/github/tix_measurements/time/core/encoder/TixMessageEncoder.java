@@ -0,0 +1,90 @@
+package com.github.tix_measurements.time.core.encoder;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkArgument;
+
+/**
+ * {@link MessageToMessageEncoder} that encodes TiX Packet, either {@link TixPacket} or {@link TixDataPacket} into a {@link DatagramPacket}.
+ *
+ * The wire format itself is implemented by the {@link TixPacketCodec}, which does not depend on Netty.
+ *
+ * The LONG packets that do not fit in {@link #maxDatagramBytes} are split by the {@link TixFragmentCodec} into as many
+ * datagrams, so a path with a smaller MTU does not fragment them in IP. The {@link TixMessageDecoder} of the recipient
+ * reassembles them. As it numbers the packets it splits, it can not be shared.
+ */
+public class TixMessageEncoder extends MessageToMessageEncoder<TixPacket> {
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * Maximum length of the datagrams encoded.
+	 */
+	private final int maxDatagramBytes;
+
+	/**
+	 * ID of the next packet split in fragments.
+	 */
+	private int nextPacketId;
+
+	/**
+	 * Creates an encoder that encodes every packet in a single datagram.
+	 */
+	public TixMessageEncoder() {
+		this(TixPacketType.LONG.getSize());
+	}
+
+	/**
+	 * Main constructor of the class {@code TixMessageEncoder}.
+	 *
+	 * @param maxDatagramBytes {@link #maxDatagramBytes}, at least {@link TixFragmentCodec#MIN_DATAGRAM_BYTES}, for
+	 *                         example the {@link TixFragmentCodec#DEFAULT_MAX_DATAGRAM_BYTES} of an Ethernet path
+	 */
+	public TixMessageEncoder(int maxDatagramBytes) {
+		checkArgument(maxDatagramBytes >= TixFragmentCodec.MIN_DATAGRAM_BYTES,
+				"maxDatagramBytes must be at least " + TixFragmentCodec.MIN_DATAGRAM_BYTES);
+		this.maxDatagramBytes = maxDatagramBytes;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void encode(ChannelHandlerContext ctx, TixPacket msg, List<Object> out) throws Exception {
+		logger.entry(ctx, msg, out);
+		int size = msg.getType().getSize();
+		ByteBuf content = Unpooled.buffer(size, size);
+		ByteBuffer buffer = content.nioBuffer(0, size);
+		TixPacketCodec.encode(msg, buffer);
+		content.writerIndex(buffer.position());
+		if (size <= maxDatagramBytes) {
+			out.add(new DatagramPacket(content, msg.getTo(), msg.getFrom()));
+		} else {
+			buffer.flip();
+			int packetId = nextPacketId++;
+			int count = TixFragmentCodec.fragmentCount(size, maxDatagramBytes);
+			for (int i = 0; i < count; i++) {
+				ByteBuf fragment = Unpooled.buffer(maxDatagramBytes, maxDatagramBytes);
+				ByteBuffer fragmentBuffer = fragment.nioBuffer(0, maxDatagramBytes);
+				TixFragmentCodec.encode(buffer, packetId, i, maxDatagramBytes, fragmentBuffer);
+				fragment.writerIndex(fragmentBuffer.position());
+				out.add(new DatagramPacket(fragment, msg.getTo(), msg.getFrom()));
+			}
+			content.release();
+		}
+		logger.exit(out);
+	}
+}
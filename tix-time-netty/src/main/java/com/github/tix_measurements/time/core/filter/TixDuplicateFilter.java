@@ -0,0 +1,76 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * {@link MessageToMessageDecoder} that drops the retransmitted {@link TixDataPacket} according to a
+ * {@link TixDeduplicationIndex}. Any other message is passed through untouched.
+ *
+ * It is meant to be placed right after the {@link TixMessageDecoder}, so the duplicates are dropped before
+ * {@link TixDataPacket#isValid()} is ever called on them. The index is thread safe, so the filter can be shared
+ * between channels.
+ */
+@ChannelHandler.Sharable
+public class TixDuplicateFilter extends MessageToMessageDecoder<TixDataPacket> {
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * {@link TixDeduplicationIndex} where the seen packets are recorded.
+	 */
+	private final TixDeduplicationIndex index;
+
+	/**
+	 * Number of packets dropped for being duplicates.
+	 */
+	private final LongAdder droppedPackets = new LongAdder();
+
+	/**
+	 * Creates a filter backed by a {@link TixDeduplicationIndex} with its default settings.
+	 */
+	public TixDuplicateFilter() {
+		this(new TixDeduplicationIndex());
+	}
+
+	/**
+	 * Main constructor of the class {@code TixDuplicateFilter}.
+	 *
+	 * @param index {@link #index}
+	 */
+	public TixDuplicateFilter(TixDeduplicationIndex index) {
+		checkNotNull(index, "index");
+		this.index = index;
+	}
+
+	/**
+	 * Returns the number of packets dropped for being duplicates.
+	 * @return {@link #droppedPackets}
+	 */
+	public long getDroppedPackets() {
+		return droppedPackets.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void decode(ChannelHandlerContext ctx, TixDataPacket msg, List<Object> out) throws Exception {
+		if (index.markIfAbsent(msg)) {
+			out.add(msg);
+		} else {
+			droppedPackets.increment();
+			logger.debug("Dropping duplicated data packet {}-{} from {}",
+					msg.getUserId(), msg.getInstallationId(), msg.getFrom());
+		}
+	}
+}
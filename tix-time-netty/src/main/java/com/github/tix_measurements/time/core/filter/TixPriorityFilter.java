@@ -0,0 +1,318 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixPacketCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkPositive;
+
+/**
+ * Inbound handler that keeps the {@link TixDataPacket} bursts from delaying the SHORT and LONG timing probes.
+ *
+ * It must be placed before the {@link TixMessageDecoder}, and it classifies the datagrams without parsing them: a LONG
+ * datagram with the plain or compressed data header right after its timestamps carries data, which takes a single
+ * read of an {@code int}. A data packet split by the {@link TixFragmentCodec} is told apart by its first fragment,
+ * which is queued as a data datagram while the rest of its fragments are passed on at once: they are only copied into
+ * the reassembly buffer of the decoder, and the packet is reassembled and decoded when its first fragment is drained.
+ * Every other datagram, the probes in particular, is passed on at once, so a decoder that
+ * stamps the arrivals still stamps the probes as soon as they are read. The data datagrams are held in a bounded queue
+ * that is drained, at most {@link #drainBatch} datagrams at a time, from tasks of the event loop. As Netty runs the
+ * tasks after processing the ready channels, the probes read meanwhile are passed on before the queued datagrams. When
+ * the queue is full, a data datagram is shed as chosen by the {@link SheddingPolicy}, released and counted instead of
+ * decoded.
+ *
+ * The latency of the datagrams of each {@link TixPacketType} is measured from the start of the read in which they
+ * arrived to the moment they are passed on, so it includes the time taken by the later handlers with the datagrams
+ * passed on before them.
+ *
+ * As it keeps the queue of its channel, it can not be shared.
+ */
+public class TixPriorityFilter extends ChannelInboundHandlerAdapter {
+
+	/**
+	 * Datagram shed when a data datagram arrives with the queue full.
+	 */
+	public enum SheddingPolicy {
+		/**
+		 * Sheds the datagram that arrived, keeping the queued ones.
+		 */
+		DROP_NEWEST,
+		/**
+		 * Sheds the datagram that was queued first, so the queue keeps the latest data.
+		 */
+		DROP_OLDEST
+	}
+
+	/**
+	 * Default maximum number of data datagrams passed on by each task.
+	 */
+	public static final int DEFAULT_DRAIN_BATCH = 16;
+
+	/**
+	 * Plain and compressed data headers, read as a big endian {@code int}.
+	 */
+	private static final int DATA_HEADER = ByteBuffer.wrap(
+			TixDataPacket.DATA_HEADER.getBytes(StandardCharsets.US_ASCII)).getInt();
+	private static final int COMPRESSED_DATA_HEADER = ByteBuffer.wrap(
+			TixDataPacket.COMPRESSED_DATA_HEADER.getBytes(StandardCharsets.US_ASCII)).getInt();
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * Maximum number of data datagrams passed on by each task.
+	 */
+	private final int drainBatch;
+
+	/**
+	 * {@link SheddingPolicy} applied when the queue is full.
+	 */
+	private final SheddingPolicy policy;
+
+	/**
+	 * Monotonic clock, in nanoseconds, used to measure the latencies.
+	 */
+	private final LongSupplier clock;
+
+	/*
+	 * Ring buffer of the queued data datagrams and the start of the read in which each one arrived.
+	 */
+	private final DatagramPacket[] queue;
+	private final long[] queuedReadStarts;
+	private int head;
+	private int queued;
+
+	private boolean drainScheduled;
+
+	/**
+	 * Whether a read is in progress, and the moment it started.
+	 */
+	private boolean reading;
+	private long readStart;
+
+	/*
+	 * Metrics, only written by the event loop.
+	 */
+	private final Latency shortLatency = new Latency();
+	private final Latency longLatency = new Latency();
+	private volatile long shedPackets;
+
+	/**
+	 * Creates a filter that passes on {@link #DEFAULT_DRAIN_BATCH} queued datagrams at a time.
+	 *
+	 * @param capacity Maximum number of data datagrams queued
+	 * @param policy {@link #policy}
+	 */
+	public TixPriorityFilter(int capacity, SheddingPolicy policy) {
+		this(capacity, DEFAULT_DRAIN_BATCH, policy);
+	}
+
+	/**
+	 * Main constructor of the class {@code TixPriorityFilter}.
+	 *
+	 * @param capacity Maximum number of data datagrams queued
+	 * @param drainBatch {@link #drainBatch}
+	 * @param policy {@link #policy}
+	 */
+	public TixPriorityFilter(int capacity, int drainBatch, SheddingPolicy policy) {
+		this(capacity, drainBatch, policy, System::nanoTime);
+	}
+
+	TixPriorityFilter(int capacity, int drainBatch, SheddingPolicy policy, LongSupplier clock) {
+		checkPositive(capacity, "capacity");
+		checkPositive(drainBatch, "drainBatch");
+		checkNotNull(policy, "policy");
+		checkNotNull(clock, "clock");
+		this.queue = new DatagramPacket[capacity];
+		this.queuedReadStarts = new long[capacity];
+		this.drainBatch = drainBatch;
+		this.policy = policy;
+		this.clock = clock;
+	}
+
+	/**
+	 * Returns the number of datagrams of {@code type} passed on.
+	 *
+	 * @param type {@link TixPacketType} of the datagrams
+	 * @return {@code long} number of datagrams
+	 */
+	public long getPackets(TixPacketType type) {
+		return latencyOf(type).packets;
+	}
+
+	/**
+	 * Returns the mean latency, in nanoseconds, of the datagrams of {@code type} passed on.
+	 *
+	 * @param type {@link TixPacketType} of the datagrams
+	 * @return {@code double} mean latency, or {@code 0} if none was passed on
+	 */
+	public double getMeanLatencyNanos(TixPacketType type) {
+		Latency latency = latencyOf(type);
+		long packets = latency.packets;
+		return packets == 0 ? 0 : (double) latency.totalNanos / packets;
+	}
+
+	/**
+	 * Returns the largest latency, in nanoseconds, of the datagrams of {@code type} passed on.
+	 *
+	 * @param type {@link TixPacketType} of the datagrams
+	 * @return {@code long} largest latency
+	 */
+	public long getMaxLatencyNanos(TixPacketType type) {
+		return latencyOf(type).maxNanos;
+	}
+
+	/**
+	 * Returns the number of data datagrams shed for arriving with the queue full.
+	 * @return {@link #shedPackets}
+	 */
+	public long getShedPackets() {
+		return shedPackets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (!(msg instanceof DatagramPacket)) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		if (!reading) {
+			reading = true;
+			readStart = clock.getAsLong();
+		}
+		DatagramPacket datagramPacket = (DatagramPacket) msg;
+		ByteBuf content = datagramPacket.content();
+		if (!isData(content)) {
+			Latency latency = content.readableBytes() == TixPacketType.SHORT.getSize() ? shortLatency : longLatency;
+			latency.record(clock.getAsLong() - readStart);
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		if (queued == queue.length) {
+			if (policy == SheddingPolicy.DROP_NEWEST) {
+				shed(datagramPacket);
+				return;
+			}
+			shed(poll());
+		}
+		int tail = (head + queued) % queue.length;
+		queue[tail] = datagramPacket;
+		queuedReadStarts[tail] = readStart;
+		queued++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		reading = false;
+		if (queued > 0 && !drainScheduled) {
+			drainScheduled = true;
+			ctx.executor().execute(() -> drain(ctx));
+		}
+		ctx.fireChannelReadComplete();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		while (queued > 0) {
+			ReferenceCountUtil.release(poll());
+		}
+		super.handlerRemoved(ctx);
+	}
+
+	private void drain(ChannelHandlerContext ctx) {
+		drainScheduled = false;
+		if (queued == 0) {
+			return;
+		}
+		for (int i = 0; i < drainBatch && queued > 0; i++) {
+			long queuedReadStart = queuedReadStarts[head];
+			DatagramPacket datagramPacket = poll();
+			longLatency.record(clock.getAsLong() - queuedReadStart);
+			ctx.fireChannelRead(datagramPacket);
+		}
+		ctx.fireChannelReadComplete();
+		if (queued > 0) {
+			drainScheduled = true;
+			ctx.executor().execute(() -> drain(ctx));
+		}
+	}
+
+	/**
+	 * Returns {@code true} if {@code content} is a LONG datagram with the plain or compressed data header, or the first
+	 * fragment of one.
+	 */
+	private static boolean isData(ByteBuf content) {
+		if (content.readableBytes() != TixPacketType.LONG.getSize()) {
+			return content.readableBytes() >= TixFragmentCodec.HEADER_BYTES
+					&& content.getLong(content.readerIndex()) == TixFragmentCodec.FRAGMENT_MARKER
+					&& isFirstDataFragment(content.nioBuffer());
+		}
+		int header = content.getInt(content.readerIndex() + TixPacketCodec.DATA_HEADER_OFFSET);
+		return header == DATA_HEADER || header == COMPRESSED_DATA_HEADER;
+	}
+
+	private static boolean isFirstDataFragment(ByteBuffer fragment) {
+		if (!TixFragmentCodec.isFirstFragment(fragment)) {
+			return false;
+		}
+		fragment.position(fragment.position() + TixFragmentCodec.HEADER_BYTES);
+		return TixPacketCodec.isDataPacket(fragment);
+	}
+
+	private DatagramPacket poll() {
+		DatagramPacket datagramPacket = queue[head];
+		queue[head] = null;
+		head = (head + 1) % queue.length;
+		queued--;
+		return datagramPacket;
+	}
+
+	private void shed(DatagramPacket datagramPacket) {
+		shedPackets++;
+		logger.debug("Shedding datagram from {} with the queue full", datagramPacket.sender());
+		ReferenceCountUtil.release(datagramPacket);
+	}
+
+	private Latency latencyOf(TixPacketType type) {
+		return checkNotNull(type, "type") == TixPacketType.SHORT ? shortLatency : longLatency;
+	}
+
+	/**
+	 * Latency metrics of a class of datagrams.
+	 */
+	private static final class Latency {
+		private volatile long packets;
+		private volatile long totalNanos;
+		private volatile long maxNanos;
+
+		private void record(long nanos) {
+			packets++;
+			totalNanos += nanos;
+			if (nanos > maxNanos) {
+				maxNanos = nanos;
+			}
+		}
+	}
+}
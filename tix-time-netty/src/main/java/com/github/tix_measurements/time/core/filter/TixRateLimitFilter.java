@@ -0,0 +1,166 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
+import com.github.tix_measurements.time.core.decoder.TixPacketValidator;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.github.tix_measurements.time.core.util.TixPreconditions.checkNotNull;
+
+/**
+ * Inbound handler that protects the {@link TixMessageDecoder} from clients flooding the server with LONG packets.
+ *
+ * It must be placed before the decoder. Every {@link DatagramPacket} that is not of {@link TixPacketType#SHORT} size
+ * takes a permit from the bucket of the IP address of its sender in a {@link TixRateLimiter}, whatever its port, so a
+ * sender can not get a fresh bucket by changing its port. When limiting by {@link Key#INSTALLATION_ID}, the data
+ * packets also take a permit from the bucket of the installation ID found in the raw data header, which is read in
+ * place without allocating. As that ID is not authenticated, it is only an extra limit and never replaces the one of
+ * the address. Datagrams over the rate are released and counted instead of being decoded. SHORT datagrams are never
+ * limited, as they are cheap to decode and their delay matters.
+ *
+ * A LONG packet split by the {@link TixFragmentCodec} arrives as several datagrams, each of which takes its own permit
+ * of the address, so the rate of the limiter is one of datagrams rather than packets, and must allow for the fragments
+ * of the packets of a well behaved client. Only the first fragment of a data packet holds its installation ID, so it
+ * is the only one that takes a permit of the installation.
+ *
+ * The keys are hashed into the fixed slots of the limiter, so two sources whose keys land in the same slot share a
+ * bucket: they can be limited sooner than their own rate would, but never later. The address keys have their sign bit
+ * set, so they never equal an installation ID, which is always positive.
+ */
+@ChannelHandler.Sharable
+public class TixRateLimitFilter extends ChannelInboundHandlerAdapter {
+
+	/**
+	 * Keys by which the datagrams can be limited.
+	 */
+	public enum Key {
+		/**
+		 * Limits by the IP address of the {@link DatagramPacket#sender()}, without its port.
+		 */
+		SENDER_ADDRESS,
+		/**
+		 * Limits by the IP address of the sender as {@link #SENDER_ADDRESS}, and the data packets also by their
+		 * installation ID, so an installation is limited even when it changes its address.
+		 */
+		INSTALLATION_ID
+	}
+
+	private static final int INSTALLATION_ID_OFFSET = TixPacketType.SHORT.getSize() + TixDataPacket.DATA_HEADER.length()
+			+ TixDataPacket.DATA_DELIMITER.length() + Long.BYTES;
+
+	private final Logger logger = LogManager.getLogger(this.getClass());
+
+	/**
+	 * {@link TixRateLimiter} from which the permits are taken.
+	 */
+	private final TixRateLimiter limiter;
+
+	/**
+	 * {@link Key} by which the datagrams are limited.
+	 */
+	private final Key key;
+
+	/**
+	 * Number of datagrams that were let through.
+	 */
+	private final LongAdder passedPackets = new LongAdder();
+
+	/**
+	 * Number of datagrams that were dropped for being over the rate.
+	 */
+	private final LongAdder droppedPackets = new LongAdder();
+
+	/**
+	 * Main constructor of the class {@code TixRateLimitFilter}.
+	 *
+	 * @param limiter {@link #limiter}
+	 * @param key {@link #key}
+	 */
+	public TixRateLimitFilter(TixRateLimiter limiter, Key key) {
+		checkNotNull(limiter, "limiter");
+		checkNotNull(key, "key");
+		this.limiter = limiter;
+		this.key = key;
+	}
+
+	/**
+	 * Returns the number of LONG datagrams that were let through.
+	 * @return {@link #passedPackets}
+	 */
+	public long getPassedPackets() {
+		return passedPackets.sum();
+	}
+
+	/**
+	 * Returns the number of LONG datagrams that were dropped for being over the rate.
+	 * @return {@link #droppedPackets}
+	 */
+	public long getDroppedPackets() {
+		return droppedPackets.sum();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof DatagramPacket) {
+			DatagramPacket datagramPacket = (DatagramPacket) msg;
+			ByteBuf payload = datagramPacket.content();
+			if (payload.readableBytes() != TixPacketType.SHORT.getSize()) {
+				if (!limiter.tryAcquire(addressKey(datagramPacket.sender()))
+						|| (key == Key.INSTALLATION_ID && !tryAcquireInstallation(payload))) {
+					droppedPackets.increment();
+					logger.debug("Dropping datagram from {} over the rate limit", datagramPacket.sender());
+					ReferenceCountUtil.release(msg);
+					return;
+				}
+				passedPackets.increment();
+			}
+		}
+		ctx.fireChannelRead(msg);
+	}
+
+	/**
+	 * Takes a permit from the bucket of the installation ID of a data packet, or of the first fragment of one, or
+	 * returns {@code true} if the datagram carries no data.
+	 */
+	private boolean tryAcquireInstallation(ByteBuf payload) {
+		int start = payload.readerIndex();
+		if (payload.readableBytes() >= TixFragmentCodec.HEADER_BYTES
+				&& payload.getLong(start) == TixFragmentCodec.FRAGMENT_MARKER) {
+			if (!TixFragmentCodec.isFirstFragment(payload.nioBuffer())) {
+				return true;
+			}
+			start += TixFragmentCodec.HEADER_BYTES;
+		}
+		boolean isDataPacket = payload.writerIndex() - start >= INSTALLATION_ID_OFFSET + Long.BYTES
+				&& TixPacketValidator.isDataPacket(payload.slice(start, payload.writerIndex() - start));
+		return !isDataPacket || limiter.tryAcquire(payload.getLong(start + INSTALLATION_ID_OFFSET));
+	}
+
+	/**
+	 * Returns the key of the IP address of {@code sender}, without its port, with the sign bit set.
+	 */
+	private static long addressKey(InetSocketAddress sender) {
+		if (sender == null) {
+			return Long.MIN_VALUE;
+		}
+		InetAddress address = sender.getAddress();
+		int hash = address == null ? sender.getHostString().hashCode() : address.hashCode();
+		return Long.MIN_VALUE | (hash & 0xFFFFFFFFL);
+	}
+}
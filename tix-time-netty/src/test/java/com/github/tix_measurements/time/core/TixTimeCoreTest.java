@@ -7,6 +7,7 @@ import com.github.tix_measurements.time.core.data.TixPacketType;
 import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
 import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
 import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.socket.DatagramPacket;
 import org.junit.Before;
@@ -20,6 +21,7 @@ import static org.assertj.core.api.Assertions.*;
 public class TixTimeCoreTest {
 
 	private EmbeddedChannel embeddedChannel;
+	private TixMessageDecoder decoder;
 	private InetSocketAddress from;
 	private InetSocketAddress to;
 	private byte[] publicKey;
@@ -30,7 +32,8 @@ public class TixTimeCoreTest {
 
 	@Before
 	public void setUp() throws Exception {
-		embeddedChannel = new EmbeddedChannel(new TixMessageEncoder(), new TixMessageDecoder());
+		decoder = new TixMessageDecoder();
+		embeddedChannel = new EmbeddedChannel(new TixMessageEncoder(), decoder);
 		from = InetSocketAddress.createUnresolved("localhost", 4500);
 		to = InetSocketAddress.createUnresolved("localhost", 4501);
 		setUpData();
@@ -83,4 +86,23 @@ public class TixTimeCoreTest {
 		TixDataPacket dataPackage = new TixDataPacket(from, to, TixCoreUtils.NANOS_OF_DAY.get(), userId, installationId, publicKey, message, signature);
 		testPassThroughChannel(dataPackage);
 	}
+
+	@Test
+	public void shouldEncodeAndDecodeCompressedTixDataPackage() throws Exception {
+		byte[] compressedMessage = TixCoreUtils.COMPRESSOR.apply(message);
+		TixDataPacket dataPackage = TixDataPacket.compressed(from, to, TixCoreUtils.NANOS_OF_DAY.get(), userId,
+				installationId, publicKey, compressedMessage, signature);
+		testPassThroughChannel(dataPackage);
+		TixDataPacket returned = passThroughChannel(dataPackage);
+		assertThat(returned.isCompressed()).isTrue();
+		assertThat(returned.getMessage()).isEqualTo(message);
+	}
+
+	@Test
+	public void shouldDropMalformedDatagrams() throws Exception {
+		byte[] junk = new byte[TixPacketType.SHORT.getSize() + 1];
+		assertThat(embeddedChannel.writeInbound(new DatagramPacket(Unpooled.wrappedBuffer(junk), to, from))).isFalse();
+		assertThat((Object) embeddedChannel.readInbound()).isNull();
+		assertThat(decoder.getMalformedPackets()).isEqualTo(1L);
+	}
 }
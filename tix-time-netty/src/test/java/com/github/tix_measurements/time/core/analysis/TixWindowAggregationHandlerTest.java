@@ -0,0 +1,157 @@
+package com.github.tix_measurements.time.core.analysis;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.measurement.TixMeasurementLogCodec;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixWindowAggregationHandlerTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+	private static final long RTT_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	private static KeyPair keyPair;
+
+	private AtomicLong clock;
+	private TixWindowAggregationHandler handler;
+	private List<TixLogAcknowledgement> acknowledgements;
+	private EmbeddedChannel channel;
+
+	@BeforeClass
+	public static void setupKeys() {
+		keyPair = TixCoreUtils.NEW_KEY_PAIR.get();
+	}
+
+	@Before
+	public void setup() {
+		clock = new AtomicLong();
+		handler = new TixWindowAggregationHandler(WINDOW_NANOS, TimeUnit.NANOSECONDS, clock::get);
+		acknowledgements = new ArrayList<>();
+		channel = new EmbeddedChannel(handler, new ChannelInboundHandlerAdapter() {
+			@Override
+			public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+				acknowledgements.add((TixLogAcknowledgement) evt);
+			}
+		});
+	}
+
+	private static TixDataPacket dataPacket(long installationId, byte[] message) {
+		return new TixDataPacket(FROM, TO, 1L, 1L, installationId, keyPair.getPublic().getEncoded(), message,
+				TixCoreUtils.sign(message, keyPair));
+	}
+
+	private static byte[] log(long firstSequence, long firstInitialTimestamp, int count) {
+		long[] timestamps = new long[count * 4];
+		for (int i = 0; i < count; i++) {
+			long initial = firstInitialTimestamp + TimeUnit.SECONDS.toNanos(i);
+			timestamps[i * 4] = initial;
+			timestamps[i * 4 + 1] = initial + RTT_NANOS / 2;
+			timestamps[i * 4 + 2] = initial + RTT_NANOS / 2 + 1000;
+			timestamps[i * 4 + 3] = initial + RTT_NANOS + 1000;
+		}
+		return TixMeasurementLogCodec.encode(1L, firstSequence, timestamps, 0, count);
+	}
+
+	@Test
+	public void testOtherMessagesPassThrough() {
+		TixPacket shortPacket = new TixPacket(FROM, TO, TixPacketType.SHORT, 1L);
+		TixDataPacket textPacket = dataPacket(1L, "1;2;3;4".getBytes(StandardCharsets.US_ASCII));
+		assertThat(channel.writeInbound(shortPacket, textPacket)).isTrue();
+		assertThat((Object) channel.readInbound()).isSameAs(shortPacket);
+		assertThat((Object) channel.readInbound()).isSameAs(textPacket);
+	}
+
+	@Test
+	public void testDataPacketsAreReducedToSummaries() {
+		byte[] firstMinute = log(0L, 0L, 60);
+		assertThat(channel.writeInbound(dataPacket(1L, firstMinute))).isFalse();
+		assertThat(channel.writeInbound(dataPacket(1L, firstMinute))).isFalse();
+		assertThat(channel.writeInbound(dataPacket(1L, log(60L, WINDOW_NANOS, 1)))).isTrue();
+		TixWindowSummary summary = (TixWindowSummary) channel.readInbound();
+		assertThat(summary.getInstallationId()).isEqualTo(1L);
+		assertThat(summary.getWindowStart()).isZero();
+		assertThat(summary.getSamples()).isEqualTo(60L);
+		assertThat(summary.getMinRtt()).isEqualTo(RTT_NANOS);
+		assertThat(summary.getMaxRtt()).isEqualTo(RTT_NANOS);
+		assertThat((Object) channel.readInbound()).isNull();
+		assertThat(channel.finish()).isTrue();
+		summary = (TixWindowSummary) channel.readInbound();
+		assertThat(summary.getWindowStart()).isEqualTo(WINDOW_NANOS);
+		assertThat(summary.getSamples()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testMalformedLogsAreDropped() {
+		byte[] malformed = log(0L, 0L, 2);
+		assertThat(channel.writeInbound(dataPacket(1L, Arrays.copyOf(malformed, malformed.length - 1))))
+				.isFalse();
+		assertThat(handler.getMalformedLogs()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testUndecodableMessagesAreDropped() {
+		TixDataPacket junk = TixDataPacket.compressed(FROM, TO, 1L, 1L, 1L, new byte[]{1}, new byte[]{-1, 1, 2},
+				new byte[]{2});
+		assertThat(channel.writeInbound(junk)).isFalse();
+		assertThat(handler.getMalformedLogs()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testForgedPacketsAreDropped() {
+		byte[] forged = log(1_000_000L, 0L, 1);
+		TixDataPacket unsigned = new TixDataPacket(FROM, TO, 1L, 1L, 1L, keyPair.getPublic().getEncoded(), forged,
+				TixCoreUtils.sign(log(0L, 0L, 1), keyPair));
+		TixDataPacket junkKey = new TixDataPacket(FROM, TO, 1L, 1L, 1L, new byte[]{1}, forged, new byte[]{2});
+		assertThat(channel.writeInbound(unsigned, junkKey)).isFalse();
+		assertThat(handler.getInvalidPackets()).isEqualTo(2L);
+		assertThat(handler.getAssembler().getNextSequence(1L)).isZero();
+		assertThat(acknowledgements).isEmpty();
+		assertThat(channel.writeInbound(dataPacket(1L, log(0L, 0L, 1)))).isFalse();
+		assertThat(handler.getAssembler().getNextSequence(1L)).isEqualTo(1L);
+	}
+
+	@Test
+	public void testAcknowledgements() {
+		assertThat(channel.writeInbound(dataPacket(1L, log(0L, 0L, 10)))).isFalse();
+		assertThat(channel.writeInbound(dataPacket(1L, log(5L, TimeUnit.SECONDS.toNanos(5), 10)))).isFalse();
+		assertThat(acknowledgements).hasSize(2);
+		assertThat(acknowledgements.get(0).getFrom()).isEqualTo(FROM);
+		assertThat(acknowledgements.get(0).getInstallationId()).isEqualTo(1L);
+		assertThat(acknowledgements.get(0).getSequence()).isEqualTo(9L);
+		assertThat(acknowledgements.get(1).getSequence()).isEqualTo(14L);
+	}
+
+	@Test
+	public void testExpiredInstallationsAreForgotten() {
+		assertThat(channel.writeInbound(dataPacket(1L, log(0L, 0L, 10)))).isFalse();
+		assertThat(channel.writeInbound(dataPacket(2L, log(0L, 0L, 10)))).isFalse();
+		clock.addAndGet(WINDOW_NANOS);
+		assertThat(channel.writeInbound(dataPacket(2L, log(10L, TimeUnit.SECONDS.toNanos(10), 1)))).isFalse();
+		clock.addAndGet(WINDOW_NANOS);
+		handler.expire(channel.pipeline().context(handler));
+		TixWindowSummary summary = (TixWindowSummary) channel.readInbound();
+		assertThat(summary.getInstallationId()).isEqualTo(1L);
+		assertThat((Object) channel.readInbound()).isNull();
+		assertThat(handler.getAssembler().getNextSequence(1L)).isZero();
+		assertThat(handler.getAssembler().getNextSequence(2L)).isEqualTo(11L);
+	}
+}
@@ -0,0 +1,241 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.client.TixDatagramClient;
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.codec.TixReassemblyBuffer;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixMessageDecoderTest {
+
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+
+	private static TixPacket passThrough(EmbeddedChannel channel, TixPacket packet) {
+		EmbeddedChannel encoder = new EmbeddedChannel(new TixMessageEncoder());
+		assertThat(encoder.writeOutbound(packet)).isTrue();
+		assertThat(channel.writeInbound((DatagramPacket) encoder.readOutbound())).isTrue();
+		return (TixPacket) channel.readInbound();
+	}
+
+	/**
+	 * Drops the datagrams longer than the largest UDP payload of a path with the {@code mtu}, as a path does with the
+	 * fragments of a datagram when they are filtered or the don't fragment bit is set.
+	 */
+	private static final class EmulatedMtu extends ChannelOutboundHandlerAdapter {
+		private final int maxDatagramBytes;
+
+		private EmulatedMtu(int mtu) {
+			this.maxDatagramBytes = mtu - 28;
+		}
+
+		@Override
+		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+			if (((DatagramPacket) msg).content().readableBytes() > maxDatagramBytes) {
+				((DatagramPacket) msg).release();
+				promise.setSuccess();
+			} else {
+				ctx.write(msg, promise);
+			}
+		}
+	}
+
+	@Test
+	public void testReassemblesFragments() {
+		int maxDatagramBytes = TixFragmentCodec.DEFAULT_MAX_DATAGRAM_BYTES;
+		EmbeddedChannel encoder = new EmbeddedChannel(new TixMessageEncoder(maxDatagramBytes));
+		TixPacket probe = new TixPacket(FROM, TO, TixPacketType.LONG, 1_000L);
+		assertThat(encoder.writeOutbound(probe, new TixPacket(FROM, TO, TixPacketType.SHORT, 2_000L))).isTrue();
+		List<DatagramPacket> datagrams = new ArrayList<>();
+		for (Object o = encoder.readOutbound(); o != null; o = encoder.readOutbound()) {
+			datagrams.add((DatagramPacket) o);
+			assertThat(datagrams.get(datagrams.size() - 1).content().readableBytes())
+					.isLessThanOrEqualTo(maxDatagramBytes);
+		}
+		assertThat(datagrams).hasSize(5);
+		TixReassemblyBuffer reassemblyBuffer = new TixReassemblyBuffer();
+		long[] clock = {5_000L};
+		EmbeddedChannel channel = new EmbeddedChannel(new TixMessageDecoder(() -> clock[0]++, reassemblyBuffer));
+		for (int i = 3; i >= 0; i--) {
+			channel.writeInbound(datagrams.get(i).duplicate().retain());
+		}
+		TixPacket received = (TixPacket) channel.readInbound();
+		assertThat(received.getType()).isEqualTo(TixPacketType.LONG);
+		assertThat(received.getInitialTimestamp()).isEqualTo(1_000L);
+		// stamped with the arrival of the last fragment
+		assertThat(received.getReceptionTimestamp()).isEqualTo(5_003L);
+		assertThat(channel.readInbound()).isNull();
+		assertThat(channel.writeInbound(datagrams.get(4))).isTrue();
+		assertThat(((TixPacket) channel.readInbound()).getType()).isEqualTo(TixPacketType.SHORT);
+		assertThat(reassemblyBuffer.getReassembledPackets()).isEqualTo(1);
+		// a fragment of another packet that never completes, and a malformed one
+		channel.writeInbound(datagrams.get(0));
+		DatagramPacket truncated = datagrams.get(1);
+		truncated.content().writerIndex(TixFragmentCodec.HEADER_BYTES);
+		channel.writeInbound(truncated);
+		assertThat(channel.readInbound()).isNull();
+		assertThat(reassemblyBuffer.size()).isEqualTo(1);
+		assertThat(((TixMessageDecoder) channel.pipeline().first()).getMalformedPackets()).isEqualTo(1);
+		channel.finish();
+	}
+
+	@Test
+	public void testLoopbackEmulatedMtu() throws Exception {
+		int probes = 20;
+		int mtu = 1500;
+		CountDownLatch unsplitReceived = new CountDownLatch(probes);
+		CountDownLatch splitReceived = new CountDownLatch(probes);
+		EventLoopGroup group = new NioEventLoopGroup(1);
+		try {
+			Channel server = new Bootstrap().group(group).channel(NioDatagramChannel.class)
+					.option(ChannelOption.SO_RCVBUF, 1 << 20)
+					.handler(new ChannelInitializer<DatagramChannel>() {
+						@Override
+						protected void initChannel(DatagramChannel ch) throws Exception {
+							ch.pipeline().addLast(new TixMessageDecoder(true));
+							ch.pipeline().addLast(new SimpleChannelInboundHandler<TixPacket>() {
+								@Override
+								protected void channelRead0(ChannelHandlerContext ctx, TixPacket msg) {
+									(msg.getInitialTimestamp() % 2 == 0 ? unsplitReceived : splitReceived).countDown();
+								}
+							});
+						}
+					})
+					.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+			InetSocketAddress serverAddress = (InetSocketAddress) server.localAddress();
+			for (int maxDatagramBytes : new int[]{TixPacketType.LONG.getSize(), mtu - 28}) {
+				Channel client = new Bootstrap().group(group).channel(NioDatagramChannel.class)
+						.handler(new ChannelInitializer<DatagramChannel>() {
+							@Override
+							protected void initChannel(DatagramChannel ch) throws Exception {
+								ch.pipeline().addLast(new EmulatedMtu(mtu), new TixMessageEncoder(maxDatagramBytes));
+							}
+						})
+						.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+				InetSocketAddress clientAddress = (InetSocketAddress) client.localAddress();
+				int parity = maxDatagramBytes == TixPacketType.LONG.getSize() ? 0 : 1;
+				for (int i = 0; i < probes; i++) {
+					client.writeAndFlush(new TixPacket(clientAddress, serverAddress, TixPacketType.LONG,
+							2 * i + parity)).sync();
+				}
+				client.close().sync();
+			}
+			// the unsplit LONG packets do not fit in the path, while every split one arrives
+			assertThat(splitReceived.await(10, TimeUnit.SECONDS)).isTrue();
+			assertThat(unsplitReceived.getCount()).isEqualTo(probes);
+			server.close().sync();
+		} finally {
+			group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+	}
+
+	@Test
+	public void testArrivalsNotStamped() {
+		TixPacket probe = new TixPacket(FROM, TO, TixPacketType.SHORT, 1_000L);
+		EmbeddedChannel channel = new EmbeddedChannel(new TixMessageDecoder());
+		assertThat(passThrough(channel, probe).getReceptionTimestamp()).isZero();
+	}
+
+	@Test
+	public void testStampArrivals() {
+		EmbeddedChannel channel = new EmbeddedChannel(new TixMessageDecoder(() -> 5_000L));
+		TixPacket probe = new TixPacket(FROM, TO, TixPacketType.SHORT, 1_000L);
+		TixPacket received = passThrough(channel, probe);
+		assertThat(received.getReceptionTimestamp()).isEqualTo(5_000L);
+		assertThat(received.getFinalTimestamp()).isZero();
+		probe.setReceptionTimestamp(2_000L);
+		probe.setSentTimestamp(3_000L);
+		received = passThrough(channel, probe);
+		assertThat(received.getReceptionTimestamp()).isEqualTo(2_000L);
+		assertThat(received.getFinalTimestamp()).isEqualTo(5_000L);
+		probe.setFinalTimestamp(4_000L);
+		assertThat(passThrough(channel, probe)).isEqualTo(probe);
+	}
+
+	@Test
+	public void testArrivalsStampedBeforeQueueing() throws Exception {
+		int probes = 20;
+		long handlerNanos = TimeUnit.MILLISECONDS.toNanos(2);
+		Queue<long[]> stamps = new ConcurrentLinkedQueue<>();
+		CountDownLatch warmedUp = new CountDownLatch(1);
+		CountDownLatch received = new CountDownLatch(probes + 1);
+		EventLoopGroup group = new NioEventLoopGroup(1);
+		EventExecutorGroup handlers = new DefaultEventExecutorGroup(1);
+		try {
+			Channel server = new Bootstrap().group(group).channel(NioDatagramChannel.class)
+					.handler(new ChannelInitializer<DatagramChannel>() {
+						@Override
+						protected void initChannel(DatagramChannel ch) throws Exception {
+							ch.pipeline().addLast(new TixMessageDecoder(true));
+							ch.pipeline().addLast(handlers, new SimpleChannelInboundHandler<TixPacket>() {
+								@Override
+								protected void channelRead0(ChannelHandlerContext ctx, TixPacket msg) throws Exception {
+									long handled = TixCoreUtils.NANOS_OF_DAY.get();
+									if (warmedUp.getCount() == 0) {
+										stamps.add(new long[]{msg.getInitialTimestamp(),
+												msg.getReceptionTimestamp(), handled});
+										TimeUnit.NANOSECONDS.sleep(handlerNanos);
+									}
+									warmedUp.countDown();
+									received.countDown();
+								}
+							});
+						}
+					})
+					.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+			InetSocketAddress serverAddress = (InetSocketAddress) server.localAddress();
+			try (TixDatagramClient client = new TixDatagramClient(serverAddress)) {
+				client.send(new TixPacket(client.getLocalAddress(), serverAddress, TixPacketType.SHORT,
+						TixCoreUtils.NANOS_OF_DAY.get()));
+				assertThat(warmedUp.await(10, TimeUnit.SECONDS)).isTrue();
+				for (int i = 0; i < probes; i++) {
+					client.send(new TixPacket(client.getLocalAddress(), serverAddress, TixPacketType.SHORT,
+							TixCoreUtils.NANOS_OF_DAY.get()));
+				}
+				assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+			}
+			server.close().sync();
+		} finally {
+			handlers.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+			group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+		long maxArrivalDelay = 0;
+		long maxHandlerDelay = 0;
+		for (long[] stamp : stamps) {
+			maxArrivalDelay = Math.max(maxArrivalDelay, TixCoreUtils.nanosOfDayDifference(stamp[1], stamp[0]));
+			maxHandlerDelay = Math.max(maxHandlerDelay, TixCoreUtils.nanosOfDayDifference(stamp[2], stamp[0]));
+			assertThat(TixCoreUtils.nanosOfDayDifference(stamp[1], stamp[0])).isNotNegative();
+		}
+		assertThat(maxHandlerDelay).isGreaterThanOrEqualTo((probes - 1) * handlerNanos);
+		assertThat(maxArrivalDelay).isLessThan(maxHandlerDelay / 2);
+	}
+}
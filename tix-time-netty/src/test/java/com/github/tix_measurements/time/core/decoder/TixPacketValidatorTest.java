@@ -0,0 +1,93 @@
+package com.github.tix_measurements.time.core.decoder;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixPacketValidatorTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final long INITIAL_TIMESTAMP = 1L;
+
+	private static ByteBuf encode(TixPacket packet) {
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(new TixMessageEncoder());
+		assertThat(encoderChannel.writeOutbound(packet)).isTrue();
+		return ((DatagramPacket) encoderChannel.readOutbound()).content();
+	}
+
+	private static ByteBuf encodedDataPacket() {
+		return encode(new TixDataPacket(FROM, TO, INITIAL_TIMESTAMP, 1L, 1L,
+				RandomUtils.nextBytes(TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH), RandomUtils.nextBytes(320),
+				RandomUtils.nextBytes(TixCoreUtils.SIGNATURE_BYTES_SIZE)));
+	}
+
+	@Test
+	public void testWellFormedPackets() {
+		assertThat(TixPacketValidator.isWellFormed(encode(new TixPacket(FROM, TO, TixPacketType.SHORT, INITIAL_TIMESTAMP)))).isTrue();
+		assertThat(TixPacketValidator.isWellFormed(encode(new TixPacket(FROM, TO, TixPacketType.LONG, INITIAL_TIMESTAMP)))).isTrue();
+		ByteBuf data = encodedDataPacket();
+		int readerIndex = data.readerIndex();
+		assertThat(TixPacketValidator.isDataPacket(data)).isTrue();
+		assertThat(TixPacketValidator.isWellFormed(data)).isTrue();
+		assertThat(data.readerIndex()).isEqualTo(readerIndex);
+	}
+
+	@Test
+	public void testWrongLengthsAreMalformed() {
+		assertThat(TixPacketValidator.isWellFormed(Unpooled.EMPTY_BUFFER)).isFalse();
+		assertThat(TixPacketValidator.isWellFormed(Unpooled.wrappedBuffer(new byte[TixPacketType.SHORT.getSize() - 1]))).isFalse();
+		assertThat(TixPacketValidator.isWellFormed(Unpooled.wrappedBuffer(new byte[TixPacketType.SHORT.getSize() + 1]))).isFalse();
+		assertThat(TixPacketValidator.isWellFormed(Unpooled.wrappedBuffer(new byte[TixPacketType.LONG.getSize() + 1]))).isFalse();
+		assertThat(TixPacketValidator.isWellFormed(encodedDataPacket().writerIndex(TixPacketType.LONG.getSize() - 1))).isFalse();
+	}
+
+	@Test
+	public void testNegativeTimestampsAreMalformed() {
+		ByteBuf payload = encode(new TixPacket(FROM, TO, TixPacketType.SHORT, INITIAL_TIMESTAMP));
+		payload.setLong(2 * Long.BYTES, -1L);
+		assertThat(TixPacketValidator.isWellFormed(payload)).isFalse();
+	}
+
+	@Test
+	public void testBrokenDataIsMalformed() {
+		int[] corruptedIndexes = {
+				TixPacketValidator.PUBLIC_KEY_OFFSET - 1,
+				TixPacketValidator.MESSAGE_OFFSET - 1,
+		};
+		for (int index : corruptedIndexes) {
+			ByteBuf payload = encodedDataPacket();
+			payload.setByte(index, 'X');
+			assertThat(TixPacketValidator.isWellFormed(payload)).isFalse();
+		}
+		ByteBuf payload = encodedDataPacket();
+		payload.setLong(TixPacketValidator.USER_ID_OFFSET, 0L);
+		assertThat(TixPacketValidator.isWellFormed(payload)).isFalse();
+		payload = encodedDataPacket();
+		int messageEnd = TixPacketValidator.messageEndIndex(payload);
+		payload.setByte(messageEnd + 2 + TixCoreUtils.SIGNATURE_BYTES_SIZE, 'X');
+		assertThat(TixPacketValidator.isWellFormed(payload)).isFalse();
+		payload = encodedDataPacket();
+		payload.setByte(TixPacketValidator.MESSAGE_OFFSET, ';');
+		assertThat(TixPacketValidator.isWellFormed(payload)).isFalse();
+	}
+
+	@Test
+	public void testLongPacketWithoutHeaderIsNotData() {
+		ByteBuf payload = encode(new TixPacket(FROM, TO, TixPacketType.LONG, INITIAL_TIMESTAMP));
+		payload.setByte(TixPacketValidator.DATA_HEADER_OFFSET, 'X');
+		assertThat(TixPacketValidator.isDataPacket(payload)).isFalse();
+		assertThat(TixPacketValidator.isWellFormed(payload)).isTrue();
+	}
+}
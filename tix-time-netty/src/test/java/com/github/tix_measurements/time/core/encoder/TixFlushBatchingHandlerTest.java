@@ -0,0 +1,180 @@
+package com.github.tix_measurements.time.core.encoder;
+
+import com.github.tix_measurements.time.core.client.TixDatagramClient;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.decoder.TixMessageDecoder;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixFlushBatchingHandlerTest {
+
+	/**
+	 * Handler that replies to each message read with a flush of its own.
+	 */
+	private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+		@Override
+		public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+			ctx.writeAndFlush(msg);
+		}
+	}
+
+	private static void read(EmbeddedChannel channel, int messages) {
+		for (int i = 0; i < messages; i++) {
+			channel.pipeline().fireChannelRead("probe " + i);
+		}
+	}
+
+	@Test
+	public void testFlushesOncePerRead() {
+		TixFlushBatchingHandler handler = new TixFlushBatchingHandler();
+		EmbeddedChannel channel = new EmbeddedChannel(handler, new EchoHandler());
+		read(channel, 10);
+		assertThat(channel.outboundMessages()).isEmpty();
+		channel.pipeline().fireChannelReadComplete();
+		assertThat(channel.outboundMessages()).hasSize(10);
+		assertThat(channel.readOutbound()).isEqualTo("probe 0");
+		assertThat(handler.getWrites()).isEqualTo(10);
+		assertThat(handler.getFlushRequests()).isEqualTo(10);
+		assertThat(handler.getFlushes()).isEqualTo(1);
+		assertThat(channel.finish()).isTrue();
+	}
+
+	@Test
+	public void testMaxBatch() {
+		TixFlushBatchingHandler handler = new TixFlushBatchingHandler(4, 0, TimeUnit.NANOSECONDS);
+		EmbeddedChannel channel = new EmbeddedChannel(handler, new EchoHandler());
+		read(channel, 3);
+		assertThat(channel.outboundMessages()).isEmpty();
+		read(channel, 1);
+		assertThat(channel.outboundMessages()).hasSize(4);
+		read(channel, 6);
+		assertThat(channel.outboundMessages()).hasSize(8);
+		channel.pipeline().fireChannelReadComplete();
+		assertThat(channel.outboundMessages()).hasSize(10);
+		assertThat(handler.getFlushes()).isEqualTo(3);
+		channel.finish();
+	}
+
+	@Test
+	public void testFlushesOutsideReads() throws Exception {
+		TixFlushBatchingHandler handler = new TixFlushBatchingHandler();
+		EmbeddedChannel channel = new EmbeddedChannel(handler);
+		channel.writeAndFlush("reply");
+		assertThat(channel.outboundMessages()).hasSize(1);
+		assertThat(handler.getFlushes()).isEqualTo(1);
+		// written without a flush, so it waits for the next one
+		channel.write("pending");
+		read(channel, 1);
+		channel.writeAndFlush("reply");
+		assertThat(channel.outboundMessages()).hasSize(1);
+		channel.close();
+		assertThat(channel.outboundMessages()).hasSize(3);
+	}
+
+	@Test
+	public void testMaxDelay() throws Exception {
+		long maxDelayMillis = 20;
+		TixFlushBatchingHandler handler = new TixFlushBatchingHandler(TixFlushBatchingHandler.DEFAULT_MAX_BATCH,
+				maxDelayMillis, TimeUnit.MILLISECONDS);
+		EmbeddedChannel channel = new EmbeddedChannel(handler);
+		for (int i = 0; i < 3; i++) {
+			channel.writeAndFlush("reply " + i);
+		}
+		channel.runPendingTasks();
+		assertThat(channel.outboundMessages()).isEmpty();
+		TimeUnit.MILLISECONDS.sleep(2 * maxDelayMillis);
+		channel.runPendingTasks();
+		assertThat(channel.outboundMessages()).hasSize(3);
+		assertThat(handler.getFlushes()).isEqualTo(1);
+		assertThat(handler.getMaxFlushDelayNanos())
+				.isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(maxDelayMillis));
+		channel.finish();
+	}
+
+	@Test
+	public void testLoopbackEcho() throws Exception {
+		int probes = 200;
+		long stallMillis = 200;
+		TixFlushBatchingHandler handler = new TixFlushBatchingHandler();
+		EventLoopGroup group = new NioEventLoopGroup(1);
+		ExecutorService receiver = Executors.newSingleThreadExecutor();
+		try {
+			Channel server = new Bootstrap().group(group).channel(NioDatagramChannel.class)
+					.option(ChannelOption.MAX_MESSAGES_PER_READ, 16)
+					.handler(new ChannelInitializer<DatagramChannel>() {
+						@Override
+						protected void initChannel(DatagramChannel ch) throws Exception {
+							ch.pipeline().addLast(handler, new TixMessageDecoder(true), new TixMessageEncoder());
+							ch.pipeline().addLast(new SimpleChannelInboundHandler<TixPacket>() {
+								@Override
+								protected void channelRead0(ChannelHandlerContext ctx, TixPacket msg) {
+									TixPacket reply = new TixPacket(msg.getTo(), msg.getFrom(), msg.getType(),
+											msg.getInitialTimestamp());
+									reply.setReceptionTimestamp(msg.getReceptionTimestamp());
+									reply.setSentTimestamp(TixCoreUtils.NANOS_OF_DAY.get());
+									ctx.writeAndFlush(reply);
+								}
+							});
+						}
+					})
+					.bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+			InetSocketAddress serverAddress = (InetSocketAddress) server.localAddress();
+			try (TixDatagramClient client = new TixDatagramClient(serverAddress)) {
+				CountDownLatch echoed = new CountDownLatch(probes);
+				receiver.execute(() -> {
+					try {
+						while (echoed.getCount() > 0) {
+							client.receive();
+							echoed.countDown();
+						}
+					} catch (Exception e) {
+						// closed
+					}
+				});
+				// the probes queue up in the socket while the event loop is busy, so they are read in bursts
+				server.eventLoop().execute(() -> {
+					try {
+						TimeUnit.MILLISECONDS.sleep(stallMillis);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+				for (int i = 0; i < probes; i++) {
+					client.send(new TixPacket(client.getLocalAddress(), serverAddress, TixPacketType.SHORT,
+							TixCoreUtils.NANOS_OF_DAY.get()));
+				}
+				assertThat(echoed.await(10, TimeUnit.SECONDS)).isTrue();
+			}
+			server.close().sync();
+		} finally {
+			receiver.shutdownNow();
+			group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+		}
+		assertThat(handler.getWrites()).isEqualTo(probes);
+		assertThat(handler.getFlushRequests()).isEqualTo(probes);
+		assertThat(handler.getFlushes()).isLessThanOrEqualTo(probes / 4);
+		// a flush is only held for the rest of its read
+		assertThat(handler.getMaxFlushDelayNanos()).isLessThan(TimeUnit.MILLISECONDS.toNanos(stallMillis));
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixDuplicateFilterTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final byte[] PUBLIC_KEY = RandomUtils.nextBytes(294);
+	private static final byte[] MESSAGE = RandomUtils.nextBytes(320);
+	private static final byte[] SIGNATURE = RandomUtils.nextBytes(256);
+
+	private TixDuplicateFilter filter;
+	private EmbeddedChannel embeddedChannel;
+
+	@Before
+	public void setup() {
+		filter = new TixDuplicateFilter();
+		embeddedChannel = new EmbeddedChannel(filter);
+	}
+
+	@Test
+	public void testDuplicatesAreDropped() {
+		TixDataPacket packet = new TixDataPacket(FROM, TO, 1L, 1L, 1L, PUBLIC_KEY, MESSAGE, SIGNATURE);
+		TixDataPacket retransmission = new TixDataPacket(FROM, TO, 2L, 1L, 1L, PUBLIC_KEY, MESSAGE, SIGNATURE);
+		assertThat(embeddedChannel.writeInbound(packet)).isTrue();
+		assertThat((Object) embeddedChannel.readInbound()).isSameAs(packet);
+		assertThat(embeddedChannel.writeInbound(retransmission)).isFalse();
+		assertThat((Object) embeddedChannel.readInbound()).isNull();
+		assertThat(filter.getDroppedPackets()).isEqualTo(1L);
+	}
+
+	@Test
+	public void testOtherPacketsPassThrough() {
+		TixPacket packet = new TixPacket(FROM, TO, TixPacketType.SHORT, 1L);
+		assertThat(embeddedChannel.writeInbound(packet)).isTrue();
+		assertThat(embeddedChannel.writeInbound(packet)).isTrue();
+		assertThat((Object) embeddedChannel.readInbound()).isSameAs(packet);
+		assertThat((Object) embeddedChannel.readInbound()).isSameAs(packet);
+		assertThat(filter.getDroppedPackets()).isZero();
+	}
+}
@@ -0,0 +1,228 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.decoder.TixPacketValidator;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import com.github.tix_measurements.time.core.util.TixCoreUtils;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixPriorityFilterTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+
+	/**
+	 * Nanoseconds taken by the handlers after the filter to process each type of datagram.
+	 */
+	private static final long SHORT_COST_NANOS = 10_000L;
+	private static final long LONG_COST_NANOS = 1_000_000L;
+
+	private static final String DATA = "DATA";
+
+	private long nanos;
+	private long readStart;
+	private List<String> processed;
+	private List<Long> longProbeLatencies;
+
+	private static DatagramPacket encode(TixPacket packet) {
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(new TixMessageEncoder());
+		assertThat(encoderChannel.writeOutbound(packet)).isTrue();
+		return (DatagramPacket) encoderChannel.readOutbound();
+	}
+
+	private static DatagramPacket encode(TixPacketType type) {
+		return encode(new TixPacket(FROM, TO, type, 1L));
+	}
+
+	private static TixDataPacket dataPacket() {
+		return new TixDataPacket(FROM, TO, 1L, 1L, 1L, new byte[TixCoreUtils.PUBLCK_KEY_BYTES_LENGTH],
+				"1;2;3;4".getBytes(StandardCharsets.US_ASCII), new byte[TixCoreUtils.SIGNATURE_BYTES_SIZE]);
+	}
+
+	private static DatagramPacket encodeData() {
+		return encode(dataPacket());
+	}
+
+	private static List<Object> fragments(TixPacket packet) {
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(
+				new TixMessageEncoder(TixFragmentCodec.DEFAULT_MAX_DATAGRAM_BYTES));
+		assertThat(encoderChannel.writeOutbound(packet)).isTrue();
+		List<Object> fragments = new ArrayList<>();
+		Object fragment;
+		while ((fragment = encoderChannel.readOutbound()) != null) {
+			fragments.add(fragment);
+		}
+		return fragments;
+	}
+
+	private EmbeddedChannel channel(TixPriorityFilter filter) {
+		return new EmbeddedChannel(filter, new ChannelInboundHandlerAdapter() {
+			@Override
+			public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+				DatagramPacket datagram = (DatagramPacket) msg;
+				boolean isShort = datagram.content().readableBytes() == TixPacketType.SHORT.getSize();
+				boolean isData = !isShort && TixPacketValidator.isDataPacket(datagram.content());
+				String label = isShort ? TixPacketType.SHORT.name() : isData ? DATA : TixPacketType.LONG.name();
+				if (label.equals(TixPacketType.LONG.name())) {
+					longProbeLatencies.add(nanos - readStart);
+				}
+				processed.add(label);
+				nanos += isShort ? SHORT_COST_NANOS : LONG_COST_NANOS;
+				ReferenceCountUtil.release(msg);
+			}
+		});
+	}
+
+	private void read(EmbeddedChannel channel, int dataPackets, int probes, TixPacketType probeType) {
+		List<Object> datagrams = new ArrayList<>();
+		for (int i = 0; i < Math.max(dataPackets, probes); i++) {
+			if (i < dataPackets) {
+				datagrams.add(encodeData());
+			}
+			if (i < probes) {
+				datagrams.add(encode(probeType));
+			}
+		}
+		readStart = nanos;
+		channel.writeInbound(datagrams.toArray());
+		channel.runPendingTasks();
+	}
+
+	private void read(EmbeddedChannel channel, int dataPackets, int shortPackets) {
+		read(channel, dataPackets, shortPackets, TixPacketType.SHORT);
+	}
+
+	@Before
+	public void setUp() {
+		nanos = 0;
+		processed = new ArrayList<>();
+		longProbeLatencies = new ArrayList<>();
+	}
+
+	@Test
+	public void testShortPacketsFirst() {
+		TixPriorityFilter filter = new TixPriorityFilter(16, 1, TixPriorityFilter.SheddingPolicy.DROP_NEWEST,
+				() -> nanos);
+		EmbeddedChannel channel = channel(filter);
+		read(channel, 3, 2);
+		assertThat(processed).containsExactly(TixPacketType.SHORT.name(), TixPacketType.SHORT.name(), DATA, DATA, DATA);
+		assertThat(filter.getPackets(TixPacketType.SHORT)).isEqualTo(2L);
+		assertThat(filter.getPackets(TixPacketType.LONG)).isEqualTo(3L);
+		assertThat(filter.getMaxLatencyNanos(TixPacketType.SHORT)).isEqualTo(SHORT_COST_NANOS);
+		assertThat(filter.getMaxLatencyNanos(TixPacketType.LONG))
+				.isEqualTo(2 * SHORT_COST_NANOS + 2 * LONG_COST_NANOS);
+	}
+
+	@Test
+	public void testFirstDataFragmentIsQueued() {
+		List<Object> passed = new ArrayList<>();
+		EmbeddedChannel channel = new EmbeddedChannel(
+				new TixPriorityFilter(16, TixPriorityFilter.SheddingPolicy.DROP_NEWEST),
+				new ChannelInboundHandlerAdapter() {
+					@Override
+					public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+						passed.add(msg);
+					}
+				});
+		List<Object> dataFragments = fragments(dataPacket());
+		List<Object> probeFragments = fragments(new TixPacket(FROM, TO, TixPacketType.LONG, 1L));
+		List<Object> datagrams = new ArrayList<>(dataFragments);
+		datagrams.addAll(probeFragments);
+		channel.writeInbound(datagrams.toArray());
+		channel.runPendingTasks();
+		// the rest of the data fragments and the whole probe are passed on at once, before the queued first fragment
+		List<Object> expected = new ArrayList<>(datagrams.subList(1, datagrams.size()));
+		expected.add(dataFragments.get(0));
+		assertThat(passed).containsExactlyElementsOf(expected);
+		passed.forEach(ReferenceCountUtil::release);
+	}
+
+	@Test
+	public void testDropNewest() {
+		TixPriorityFilter filter = new TixPriorityFilter(2, TixPriorityFilter.SheddingPolicy.DROP_NEWEST);
+		EmbeddedChannel channel = channel(filter);
+		DatagramPacket[] datagrams = {encodeData(), encodeData(), encodeData()};
+		channel.writeInbound((Object[]) datagrams);
+		channel.runPendingTasks();
+		assertThat(filter.getShedPackets()).isEqualTo(1L);
+		assertThat(filter.getPackets(TixPacketType.LONG)).isEqualTo(2L);
+		assertThat(datagrams[2].refCnt()).isZero();
+	}
+
+	@Test
+	public void testDropOldest() {
+		TixPriorityFilter filter = new TixPriorityFilter(2, TixPriorityFilter.SheddingPolicy.DROP_OLDEST);
+		EmbeddedChannel channel = channel(filter);
+		DatagramPacket[] datagrams = {encodeData(), encodeData(), encodeData(), encodeData()};
+		channel.writeInbound((Object[]) datagrams);
+		channel.runPendingTasks();
+		assertThat(filter.getShedPackets()).isEqualTo(2L);
+		assertThat(filter.getPackets(TixPacketType.LONG)).isEqualTo(2L);
+		assertThat(datagrams[0].refCnt()).isZero();
+		assertThat(datagrams[1].refCnt()).isZero();
+	}
+
+	@Test
+	public void testShortLatencyUnderDataFlood() {
+		TixPriorityFilter idle = new TixPriorityFilter(64, TixPriorityFilter.DEFAULT_DRAIN_BATCH,
+				TixPriorityFilter.SheddingPolicy.DROP_NEWEST, () -> nanos);
+		EmbeddedChannel idleChannel = channel(idle);
+		for (int i = 0; i < 20; i++) {
+			read(idleChannel, 0, 5);
+		}
+		TixPriorityFilter flooded = new TixPriorityFilter(64, TixPriorityFilter.DEFAULT_DRAIN_BATCH,
+				TixPriorityFilter.SheddingPolicy.DROP_NEWEST, () -> nanos);
+		EmbeddedChannel floodedChannel = channel(flooded);
+		for (int i = 0; i < 20; i++) {
+			read(floodedChannel, 100, 5);
+		}
+		assertThat(flooded.getPackets(TixPacketType.SHORT)).isEqualTo(100L);
+		assertThat(flooded.getShedPackets()).isEqualTo(20 * (100 - 64));
+		assertThat(flooded.getMaxLatencyNanos(TixPacketType.SHORT))
+				.isEqualTo(idle.getMaxLatencyNanos(TixPacketType.SHORT));
+		assertThat(flooded.getMeanLatencyNanos(TixPacketType.SHORT))
+				.isEqualTo(idle.getMeanLatencyNanos(TixPacketType.SHORT));
+		assertThat(flooded.getMeanLatencyNanos(TixPacketType.LONG)).isGreaterThan(10 * LONG_COST_NANOS);
+	}
+
+	@Test
+	public void testLongProbesUnderDataFlood() {
+		TixPriorityFilter idle = new TixPriorityFilter(64, TixPriorityFilter.DEFAULT_DRAIN_BATCH,
+				TixPriorityFilter.SheddingPolicy.DROP_NEWEST, () -> nanos);
+		EmbeddedChannel idleChannel = channel(idle);
+		for (int i = 0; i < 20; i++) {
+			read(idleChannel, 0, 5, TixPacketType.LONG);
+		}
+		long idleMaxLatency = Collections.max(longProbeLatencies);
+		longProbeLatencies.clear();
+		processed.clear();
+		TixPriorityFilter flooded = new TixPriorityFilter(64, TixPriorityFilter.DEFAULT_DRAIN_BATCH,
+				TixPriorityFilter.SheddingPolicy.DROP_NEWEST, () -> nanos);
+		EmbeddedChannel floodedChannel = channel(flooded);
+		read(floodedChannel, 100, 5, TixPacketType.LONG);
+		assertThat(processed.subList(0, 5)).containsOnly(TixPacketType.LONG.name());
+		assertThat(processed.subList(5, processed.size())).hasSize(64).containsOnly(DATA);
+		for (int i = 1; i < 20; i++) {
+			read(floodedChannel, 100, 5, TixPacketType.LONG);
+		}
+		assertThat(longProbeLatencies).hasSize(100);
+		assertThat(Collections.max(longProbeLatencies)).isEqualTo(idleMaxLatency);
+		assertThat(flooded.getShedPackets()).isEqualTo(20 * (100 - 64));
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.tix_measurements.time.core.filter;
+
+import com.github.tix_measurements.time.core.codec.TixFragmentCodec;
+import com.github.tix_measurements.time.core.data.TixDataPacket;
+import com.github.tix_measurements.time.core.data.TixPacket;
+import com.github.tix_measurements.time.core.data.TixPacketType;
+import com.github.tix_measurements.time.core.encoder.TixMessageEncoder;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.socket.DatagramPacket;
+import org.apache.commons.lang3.RandomUtils;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TixRateLimitFilterTest {
+	private static final InetSocketAddress FROM = InetSocketAddress.createUnresolved("localhost", 4500);
+	private static final InetSocketAddress OTHER_PORT = InetSocketAddress.createUnresolved("localhost", 4600);
+	private static final InetSocketAddress OTHER_FROM = InetSocketAddress.createUnresolved("otherhost", 4500);
+	private static final InetSocketAddress TO = InetSocketAddress.createUnresolved("localhost", 4501);
+	private static final int BURST = 3;
+
+	private static DatagramPacket encode(TixPacket packet) {
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(new TixMessageEncoder());
+		assertThat(encoderChannel.writeOutbound(packet)).isTrue();
+		return (DatagramPacket) encoderChannel.readOutbound();
+	}
+
+	private static DatagramPacket[] fragments(TixPacket packet) {
+		EmbeddedChannel encoderChannel = new EmbeddedChannel(
+				new TixMessageEncoder(TixFragmentCodec.DEFAULT_MAX_DATAGRAM_BYTES));
+		assertThat(encoderChannel.writeOutbound(packet)).isTrue();
+		DatagramPacket[] fragments = new DatagramPacket[encoderChannel.outboundMessages().size()];
+		for (int i = 0; i < fragments.length; i++) {
+			fragments[i] = (DatagramPacket) encoderChannel.readOutbound();
+		}
+		return fragments;
+	}
+
+	private static TixDataPacket dataPacket(InetSocketAddress from, long installationId) {
+		return new TixDataPacket(from, TO, 1L, 1L, installationId,
+				RandomUtils.nextBytes(294), RandomUtils.nextBytes(320), RandomUtils.nextBytes(256));
+	}
+
+	private static int passedDatagrams(EmbeddedChannel channel, TixPacket packet, int times) {
+		int passed = 0;
+		for (int i = 0; i < times; i++) {
+			if (channel.writeInbound(encode(packet))) {
+				DatagramPacket datagramPacket = (DatagramPacket) channel.readInbound();
+				datagramPacket.release();
+				passed++;
+			}
+		}
+		return passed;
+	}
+
+	@Test
+	public void testLimitsLongPacketsBySender() {
+		TixRateLimitFilter filter = new TixRateLimitFilter(new TixRateLimiter(0.001, BURST),
+				TixRateLimitFilter.Key.SENDER_ADDRESS);
+		EmbeddedChannel channel = new EmbeddedChannel(filter);
+		assertThat(passedDatagrams(channel, new TixPacket(FROM, TO, TixPacketType.LONG, 1L), 10)).isEqualTo(BURST);
+		// Another port of the same address shares its bucket
+		assertThat(passedDatagrams(channel, new TixPacket(OTHER_PORT, TO, TixPacketType.LONG, 1L), 1)).isZero();
+		assertThat(passedDatagrams(channel, new TixPacket(OTHER_FROM, TO, TixPacketType.LONG, 1L), 1)).isEqualTo(1);
+		assertThat(filter.getDroppedPackets()).isEqualTo(10 - BURST + 1);
+		assertThat(filter.getPassedPackets()).isEqualTo(BURST + 1);
+	}
+
+	@Test
+	public void testShortPacketsAreNotLimited() {
+		TixRateLimitFilter filter = new TixRateLimitFilter(new TixRateLimiter(0.001, BURST),
+				TixRateLimitFilter.Key.SENDER_ADDRESS);
+		EmbeddedChannel channel = new EmbeddedChannel(filter);
+		assertThat(passedDatagrams(channel, new TixPacket(FROM, TO, TixPacketType.SHORT, 1L), 10)).isEqualTo(10);
+		assertThat(filter.getDroppedPackets()).isZero();
+	}
+
+	@Test
+	public void testLimitsDataPacketsByInstallation() {
+		TixRateLimitFilter filter = new TixRateLimitFilter(new TixRateLimiter(0.001, BURST),
+				TixRateLimitFilter.Key.INSTALLATION_ID);
+		EmbeddedChannel channel = new EmbeddedChannel(filter);
+		// The same installation is limited even when it changes its address
+		assertThat(passedDatagrams(channel, dataPacket(FROM, 1L), BURST)).isEqualTo(BURST);
+		assertThat(passedDatagrams(channel, dataPacket(OTHER_FROM, 1L), 1)).isZero();
+		// While another installation is only limited by its own address
+		assertThat(passedDatagrams(channel, dataPacket(OTHER_FROM, 2L), 1)).isEqualTo(1);
+		assertThat(passedDatagrams(channel, dataPacket(FROM, 3L), 1)).isZero();
+	}
+
+	@Test
+	public void testChangingInstallationIdsDoesNotEscapeTheAddressLimit() {
+		TixRateLimitFilter filter = new TixRateLimitFilter(new TixRateLimiter(0.001, BURST),
+				TixRateLimitFilter.Key.INSTALLATION_ID);
+		EmbeddedChannel channel = new EmbeddedChannel(filter);
+		int passed = 0;
+		for (long installationId = 1; installationId <= 10; installationId++) {
+			passed += passedDatagrams(channel, dataPacket(FROM, installationId), 1);
+		}
+		assertThat(passed).isEqualTo(BURST);
+		assertThat(filter.getDroppedPackets()).isEqualTo(10 - BURST);
+	}
+
+	@Test
+	public void testFragmentsTakeAPermitEach() {
+		TixRateLimitFilter filter = new TixRateLimitFilter(new TixRateLimiter(0.001, BURST),
+				TixRateLimitFilter.Key.INSTALLATION_ID);
+		EmbeddedChannel channel = new EmbeddedChannel(filter);
+		for (int host = 0; host < 2 * BURST; host++) {
+			InetSocketAddress from = InetSocketAddress.createUnresolved("host" + host, 4500);
+			DatagramPacket[] fragments = fragments(dataPacket(from, 1L));
+			assertThat(fragments.length).isGreaterThan(BURST);
+			for (int i = 0; i < fragments.length; i++) {
+				// only the first fragment holds the installation ID, and every fragment takes a permit of the address
+				boolean passes = i == 0 ? host < BURST : i < BURST;
+				assertThat(channel.writeInbound(fragments[i])).isEqualTo(passes);
+				if (passes) {
+					((DatagramPacket) channel.readInbound()).release();
+				}
+			}
+		}
+	}
+}